@@ -0,0 +1,107 @@
+package com.vivumate.coreapi.cache;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Cross-node invalidation channel for in-process (L1) caches.
+ * <p>
+ * Every node keeps its own Caffeine caches, so a profile change handled by node A
+ * must evict the stale entry on nodes B, C… as well. Invalidations are broadcast on
+ * the Redis channel {@code cache:invalidate} as plain strings:
+ * <pre>
+ * {cacheName}|{originServerId}|{key}
+ * </pre>
+ * The origin server ignores its own messages — it has already evicted locally.
+ * <p>
+ * Pub/sub is fire-and-forget: a node that misses a message (e.g. during a reconnect)
+ * keeps the stale entry until its TTL expires, so every L1 cache using this bus
+ * MUST also have a TTL.
+ */
+@Component
+@Slf4j(topic = "CACHE_INVALIDATION_BUS")
+public class CacheInvalidationBus implements MessageListener {
+
+    public static final String CHANNEL = "cache:invalidate";
+
+    private static final char SEPARATOR = '|';
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String serverId;
+
+    /** cacheName → local eviction callback. */
+    private final Map<String, Consumer<String>> handlers = new ConcurrentHashMap<>();
+
+    public CacheInvalidationBus(StringRedisTemplate redisTemplate,
+                                RedisMessageListenerContainer listenerContainer,
+                                @Value("${vivumate.server.id:local-dev}") String serverId) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.serverId = serverId;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    /**
+     * Register the eviction callback of a local cache.
+     * Called once per cache, typically from its constructor.
+     */
+    public void register(String cacheName, Consumer<String> onRemoteInvalidate) {
+        handlers.put(cacheName, onRemoteInvalidate);
+    }
+
+    /**
+     * Broadcast an invalidation to all other nodes.
+     * Failures are logged, never thrown — the caller's write has already succeeded.
+     */
+    public void publish(String cacheName, String key) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, cacheName + SEPARATOR + serverId + SEPARATOR + key);
+        } catch (Exception e) {
+            log.warn("Failed to publish invalidation: cache={}, key={}. Remote nodes fall back to TTL.",
+                    cacheName, key, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+
+        int first = body.indexOf(SEPARATOR);
+        int second = first < 0 ? -1 : body.indexOf(SEPARATOR, first + 1);
+        if (second < 0) {
+            log.warn("Malformed invalidation message ignored: {}", body);
+            return;
+        }
+
+        String cacheName = body.substring(0, first);
+        String origin = body.substring(first + 1, second);
+        String key = body.substring(second + 1);
+
+        if (serverId.equals(origin)) {
+            return;
+        }
+
+        Consumer<String> handler = handlers.get(cacheName);
+        if (handler != null) {
+            handler.accept(key);
+            log.debug("Remote invalidation applied: cache={}, key={}, origin={}", cacheName, key, origin);
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.vivumate.coreapi.cache;
+
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.subdoc.LastMessagePreview;
+import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import com.vivumate.coreapi.repository.redis.ConversationListRedisRepository;
+import com.vivumate.coreapi.repository.redis.ConversationListRedisRepository.Entry;
+import com.vivumate.coreapi.repository.redis.ConversationListRedisRepository.Item;
+import com.vivumate.coreapi.repository.redis.ConversationListRedisRepository.ItemSeed;
+import com.vivumate.coreapi.repository.redis.ConversationListRedisRepository.Page;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Redis cache of the first page of each user's conversation list ({@code cache:convlist:{userId}}),
+ * patched in place by events instead of being dropped and recomputed.
+ * <p>
+ * <b>Layout</b> ({@link ConversationListRedisRepository}): a per-user sorted set holds the order
+ * (newest {@code capacity} conversations, score = {@code lastActivityAt}); display fields and the
+ * last message preview are stored once per conversation and shared by all members.
+ * <p>
+ * <b>Patches</b> — call AFTER the MongoDB write has completed:
+ * <ul>
+ *   <li>New message ({@link #onLastMessages}) — moves the conversation to the head of every
+ *       member's page (except members who cleared it later) and stores the new preview</li>
+ *   <li>Member added / removed, conversation created / cleared / dissolved
+ *       ({@link #addEntries}, {@link #removeEntries}) — inserts or removes the entry</li>
+ *   <li>Rename, avatar, nickname, member list, edited preview ({@link #invalidate}) — drops the
+ *       shared display fields; the next read re-loads just those conversations by {@code _id}</li>
+ *   <li>Recalled last message ({@link #invalidateLists}) — the conversation moves back in the
+ *       list, so the members' pages are dropped</li>
+ * </ul>
+ * Only a page that is missing, expired or too short runs the list query again. Unread counters
+ * are not cached: they are read live from Redis by the caller, so mark-as-read needs no patch.
+ * <p>
+ * A failed patch drops the affected pages; a failed read falls back to MongoDB.
+ * <p>
+ * Metrics: {@code vivumate.chat.conversation_list.lookups{result=hit|partial|loaded|fallback|bypass}}
+ * (hit ratio = {@code (hit + partial) / all}; {@code loaded + fallback + bypass} = list queries run).
+ */
+@Component
+@Slf4j(topic = "CONVERSATION_LIST_CACHE")
+public class ConversationListCache {
+
+    private static final String LOOKUP_METRIC = "vivumate.chat.conversation_list.lookups";
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private final ConversationListRedisRepository redisRepository;
+    private final ConversationRepository conversationRepository;
+    private final ConversationMembershipCache membershipCache;
+    private final MongoConverter mongoConverter;
+    private final boolean enabled;
+    private final int capacity;
+    private final Duration idle;
+
+    /** Stored field names kept out of the shared display fields (per-user or per-page state). */
+    private final List<String> excludedFields;
+
+    private final Counter hits;
+    private final Counter partialHits;
+    private final Counter loads;
+    private final Counter fallbacks;
+    private final Counter bypasses;
+
+    public ConversationListCache(ConversationListRedisRepository redisRepository,
+                                 ConversationRepository conversationRepository,
+                                 ConversationMembershipCache membershipCache,
+                                 MongoConverter mongoConverter,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${vivumate.chat.cache.conversation-list.enabled:false}") boolean enabled,
+                                 @Value("${vivumate.chat.cache.conversation-list.capacity:50}") int capacity,
+                                 @Value("${vivumate.chat.cache.conversation-list.idle:PT5M}") Duration idle) {
+        this.redisRepository = redisRepository;
+        this.conversationRepository = conversationRepository;
+        this.membershipCache = membershipCache;
+        this.mongoConverter = mongoConverter;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.idle = idle;
+
+        MongoPersistentEntity<?> entity = mongoConverter.getMappingContext()
+                .getRequiredPersistentEntity(ConversationDocument.class);
+        this.excludedFields = List.of("_class",
+                entity.getRequiredPersistentProperty("lastMessage").getFieldName(),
+                entity.getRequiredPersistentProperty("lastActivityAt").getFieldName(),
+                entity.getRequiredPersistentProperty("unreadCounts").getFieldName(),
+                entity.getRequiredPersistentProperty("unreadMentions").getFieldName());
+
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.partialHits = lookupCounter(meterRegistry, "partial");
+        this.loads = lookupCounter(meterRegistry, "loaded");
+        this.fallbacks = lookupCounter(meterRegistry, "fallback");
+        this.bypasses = lookupCounter(meterRegistry, "bypass");
+
+        log.info("Initialized with enabled={}, capacity={}, idle={}", enabled, capacity, idle);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  READ PATH
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * First page of the user's conversation list, newest first.
+     *
+     * @param loader runs the list query for the first {@code n} conversations (on a miss it is
+     *               called with {@code capacity}, and the result seeds the page)
+     * @return the page; unread counters are NOT set on conversations served from Redis
+     */
+    public List<ConversationDocument> firstPage(Long userId, int pageSize,
+                                                IntFunction<List<ConversationDocument>> loader) {
+        if (!enabled || pageSize > capacity) {
+            bypasses.increment();
+            return loader.apply(pageSize);
+        }
+
+        Page page;
+        try {
+            page = redisRepository.readPage(userId, pageSize, idle);
+            if (page.exists() && (page.entries().size() >= pageSize || page.reachesEnd())) {
+                List<ConversationDocument> cached = readItems(userId, page.entries().subList(0,
+                        Math.min(pageSize, page.entries().size())));
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Conversation list cache unavailable, falling back to MongoDB: userId={}", userId, e);
+            fallbacks.increment();
+            return loader.apply(pageSize);
+        }
+
+        List<ConversationDocument> loaded = loader.apply(capacity);
+        loads.increment();
+        seed(userId, page.version(), loaded);
+        return new ArrayList<>(loaded.subList(0, Math.min(pageSize, loaded.size())));
+    }
+
+    /**
+     * Conversations of the page entries. Display fields missing from Redis are re-loaded by
+     * {@code _id} and stored back.
+     *
+     * @return null if an entry no longer resolves to a live conversation — the page must be rebuilt
+     */
+    private List<ConversationDocument> readItems(Long userId, List<Entry> entries) {
+        List<ObjectId> ids = entries.stream().map(Entry::conversationId).toList();
+        List<Item> items = redisRepository.readItems(ids, idle);
+
+        Map<ObjectId, String> missing = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).doc() == null) {
+                missing.put(ids.get(i), items.get(i).version());
+            }
+        }
+
+        Map<ObjectId, ConversationDocument> reloaded = new HashMap<>();
+        if (!missing.isEmpty()) {
+            for (ConversationDocument conversation :
+                    conversationRepository.findListItemsByIds(userId, missing.keySet())) {
+                reloaded.put(conversation.getId(), conversation);
+            }
+            if (reloaded.size() < missing.size()) {
+                return null;
+            }
+            redisRepository.seedItems(reloaded.values().stream()
+                    .map(conversation -> itemSeed(conversation, missing.get(conversation.getId())))
+                    .toList(), idle);
+        }
+
+        List<ConversationDocument> conversations = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            ConversationDocument conversation = reloaded.get(ids.get(i));
+            if (conversation == null) {
+                conversation = decode(items.get(i));
+            }
+            // The page score is the user's activity time, patched with every new message
+            conversation.setLastActivityAt(Instant.ofEpochMilli(entries.get(i).lastActivityAtMillis()));
+            conversations.add(conversation);
+        }
+
+        (missing.isEmpty() ? hits : partialHits).increment();
+        return conversations;
+    }
+
+    private void seed(Long userId, String pageVersion, List<ConversationDocument> loaded) {
+        try {
+            List<ItemSeed> seeds = new ArrayList<>(loaded.size());
+            List<Entry> entries = new ArrayList<>(loaded.size());
+            for (ConversationDocument conversation : loaded) {
+                // Version "": items evicted meanwhile are left to the next read, which re-loads them
+                seeds.add(itemSeed(conversation, ""));
+                entries.add(new Entry(conversation.getId(), millisOf(conversation.getLastActivityAt())));
+            }
+            redisRepository.seedItems(seeds, idle);
+            // A patch raced the query: serve this (fresh) result, but never cache it
+            redisRepository.seedPage(userId, pageVersion, entries, loaded.size() < capacity, idle);
+        } catch (RuntimeException e) {
+            log.warn("Failed to cache conversation list: userId={}", userId, e);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  PATCHES — call AFTER the MongoDB write has completed
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * New last message of each conversation: move it to the head of the members' pages and
+     * store the preview. Members who cleared the conversation after the message are skipped.
+     */
+    public void onLastMessages(Map<ObjectId, LastMessagePreview> previews) {
+        if (!enabled || previews.isEmpty()) {
+            return;
+        }
+
+        Map<ObjectId, ConversationMembership> memberships;
+        try {
+            memberships = membershipCache.getAll(previews.keySet());
+        } catch (RuntimeException e) {
+            log.error("Failed to patch conversation lists: conversations={}. Pages expire after {} idle.",
+                    previews.size(), idle, e);
+            return;
+        }
+        previews.forEach((conversationId, preview) -> {
+            ConversationMembership membership = memberships.get(conversationId);
+            if (membership == null) {
+                return; // Dissolved meanwhile
+            }
+
+            Instant sentAt = preview.getSentAt();
+            List<Long> recipients = membership.memberIds().stream()
+                    .filter(userId -> {
+                        Instant clearedAt = membership.clearedAtOf(userId);
+                        return clearedAt == null || sentAt.isAfter(clearedAt);
+                    })
+                    .toList();
+
+            mutate(recipients, () -> redisRepository.addEntry(conversationId, recipients, millisOf(sentAt),
+                    preview.getMessageId(), encode(preview), capacity, idle));
+        });
+    }
+
+    /**
+     * Insert the conversation into the pages of {@code userIds} at its current activity time,
+     * e.g. after it was created or they joined.
+     */
+    public void addEntries(ConversationDocument conversation, Collection<Long> userIds) {
+        if (!enabled || userIds.isEmpty()) {
+            return;
+        }
+
+        mutate(userIds, () -> redisRepository.addEntry(conversation.getId(), userIds,
+                millisOf(conversation.getLastActivityAt()), null, null, capacity, idle));
+    }
+
+    /**
+     * Remove the conversation from the pages of {@code userIds}, e.g. after they left,
+     * were removed, cleared it or it was dissolved.
+     */
+    public void removeEntries(ObjectId conversationId, Collection<Long> userIds) {
+        if (!enabled || userIds.isEmpty()) {
+            return;
+        }
+
+        mutate(userIds, () -> redisRepository.removeEntry(conversationId, userIds, idle));
+    }
+
+    /**
+     * Drop the shared display fields and preview of these conversations after a change that
+     * cannot be patched (rename, avatar, nickname, member list, edited preview).
+     */
+    public void invalidate(Collection<ObjectId> conversationIds) {
+        if (!enabled || conversationIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            redisRepository.evictItems(conversationIds, idle);
+        } catch (RuntimeException e) {
+            log.error("Failed to drop cached conversations: conversations={}. Entries expire after {} idle.",
+                    conversationIds.size(), idle, e);
+        }
+    }
+
+    /**
+     * Drop the conversation and the whole pages of {@code userIds}, after a change that moved
+     * the conversation back in the list (e.g. its last message was recalled).
+     */
+    public void invalidateLists(ObjectId conversationId, Collection<Long> userIds) {
+        if (!enabled) {
+            return;
+        }
+
+        invalidate(List.of(conversationId));
+        mutate(userIds, () -> redisRepository.deletePages(userIds, idle));
+    }
+
+    private void mutate(Collection<Long> userIds, Runnable redisWrite) {
+        try {
+            redisWrite.run();
+        } catch (RuntimeException e) {
+            log.warn("Failed to patch conversation lists, dropping the pages: users={}", userIds.size(), e);
+            try {
+                redisRepository.deletePages(userIds, idle);
+            } catch (RuntimeException deleteFailure) {
+                log.error("Failed to drop conversation lists: users={}. Pages expire after {} idle.",
+                        userIds.size(), idle, deleteFailure);
+            }
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  ENCODING
+    // ═══════════════════════════════════════════════════════════
+
+    private ItemSeed itemSeed(ConversationDocument conversation, String expectedVersion) {
+        LastMessagePreview preview = conversation.getLastMessage();
+        return new ItemSeed(conversation.getId(), expectedVersion, encodeDisplayFields(conversation),
+                preview != null ? preview.getMessageId() : null,
+                preview != null ? encode(preview) : null);
+    }
+
+    /**
+     * BSON of the mapped conversation without per-user / per-page fields.
+     */
+    byte[] encodeDisplayFields(ConversationDocument conversation) {
+        Document document = new Document();
+        mongoConverter.write(conversation, document);
+        excludedFields.forEach(document::remove);
+        return toBytes(document);
+    }
+
+    byte[] encode(LastMessagePreview preview) {
+        Document document = new Document();
+        mongoConverter.write(preview, document);
+        document.remove("_class");
+        return toBytes(document);
+    }
+
+    ConversationDocument decode(Item item) {
+        ConversationDocument conversation = mongoConverter.read(ConversationDocument.class, toDocument(item.doc()));
+        if (item.last() != null) {
+            conversation.setLastMessage(mongoConverter.read(LastMessagePreview.class, toDocument(item.last())));
+        }
+        return conversation;
+    }
+
+    private static byte[] toBytes(Document document) {
+        ByteBuffer bson = new RawBsonDocument(document, DOCUMENT_CODEC).getByteBuffer().asNIO();
+        byte[] bytes = new byte[bson.remaining()];
+        bson.get(bytes);
+        return bytes;
+    }
+
+    private static Document toDocument(byte[] bson) {
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(bson))) {
+            return DOCUMENT_CODEC.decode(reader, DECODER_CONTEXT);
+        }
+    }
+
+    private static long millisOf(Instant instant) {
+        return instant != null ? instant.toEpochMilli() : 0L;
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(LOOKUP_METRIC)
+                .description("First-page conversation list loads by where the page came from")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,112 @@
+package com.vivumate.coreapi.cache;
+
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.enums.ConversationType;
+import com.vivumate.coreapi.document.enums.ParticipantRole;
+import com.vivumate.coreapi.document.subdoc.Participant;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compact, immutable membership index of one conversation.
+ * <p>
+ * Member IDs are stored as a sorted primitive {@code long[]} (binary search, no boxing);
+ * {@code roles} and {@code clearedAt} are parallel arrays aligned with {@code memberIds}.
+ * For a 100-member group this is ~2 KB instead of a full {@link ConversationDocument}.
+ */
+public final class ConversationMembership {
+
+    private final ConversationType type;
+    private final long[] memberIds;
+    private final ParticipantRole[] roles;
+    private final Instant[] clearedAt;
+
+    private ConversationMembership(ConversationType type, long[] memberIds,
+                                   ParticipantRole[] roles, Instant[] clearedAt) {
+        this.type = type;
+        this.memberIds = memberIds;
+        this.roles = roles;
+        this.clearedAt = clearedAt;
+    }
+
+    /**
+     * Build from a (possibly projected) conversation document.
+     * Only {@code type}, {@code participants.userId/role/clearedAt} are read.
+     */
+    public static ConversationMembership from(ConversationDocument conversation) {
+        List<Participant> participants = conversation.getParticipants().stream()
+                .filter(p -> p.getUserId() != null)
+                .sorted(Comparator.comparingLong(Participant::getUserId))
+                .toList();
+
+        int size = participants.size();
+        long[] ids = new long[size];
+        ParticipantRole[] roles = new ParticipantRole[size];
+        Instant[] clearedAt = new Instant[size];
+
+        for (int i = 0; i < size; i++) {
+            Participant p = participants.get(i);
+            ids[i] = p.getUserId();
+            roles[i] = p.getRole();
+            clearedAt[i] = p.getClearedAt();
+        }
+
+        return new ConversationMembership(conversation.getType(), ids, roles, clearedAt);
+    }
+
+    public ConversationType type() {
+        return type;
+    }
+
+    public boolean isGroup() {
+        return type == ConversationType.GROUP;
+    }
+
+    public int memberCount() {
+        return memberIds.length;
+    }
+
+    public boolean isMember(long userId) {
+        return Arrays.binarySearch(memberIds, userId) >= 0;
+    }
+
+    public boolean isAdmin(long userId) {
+        return roleOf(userId) == ParticipantRole.ADMIN;
+    }
+
+    /**
+     * @return the member's role, or null if the user is not a member
+     */
+    public ParticipantRole roleOf(long userId) {
+        int i = Arrays.binarySearch(memberIds, userId);
+        return i >= 0 ? roles[i] : null;
+    }
+
+    /**
+     * @return the member's clear-history watermark, or null if never cleared / not a member
+     */
+    public Instant clearedAtOf(long userId) {
+        int i = Arrays.binarySearch(memberIds, userId);
+        return i >= 0 ? clearedAt[i] : null;
+    }
+
+    /**
+     * @return all member IDs except {@code excludedUserId}, in ascending order
+     */
+    public List<Long> memberIdsExcept(long excludedUserId) {
+        return Arrays.stream(memberIds)
+                .filter(id -> id != excludedUserId)
+                .boxed()
+                .toList();
+    }
+
+    /**
+     * @return all member IDs, in ascending order
+     */
+    public List<Long> memberIds() {
+        return Arrays.stream(memberIds).boxed().toList();
+    }
+}
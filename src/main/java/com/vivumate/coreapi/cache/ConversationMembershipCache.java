@@ -0,0 +1,161 @@
+package com.vivumate.coreapi.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process (L1) cache of {@link ConversationMembership} keyed by conversation ID.
+ * <p>
+ * Replaces the full-document {@code findByIdAndParticipantId} fetch on the send / load /
+ * search hot paths. A miss loads a narrow projection ({@code findMembershipById}).
+ * <p>
+ * <b>Versioned invalidation:</b> every {@link #invalidate(ObjectId)} bumps a version
+ * stripe BEFORE evicting. A load only populates the cache if the version it observed
+ * before querying MongoDB is unchanged afterwards, and re-checks it after the put (an
+ * invalidation landing between check and put evicted nothing yet), so a load racing with a
+ * membership change can never leave the pre-change snapshot cached.
+ * <p>
+ * Callers MUST invalidate after every write that changes members, roles or
+ * {@code clearedAt}, or soft-deletes the conversation. Other nodes are invalidated
+ * through {@link CacheInvalidationBus}; the TTL bounds staleness if a broadcast is lost.
+ */
+@Component
+@Slf4j(topic = "MEMBERSHIP_CACHE")
+public class ConversationMembershipCache {
+
+    public static final String CACHE_NAME = "conversation_membership";
+
+    private static final int VERSION_STRIPES = 1024;
+
+    private final Cache<ObjectId, ConversationMembership> cache;
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final ConversationRepository conversationRepository;
+    private final CacheInvalidationBus invalidationBus;
+
+    public ConversationMembershipCache(ConversationRepository conversationRepository,
+                                       CacheInvalidationBus invalidationBus,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${vivumate.chat.cache.membership.max-size:100000}") long maxSize,
+                                       @Value("${vivumate.chat.cache.membership.ttl:PT5M}") Duration ttl) {
+        this(Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(), conversationRepository, invalidationBus);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        log.info("Initialized with maxSize={}, ttl={}", maxSize, ttl);
+    }
+
+    ConversationMembershipCache(Cache<ObjectId, ConversationMembership> cache,
+                                ConversationRepository conversationRepository,
+                                CacheInvalidationBus invalidationBus) {
+        this.cache = cache;
+        this.conversationRepository = conversationRepository;
+        this.invalidationBus = invalidationBus;
+        invalidationBus.register(CACHE_NAME, key -> evictLocally(new ObjectId(key)));
+    }
+
+    /**
+     * Membership of an active (not soft-deleted) conversation, or empty if it does not exist.
+     */
+    public Optional<ConversationMembership> get(ObjectId conversationId) {
+        ConversationMembership cached = cache.getIfPresent(conversationId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long versionBeforeLoad = versions.get(stripeOf(conversationId));
+
+        Optional<ConversationMembership> loaded = conversationRepository.findMembershipById(conversationId)
+                .map(ConversationMembership::from);
+
+        loaded.ifPresent(membership -> cacheIfCurrent(conversationId, versionBeforeLoad, membership));
+        return loaded;
+    }
+
+    /**
+     * {@link #get} for several conversations: cached entries plus ONE projection query for the misses.
+     *
+     * @return memberships of the active conversations; soft-deleted / unknown IDs are absent
+     */
+    public Map<ObjectId, ConversationMembership> getAll(Collection<ObjectId> conversationIds) {
+        Map<ObjectId, ConversationMembership> result = new HashMap<>();
+        Map<ObjectId, Long> missVersions = new HashMap<>();
+        for (ObjectId conversationId : conversationIds) {
+            ConversationMembership cached = cache.getIfPresent(conversationId);
+            if (cached != null) {
+                result.put(conversationId, cached);
+            } else {
+                missVersions.put(conversationId, versions.get(stripeOf(conversationId)));
+            }
+        }
+        if (missVersions.isEmpty()) {
+            return result;
+        }
+
+        for (ConversationDocument conversation : conversationRepository.findMembershipsByIdIn(missVersions.keySet())) {
+            ObjectId conversationId = conversation.getId();
+            ConversationMembership membership = ConversationMembership.from(conversation);
+            cacheIfCurrent(conversationId, missVersions.get(conversationId), membership);
+            result.put(conversationId, membership);
+        }
+        return result;
+    }
+
+    /**
+     * Membership if {@code userId} is a member of the active conversation, otherwise empty.
+     */
+    public Optional<ConversationMembership> getIfMember(ObjectId conversationId, Long userId) {
+        return get(conversationId).filter(m -> m.isMember(userId));
+    }
+
+    /**
+     * Evict on this node and broadcast to other nodes.
+     * Call AFTER the MongoDB write that changed the membership has completed.
+     */
+    public void invalidate(ObjectId conversationId) {
+        evictLocally(conversationId);
+        invalidationBus.publish(CACHE_NAME, conversationId.toHexString());
+    }
+
+    /**
+     * Cache a loaded snapshot only if no invalidation happened since {@code versionBeforeLoad}.
+     * Check and put are not atomic: an invalidation between them bumps the version but evicts
+     * nothing, so the version is read again after the put and our own entry dropped if it moved.
+     */
+    private void cacheIfCurrent(ObjectId conversationId, long versionBeforeLoad, ConversationMembership membership) {
+        int stripe = stripeOf(conversationId);
+        if (versions.get(stripe) != versionBeforeLoad) {
+            return;
+        }
+        cache.put(conversationId, membership);
+        if (versions.get(stripe) != versionBeforeLoad) {
+            cache.invalidate(conversationId);
+        }
+    }
+
+    private void evictLocally(ObjectId conversationId) {
+        versions.incrementAndGet(stripeOf(conversationId));
+        cache.invalidate(conversationId);
+    }
+
+    private static int stripeOf(ObjectId conversationId) {
+        return (conversationId.hashCode() & 0x7fffffff) % VERSION_STRIPES;
+    }
+}
@@ -0,0 +1,158 @@
+package com.vivumate.coreapi.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vivumate.coreapi.document.HiddenMessagesDocument;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.repository.mongodb.HiddenMessagesRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-process (L1) cache of {@link HiddenMessages} keyed by (user, conversation).
+ * <p>
+ * Every feed / search request needs the requesting user's hidden set; most users have none,
+ * so empty sets are cached too and a miss is one unique-index lookup on {@code hidden_messages}.
+ * <p>
+ * Same versioned invalidation as {@link ConversationMembershipCache}: a load only populates the
+ * cache if no {@link #invalidate} hit its stripe while it was reading MongoDB. Callers MUST
+ * invalidate after every write to a bucket; other nodes are invalidated through
+ * {@link CacheInvalidationBus}, the TTL bounds staleness if a broadcast is lost.
+ */
+@Component
+@Slf4j(topic = "HIDDEN_MESSAGES_CACHE")
+public class HiddenMessagesCache {
+
+    public static final String CACHE_NAME = "hidden_messages";
+
+    private static final int VERSION_STRIPES = 1024;
+    private static final char KEY_SEPARATOR = ':';
+
+    private final Cache<Key, HiddenMessages> cache;
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final HiddenMessagesRepository hiddenMessagesRepository;
+    private final CacheInvalidationBus invalidationBus;
+
+    public HiddenMessagesCache(HiddenMessagesRepository hiddenMessagesRepository,
+                               CacheInvalidationBus invalidationBus,
+                               MeterRegistry meterRegistry,
+                               @Value("${vivumate.chat.cache.hidden-messages.max-size:200000}") long maxSize,
+                               @Value("${vivumate.chat.cache.hidden-messages.ttl:PT10M}") Duration ttl) {
+        this.hiddenMessagesRepository = hiddenMessagesRepository;
+        this.invalidationBus = invalidationBus;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        invalidationBus.register(CACHE_NAME, key -> evictLocally(Key.parse(key)));
+
+        log.info("Initialized with maxSize={}, ttl={}", maxSize, ttl);
+    }
+
+    /**
+     * Messages {@code userId} has hidden in the conversation ({@link HiddenMessages#NONE} if none).
+     */
+    public HiddenMessages get(ObjectId conversationId, Long userId) {
+        Key key = new Key(userId, conversationId);
+        HiddenMessages cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        int stripe = key.stripe();
+        long versionBeforeLoad = versions.get(stripe);
+
+        HiddenMessages loaded = hiddenMessagesRepository.findByUserIdAndConversationId(userId, conversationId)
+                .map(HiddenMessagesDocument::getMessageIds)
+                .map(HiddenMessages::of)
+                .orElse(HiddenMessages.NONE);
+
+        // Only cache if no hide happened while we were reading MongoDB
+        if (versions.get(stripe) == versionBeforeLoad) {
+            cache.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * {@link #get} for several conversations: cached sets plus ONE query for the misses.
+     *
+     * @return an entry for every requested conversation
+     */
+    public Map<ObjectId, HiddenMessages> getAll(Collection<ObjectId> conversationIds, Long userId) {
+        Map<ObjectId, HiddenMessages> result = new HashMap<>();
+        Map<Key, Long> missVersions = new HashMap<>();
+        for (ObjectId conversationId : conversationIds) {
+            Key key = new Key(userId, conversationId);
+            HiddenMessages cached = cache.getIfPresent(key);
+            if (cached != null) {
+                result.put(conversationId, cached);
+            } else {
+                missVersions.put(key, versions.get(key.stripe()));
+            }
+        }
+        if (missVersions.isEmpty()) {
+            return result;
+        }
+
+        List<ObjectId> missing = missVersions.keySet().stream().map(Key::conversationId).toList();
+        Map<ObjectId, HiddenMessages> loaded = new HashMap<>();
+        hiddenMessagesRepository.findAllByUserIdAndConversationIdIn(userId, missing)
+                .forEach(bucket -> loaded.put(bucket.getConversationId(), HiddenMessages.of(bucket.getMessageIds())));
+
+        missVersions.forEach((key, versionBeforeLoad) -> {
+            HiddenMessages hidden = loaded.getOrDefault(key.conversationId(), HiddenMessages.NONE);
+            if (versions.get(key.stripe()) == versionBeforeLoad) {
+                cache.put(key, hidden);
+            }
+            result.put(key.conversationId(), hidden);
+        });
+        return result;
+    }
+
+    /**
+     * Evict on this node and broadcast to other nodes.
+     * Call AFTER the MongoDB write to the bucket has completed.
+     */
+    public void invalidate(ObjectId conversationId, Long userId) {
+        Key key = new Key(userId, conversationId);
+        evictLocally(key);
+        invalidationBus.publish(CACHE_NAME, key.format());
+    }
+
+    private void evictLocally(Key key) {
+        versions.incrementAndGet(key.stripe());
+        cache.invalidate(key);
+    }
+
+    private record Key(long userId, ObjectId conversationId) {
+
+        static Key parse(String value) {
+            int separator = value.indexOf(KEY_SEPARATOR);
+            return new Key(Long.parseLong(value.substring(0, separator)),
+                    new ObjectId(value.substring(separator + 1)));
+        }
+
+        String format() {
+            return Long.toString(userId) + KEY_SEPARATOR + conversationId.toHexString();
+        }
+
+        int stripe() {
+            return (hashCode() & 0x7fffffff) % VERSION_STRIPES;
+        }
+    }
+}
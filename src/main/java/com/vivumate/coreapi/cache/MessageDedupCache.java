@@ -0,0 +1,69 @@
+package com.vivumate.coreapi.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vivumate.coreapi.document.MessageDocument;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Short-lived dedup window of recently saved messages, keyed by
+ * {@code (conversationId, clientMsgId)}.
+ * <p>
+ * A client retrying a send after a timeout reuses its {@code clientMsgId}; a retry arriving
+ * within {@code window} on the same node is answered from here with the ORIGINAL saved message —
+ * one map lookup, no MongoDB / Redis work, no second unread increment.
+ * <p>
+ * Retries landing on another node (or after the window) fall through to the send pipeline,
+ * where the unique index {@code idx_conversation_client_msg_unique} rejects the duplicate insert
+ * and the original is read back. The window is an optimization; the index is the guarantee.
+ * <p>
+ * Metrics ({@code cache="message_dedup"}): {@code cache.gets{result=hit|miss}}, {@code cache.size}.
+ */
+@Component
+@Slf4j(topic = "MESSAGE_DEDUP_CACHE")
+public class MessageDedupCache {
+
+    public static final String CACHE_NAME = "message_dedup";
+
+    private final Cache<String, MessageDocument> cache;
+
+    public MessageDedupCache(MeterRegistry meterRegistry,
+                             @Value("${vivumate.chat.cache.message-dedup.max-size:100000}") long maxSize,
+                             @Value("${vivumate.chat.cache.message-dedup.window:PT5M}") Duration window) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(window)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        log.info("Initialized with maxSize={}, window={}", maxSize, window);
+    }
+
+    /**
+     * @return the message previously saved with this {@code clientMsgId}, or null
+     */
+    public MessageDocument get(ObjectId conversationId, String clientMsgId) {
+        return cache.getIfPresent(key(conversationId, clientMsgId));
+    }
+
+    /**
+     * Remember a saved message. Ignored for messages without a {@code clientMsgId}.
+     */
+    public void put(MessageDocument message) {
+        if (message.getClientMsgId() != null) {
+            cache.put(key(message.getConversationId(), message.getClientMsgId()), message);
+        }
+    }
+
+    private static String key(ObjectId conversationId, String clientMsgId) {
+        return conversationId.toHexString() + ':' + clientMsgId;
+    }
+}
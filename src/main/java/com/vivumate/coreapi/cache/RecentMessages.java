@@ -0,0 +1,71 @@
+package com.vivumate.coreapi.cache;
+
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Immutable snapshot of the last N messages of one conversation, newest first.
+ * <p>
+ * Holds every message of the conversation newer than its oldest entry (recalled ones excepted),
+ * with NO per-user filtering — {@code clearedAt} and {@link HiddenMessages} are applied per request.
+ * The messages are shared between requests and MUST be treated as read-only.
+ */
+public final class RecentMessages {
+
+    private final List<MessageDocument> newestFirst;
+    private final boolean reachesStart;
+
+    /**
+     * @param newestFirst  messages sorted by {@code _id} descending
+     * @param reachesStart true if there is no older message in the conversation
+     */
+    public RecentMessages(List<MessageDocument> newestFirst, boolean reachesStart) {
+        this.newestFirst = List.copyOf(newestFirst);
+        this.reachesStart = reachesStart;
+    }
+
+    /**
+     * The first page {@code findMessagesByConversation(conv, hidden, null, clearedAt, pageSize)} would return.
+     *
+     * @param hidden messages the requesting user has deleted for themselves
+     * @return empty if the page may include messages older than this snapshot
+     */
+    public Optional<List<MessageDocument>> firstPage(HiddenMessages hidden, Instant clearedAt, int pageSize) {
+        ObjectId minId = clearedAt != null ? new ObjectId(Date.from(clearedAt)) : null;
+        List<MessageDocument> page = new ArrayList<>(Math.min(pageSize, newestFirst.size()));
+
+        for (MessageDocument message : newestFirst) {
+            if (minId != null && message.getId().compareTo(minId) <= 0) {
+                return Optional.of(page); // Reached the watermark: nothing older is visible anyway
+            }
+            if (message.isDeletedForEveryone() || hidden.contains(message.getId())) {
+                continue;
+            }
+            page.add(message);
+            if (page.size() == pageSize) {
+                return Optional.of(page);
+            }
+        }
+
+        return reachesStart ? Optional.of(page) : Optional.empty();
+    }
+
+    public List<MessageDocument> messages() {
+        return newestFirst;
+    }
+
+    public boolean reachesStart() {
+        return reachesStart;
+    }
+
+    public int size() {
+        return newestFirst.size();
+    }
+}
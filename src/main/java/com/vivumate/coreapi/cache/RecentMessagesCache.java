@@ -0,0 +1,308 @@
+package com.vivumate.coreapi.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.repository.mongodb.MessageRepository;
+import com.vivumate.coreapi.repository.redis.RecentMessagesRedisRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.vivumate.coreapi.repository.redis.RecentMessagesRedisRepository.HEADER_BYTES;
+
+/**
+ * Two-level cache of the last {@code capacity} messages of each conversation, serving the
+ * first page of {@code loadMessages} (the most frequent chat query) without MongoDB.
+ * <p>
+ * <b>Levels:</b>
+ * <ul>
+ *   <li>L1 — Caffeine, {@link RecentMessages} per conversation, bounded by the total number of
+ *       messages held and dropped after {@code idle} without a load</li>
+ *   <li>L2 — {@link RecentMessagesRedisRepository}, shared by all nodes, messages stored as
+ *       their mapped BSON (exactly what MongoDB holds, no {@code _class}, no nulls), idle TTL</li>
+ *   <li>Miss — ONE query for the newest {@code capacity} messages, written back to both levels</li>
+ * </ul>
+ * <b>Writes:</b> send / edit / recall update the Redis ring in place, then evict L1
+ * on every node ({@link CacheInvalidationBus}); the next load re-reads the ring from Redis.
+ * L1 loads use the same versioned-stripe guard as {@link ConversationMembershipCache}.
+ * <p>
+ * Per-user filters ({@code clearedAt}, {@link HiddenMessages}) are applied in memory. If the ring
+ * cannot fill the page (e.g. the user hid most of it), the caller falls back to MongoDB.
+ * <p>
+ * Metrics: {@code vivumate.chat.recent_messages.lookups{result=l1|l2|loaded|fallback|bypass}}
+ * (hit ratio = {@code (l1 + l2) / all}), plus Caffeine stats for L1 ({@code cache="recent_messages"}).
+ */
+@Component
+@Slf4j(topic = "RECENT_MESSAGES_CACHE")
+public class RecentMessagesCache {
+
+    public static final String CACHE_NAME = "recent_messages";
+
+    private static final String LOOKUP_METRIC = "vivumate.chat.recent_messages.lookups";
+    private static final int VERSION_STRIPES = 1024;
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private final Cache<ObjectId, RecentMessages> cache;
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final RecentMessagesRedisRepository redisRepository;
+    private final MessageRepository messageRepository;
+    private final MongoConverter mongoConverter;
+    private final CacheInvalidationBus invalidationBus;
+    private final int capacity;
+    private final Duration redisIdle;
+
+    private final Counter l1Hits;
+    private final Counter l2Hits;
+    private final Counter loads;
+    private final Counter fallbacks;
+    private final Counter bypasses;
+
+    public RecentMessagesCache(RecentMessagesRedisRepository redisRepository,
+                               MessageRepository messageRepository,
+                               MongoConverter mongoConverter,
+                               CacheInvalidationBus invalidationBus,
+                               MeterRegistry meterRegistry,
+                               @Value("${vivumate.chat.cache.recent-messages.capacity:50}") int capacity,
+                               @Value("${vivumate.chat.cache.recent-messages.max-messages:100000}") long maxMessages,
+                               @Value("${vivumate.chat.cache.recent-messages.idle:PT2M}") Duration idle,
+                               @Value("${vivumate.chat.cache.recent-messages.ttl:PT5M}") Duration ttl,
+                               @Value("${vivumate.chat.cache.recent-messages.redis-idle:PT30M}") Duration redisIdle) {
+        this.redisRepository = redisRepository;
+        this.messageRepository = messageRepository;
+        this.mongoConverter = mongoConverter;
+        this.invalidationBus = invalidationBus;
+        this.capacity = capacity;
+        this.redisIdle = redisIdle;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxMessages)
+                .weigher((ObjectId conversationId, RecentMessages ring) -> ring.size() + 1)
+                .expireAfterAccess(idle)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        invalidationBus.register(CACHE_NAME, key -> evictLocally(new ObjectId(key)));
+
+        this.l1Hits = lookupCounter(meterRegistry, "l1");
+        this.l2Hits = lookupCounter(meterRegistry, "l2");
+        this.loads = lookupCounter(meterRegistry, "loaded");
+        this.fallbacks = lookupCounter(meterRegistry, "fallback");
+        this.bypasses = lookupCounter(meterRegistry, "bypass");
+
+        log.info("Initialized with capacity={}, maxMessages={}, idle={}, ttl={}, redisIdle={}",
+                capacity, maxMessages, idle, ttl, redisIdle);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  READ PATH
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * First page of a conversation for one user, newest first.
+     *
+     * @return empty if the ring cannot answer — the caller must query MongoDB
+     */
+    public Optional<List<MessageDocument>> firstPage(ObjectId conversationId, HiddenMessages hidden,
+                                                     Instant clearedAt, int pageSize) {
+        if (pageSize > capacity) {
+            bypasses.increment();
+            return Optional.empty();
+        }
+
+        RecentMessages ring = cache.getIfPresent(conversationId);
+        Counter source = l1Hits;
+        if (ring == null) {
+            Loaded loaded = load(conversationId);
+            ring = loaded != null ? loaded.ring() : null;
+            source = loaded != null ? loaded.source() : fallbacks;
+        }
+
+        Optional<List<MessageDocument>> page = ring != null
+                ? ring.firstPage(hidden, clearedAt, pageSize)
+                : Optional.empty();
+        (page.isPresent() ? source : fallbacks).increment();
+        return page;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  WRITE PATH — call AFTER the MongoDB write has completed
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Add a newly persisted message.
+     */
+    public void onSent(MessageDocument message) {
+        ObjectId conversationId = message.getConversationId();
+        mutate(conversationId, () -> redisRepository.append(conversationId, encode(message), capacity, redisIdle));
+    }
+
+    /**
+     * Replace a message with its current state, as re-read from MongoDB after an edit
+     * or recall. Recalled messages are dropped from the ring.
+     */
+    public void onUpdated(MessageDocument message) {
+        ObjectId conversationId = message.getConversationId();
+        mutate(conversationId, () -> {
+            if (message.isDeletedForEveryone()) {
+                redisRepository.remove(conversationId, message.getId(), redisIdle);
+            } else {
+                redisRepository.replace(conversationId, encode(message), redisIdle);
+            }
+        });
+    }
+
+    /**
+     * Drop the rings of these conversations, e.g. after a bulk rewrite of their messages.
+     */
+    public void invalidate(Collection<ObjectId> conversationIds) {
+        try {
+            redisRepository.delete(conversationIds, redisIdle);
+        } catch (RuntimeException e) {
+            log.error("Failed to drop recent messages: conversations={}. Rings expire after {} idle.",
+                    conversationIds.size(), redisIdle, e);
+        }
+        conversationIds.forEach(this::evictEverywhere);
+    }
+
+    private void mutate(ObjectId conversationId, Runnable redisWrite) {
+        try {
+            redisWrite.run();
+        } catch (RuntimeException e) {
+            log.warn("Failed to update recent messages, dropping the ring: conversationId={}", conversationId, e);
+            try {
+                redisRepository.delete(List.of(conversationId), redisIdle);
+            } catch (RuntimeException deleteFailure) {
+                log.error("Failed to drop recent messages: conversationId={}. Ring expires after {} idle.",
+                        conversationId, redisIdle, deleteFailure);
+            }
+        }
+        evictEverywhere(conversationId);
+    }
+
+    private void evictEverywhere(ObjectId conversationId) {
+        evictLocally(conversationId);
+        invalidationBus.publish(CACHE_NAME, conversationId.toHexString());
+    }
+
+    private void evictLocally(ObjectId conversationId) {
+        versions.incrementAndGet(stripeOf(conversationId));
+        cache.invalidate(conversationId);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  LOAD & ENCODING
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Read the ring from Redis, or build it from MongoDB and seed Redis. Cached in L1 only if
+     * no write happened meanwhile.
+     *
+     * @return null if Redis / MongoDB failed
+     */
+    private Loaded load(ObjectId conversationId) {
+        try {
+            int stripe = stripeOf(conversationId);
+            long versionBeforeLoad = versions.get(stripe);
+
+            RecentMessagesRedisRepository.Snapshot snapshot = redisRepository.read(conversationId, redisIdle);
+            Loaded loaded;
+            boolean cacheable = true;
+            if (!snapshot.members().isEmpty()) {
+                loaded = new Loaded(decode(snapshot.members()), l2Hits);
+            } else {
+                List<MessageDocument> newest = messageRepository.findRecentMessages(conversationId, capacity);
+                boolean reachesStart = newest.size() < capacity;
+                loaded = new Loaded(new RecentMessages(newest, reachesStart), loads);
+
+                List<byte[]> members = new ArrayList<>(newest.size() + 1);
+                if (reachesStart) {
+                    members.add(RecentMessagesRedisRepository.START_MARKER);
+                }
+                newest.forEach(message -> members.add(encode(message)));
+
+                // A write raced the query: serve this (fresh) result once, but never cache it
+                cacheable = redisRepository.seed(conversationId, snapshot.version(), members, redisIdle);
+            }
+
+            if (cacheable && versions.get(stripe) == versionBeforeLoad) {
+                cache.put(conversationId, loaded.ring());
+            }
+            return loaded;
+        } catch (RuntimeException e) {
+            log.warn("Recent messages unavailable, falling back to MongoDB: conversationId={}", conversationId, e);
+            return null;
+        }
+    }
+
+    /**
+     * {@code [12-byte _id][8-byte updatedAt millis][BSON of the mapped document]}.
+     */
+    byte[] encode(MessageDocument message) {
+        Document document = new Document();
+        mongoConverter.write(message, document);
+        document.remove("_class");
+        ByteBuffer bson = new RawBsonDocument(document, DOCUMENT_CODEC).getByteBuffer().asNIO();
+
+        ByteBuffer member = ByteBuffer.allocate(HEADER_BYTES + bson.remaining());
+        member.put(message.getId().toByteArray());
+        member.putLong(message.getUpdatedAt() != null ? message.getUpdatedAt().toEpochMilli() : 0L);
+        member.put(bson);
+        return member.array();
+    }
+
+    MessageDocument decode(byte[] member) {
+        ByteBuffer bson = ByteBuffer.wrap(member, HEADER_BYTES, member.length - HEADER_BYTES).slice();
+        try (BsonBinaryReader reader = new BsonBinaryReader(bson)) {
+            return mongoConverter.read(MessageDocument.class, DOCUMENT_CODEC.decode(reader, DECODER_CONTEXT));
+        }
+    }
+
+    /**
+     * @param members ring members, oldest first
+     */
+    private RecentMessages decode(List<byte[]> members) {
+        boolean reachesStart = RecentMessagesRedisRepository.isStartMarker(members.getFirst());
+        List<MessageDocument> newestFirst = new ArrayList<>(members.size());
+        for (int i = members.size() - 1; i >= (reachesStart ? 1 : 0); i--) {
+            newestFirst.add(decode(members.get(i)));
+        }
+        return new RecentMessages(newestFirst, reachesStart);
+    }
+
+    private record Loaded(RecentMessages ring, Counter source) {
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(LOOKUP_METRIC)
+                .description("First-page loads by where the page came from")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static int stripeOf(ObjectId conversationId) {
+        return (conversationId.hashCode() & 0x7fffffff) % VERSION_STRIPES;
+    }
+}
@@ -0,0 +1,75 @@
+package com.vivumate.coreapi.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vivumate.coreapi.document.subdoc.SenderSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * In-process (L1) cache of {@link SenderSnapshot} keyed by PostgreSQL user ID.
+ * <p>
+ * Removes the PostgreSQL lookup from the message send hot path: a user sending
+ * many messages per minute only hits the database once per TTL window.
+ * <p>
+ * <b>Consistency:</b>
+ * <ul>
+ *   <li>Local — {@link #invalidate(Long)} after the profile change commits</li>
+ *   <li>Remote — the same call broadcasts through {@link CacheInvalidationBus}</li>
+ *   <li>Safety net — entries expire after {@code ttl} even if a broadcast is lost</li>
+ * </ul>
+ * <p>
+ * Metrics ({@code cache="sender_snapshot"}): {@code cache.gets{result=hit|miss}},
+ * {@code cache.evictions}, {@code cache.size}.
+ * <p>
+ * Returned snapshots are shared between callers and MUST be treated as read-only.
+ */
+@Component
+@Slf4j(topic = "SENDER_SNAPSHOT_CACHE")
+public class SenderSnapshotCache {
+
+    public static final String CACHE_NAME = "sender_snapshot";
+
+    private final Cache<Long, SenderSnapshot> cache;
+    private final CacheInvalidationBus invalidationBus;
+
+    public SenderSnapshotCache(CacheInvalidationBus invalidationBus,
+                               MeterRegistry meterRegistry,
+                               @Value("${vivumate.chat.cache.sender-snapshot.max-size:50000}") long maxSize,
+                               @Value("${vivumate.chat.cache.sender-snapshot.ttl:PT10M}") Duration ttl) {
+        this.invalidationBus = invalidationBus;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        invalidationBus.register(CACHE_NAME, key -> cache.invalidate(Long.valueOf(key)));
+
+        log.info("Initialized with maxSize={}, ttl={}", maxSize, ttl);
+    }
+
+    /**
+     * Return the cached snapshot, loading it with {@code loader} on a miss.
+     * Concurrent misses for the same user trigger a single load.
+     */
+    public SenderSnapshot get(Long userId, Function<Long, SenderSnapshot> loader) {
+        return cache.get(userId, loader);
+    }
+
+    /**
+     * Evict the user's snapshot on this node and broadcast the eviction to all other nodes.
+     * Call AFTER the profile change is committed, otherwise a concurrent miss may reload stale data.
+     */
+    public void invalidate(Long userId) {
+        cache.invalidate(userId);
+        invalidationBus.publish(CACHE_NAME, String.valueOf(userId));
+    }
+}
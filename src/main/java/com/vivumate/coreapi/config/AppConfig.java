@@ -5,6 +5,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Configuration
 public class AppConfig {
 
@@ -13,4 +16,16 @@ public class AppConfig {
         return new BCryptPasswordEncoder();
     }
 
+    /**
+     * Virtual-thread executor for running independent chat I/O calls (MongoDB, Redis)
+     * of a single request concurrently, e.g. the message insert and the conversation
+     * update of the send pipeline.
+     * <p>
+     * One virtual thread per task — never pooled, so a slow database cannot exhaust it.
+     */
+    @Bean(name = "chatIoExecutor", destroyMethod = "close")
+    public ExecutorService chatIoExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
 }
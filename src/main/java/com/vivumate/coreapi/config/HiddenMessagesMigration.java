@@ -0,0 +1,136 @@
+package com.vivumate.coreapi.config;
+
+import com.mongodb.client.model.ReplaceOptions;
+import com.vivumate.coreapi.document.HiddenMessagesDocument;
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.repository.mongodb.HiddenMessagesRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One-off move of "delete for me" data from {@code messages.deleted_for} into
+ * {@code hidden_messages} buckets.
+ * <p>
+ * Walks messages with a non-empty {@code deleted_for} in {@code _id} order (one pass over the
+ * {@code _id} index, resumable after a crash), merges each batch into the buckets with
+ * {@code $addToSet}, then unsets {@code deleted_for} on the batch. Every step is idempotent,
+ * so nodes starting at the same time may run it concurrently.
+ * <p>
+ * Runs before the node reports ready (command-line runners finish before readiness), so no
+ * request on this node can see a message hidden before the migration. Completion is recorded
+ * in {@code migrations}; later startups skip the scan.
+ */
+@Component
+@Slf4j(topic = "HIDDEN_MESSAGES_MIGRATION")
+public class HiddenMessagesMigration implements CommandLineRunner {
+
+    static final String MIGRATIONS_COLLECTION = "migrations";
+    static final String MIGRATION_ID = "hidden_messages_from_deleted_for";
+
+    private final MongoTemplate mongoTemplate;
+    private final HiddenMessagesRepository hiddenMessagesRepository;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public HiddenMessagesMigration(MongoTemplate mongoTemplate,
+                                   HiddenMessagesRepository hiddenMessagesRepository,
+                                   @Value("${vivumate.chat.migration.hidden-messages.enabled:true}") boolean enabled,
+                                   @Value("${vivumate.chat.migration.hidden-messages.batch-size:1000}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.hiddenMessagesRepository = hiddenMessagesRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!enabled || isCompleted()) {
+            return;
+        }
+
+        log.info("Moving deleted_for into hidden_messages (batchSize={})...", batchSize);
+        long messages = 0;
+        ObjectId lastId = null;
+
+        while (true) {
+            List<MessageDocument> batch = nextBatch(lastId);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            hiddenMessagesRepository.hideAll(toBuckets(batch));
+
+            List<ObjectId> ids = batch.stream().map(MessageDocument::getId).toList();
+            mongoTemplate.updateMulti(new Query(Criteria.where("_id").in(ids)),
+                    new Update().unset("deletedFor"), MessageDocument.class);
+
+            messages += batch.size();
+            lastId = batch.getLast().getId();
+        }
+
+        markCompleted();
+        log.info("Migration completed: {} messages moved to hidden_messages", messages);
+    }
+
+    private List<MessageDocument> nextBatch(ObjectId lastId) {
+        // "deletedFor.0" exists = non-empty array (old documents store an empty one by default)
+        Criteria criteria = Criteria.where("deletedFor.0").exists(true);
+        if (lastId != null) {
+            criteria = criteria.and("_id").gt(lastId);
+        }
+
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(batchSize);
+        query.fields().include("conversationId", "deletedFor");
+
+        return mongoTemplate.find(query, MessageDocument.class);
+    }
+
+    /**
+     * Regroup a batch by (user, conversation): one bucket upsert per pair instead of one per entry.
+     */
+    static List<HiddenMessagesDocument> toBuckets(List<MessageDocument> batch) {
+        Map<String, HiddenMessagesDocument> buckets = new LinkedHashMap<>();
+        for (MessageDocument message : batch) {
+            for (Long userId : message.getDeletedFor()) {
+                buckets.computeIfAbsent(userId + ":" + message.getConversationId().toHexString(),
+                                key -> HiddenMessagesDocument.builder()
+                                        .userId(userId)
+                                        .conversationId(message.getConversationId())
+                                        .messageIds(new ArrayList<>())
+                                        .build())
+                        .getMessageIds().add(message.getId());
+            }
+        }
+        return List.copyOf(buckets.values());
+    }
+
+    private boolean isCompleted() {
+        return mongoTemplate.getCollection(MIGRATIONS_COLLECTION)
+                .find(new Document("_id", MIGRATION_ID))
+                .first() != null;
+    }
+
+    private void markCompleted() {
+        mongoTemplate.getCollection(MIGRATIONS_COLLECTION).replaceOne(
+                new Document("_id", MIGRATION_ID),
+                new Document("_id", MIGRATION_ID).append("completed_at", Instant.now()),
+                new ReplaceOptions().upsert(true));
+    }
+}
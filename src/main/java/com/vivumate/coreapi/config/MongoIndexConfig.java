@@ -1,6 +1,7 @@
 package com.vivumate.coreapi.config;
 
 import com.mongodb.client.model.IndexOptions;
+import com.vivumate.coreapi.document.ConversationTombstoneDocument;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.Document;
@@ -11,6 +12,8 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
 
 @Slf4j
 @Configuration
@@ -32,10 +35,19 @@ public class MongoIndexConfig {
                 .on("_id", Sort.Direction.DESC)
                 .named("idx_user_conversations_latest"));
 
-//        conversationOps.createIndex(new Index()
-//                .on("type", Sort.Direction.ASC)
-//                .on("last_activity_at", Sort.Direction.DESC)
-//                .named("idx_type_activity"));
+        // List delta: metadata changes (rename, members, read, mute, dissolve) that do not move activity
+        conversationOps.createIndex(new Index()
+                .on("participant_ids", Sort.Direction.ASC)
+                .on("updated_at", Sort.Direction.ASC)
+                .named("idx_user_conversations_updated"));
+
+        // Type-filtered list (DMs vs groups): type is an equality, so it goes before the sort keys
+        conversationOps.createIndex(new Index()
+                .on("participant_ids", Sort.Direction.ASC)
+                .on("type", Sort.Direction.ASC)
+                .on("last_activity_at", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("idx_user_type_conversations_latest"));
 
         conversationOps.createIndex(new Index()
                 .on("dm_hash", Sort.Direction.ASC)
@@ -57,6 +69,14 @@ public class MongoIndexConfig {
                 .on("_id", Sort.Direction.DESC)
                 .named("idx_sender_messages"));
 
+        // Idempotent send: a retried clientMsgId cannot create a second message
+        messageOps.createIndex(new Index()
+                .on("conversation_id", Sort.Direction.ASC)
+                .on("client_msg_id", Sort.Direction.ASC)
+                .unique()
+                .partial(PartialIndexFilter.of(Criteria.where("client_msg_id").exists(true)))
+                .named("idx_conversation_client_msg_unique"));
+
         // 2.1 Full-text Search Index on field content.text of a conversation
         Document compoundTextIndex = new Document("conversation_id", 1)
                 .append("content.text", "text");
@@ -66,6 +86,45 @@ public class MongoIndexConfig {
                 .defaultLanguage("none");
         mongoTemplate.getCollection("messages").createIndex(compoundTextIndex, textIndexOptions);
 
+        // 3. Indexes for HIDDEN_MESSAGES Collection ("delete for me" buckets)
+        IndexOperations hiddenMessageOps = mongoTemplate.indexOps("hidden_messages");
+
+        hiddenMessageOps.createIndex(new Index()
+                .on("user_id", Sort.Direction.ASC)
+                .on("conversation_id", Sort.Direction.ASC)
+                .unique()
+                .named("idx_user_conversation_hidden_unique"));
+
+        // 4. Indexes for USER_INBOX Collection (materialized conversation list)
+        IndexOperations inboxOps = mongoTemplate.indexOps("user_inbox");
+
+        // Covered list scan: filter, sort, cursor and projected fields are all in the key
+        inboxOps.createIndex(new Index()
+                .on("user_id", Sort.Direction.ASC)
+                .on("visible", Sort.Direction.ASC)
+                .on("last_activity_at", Sort.Direction.DESC)
+                .on("conversation_id", Sort.Direction.DESC)
+                .named("idx_user_inbox_list"));
+
+        inboxOps.createIndex(new Index()
+                .on("conversation_id", Sort.Direction.ASC)
+                .on("user_id", Sort.Direction.ASC)
+                .unique()
+                .named("idx_conversation_user_inbox_unique"));
+
+        // 5. Indexes for CONVERSATION_TOMBSTONES Collection (left / removed, for list deltas)
+        IndexOperations tombstoneOps = mongoTemplate.indexOps("conversation_tombstones");
+
+        tombstoneOps.createIndex(new Index()
+                .on("user_id", Sort.Direction.ASC)
+                .on("removed_at", Sort.Direction.ASC)
+                .named("idx_user_tombstones"));
+
+        tombstoneOps.createIndex(new Index()
+                .on("removed_at", Sort.Direction.ASC)
+                .expire(ConversationTombstoneDocument.RETENTION)
+                .named("idx_tombstones_ttl"));
+
         log.info("MongoDB Indexes initialized successfully.");
     }
 }
\ No newline at end of file
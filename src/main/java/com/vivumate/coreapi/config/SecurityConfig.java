@@ -32,7 +32,7 @@ public class SecurityConfig {
 
     private final JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
 
-    private static final String[] WHITE_LIST = {"/api/v1/auth/**", "/api/v1/public/**", "/actuator/**",
+    private static final String[] WHITE_LIST = {"/api/v1/auth/**", "/api/v1/public/**", "/actuator/health/**",
             "/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html", "/error",
             "/ws-connect/**"}; // WebSocket — auth handled by STOMP-level WebSocketAuthInterceptor
 
@@ -45,6 +45,7 @@ public class SecurityConfig {
                 .cors(Customizer.withDefaults())
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(WHITE_LIST).permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN") // metrics expose internals
                         .anyRequest().authenticated()
                 )
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(jwtAuthenticationEntryPoint))
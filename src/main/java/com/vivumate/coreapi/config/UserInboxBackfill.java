@@ -0,0 +1,123 @@
+package com.vivumate.coreapi.config;
+
+import com.mongodb.client.model.ReplaceOptions;
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.UserInboxDocument;
+import com.vivumate.coreapi.repository.mongodb.UserInboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One-off merge of existing conversations into {@code user_inbox}.
+ * <p>
+ * Walks live conversations in {@code _id} order and upserts one entry per participant with
+ * {@code UserInboxRepository#mergeEntries}: activity only moves forward and counters only to a
+ * newer version, so entries left stale by earlier runs are repaired, newer state written by live
+ * traffic is kept, and the backfill may be re-run or run on several nodes at once.
+ * <p>
+ * Fan-out skips conversations whose entries do not exist yet, so a message sent during the walk
+ * may be missed by both; a second pass over the conversations active since the walk started
+ * picks those up. Runs before the node reports ready, like {@link HiddenMessagesMigration};
+ * completion is recorded in {@code migrations} (delete the record to run it again).
+ */
+@Component
+@Slf4j(topic = "USER_INBOX_BACKFILL")
+public class UserInboxBackfill implements CommandLineRunner {
+
+    // v2: the first version only filled missing entries and never repaired stale ones
+    static final String MIGRATION_ID = "user_inbox_backfill_v2";
+
+    private final MongoTemplate mongoTemplate;
+    private final UserInboxRepository userInboxRepository;
+    private final int batchSize;
+
+    public UserInboxBackfill(MongoTemplate mongoTemplate,
+                             UserInboxRepository userInboxRepository,
+                             @Value("${vivumate.chat.inbox.backfill-batch-size:500}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.userInboxRepository = userInboxRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (isCompleted()) {
+            return;
+        }
+
+        log.info("Merging conversations into user_inbox (batchSize={})...", batchSize);
+        Instant startedAt = Instant.now();
+        long entries = merge(null);
+        // Catch-up: every entry exists now, so later messages are fanned out live
+        entries += merge(startedAt);
+
+        markCompleted();
+        log.info("Backfill completed: {} entries merged", entries);
+    }
+
+    /**
+     * Merge the entries of every live conversation, or of those active since {@code activeSince}.
+     */
+    private long merge(Instant activeSince) {
+        long entries = 0;
+        ObjectId lastId = null;
+
+        while (true) {
+            List<ConversationDocument> batch = nextBatch(lastId, activeSince);
+            if (batch.isEmpty()) {
+                return entries;
+            }
+
+            List<UserInboxDocument> batchEntries = batch.stream()
+                    .flatMap(conversation -> conversation.getParticipants().stream()
+                            .map(participant -> UserInboxDocument.of(conversation, participant)))
+                    .toList();
+            userInboxRepository.mergeEntries(batchEntries);
+
+            entries += batchEntries.size();
+            lastId = batch.getLast().getId();
+        }
+    }
+
+    private List<ConversationDocument> nextBatch(ObjectId lastId, Instant activeSince) {
+        Criteria criteria = Criteria.where("deletedAt").isNull();
+        if (activeSince != null) {
+            criteria = criteria.and("lastActivityAt").gte(activeSince);
+        }
+        if (lastId != null) {
+            criteria = criteria.and("_id").gt(lastId);
+        }
+
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(batchSize);
+        query.fields().include("participants", "lastActivityAt", "lastMessage.messageId",
+                "unreadCounts", "unreadMentions", "unreadVersions");
+
+        return mongoTemplate.find(query, ConversationDocument.class);
+    }
+
+    private boolean isCompleted() {
+        return mongoTemplate.getCollection(HiddenMessagesMigration.MIGRATIONS_COLLECTION)
+                .find(new Document("_id", MIGRATION_ID))
+                .first() != null;
+    }
+
+    private void markCompleted() {
+        mongoTemplate.getCollection(HiddenMessagesMigration.MIGRATIONS_COLLECTION).replaceOne(
+                new Document("_id", MIGRATION_ID),
+                new Document("_id", MIGRATION_ID).append("completed_at", Instant.now()),
+                new ReplaceOptions().upsert(true));
+    }
+}
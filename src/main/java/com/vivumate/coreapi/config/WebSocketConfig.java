@@ -33,7 +33,7 @@ import java.util.concurrent.Executors;
  *       on top of raw WebSocket.</li>
  *   <li><b>Broker:</b> Simple in-memory broker (Spring default). For production
  *       multi-instance deployment, cross-server routing is handled by Redis Pub/Sub
- *       in {@code CrossServerMessageRouter} (Phase 6), NOT by an external STOMP broker.
+ *       in {@code CrossServerFrameRelay}, NOT by an external STOMP broker.
  *       This avoids the operational complexity of RabbitMQ/ActiveMQ while achieving
  *       the same result.</li>
  *   <li><b>SockJS Fallback:</b> Configurable per environment. Enabled in dev for
@@ -59,6 +59,7 @@ import java.util.concurrent.Executors;
  * /app/chat.*          → Application destinations (processed by @MessageMapping)
  * /topic/conversation/{id}  → Broadcast to conversation participants
  * /user/queue/messages      → Private queue for user-specific messages
+ * /user/queue/ack           → Send acknowledgement for the originating session
  * /user/queue/errors        → Private queue for error notifications
  * /user/queue/sync          → Private queue for multi-device sync data
  * /user/queue/notifications → Private queue for in-app notifications
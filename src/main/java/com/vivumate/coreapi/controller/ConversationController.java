@@ -0,0 +1,164 @@
+package com.vivumate.coreapi.controller;
+
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.dto.response.ApiResponse;
+import com.vivumate.coreapi.dto.response.ConversationChangesResponse;
+import com.vivumate.coreapi.dto.response.MessageResponse;
+import com.vivumate.coreapi.dto.response.MessageSearchResponse;
+import com.vivumate.coreapi.dto.response.UnreadTotalResponse;
+import com.vivumate.coreapi.entity.User;
+import com.vivumate.coreapi.exception.AppException;
+import com.vivumate.coreapi.exception.ErrorCode;
+import com.vivumate.coreapi.mapper.ConversationMapper;
+import com.vivumate.coreapi.mapper.MessageMapper;
+import com.vivumate.coreapi.search.SearchCursor;
+import com.vivumate.coreapi.search.SearchPage;
+import com.vivumate.coreapi.service.ConversationService;
+import com.vivumate.coreapi.service.MessageExportService;
+import com.vivumate.coreapi.service.MessageService;
+import com.vivumate.coreapi.service.UnreadCounterService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/conversations")
+@RequiredArgsConstructor
+@Slf4j(topic = "CONVERSATION_CONTROLLER")
+@Tag(name = "Conversations", description = "Conversation history APIs")
+public class ConversationController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    private final ConversationService conversationService;
+    private final MessageService messageService;
+    private final MessageExportService messageExportService;
+    private final UnreadCounterService unreadCounterService;
+
+    /** Async timeout of one export: long histories to slow clients outlive the default. */
+    @Value("${vivumate.chat.export.timeout:PT30M}")
+    private Duration exportTimeout;
+
+    @Operation(summary = "Conversation list changes",
+            description = "Conversations that changed since the watermark of the previous call, and tombstones for those "
+                    + "the user left, was removed from, cleared or that were dissolved. Store the returned watermark "
+                    + "for the next call; when truncated is set, reload the first page of the list instead.")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Changes retrieved successfully")
+    @GetMapping("/changes")
+    public ApiResponse<ConversationChangesResponse> getConversationChanges(@AuthenticationPrincipal User user,
+                                                                           @RequestParam Instant since) {
+        log.info("Conversation changes request: since={}", since);
+
+        return ApiResponse.success(ConversationMapper.toChangesResponse(user.getId(),
+                conversationService.getConversationChanges(user.getId(), since)));
+    }
+
+    @Operation(summary = "Total unread count",
+            description = "Unread messages across all conversations of the current user (global badge). "
+                    + "Read from a maintained counter, not summed per request.")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Total retrieved successfully")
+    @GetMapping("/unread/total")
+    public ApiResponse<UnreadTotalResponse> getTotalUnread(@AuthenticationPrincipal User user) {
+        return ApiResponse.success(UnreadTotalResponse.builder()
+                .totalUnread(unreadCounterService.getTotalUnread(user.getId()))
+                .build());
+    }
+
+    @Operation(summary = "Prefetch first pages",
+            description = "Returns the newest messages of several conversations in one request (e.g. the top of the "
+                    + "conversation list on app start), keyed by conversation ID. Conversations the user cannot access are omitted.")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "First pages retrieved successfully")
+    @GetMapping("/messages/prefetch")
+    public ApiResponse<Map<String, List<MessageResponse>>> prefetchFirstPages(
+            @AuthenticationPrincipal User user,
+            @RequestParam List<String> ids,
+            @RequestParam(defaultValue = "30") @Min(1) @Max(100) int limit) {
+        if (ids.stream().anyMatch(id -> !ObjectId.isValid(id))) {
+            throw new AppException(ErrorCode.INVALID_INPUT);
+        }
+        log.info("Prefetch first pages request: conversations={}, limit={}", ids.size(), limit);
+
+        Map<ObjectId, List<MessageDocument>> pages = messageService.prefetchFirstPages(
+                ids.stream().map(ObjectId::new).toList(), user.getId(), limit);
+
+        Map<String, List<MessageResponse>> response = new LinkedHashMap<>();
+        pages.forEach((conversationId, messages) -> response.put(conversationId.toHexString(),
+                messages.stream().map(MessageMapper::toMessageResponse).toList()));
+        return ApiResponse.success(response);
+    }
+
+    @Operation(summary = "Search messages",
+            description = "Full-text search in one conversation. Returns hits with a highlighted snippet "
+                    + "(offsets into the snippet) instead of full messages; pass next_cursor back as cursor for the next page.")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Search page retrieved successfully")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Not a member of the conversation", content = @Content)
+    @GetMapping("/{conversationId}/messages/search")
+    public ApiResponse<MessageSearchResponse> searchMessages(@AuthenticationPrincipal User user,
+                                                             @PathVariable String conversationId,
+                                                             @RequestParam @NotBlank @Size(max = 200) String q,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "20") @Min(1) @Max(50) int limit) {
+        if (!ObjectId.isValid(conversationId)) {
+            throw new AppException(ErrorCode.INVALID_INPUT);
+        }
+        log.info("Search messages request: conversationId={}, limit={}, page={}",
+                conversationId, limit, cursor != null ? "next" : "first");
+
+        SearchPage page = messageService.searchMessages(new ObjectId(conversationId), user.getId(), q,
+                cursor != null ? SearchCursor.decode(cursor) : null, limit);
+        return ApiResponse.success(MessageMapper.toSearchResponse(page));
+    }
+
+    @Operation(summary = "Export conversation history",
+            description = "Streams every message the current user can see, oldest first, as NDJSON "
+                    + "(one message per line), optionally gzip-compressed. Memory use does not depend on history size.")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Export streamed")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Not a member of the conversation", content = @Content)
+    @GetMapping("/{conversationId}/messages/export")
+    public WebAsyncTask<Void> exportMessages(@AuthenticationPrincipal User user,
+                                             @PathVariable String conversationId,
+                                             @RequestParam(defaultValue = "false") boolean gzip,
+                                             HttpServletResponse response) {
+        if (!ObjectId.isValid(conversationId)) {
+            throw new AppException(ErrorCode.INVALID_INPUT);
+        }
+        log.info("Export conversation request: conversationId={}, gzip={}", conversationId, gzip);
+
+        // Access is checked here, before the response is committed; the body runs on an async thread
+        MessageExportService.ConversationExport export =
+                messageExportService.prepareExport(new ObjectId(conversationId), user.getId());
+
+        String filename = "conversation-" + conversationId + (gzip ? ".ndjson.gz" : ".ndjson");
+        response.setContentType((gzip ? GZIP : NDJSON).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(filename).build().toString());
+
+        // Own timeout instead of a global spring.mvc.async.request-timeout that would apply to every async request
+        return new WebAsyncTask<>(exportTimeout.toMillis(), () -> {
+            export.writeTo(response.getOutputStream(), gzip);
+            return null;
+        });
+    }
+}
@@ -95,6 +95,13 @@ public class ConversationDocument extends BaseDocument {
     @Builder.Default
     private Map<String, Integer> unreadMentions = new HashMap<>();
 
+    /**
+     * Per-user version of the Redis counter the two maps above were copied from. The flush only
+     * overwrites them with a newer version, so a late or repeated flush cannot move them back.
+     */
+    @Builder.Default
+    private Map<String, Long> unreadVersions = new HashMap<>();
+
     // ═══════════════════════════════════════════════════════════
     // LAST MESSAGE PREVIEW — (Subset Pattern)
     // ═══════════════════════════════════════════════════════════
@@ -0,0 +1,67 @@
+package com.vivumate.coreapi.document;
+
+import com.vivumate.coreapi.document.enums.RemovalReason;
+import lombok.*;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A user stopped being a member of a conversation (left or was removed).
+ * <p>
+ * The conversation itself no longer lists the user in {@code participant_ids}, so the list
+ * delta cannot find it through the user's index range; these records are what tells the
+ * user's other devices to drop it. Dissolved and cleared conversations need no record: they
+ * keep their members and are found by the delta itself.
+ *
+ * <b>Indexes:</b>
+ * <ol>
+ * <li>{@code {user_id: 1, removed_at: 1}} — the delta: one user's removals after a watermark</li>
+ * <li>{@code {removed_at: 1}} — TTL: expires after {@link #RETENTION}; older watermarks must
+ *     reload the list</li>
+ * </ol>
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "conversation_tombstones")
+public class ConversationTombstoneDocument {
+
+    /** How long a removal stays visible to the delta (TTL of the collection). */
+    public static final Duration RETENTION = Duration.ofDays(30);
+
+    @Id
+    private ObjectId id;
+
+    /** PostgreSQL ID of the former member. */
+    private Long userId;
+
+    private ObjectId conversationId;
+
+    /** {@link RemovalReason#LEFT} or {@link RemovalReason#REMOVED}. */
+    private RemovalReason reason;
+
+    private Instant removedAt;
+
+    /**
+     * One record per user removed from {@code conversationId} at {@code removedAt}.
+     */
+    public static List<ConversationTombstoneDocument> of(ObjectId conversationId, Collection<Long> userIds,
+                                                         RemovalReason reason, Instant removedAt) {
+        return userIds.stream()
+                .map(userId -> ConversationTombstoneDocument.builder()
+                        .userId(userId)
+                        .conversationId(conversationId)
+                        .reason(reason)
+                        .removedAt(removedAt)
+                        .build())
+                .toList();
+    }
+}
@@ -0,0 +1,49 @@
+package com.vivumate.coreapi.document;
+
+import lombok.*;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Messages one user has "deleted for me" in one conversation (Bucket Pattern).
+ * <p>
+ * Replaces the {@code deleted_for} array on every message: hiding a message no longer grows
+ * the message document, and the feed query no longer needs a per-user {@code $ne} predicate
+ * the cursor index cannot serve. The feed scans {@code idx_conversation_messages_cursor} only
+ * and drops the bucket's IDs in memory.
+ *
+ * <b>Indexes:</b>
+ * <ol>
+ * <li>{@code {user_id: 1, conversation_id: 1}} — unique: one bucket per user and conversation</li>
+ * </ol>
+ *
+ * Bounded in practice by how many messages a user hides by hand; at 12 bytes per ID a
+ * bucket stays far below the 16 MB document limit.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "hidden_messages")
+public class HiddenMessagesDocument {
+
+    @Id
+    private ObjectId id;
+
+    /** PostgreSQL ID of the user the messages are hidden for. */
+    private Long userId;
+
+    private ObjectId conversationId;
+
+    /** Hidden message IDs ({@code $addToSet}, no order). */
+    @Builder.Default
+    private List<ObjectId> messageIds = new ArrayList<>();
+
+    private Instant updatedAt;
+}
@@ -32,6 +32,8 @@ import java.util.List;
  * <li>{@code {conversation_id: 1, mentions.user_id: 1}} — partial: find
  * mentions</li>
  * <li>{@code {sender.user_id: 1, created_at: -1}} — user's sent messages</li>
+ * <li>{@code {conversation_id: 1, client_msg_id: 1}} — unique, partial: idempotent
+ * send</li>
  * </ol>
  *
  * <b>Shard key recommendation:</b> {@code {conversation_id: "hashed"}} to
@@ -54,6 +56,12 @@ public class MessageDocument extends BaseDocument {
      */
     private ObjectId conversationId;
 
+    /**
+     * Client-generated idempotency key of the send (unique per conversation via a partial index).
+     * Null for messages created by the server (e.g. SYSTEM).
+     */
+    private String clientMsgId;
+
     // ═══════════════════════════════════════════════════════════
     // SENDER — (Extended Reference Pattern)
     // ═══════════════════════════════════════════════════════════
@@ -127,11 +135,11 @@ public class MessageDocument extends BaseDocument {
     // ═══════════════════════════════════════════════════════════
 
     /**
-     * PostgreSQL user IDs who have "deleted for me" this message.
-     * Filtered client-side: {@code deleted_for: { $ne: currentUserId }}.
+     * Legacy storage of "delete for me", superseded by {@link HiddenMessagesDocument}.
+     * No longer written (null is not persisted); only read by {@code HiddenMessagesMigration},
+     * which moves existing entries into {@code hidden_messages} and unsets the field.
      */
-    @Builder.Default
-    private List<Long> deletedFor = new ArrayList<>();
+    private List<Long> deletedFor;
 
     /**
      * If true, message is hidden for all participants ("delete for everyone").
@@ -0,0 +1,100 @@
+package com.vivumate.coreapi.document;
+
+import com.vivumate.coreapi.document.subdoc.Participant;
+import lombok.*;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One user's entry for one conversation in their conversation list (materialized inbox).
+ * <p>
+ * Moves the per-user state the list query needs out of the conversation document: the list no
+ * longer filters {@code participants} per candidate conversation or evaluates {@code $expr}
+ * visibility after the index scan. {@code visible} is maintained on write, so the list is a
+ * covered scan of {@code idx_user_inbox_list} that reads exactly {@code pageSize} entries.
+ * <p>
+ * Display fields (name, avatar, last message preview, participants) stay on the conversation
+ * and are fetched by {@code _id} for the page only: renames, nickname changes and edited
+ * previews keep touching one document instead of one entry per member.
+ *
+ * <b>Indexes:</b>
+ * <ol>
+ * <li>{@code {user_id: 1, visible: 1, last_activity_at: -1, conversation_id: -1}} — the list,
+ *     covered (filter, sort, cursor and projection are all in the key)</li>
+ * <li>{@code {conversation_id: 1, user_id: 1}} — unique: one entry per member; per-conversation
+ *     fan-out of new activity</li>
+ * </ol>
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "user_inbox")
+public class UserInboxDocument {
+
+    @Id
+    private ObjectId id;
+
+    /** PostgreSQL ID of the member. */
+    private Long userId;
+
+    private ObjectId conversationId;
+
+    /**
+     * {@code clearedAt == null || lastActivityAt > clearedAt}: hidden after "clear history"
+     * until a message newer than the clear arrives.
+     */
+    private boolean visible;
+
+    /** Copy of the conversation's {@code lastActivityAt}; list order and cursor. */
+    private Instant lastActivityAt;
+
+    /** ID of the newest message applied; guards fan-out writes against older previews. */
+    private ObjectId lastMessageId;
+
+    private Instant clearedAt;
+
+    /** Copy of the user's unread counters (flushed with the conversation copy; Redis is authoritative). */
+    private int unreadCount;
+
+    private int unreadMentions;
+
+    /** Version of the Redis counter the unread copy was taken from; only a newer one overwrites it. */
+    private Long unreadVersion;
+
+    private boolean muted;
+
+    private Instant mutedUntil;
+
+    /**
+     * Entry of {@code participant} as of {@code conversation}'s current state.
+     */
+    public static UserInboxDocument of(ConversationDocument conversation, Participant participant) {
+        Instant lastActivityAt = conversation.getLastActivityAt();
+        Instant clearedAt = participant.getClearedAt();
+        String userKey = String.valueOf(participant.getUserId());
+
+        return UserInboxDocument.builder()
+                .userId(participant.getUserId())
+                .conversationId(conversation.getId())
+                .visible(clearedAt == null || (lastActivityAt != null && lastActivityAt.isAfter(clearedAt)))
+                .lastActivityAt(lastActivityAt)
+                .lastMessageId(conversation.getLastMessage() != null ? conversation.getLastMessage().getMessageId() : null)
+                .clearedAt(clearedAt)
+                .unreadCount(count(conversation.getUnreadCounts(), userKey))
+                .unreadMentions(count(conversation.getUnreadMentions(), userKey))
+                .unreadVersion(conversation.getUnreadVersions() != null ? conversation.getUnreadVersions().get(userKey) : null)
+                .muted(participant.isMuted())
+                .mutedUntil(participant.getMutedUntil())
+                .build();
+    }
+
+    private static int count(Map<String, Integer> counts, String userKey) {
+        return counts != null ? counts.getOrDefault(userKey, 0) : 0;
+    }
+}
@@ -0,0 +1,8 @@
+package com.vivumate.coreapi.document.enums;
+
+/**
+ * Why a conversation left a user's conversation list (tombstone of a list delta).
+ */
+public enum RemovalReason {
+    LEFT, REMOVED, DISSOLVED, CLEARED
+}
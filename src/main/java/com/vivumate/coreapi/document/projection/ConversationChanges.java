@@ -0,0 +1,31 @@
+package com.vivumate.coreapi.document.projection;
+
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.enums.RemovalReason;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * What changed in a user's conversation list after a watermark: rows to upsert and rows to drop.
+ *
+ * @param changed   conversations to insert or move (list projection, live unread counts applied)
+ * @param removed   conversations to drop from the list
+ * @param truncated the delta is larger than one response serves, or older than tombstones are
+ *                  kept: reload the first page instead ({@code changed} and {@code removed} are empty)
+ * @param watermark {@code since} of the next request
+ */
+public record ConversationChanges(List<ConversationDocument> changed, List<Removal> removed,
+                                  boolean truncated, Instant watermark) {
+
+    public static ConversationChanges reload(Instant watermark) {
+        return new ConversationChanges(List.of(), List.of(), true, watermark);
+    }
+
+    /**
+     * Tombstone of one conversation.
+     */
+    public record Removal(ObjectId conversationId, RemovalReason reason, Instant removedAt) {
+    }
+}
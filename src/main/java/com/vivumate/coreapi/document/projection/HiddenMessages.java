@@ -0,0 +1,67 @@
+package com.vivumate.coreapi.document.projection;
+
+import com.vivumate.coreapi.document.HiddenMessagesDocument;
+import org.bson.types.ObjectId;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Compact, immutable form of one {@link HiddenMessagesDocument}: the message IDs a user has
+ * "deleted for me" in a conversation, as a sorted {@code ObjectId[]} (binary search).
+ * <p>
+ * Feed queries over-fetch by {@link #countBetween} and drop {@link #contains} matches in memory,
+ * so a page is always full without a per-user predicate in the MongoDB filter.
+ */
+public final class HiddenMessages {
+
+    public static final HiddenMessages NONE = new HiddenMessages(new ObjectId[0]);
+
+    private final ObjectId[] sortedIds;
+
+    private HiddenMessages(ObjectId[] sortedIds) {
+        this.sortedIds = sortedIds;
+    }
+
+    public static HiddenMessages of(Collection<ObjectId> messageIds) {
+        if (messageIds == null || messageIds.isEmpty()) {
+            return NONE;
+        }
+        ObjectId[] ids = messageIds.stream().distinct().sorted().toArray(ObjectId[]::new);
+        return new HiddenMessages(ids);
+    }
+
+    public boolean contains(ObjectId messageId) {
+        return sortedIds.length > 0 && Arrays.binarySearch(sortedIds, messageId) >= 0;
+    }
+
+    /**
+     * Number of hidden IDs strictly inside {@code (after, before)}; a null bound is open.
+     * This is the most a feed page in that range can lose to in-memory filtering.
+     */
+    public int countBetween(ObjectId after, ObjectId before) {
+        int from = after != null ? insertionPoint(after, true) : 0;
+        int to = before != null ? insertionPoint(before, false) : sortedIds.length;
+        return Math.max(0, to - from);
+    }
+
+    public boolean isEmpty() {
+        return sortedIds.length == 0;
+    }
+
+    public int size() {
+        return sortedIds.length;
+    }
+
+    /**
+     * @param exclusive true: first index with an ID greater than {@code id};
+     *                  false: first index with an ID greater than or equal to {@code id}
+     */
+    private int insertionPoint(ObjectId id, boolean exclusive) {
+        int index = Arrays.binarySearch(sortedIds, id);
+        if (index < 0) {
+            return -index - 1;
+        }
+        return exclusive ? index + 1 : index;
+    }
+}
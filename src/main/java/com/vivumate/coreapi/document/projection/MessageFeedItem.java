@@ -0,0 +1,64 @@
+package com.vivumate.coreapi.document.projection;
+
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.subdoc.Mention;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.document.subdoc.ReplyToSnapshot;
+import com.vivumate.coreapi.document.subdoc.SenderSnapshot;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Read model of one message in the conversation feed — exactly what a client renders.
+ * <p>
+ * Decoded straight from the projected BSON by {@code MessageFeedItemCodec}: no {@code previousEdit},
+ * {@code deletedFor}, {@code updatedAt} or soft-delete flags, and no Lombok document graph.
+ * Sender and reply-to snapshots are flattened; {@code content} keeps its polymorphic shape.
+ *
+ * @param mentions empty if none, never null
+ */
+public record MessageFeedItem(
+        ObjectId id,
+        ObjectId conversationId,
+        String clientMsgId,
+        Long senderId,
+        String senderUsername,
+        String senderFullName,
+        String senderAvatarUrl,
+        ContentType contentType,
+        MessageContent content,
+        List<Mention> mentions,
+        ObjectId replyToMessageId,
+        String replyToSenderName,
+        String replyToPreview,
+        boolean edited,
+        Instant createdAt
+) {
+
+    /**
+     * Same view of an already loaded document (e.g. from the recent-messages cache).
+     */
+    public static MessageFeedItem from(MessageDocument message) {
+        SenderSnapshot sender = message.getSender();
+        ReplyToSnapshot replyTo = message.getReplyTo();
+        return new MessageFeedItem(
+                message.getId(),
+                message.getConversationId(),
+                message.getClientMsgId(),
+                sender != null ? sender.getUserId() : null,
+                sender != null ? sender.getUsername() : null,
+                sender != null ? sender.getFullName() : null,
+                sender != null ? sender.getAvatarUrl() : null,
+                message.getContentType(),
+                message.getContent(),
+                message.getMentions() != null ? message.getMentions() : List.of(),
+                replyTo != null ? replyTo.getMessageId() : null,
+                replyTo != null ? replyTo.getSenderName() : null,
+                replyTo != null ? replyTo.getContentPreview() : null,
+                message.isEdited(),
+                message.getCreatedAt());
+    }
+}
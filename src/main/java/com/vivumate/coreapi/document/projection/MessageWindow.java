@@ -0,0 +1,16 @@
+package com.vivumate.coreapi.document.projection;
+
+import com.vivumate.coreapi.document.MessageDocument;
+
+import java.util.List;
+
+/**
+ * Messages around a jump-to-message anchor (reply target, search hit).
+ *
+ * @param messages newest first, like every other feed page: the first one is the cursor for
+ *                 newer messages, the last one the cursor for older messages
+ * @param hasOlder more visible messages exist before the window
+ * @param hasNewer more visible messages exist after the window
+ */
+public record MessageWindow(List<MessageDocument> messages, boolean hasOlder, boolean hasNewer) {
+}
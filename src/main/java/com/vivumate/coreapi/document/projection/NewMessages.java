@@ -0,0 +1,20 @@
+package com.vivumate.coreapi.document.projection;
+
+import com.vivumate.coreapi.document.MessageDocument;
+import org.bson.types.ObjectId;
+
+import java.util.List;
+
+/**
+ * Messages of one conversation newer than a sync watermark (delta sync).
+ *
+ * @param newestFirst at most the per-conversation cap, newest first
+ * @param total       number of new messages in the conversation; more than {@code newestFirst}
+ *                    means the client must page the gap with a cursor
+ */
+public record NewMessages(ObjectId conversationId, List<MessageDocument> newestFirst, int total) {
+
+    public boolean hasMore() {
+        return total > newestFirst.size();
+    }
+}
@@ -0,0 +1,12 @@
+package com.vivumate.coreapi.document.projection;
+
+import com.vivumate.coreapi.document.MessageDocument;
+
+/**
+ * One search result with the exact sort key it was ranked by.
+ *
+ * @param score the {@code $text} score as computed by MongoDB (full double precision, unlike
+ *              {@link MessageDocument#getScore()}), or null when results are ranked newest first
+ */
+public record ScoredMessage(MessageDocument message, Double score) {
+}
@@ -0,0 +1,52 @@
+package com.vivumate.coreapi.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.vivumate.coreapi.document.enums.RemovalReason;
+import com.vivumate.coreapi.websocket.dto.SyncConversation;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Patch for the client's conversation list since its last {@code watermark}. Maps are keyed by
+ * conversation ID.
+ * <p>
+ * The client upserts {@code conversations} (re-sorting by {@code last_activity_at}), drops
+ * {@code removed}, then stores {@code watermark} for the next request. {@code truncated} means the
+ * delta was too large or too old: reload the first page of the list instead.
+ */
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ConversationChangesResponse {
+
+    private final boolean truncated;
+
+    private final Instant watermark;
+
+    private final List<SyncConversation> conversations;
+
+    private final List<RemovedConversation> removed;
+
+    @JsonProperty("unread_counts")
+    private final Map<String, Integer> unreadCounts;
+
+    @JsonProperty("unread_mentions")
+    private final Map<String, Integer> unreadMentions;
+
+    @Getter
+    @Builder
+    public static class RemovedConversation {
+
+        private final String id;
+
+        private final RemovalReason reason;
+
+        @JsonProperty("removed_at")
+        private final Instant removedAt;
+    }
+}
@@ -0,0 +1,51 @@
+package com.vivumate.coreapi.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.subdoc.Mention;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MessageResponse {
+
+    private String id;
+
+    @JsonProperty("conversation_id")
+    private String conversationId;
+
+    @JsonProperty("client_msg_id")
+    private String clientMsgId;
+
+    private UserMiniResponse sender;
+
+    @JsonProperty("content_type")
+    private ContentType contentType;
+
+    private MessageContent content;
+
+    private List<Mention> mentions;
+
+    @JsonProperty("reply_to_message_id")
+    private String replyToMessageId;
+
+    @JsonProperty("reply_to_sender_name")
+    private String replyToSenderName;
+
+    @JsonProperty("reply_to_preview")
+    private String replyToPreview;
+
+    private Boolean edited;
+
+    @JsonProperty("created_at")
+    private Instant createdAt;
+}
@@ -0,0 +1,26 @@
+package com.vivumate.coreapi.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSearchHitResponse {
+
+    @JsonProperty("message_id")
+    private String messageId;
+
+    private String snippet;
+
+    /** {@code [start, end)} ranges of {@code snippet} to highlight. */
+    private List<int[]> offsets;
+
+    @JsonProperty("sent_at")
+    private Instant sentAt;
+}
@@ -0,0 +1,20 @@
+package com.vivumate.coreapi.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSearchResponse {
+
+    private List<MessageSearchHitResponse> hits;
+
+    /** Pass back as {@code cursor} for the next page; null on the last page. */
+    @JsonProperty("next_cursor")
+    private String nextCursor;
+}
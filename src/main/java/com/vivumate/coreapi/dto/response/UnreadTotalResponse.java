@@ -0,0 +1,16 @@
+package com.vivumate.coreapi.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnreadTotalResponse {
+
+    /** Unread messages across all of the user's conversations (global badge). */
+    @JsonProperty("total_unread")
+    private long totalUnread;
+}
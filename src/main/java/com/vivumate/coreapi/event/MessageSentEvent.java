@@ -0,0 +1,33 @@
+package com.vivumate.coreapi.event;
+
+import com.vivumate.coreapi.document.MessageDocument;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Published (in-process, synchronously) after a message has been persisted.
+ * <p>
+ * Consumed by {@link com.vivumate.coreapi.websocket.delivery.MessageDeliveryEngine}
+ * for real-time delivery. Push notifications will subscribe to the same event.
+ */
+@Getter
+@AllArgsConstructor
+public class MessageSentEvent {
+
+    /** The saved message (id and createdAt assigned). */
+    private final MessageDocument message;
+
+    /** All conversation members except the sender. */
+    private final List<Long> recipientIds;
+
+    /**
+     * STOMP session the message was sent from. Excluded from the sender echo —
+     * that session is answered with an ack instead. Null when sent via REST.
+     */
+    private final String originSessionId;
+
+    /** {@link System#nanoTime()} when the send was accepted; start of the delivery latency. */
+    private final long acceptedAtNanos;
+}
@@ -64,6 +64,7 @@ public enum ErrorCode {
     MESSAGE_EDIT_DENIED(4102, "error.chat.message.edit_denied", HttpStatus.FORBIDDEN),
     MESSAGE_RECALL_DENIED(4103, "error.chat.message.recall_denied", HttpStatus.FORBIDDEN),
     CANNOT_DM_SELF(4104, "error.chat.dm.self", HttpStatus.BAD_REQUEST),
+    MESSAGE_CLIENT_ID_CONFLICT(4105, "error.chat.message.client_id_conflict", HttpStatus.CONFLICT), // clientMsgId đã được dùng bởi người gửi khác
 
     // 5xxx: WebSocket
     UNAUTHENTICATED(5001, "error.ws.unauthenticated", HttpStatus.UNAUTHORIZED),
@@ -1,4 +1,65 @@
 package com.vivumate.coreapi.mapper;
 
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.enums.ConversationType;
+import com.vivumate.coreapi.document.projection.ConversationChanges;
+import com.vivumate.coreapi.document.subdoc.LastMessagePreview;
+import com.vivumate.coreapi.dto.response.ConversationChangesResponse;
+import com.vivumate.coreapi.dto.response.ConversationChangesResponse.RemovedConversation;
+import com.vivumate.coreapi.websocket.dto.SyncConversation;
+
+import java.util.HashMap;
+import java.util.Map;
+
 public class ConversationMapper {
+
+    public static SyncConversation toSyncConversation(ConversationDocument conversation) {
+        LastMessagePreview lastMessage = conversation.getLastMessage();
+
+        return SyncConversation.builder()
+                .id(conversation.getId().toHexString())
+                .type(conversation.getType())
+                .name(conversation.getName())
+                .avatarUrl(conversation.getAvatarUrl())
+                .memberCount(conversation.getMemberCount())
+                .participantIds(conversation.getType() == ConversationType.DIRECT
+                        ? conversation.getParticipantIds() : null)
+                .lastActivityAt(conversation.getLastActivityAt())
+                .lastMessageId(lastMessage != null && lastMessage.getMessageId() != null
+                        ? lastMessage.getMessageId().toHexString() : null)
+                .lastMessageSenderName(lastMessage != null ? lastMessage.getSenderName() : null)
+                .lastMessagePreview(lastMessage != null ? lastMessage.getContentPreview() : null)
+                .lastMessageContentType(lastMessage != null ? lastMessage.getContentType() : null)
+                .build();
+    }
+
+    public static ConversationChangesResponse toChangesResponse(Long userId, ConversationChanges changes) {
+        String userKey = String.valueOf(userId);
+        Map<String, Integer> unreadCounts = new HashMap<>();
+        Map<String, Integer> unreadMentions = new HashMap<>();
+        for (ConversationDocument conversation : changes.changed()) {
+            String conversationId = conversation.getId().toHexString();
+            unreadCounts.put(conversationId, countOf(conversation.getUnreadCounts(), userKey));
+            unreadMentions.put(conversationId, countOf(conversation.getUnreadMentions(), userKey));
+        }
+
+        return ConversationChangesResponse.builder()
+                .truncated(changes.truncated())
+                .watermark(changes.watermark())
+                .conversations(changes.changed().stream().map(ConversationMapper::toSyncConversation).toList())
+                .removed(changes.removed().stream()
+                        .map(removal -> RemovedConversation.builder()
+                                .id(removal.conversationId().toHexString())
+                                .reason(removal.reason())
+                                .removedAt(removal.removedAt())
+                                .build())
+                        .toList())
+                .unreadCounts(unreadCounts)
+                .unreadMentions(unreadMentions)
+                .build();
+    }
+
+    private static int countOf(Map<String, Integer> counts, String userKey) {
+        return counts != null ? counts.getOrDefault(userKey, 0) : 0;
+    }
 }
@@ -0,0 +1,87 @@
+package com.vivumate.coreapi.mapper;
+
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.projection.MessageFeedItem;
+import com.vivumate.coreapi.document.subdoc.ReplyToSnapshot;
+import com.vivumate.coreapi.document.subdoc.SenderSnapshot;
+import com.vivumate.coreapi.dto.response.MessageResponse;
+import com.vivumate.coreapi.dto.response.MessageSearchHitResponse;
+import com.vivumate.coreapi.dto.response.MessageSearchResponse;
+import com.vivumate.coreapi.dto.response.UserMiniResponse;
+import com.vivumate.coreapi.search.SearchPage;
+import org.springframework.stereotype.Component;
+
+@Component
+public class MessageMapper {
+
+    public static MessageResponse toMessageResponse(MessageDocument message) {
+        SenderSnapshot sender = message.getSender();
+        ReplyToSnapshot replyTo = message.getReplyTo();
+
+        return MessageResponse.builder()
+                .id(message.getId().toHexString())
+                .conversationId(message.getConversationId().toHexString())
+                .clientMsgId(message.getClientMsgId())
+                .sender(sender != null ? toSenderResponse(sender) : null)
+                .contentType(message.getContentType())
+                .content(message.getContent())
+                .mentions(message.getMentions() == null || message.getMentions().isEmpty()
+                        ? null : message.getMentions())
+                .replyToMessageId(replyTo != null && replyTo.getMessageId() != null
+                        ? replyTo.getMessageId().toHexString() : null)
+                .replyToSenderName(replyTo != null ? replyTo.getSenderName() : null)
+                .replyToPreview(replyTo != null ? replyTo.getContentPreview() : null)
+                .edited(message.isEdited() ? Boolean.TRUE : null)
+                .createdAt(message.getCreatedAt())
+                .build();
+    }
+
+    public static MessageResponse toMessageResponse(MessageFeedItem item) {
+        return MessageResponse.builder()
+                .id(item.id().toHexString())
+                .conversationId(item.conversationId().toHexString())
+                .clientMsgId(item.clientMsgId())
+                .sender(item.senderId() != null
+                        ? UserMiniResponse.builder()
+                                .id(item.senderId())
+                                .username(item.senderUsername())
+                                .fullName(item.senderFullName())
+                                .avatarUrl(item.senderAvatarUrl())
+                                .build()
+                        : null)
+                .contentType(item.contentType())
+                .content(item.content())
+                .mentions(item.mentions().isEmpty() ? null : item.mentions())
+                .replyToMessageId(item.replyToMessageId() != null ? item.replyToMessageId().toHexString() : null)
+                .replyToSenderName(item.replyToSenderName())
+                .replyToPreview(item.replyToPreview())
+                .edited(item.edited() ? Boolean.TRUE : null)
+                .createdAt(item.createdAt())
+                .build();
+    }
+
+    public static MessageSearchResponse toSearchResponse(SearchPage page) {
+        return MessageSearchResponse.builder()
+                .hits(page.hits().stream()
+                        .map(hit -> MessageSearchHitResponse.builder()
+                                .messageId(hit.messageId().toHexString())
+                                .snippet(hit.snippet())
+                                .offsets(hit.offsets().stream()
+                                        .map(offset -> new int[]{offset.start(), offset.end()})
+                                        .toList())
+                                .sentAt(hit.sentAt())
+                                .build())
+                        .toList())
+                .nextCursor(page.next() != null ? page.next().encode() : null)
+                .build();
+    }
+
+    private static UserMiniResponse toSenderResponse(SenderSnapshot sender) {
+        return UserMiniResponse.builder()
+                .id(sender.getUserId())
+                .username(sender.getUsername())
+                .fullName(sender.getFullName())
+                .avatarUrl(sender.getAvatarUrl())
+                .build();
+    }
+}
@@ -2,13 +2,18 @@ package com.vivumate.coreapi.repository.mongodb;
 
 import com.mongodb.bulk.BulkWriteResult;
 import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.enums.ConversationType;
 import com.vivumate.coreapi.document.subdoc.LastMessagePreview;
 import com.vivumate.coreapi.document.subdoc.Participant;
 import com.mongodb.client.result.UpdateResult;
 import org.bson.types.ObjectId;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Custom repository fragment for {@link ConversationDocument}.
@@ -47,6 +52,61 @@ public interface ConversationCustomRepository {
             Long userId, Instant cursorActivityAt, ObjectId cursorId, int pageSize
     );
 
+    /**
+     * {@link #findConversationsByUserId} restricted to one {@link ConversationType} (DMs vs groups),
+     * same cursor, projection and visibility rules.
+     * <p>
+     * Uses index: {@code {participant_ids: 1, type: 1, last_activity_at: -1, _id: -1}} — the scan
+     * stays inside the user's conversations of that type, so a page reads about {@code pageSize}
+     * keys however many conversations of the other type the user has.
+     */
+    List<ConversationDocument> findConversationsByUserIdAndType(
+            Long userId, ConversationType type, Instant cursorActivityAt, ObjectId cursorId, int pageSize
+    );
+
+    /**
+     * Delta sync: the user's conversations with activity strictly after {@code since},
+     * same projection and visibility rules as {@link #findConversationsByUserId}.
+     * <p>
+     * Uses index: {@code {participant_ids: 1, last_activity_at: -1}} (bounded range)
+     *
+     * @param limit maximum number of conversations; callers pass one more than they serve to
+     *              detect that the delta is too large
+     * @return conversations sorted by latest activity, newest first
+     */
+    List<ConversationDocument> findConversationsActiveSince(Long userId, Instant since, int limit);
+
+    /**
+     * The list projection of the given conversations (one page resolved from {@code user_inbox}),
+     * in no particular order. Deleted conversations are skipped.
+     * <p>
+     * Uses index: {@code _id}
+     */
+    List<ConversationDocument> findListItemsByIds(Long userId, Collection<ObjectId> conversationIds);
+
+    /**
+     * List delta, activity half: the user's conversations whose {@code lastActivityAt} is
+     * strictly after {@code since}, OLDEST activity first, including soft-deleted ones (they
+     * become tombstones). Same projection as {@link #findListItemsByIds} plus {@code updatedAt}
+     * and {@code deletedAt}; no visibility filter.
+     * <p>
+     * Uses index: {@code idx_user_conversations_latest}, range scanned in reverse — the scan
+     * starts at the watermark and stops after {@code limit} keys.
+     *
+     * @param limit callers pass one more than they serve to detect a delta that is too large
+     */
+    List<ConversationDocument> findActivityChangesSince(Long userId, Instant since, int limit);
+
+    /**
+     * List delta, metadata half: conversations whose {@code updatedAt} is strictly after
+     * {@code since} but whose {@code lastActivityAt} is not (renamed, members changed, read,
+     * muted, cleared, dissolved), oldest update first. Same projection as
+     * {@link #findActivityChangesSince}.
+     * <p>
+     * Uses index: {@code idx_user_conversations_updated}
+     */
+    List<ConversationDocument> findMetadataChangesSince(Long userId, Instant since, int limit);
+
     // ═══════════════════════════════════════════════════════════
     //  LAST MESSAGE — Subset Pattern update
     // ═══════════════════════════════════════════════════════════
@@ -62,6 +122,19 @@ public interface ConversationCustomRepository {
      */
     UpdateResult updateLastMessage(ObjectId conversationId, LastMessagePreview preview);
 
+    /**
+     * Same as {@link #updateLastMessage} but only applies if {@code preview} is NEWER than the
+     * stored preview ({@code last_message.message_id < preview.messageId}, or none stored).
+     * Guarantees an out-of-order or delayed write never overwrites a newer preview.
+     */
+    UpdateResult updateLastMessageIfNewer(ObjectId conversationId, LastMessagePreview preview);
+
+    /**
+     * Bulk variant of {@link #updateLastMessageIfNewer}: one unordered bulk write,
+     * one guarded {@code updateOne} per conversation.
+     */
+    BulkWriteResult updateLastMessagesIfNewer(Map<ObjectId, LastMessagePreview> previews);
+
     // ═══════════════════════════════════════════════════════════
     //  UNREAD COUNTS — Computed Pattern
     // ═══════════════════════════════════════════════════════════
@@ -76,6 +149,21 @@ public interface ConversationCustomRepository {
 
     UpdateResult incrementUnreadMentionsCounts(ObjectId conversationId, List<Long> recipientIds);
 
+    /**
+     * Copy unread counters read from Redis in ONE unordered bulk write (one {@code updateOne}
+     * per conversation, in the iteration order of {@code counts}: a
+     * {@link org.springframework.data.mongodb.BulkOperationException} error index is a position
+     * in that order).
+     * <p>
+     * Performs per conversation and user, as one pipeline update:
+     * {@code unread_counts.<userId> = count, unread_mentions.<userId> = mentions,
+     * unread_versions.<userId> = version} if {@code version} is newer than the stored one, else
+     * nothing. Idempotent and order-independent.
+     *
+     * @param counts conversationId → userId → {@code [count, mentions, version]}
+     */
+    BulkWriteResult applyUnreadCounts(Map<ObjectId, Map<Long, long[]>> counts);
+
     /**
      * Reset unread count to 0 for a specific user.
      * Called when the user marks the conversation as read.
@@ -84,6 +172,28 @@ public interface ConversationCustomRepository {
      */
     UpdateResult resetUnreadCount(ObjectId conversationId, Long userId);
 
+    /**
+     * Stream {@code _id} and {@code unread_counts.<userId>} of every live conversation of the
+     * user (cursor-backed, constant memory) — the input of the total-unread reconciliation.
+     * The caller MUST close the stream.
+     */
+    Stream<ConversationDocument> streamUnreadCounts(Long userId);
+
+    /**
+     * {@code unread_counts} / {@code unread_mentions} entries of the given users in one conversation
+     * (seeds for Redis counters created on first touch).
+     * <p>
+     * Uses index: {@code _id}
+     */
+    Optional<ConversationDocument> findUnreadCountsById(ObjectId conversationId, Collection<Long> userIds);
+
+    /**
+     * {@code unread_counts} / {@code unread_mentions} entries of one user in several conversations.
+     * <p>
+     * Uses index: {@code _id}
+     */
+    List<ConversationDocument> findUnreadCountsByIds(Long userId, Collection<ObjectId> conversationIds);
+
     // ═══════════════════════════════════════════════════════════
     //  PARTICIPANT MANAGEMENT
     // ═══════════════════════════════════════════════════════════
@@ -1,22 +1,31 @@
 package com.vivumate.coreapi.repository.mongodb;
 
 import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.enums.ConversationType;
 import com.vivumate.coreapi.document.enums.ParticipantRole;
 import com.vivumate.coreapi.document.subdoc.LastMessagePreview;
 import com.vivumate.coreapi.document.subdoc.Participant;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.result.UpdateResult;
 import lombok.RequiredArgsConstructor;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.*;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Implementation of {@link ConversationCustomRepository} using
@@ -45,6 +54,26 @@ public class ConversationCustomRepositoryImpl implements ConversationCustomRepos
         Criteria matchCriteria = Criteria.where("participant_ids").is(userId)
                 .and("deleted_at").isNull();
 
+        return findVisibleConversations(userId, withListCursor(matchCriteria, cursorActivityAt, cursorId), pageSize);
+    }
+
+    @Override
+    public List<ConversationDocument> findConversationsByUserIdAndType(
+            Long userId, ConversationType type, Instant cursorActivityAt, ObjectId cursorId, int pageSize) {
+
+        // Equality on type sits between the two key parts the list already uses:
+        // {participant_ids, type} pins one contiguous run of idx_user_type_conversations_latest
+        Criteria matchCriteria = Criteria.where("participant_ids").is(userId)
+                .and("type").is(type.name())
+                .and("deleted_at").isNull();
+
+        return findVisibleConversations(userId, withListCursor(matchCriteria, cursorActivityAt, cursorId), pageSize);
+    }
+
+    /**
+     * {@code matchCriteria} restricted to the page after the compound cursor, if any.
+     */
+    private static Criteria withListCursor(Criteria matchCriteria, Instant cursorActivityAt, ObjectId cursorId) {
         /*
          * Compound cursor strategy for sort {lastActivityAt: -1, _id: -1}:
          *
@@ -58,13 +87,79 @@ public class ConversationCustomRepositoryImpl implements ConversationCustomRepos
          * - No skipped documents
          * - Deterministic ordering even with identical timestamps
          */
-        if (cursorActivityAt != null && cursorId != null) {
-            Criteria cursorCriteria = new Criteria().orOperator(
-                    Criteria.where("last_activity_at").lt(cursorActivityAt),
-                    Criteria.where("last_activity_at").is(cursorActivityAt).and("_id")
-                            .lt(cursorId));
-            matchCriteria = new Criteria().andOperator(matchCriteria, cursorCriteria);
+        if (cursorActivityAt == null || cursorId == null) {
+            return matchCriteria;
         }
+        Criteria cursorCriteria = new Criteria().orOperator(
+                Criteria.where("last_activity_at").lt(cursorActivityAt),
+                Criteria.where("last_activity_at").is(cursorActivityAt).and("_id")
+                        .lt(cursorId));
+        return new Criteria().andOperator(matchCriteria, cursorCriteria);
+    }
+
+    @Override
+    public List<ConversationDocument> findConversationsActiveSince(Long userId, Instant since, int limit) {
+        // Same pipeline as the list: a bounded range of {participant_ids, last_activity_at}
+        Criteria matchCriteria = Criteria.where("participant_ids").is(userId)
+                .and("deleted_at").isNull()
+                .and("last_activity_at").gt(since);
+
+        return findVisibleConversations(userId, matchCriteria, limit);
+    }
+
+    @Override
+    public List<ConversationDocument> findListItemsByIds(Long userId, Collection<ObjectId> conversationIds) {
+        Query query = new Query(Criteria.where("_id").in(conversationIds).and("deletedAt").isNull());
+        // Same fields as the pipeline's PROJECT stage
+        query.fields()
+                .include("type", "name", "avatarUrl", "lastMessage", "lastActivityAt", "memberCount", "participantIds")
+                .include("unreadCounts." + userId, "unreadMentions." + userId)
+                .slice("participants", 3);
+
+        return mongoTemplate.find(query, ConversationDocument.class);
+    }
+
+    @Override
+    public List<ConversationDocument> findActivityChangesSince(Long userId, Instant since, int limit) {
+        // Ascending sort on a {last_activity_at: -1, _id: -1} key: the index is walked backwards
+        Query query = new Query(Criteria.where("participantIds").is(userId)
+                .and("lastActivityAt").gt(since))
+                .with(Sort.by(Sort.Direction.ASC, "lastActivityAt").and(Sort.by(Sort.Direction.ASC, "_id")))
+                .limit(limit);
+        includeChangeFields(query, userId);
+
+        return mongoTemplate.find(query, ConversationDocument.class);
+    }
+
+    @Override
+    public List<ConversationDocument> findMetadataChangesSince(Long userId, Instant since, int limit) {
+        // lastActivityAt is checked on the fetched document: anything newer is the activity half's
+        Query query = new Query(Criteria.where("participantIds").is(userId)
+                .and("updatedAt").gt(since)
+                .and("lastActivityAt").lte(since))
+                .with(Sort.by(Sort.Direction.ASC, "updatedAt"))
+                .limit(limit);
+        includeChangeFields(query, userId);
+
+        return mongoTemplate.find(query, ConversationDocument.class);
+    }
+
+    /**
+     * The list projection plus what a delta needs to tell changes from tombstones.
+     */
+    private static void includeChangeFields(Query query, Long userId) {
+        query.fields()
+                .include("type", "name", "avatarUrl", "lastMessage", "lastActivityAt", "memberCount", "participantIds")
+                .include("updatedAt", "deletedAt")
+                .include("unreadCounts." + userId, "unreadMentions." + userId)
+                .slice("participants", 3);
+    }
+
+    /**
+     * The conversation-list pipeline: {@code matchCriteria} + newest-activity-first sort, hide
+     * conversations the user cleared with no activity since, project the list fields.
+     */
+    private List<ConversationDocument> findVisibleConversations(Long userId, Criteria matchCriteria, int limit) {
         MatchOperation matchStage = Aggregation.match(matchCriteria);
 
         // 2. STAGE SORT: (MUST be immediately after MATCH to enable index scan optimization)
@@ -106,7 +201,7 @@ public class ConversationCustomRepositoryImpl implements ConversationCustomRepos
                                         .greaterThan("myInfo.0.cleared_at"))));
 
         // 5. STAGE LIMIT: (Pagination — stop scanning once enough results collected)
-        LimitOperation limitStage = Aggregation.limit(pageSize);
+        LimitOperation limitStage = Aggregation.limit(limit);
 
         // 6. STAGE PROJECTION: (Fetch exactly the necessary fields to optimize payload)
         ProjectionOperation projectStage = Aggregation.project(
@@ -155,6 +250,41 @@ public class ConversationCustomRepositoryImpl implements ConversationCustomRepos
         return mongoTemplate.updateFirst(query, update, ConversationDocument.class);
     }
 
+    @Override
+    public UpdateResult updateLastMessageIfNewer(ObjectId conversationId, LastMessagePreview preview) {
+        return mongoTemplate.updateFirst(newerLastMessageQuery(conversationId, preview),
+                lastMessageUpdate(preview), ConversationDocument.class);
+    }
+
+    @Override
+    public BulkWriteResult updateLastMessagesIfNewer(Map<ObjectId, LastMessagePreview> previews) {
+        if (previews.isEmpty()) {
+            return BulkWriteResult.acknowledged(0, 0, 0, 0, List.of(), List.of());
+        }
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConversationDocument.class);
+        previews.forEach((conversationId, preview) ->
+                bulkOps.updateOne(newerLastMessageQuery(conversationId, preview), lastMessageUpdate(preview)));
+        return bulkOps.execute();
+    }
+
+    /**
+     * Match the conversation only if its stored preview is older than {@code preview}.
+     * ObjectIds are time-ordered, so {@code $lt} on {@code message_id} is a monotonic guard.
+     */
+    private Query newerLastMessageQuery(ObjectId conversationId, LastMessagePreview preview) {
+        return new Query(Criteria.where("_id").is(conversationId).orOperator(
+                Criteria.where("lastMessage.messageId").lt(preview.getMessageId()),
+                Criteria.where("lastMessage.messageId").exists(false)));
+    }
+
+    private Update lastMessageUpdate(LastMessagePreview preview) {
+        return new Update()
+                .set("lastMessage", preview)
+                .set("lastActivityAt", preview.getSentAt())
+                .set("updatedAt", Instant.now());
+    }
+
     // ═══════════════════════════════════════════════════════════
     // UNREAD COUNTS — Computed Pattern
     // ═══════════════════════════════════════════════════════════
@@ -193,6 +323,42 @@ public class ConversationCustomRepositoryImpl implements ConversationCustomRepos
         return mongoTemplate.updateFirst(query, update, ConversationDocument.class);
     }
 
+    @Override
+    public BulkWriteResult applyUnreadCounts(Map<ObjectId, Map<Long, long[]>> counts) {
+        if (counts.isEmpty()) {
+            // (An empty bulk write is rejected by the driver)
+            return BulkWriteResult.acknowledged(0, 0, 0, 0, List.of(), List.of());
+        }
+
+        // Raw pipeline: resolve the stored names of the maps once
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(ConversationDocument.class);
+        String countsField = entity.getRequiredPersistentProperty("unreadCounts").getFieldName();
+        String mentionsField = entity.getRequiredPersistentProperty("unreadMentions").getFieldName();
+        String versionsField = entity.getRequiredPersistentProperty("unreadVersions").getFieldName();
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConversationDocument.class);
+        counts.forEach((conversationId, userCounts) -> {
+            // Each user's fields move only if its version is newer; all conditions see the old document
+            Document set = new Document();
+            userCounts.forEach((userId, count) -> {
+                String version = versionsField + "." + userId;
+                Document newer = new Document("$lt",
+                        List.of(new Document("$ifNull", List.of("$" + version, 0L)), count[2]));
+                set.append(countsField + "." + userId, ifNewer(newer, (int) count[0], countsField + "." + userId))
+                        .append(mentionsField + "." + userId, ifNewer(newer, (int) count[1], mentionsField + "." + userId))
+                        .append(version, ifNewer(newer, count[2], version));
+            });
+            bulkOps.updateOne(new Query(Criteria.where("_id").is(conversationId)),
+                    AggregationUpdate.from(List.of(context -> new Document("$set", set))));
+        });
+        return bulkOps.execute();
+    }
+
+    private static Document ifNewer(Document newer, Object value, String field) {
+        return new Document("$cond", List.of(newer, value, "$" + field));
+    }
+
     @Override
     public UpdateResult resetUnreadCount(ObjectId conversationId, Long userId) {
         Query query = new Query(Criteria.where("_id").is(conversationId));
@@ -205,6 +371,34 @@ public class ConversationCustomRepositoryImpl implements ConversationCustomRepos
         return mongoTemplate.updateFirst(query, update, ConversationDocument.class);
     }
 
+    @Override
+    public Stream<ConversationDocument> streamUnreadCounts(Long userId) {
+        // MATCH → index scan on {participant_ids, ...}; PROJECT keeps one map entry per document
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("participant_ids").is(userId).and("deleted_at").isNull()),
+                Aggregation.project("_id").andInclude("unread_counts." + userId));
+
+        return mongoTemplate.aggregateStream(aggregation, "conversations", ConversationDocument.class);
+    }
+
+    @Override
+    public Optional<ConversationDocument> findUnreadCountsById(ObjectId conversationId, Collection<Long> userIds) {
+        Query query = new Query(Criteria.where("_id").is(conversationId));
+        for (Long userId : userIds) {
+            query.fields().include("unreadCounts." + userId, "unreadMentions." + userId);
+        }
+
+        return Optional.ofNullable(mongoTemplate.findOne(query, ConversationDocument.class));
+    }
+
+    @Override
+    public List<ConversationDocument> findUnreadCountsByIds(Long userId, Collection<ObjectId> conversationIds) {
+        Query query = new Query(Criteria.where("_id").in(conversationIds));
+        query.fields().include("unreadCounts." + userId, "unreadMentions." + userId);
+
+        return mongoTemplate.find(query, ConversationDocument.class);
+    }
+
     // ═══════════════════════════════════════════════════════════
     // PARTICIPANT MANAGEMENT
     // ═══════════════════════════════════════════════════════════
@@ -254,6 +448,7 @@ public class ConversationCustomRepositoryImpl implements ConversationCustomRepos
         for (Long userId : targetUserIds) {
             update.unset("unreadCounts." + userId);
             update.unset("unreadMentions." + userId);
+            update.unset("unreadVersions." + userId);
         }
 
         update.set("updatedAt", Instant.now());
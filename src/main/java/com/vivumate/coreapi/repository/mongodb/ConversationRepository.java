@@ -10,6 +10,7 @@ import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -55,7 +56,10 @@ public interface ConversationRepository
 
     /**
      * Find conversations by type for a specific user.
-     * Uses index: {@code idx_type_activity}
+     * Uses index: {@code idx_user_type_conversations_latest}
+     * <p>
+     * Note: prefer {@link ConversationCustomRepository#findConversationsByUserIdAndType}
+     * (cursor-based pagination and projection).
      */
     List<ConversationDocument> findByParticipantIdsAndTypeAndDeletedAtIsNullOrderByLastActivityAtDesc(
             Long userId, ConversationType type, Pageable pageable
@@ -72,9 +76,28 @@ public interface ConversationRepository
     @Query("{ '_id': ?0, 'participant_ids': ?1, 'deleted_at': null }")
     Optional<ConversationDocument> findByIdAndParticipantId(ObjectId conversationId, Long userId);
 
+    /**
+     * Load only what access control needs: type, member IDs and each member's role / clearedAt.
+     * Skips participant snapshots, unread maps and the last message preview.
+     */
+    @Query(value = "{ '_id': ?0, 'deleted_at': null }",
+            fields = "{ 'type': 1, 'participant_ids': 1, 'participants.user_id': 1, 'participants.role': 1, 'participants.cleared_at': 1 }")
+    Optional<ConversationDocument> findMembershipById(ObjectId conversationId);
+
+    /**
+     * {@link #findMembershipById} for several conversations in ONE query (first-page prefetch).
+     * Soft-deleted and unknown IDs are simply absent from the result.
+     */
+    @Query(value = "{ '_id': { $in: ?0 }, 'deleted_at': null }",
+            fields = "{ 'type': 1, 'participant_ids': 1, 'participants.user_id': 1, 'participants.role': 1, 'participants.cleared_at': 1 }")
+    List<ConversationDocument> findMembershipsByIdIn(Collection<ObjectId> conversationIds);
+
     @Query(value = "{ 'participant_ids': ?0, 'type': 'GROUP', 'deleted_at': null }", fields = "{ '_id': 1 }")
     List<ConversationDocument> findGroupIdsByUserId(Long userId);
 
+    @Query(value = "{ 'participant_ids': ?0, 'deleted_at': null }", fields = "{ '_id': 1 }")
+    List<ConversationDocument> findIdsByUserId(Long userId);
+
     @Query(value = "{ 'deleted_at': { $lte: ?0 } }", fields = "{ '_id': 1 }")
     List<ConversationDocument> findExpiredConversations(Instant cutoffDate);
 
@@ -0,0 +1,25 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.vivumate.coreapi.document.ConversationTombstoneDocument;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Spring Data MongoDB repository for {@link ConversationTombstoneDocument}.
+ * Records are inserted once and expire by TTL; nothing updates them.
+ */
+@Repository
+public interface ConversationTombstoneRepository extends MongoRepository<ConversationTombstoneDocument, ObjectId> {
+
+    /**
+     * The user's removals strictly after {@code since}, oldest first (list delta).
+     * Uses index: {@code idx_user_tombstones}
+     */
+    List<ConversationTombstoneDocument> findByUserIdAndRemovedAtGreaterThanOrderByRemovedAtAsc(
+            Long userId, Instant since, Limit limit);
+}
@@ -0,0 +1,24 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.vivumate.coreapi.document.HiddenMessagesDocument;
+import org.bson.types.ObjectId;
+
+import java.util.List;
+
+/**
+ * Custom repository fragment for {@link HiddenMessagesDocument}: atomic bucket upserts.
+ */
+public interface HiddenMessagesCustomRepository {
+
+    /**
+     * Hide a message for a user ("delete for me"). Creates the bucket on first use;
+     * {@code $addToSet} makes a repeated hide a no-op.
+     */
+    void hide(Long userId, ObjectId conversationId, ObjectId messageId);
+
+    /**
+     * Merge the message IDs of each given bucket into the stored one, in one unordered bulk write.
+     * Used by the {@code deleted_for} migration.
+     */
+    void hideAll(List<HiddenMessagesDocument> buckets);
+}
@@ -0,0 +1,58 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.vivumate.coreapi.document.HiddenMessagesDocument;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Implementation of {@link HiddenMessagesCustomRepository} using {@link MongoTemplate}.
+ * <p>
+ * Both writes are upserts on the unique {@code (user_id, conversation_id)} key, so concurrent
+ * first hides of the same bucket are retried by the server instead of failing.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HiddenMessagesCustomRepositoryImpl implements HiddenMessagesCustomRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void hide(Long userId, ObjectId conversationId, ObjectId messageId) {
+        Update update = new Update()
+                .addToSet("messageIds", messageId)
+                .set("updatedAt", Instant.now());
+
+        mongoTemplate.upsert(bucketQuery(userId, conversationId), update, HiddenMessagesDocument.class);
+    }
+
+    @Override
+    public void hideAll(List<HiddenMessagesDocument> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HiddenMessagesDocument.class);
+        for (HiddenMessagesDocument bucket : buckets) {
+            Update update = new Update()
+                    .addToSet("messageIds").each(bucket.getMessageIds().toArray())
+                    .set("updatedAt", now);
+            bulkOps.upsert(bucketQuery(bucket.getUserId(), bucket.getConversationId()), update);
+        }
+        bulkOps.execute();
+    }
+
+    private static Query bucketQuery(Long userId, ObjectId conversationId) {
+        return new Query(Criteria.where("userId").is(userId)
+                .and("conversationId").is(conversationId));
+    }
+}
@@ -0,0 +1,36 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.vivumate.coreapi.document.HiddenMessagesDocument;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Spring Data MongoDB repository for {@link HiddenMessagesDocument}.
+ * Upserts ("delete for me", migration) are in {@link HiddenMessagesCustomRepository}.
+ */
+@Repository
+public interface HiddenMessagesRepository
+        extends MongoRepository<HiddenMessagesDocument, ObjectId>, HiddenMessagesCustomRepository {
+
+    /**
+     * The bucket of one user in one conversation.
+     * Uses index: {@code idx_user_conversation_hidden_unique}
+     */
+    Optional<HiddenMessagesDocument> findByUserIdAndConversationId(Long userId, ObjectId conversationId);
+
+    /**
+     * The buckets of one user in several conversations (delta sync).
+     * Uses index: {@code idx_user_conversation_hidden_unique}
+     */
+    List<HiddenMessagesDocument> findAllByUserIdAndConversationIdIn(Long userId, Collection<ObjectId> conversationIds);
+
+    /**
+     * Drop every bucket of hard-deleted conversations.
+     */
+    void deleteAllByConversationIdIn(List<ObjectId> conversationIds);
+}
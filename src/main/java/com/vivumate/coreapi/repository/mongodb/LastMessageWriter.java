@@ -0,0 +1,163 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.vivumate.coreapi.cache.ConversationListCache;
+import com.vivumate.coreapi.document.subdoc.LastMessagePreview;
+import com.vivumate.coreapi.service.UserInboxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write path for {@code lastMessage} / {@code lastActivityAt} on new messages.
+ * <p>
+ * <b>Strict mode</b> ({@code vivumate.chat.last-message.mode=strict}, default): one guarded
+ * update per message, applied before the send returns.
+ * <p>
+ * <b>Coalesced mode</b>: only the NEWEST preview per conversation is kept in memory and
+ * flushed every {@code flush-interval-ms} in one bulk write. A 50 msg/s group costs
+ * ~{@code 1000 / flush-interval-ms} conversation writes per second instead of 50. The
+ * conversation list may lag by up to one interval.
+ * <p>
+ * <b>Monotonic ordering</b> (both modes): previews are compared by message {@code _id}
+ * in memory, and every MongoDB write is guarded by
+ * {@code last_message.message_id < preview.messageId}, so an older or delayed write
+ * never overwrites a newer preview.
+ * <p>
+ * Edit / recall rewrite the preview of an existing message unguarded, so they MUST call
+ * {@link #flush(ObjectId)} first; otherwise a pending preview could land on top of them.
+ * <p>
+ * Every preview written to a conversation is fanned out to its members' {@code user_inbox}
+ * entries in the same step (a no-op while the inbox is disabled); coalesced mode also bounds
+ * that fan-out to one {@code updateMany} per conversation and interval. The cached first pages
+ * of the members' lists ({@link ConversationListCache}) are patched the same way.
+ * <p>
+ * Metrics: {@code vivumate.chat.last_message.writes{result=requested|written|coalesced}} —
+ * {@code coalesced} counts writes saved.
+ */
+@Repository
+@Slf4j(topic = "LAST_MESSAGE_WRITER")
+public class LastMessageWriter {
+
+    private final ConversationRepository conversationRepository;
+    private final UserInboxService userInboxService;
+    private final ConversationListCache conversationListCache;
+    private final boolean coalesced;
+    private final ConcurrentHashMap<ObjectId, LastMessagePreview> pending = new ConcurrentHashMap<>();
+
+    private final Counter requestedCounter;
+    private final Counter writtenCounter;
+    private final Counter coalescedCounter;
+
+    public LastMessageWriter(ConversationRepository conversationRepository,
+                             UserInboxService userInboxService,
+                             ConversationListCache conversationListCache,
+                             MeterRegistry meterRegistry,
+                             @Value("${vivumate.chat.last-message.mode:strict}") String mode) {
+        this.conversationRepository = conversationRepository;
+        this.userInboxService = userInboxService;
+        this.conversationListCache = conversationListCache;
+        this.coalesced = "coalesced".equalsIgnoreCase(mode);
+
+        this.requestedCounter = writesCounter(meterRegistry, "requested");
+        this.writtenCounter = writesCounter(meterRegistry, "written");
+        this.coalescedCounter = writesCounter(meterRegistry, "coalesced");
+
+        log.info("LastMessage write mode: {}", coalesced ? "coalesced" : "strict");
+    }
+
+    /**
+     * Record the preview of a newly sent message.
+     * Strict: written now. Coalesced: replaces any older pending preview of the conversation.
+     */
+    public void submit(ObjectId conversationId, LastMessagePreview preview) {
+        requestedCounter.increment();
+
+        if (!coalesced) {
+            conversationRepository.updateLastMessageIfNewer(conversationId, preview);
+            userInboxService.applyLastMessages(Map.of(conversationId, preview));
+            conversationListCache.onLastMessages(Map.of(conversationId, preview));
+            writtenCounter.increment();
+            return;
+        }
+
+        pending.merge(conversationId, preview, (current, incoming) -> {
+            coalescedCounter.increment();
+            return isNewer(incoming, current) ? incoming : current;
+        });
+    }
+
+    /**
+     * Drop a pending preview of a message that turned out not to exist (its insert failed).
+     */
+    public void cancel(ObjectId conversationId, ObjectId messageId) {
+        pending.computeIfPresent(conversationId,
+                (id, preview) -> messageId.equals(preview.getMessageId()) ? null : preview);
+    }
+
+    /**
+     * Write the pending preview of ONE conversation now (before edit / recall touch it).
+     */
+    public void flush(ObjectId conversationId) {
+        LastMessagePreview preview = pending.remove(conversationId);
+        if (preview != null) {
+            conversationRepository.updateLastMessageIfNewer(conversationId, preview);
+            userInboxService.applyLastMessages(Map.of(conversationId, preview));
+            conversationListCache.onLastMessages(Map.of(conversationId, preview));
+            writtenCounter.increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${vivumate.chat.last-message.flush-interval-ms:250}")
+    @PreDestroy
+    public void flushAll() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // remove() per key is atomic with concurrent merge(): a newer preview arriving
+        // after removal simply starts a new pending entry for the next flush
+        Map<ObjectId, LastMessagePreview> batch = new HashMap<>();
+        for (ObjectId conversationId : pending.keySet()) {
+            LastMessagePreview preview = pending.remove(conversationId);
+            if (preview != null) {
+                batch.put(conversationId, preview);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            conversationRepository.updateLastMessagesIfNewer(batch);
+            // Both writes are guarded by message ID, so a retry after a partial failure is harmless
+            userInboxService.applyLastMessages(batch);
+            conversationListCache.onLastMessages(batch);
+            writtenCounter.increment(batch.size());
+        } catch (Exception e) {
+            // Re-queue unless something newer arrived meanwhile
+            batch.forEach((conversationId, preview) -> pending.merge(conversationId, preview,
+                    (current, failed) -> isNewer(failed, current) ? failed : current));
+            log.error("Failed to flush lastMessage for {} conversations, will retry", batch.size(), e);
+        }
+    }
+
+    private static boolean isNewer(LastMessagePreview candidate, LastMessagePreview current) {
+        return candidate.getMessageId().compareTo(current.getMessageId()) > 0;
+    }
+
+    private static Counter writesCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("vivumate.chat.last_message.writes")
+                .description("lastMessage updates requested by sends vs. actually written to MongoDB")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -1,13 +1,19 @@
 package com.vivumate.coreapi.repository.mongodb;
 
 import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.projection.MessageFeedItem;
+import com.vivumate.coreapi.document.projection.NewMessages;
+import com.vivumate.coreapi.document.projection.ScoredMessage;
 import com.vivumate.coreapi.document.subdoc.EditHistoryEntry;
 import com.vivumate.coreapi.document.subdoc.MessageContent;
 import com.mongodb.client.result.UpdateResult;
 import org.bson.types.ObjectId;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Custom repository fragment for {@link MessageDocument}.
@@ -27,40 +33,133 @@ public interface MessageCustomRepository {
 
     /**
      * Load messages in a conversation using cursor-based pagination.
-     * Returns messages newest-first, excluding messages soft-deleted by/for the requesting user.
+     * Returns messages newest-first, excluding recalled messages and the ones the requesting user
+     * has deleted for themselves.
      * <p>
-     * Uses index: {@code {conversation_id: 1, _id: -1}}
+     * Uses index: {@code {conversation_id: 1, _id: -1}} — a pure range scan. Hidden messages are
+     * not part of the filter: the query over-fetches by the number of hidden IDs inside the page's
+     * range and drops them in memory, so the page is still full.
      * <p>
      * Cursor strategy: uses {@code _id} (ObjectId) as cursor since ObjectId
      * contains an embedded timestamp, providing natural chronological ordering
      * without needing a separate {@code created_at} index for pagination.
      *
      * @param conversationId the conversation to load messages from
-     * @param currentUserId  the requesting user's PostgreSQL ID (for filtering deleted_for)
+     * @param hidden         messages the requesting user has deleted for themselves
      * @param cursor         ObjectId of the last message from the previous page (null for first page)
      * @param pageSize       number of messages per page (recommended: 30)
      * @param clearedAt      Save time to delete user's chat history
      * @return messages sorted newest-first
      */
     List<MessageDocument> findMessagesByConversation(
-            ObjectId conversationId, Long currentUserId, ObjectId cursor, Instant clearedAt, int pageSize
+            ObjectId conversationId, HiddenMessages hidden, ObjectId cursor, Instant clearedAt, int pageSize
     );
 
+    /**
+     * Forward page: messages NEWER than {@code cursor}, same visibility rules as
+     * {@link #findMessagesByConversation} (recalled, before {@code clearedAt}, hidden excluded).
+     * <p>
+     * Uses index: {@code {conversation_id: 1, _id: -1}} (the same bounded range, walked upwards)
+     *
+     * @param cursor    lower bound of the page ({@code _id} of the newest message the client has)
+     * @param inclusive include {@code cursor} itself if it is visible (jump-to-message anchor)
+     * @return messages sorted OLDEST-first; the last one is the cursor of the next forward page
+     */
+    List<MessageDocument> findMessagesAfter(
+            ObjectId conversationId, HiddenMessages hidden, ObjectId cursor, boolean inclusive,
+            Instant clearedAt, int pageSize
+    );
+
+    /**
+     * Feed read path: same page as {@link #findMessagesByConversation}, but with a server-side
+     * projection (no {@code previous_edit}, {@code updated_at}, soft-delete flags)
+     * decoded straight from BSON into {@link MessageFeedItem} as the cursor is iterated.
+     * <p>
+     * The stream holds a server cursor — callers MUST close it (try-with-resources).
+     *
+     * @return messages newest-first
+     */
+    Stream<MessageFeedItem> streamFeed(
+            ObjectId conversationId, HiddenMessages hidden, ObjectId cursor, Instant clearedAt, int pageSize
+    );
+
+    /**
+     * Export read path: the WHOLE visible history of a conversation, oldest first, through the
+     * same projection and codec as {@link #streamFeed}. No limit — the driver pulls
+     * {@code batchSize} documents per {@code getMore} only as the stream is consumed, so memory
+     * is bounded by one batch whatever the history size.
+     * <p>
+     * Uses index: {@code {conversation_id: 1, _id: -1}} (walked upwards from {@code clearedAt})
+     * <p>
+     * The stream holds a server cursor — callers MUST close it (try-with-resources).
+     */
+    Stream<MessageFeedItem> streamHistory(
+            ObjectId conversationId, HiddenMessages hidden, Instant clearedAt, int batchSize
+    );
+
+    /**
+     * Search-index feed: every non-recalled message of a conversation after {@code afterId}
+     * (all of them if null), oldest first. Not filtered per user — the index is shared.
+     * <p>
+     * Uses index: {@code {conversation_id: 1, _id: -1}}
+     * <p>
+     * The stream holds a server cursor — callers MUST close it (try-with-resources).
+     */
+    Stream<MessageFeedItem> streamForIndexing(ObjectId conversationId, ObjectId afterId, int batchSize);
+
+    /**
+     * Load the newest messages of a conversation for the recent-messages cache.
+     * Unlike {@link #findMessagesByConversation}, NOT filtered per user (hidden messages and
+     * {@code clearedAt} are applied in memory by the cache); only recalled messages are excluded.
+     * <p>
+     * Uses index: {@code {conversation_id: 1, _id: -1}}
+     *
+     * @return at most {@code limit} messages, sorted newest-first
+     */
+    List<MessageDocument> findRecentMessages(ObjectId conversationId, int limit);
+
+    /**
+     * Delta sync: the newest messages after {@code since} of several conversations in ONE
+     * aggregation ({@code $in} + {@code _id} lower bound, grouped with {@code $firstN}).
+     * Not filtered per user — callers apply {@code clearedAt} and hidden messages.
+     * <p>
+     * Uses index: {@code {conversation_id: 1, _id: -1}} (one bounded range per conversation,
+     * already in the order {@code $firstN} needs — no blocking sort)
+     *
+     * @param perConversationLimit cap of returned messages per conversation
+     * @return one entry per conversation that has new messages
+     */
+    List<NewMessages> findNewMessages(Collection<ObjectId> conversationIds, Instant since, int perConversationLimit);
+
     // ═══════════════════════════════════════════════════════════
     //  FULL-TEXT SEARCH
     // ═══════════════════════════════════════════════════════════
 
     /**
-     * Search messages by keyword within a specific conversation.
+     * Search messages by keyword within a specific conversation, one keyset page at a time.
      * Uses index: {@code {conversation_id: 1, content.text: "text"}}
+     * <p>
+     * Ordered by {@code (textScore desc, _id desc)}; a page after {@code (afterScore, afterId)}
+     * starts strictly below that key, so no earlier hit is skipped over or returned twice.
+     * MongoDB still scores every match of the keyword (a text score is not indexable), but only
+     * keeps a top-{@code pageSize} sort in memory and returns one page.
+     * <p>
+     * Hidden messages are dropped in memory, like {@link #findMessagesByConversation}.
      *
      * @param conversationId scope the search to this conversation
+     * @param hidden         messages the requesting user has deleted for themselves
      * @param keyword        the search term
+     * @param newestFirst    order by {@code _id desc} instead of text score (continues a list
+     *                       another engine started newest first); hits then carry no score
+     * @param afterScore     score of the last hit of the previous page, null for the first page
+     *                       or when {@code newestFirst}
+     * @param afterId        {@code _id} of the last hit of the previous page, null for the first page
      * @param pageSize       max results to return
-     * @return messages matching the keyword, sorted by text relevance score
+     * @return messages matching the keyword with their exact text score, best first (or newest first)
      */
-    List<MessageDocument> searchMessages(
-            ObjectId conversationId, Long currentUserId, Instant clearedAt, String keyword, int pageSize
+    List<ScoredMessage> searchMessages(
+            ObjectId conversationId, HiddenMessages hidden, Instant clearedAt, String keyword,
+            boolean newestFirst, Double afterScore, ObjectId afterId, int pageSize
     );
     // ═══════════════════════════════════════════════════════════
     //  MESSAGE EDITING
@@ -84,16 +183,9 @@ public interface MessageCustomRepository {
                              MessageContent newContent, EditHistoryEntry historyEntry);
 
     // ═══════════════════════════════════════════════════════════
-    //  SOFT DELETE
+    //  SOFT DELETE — "delete for me" lives in HiddenMessagesRepository
     // ═══════════════════════════════════════════════════════════
 
-    /**
-     * Delete a message for a specific user only ("delete for me").
-     * Adds the userId to the {@code deleted_for} array.
-     * The message remains visible to all other participants.
-     */
-    UpdateResult deleteForUser(ObjectId messageId, Long userId);
-
     /**
      * Delete a message for all participants ("delete for everyone").
      * Only the original sender can perform this action.
@@ -1,24 +1,40 @@
 package com.vivumate.coreapi.repository.mongodb;
 
 import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.projection.MessageFeedItem;
+import com.vivumate.coreapi.document.projection.NewMessages;
+import com.vivumate.coreapi.document.projection.ScoredMessage;
 import com.vivumate.coreapi.document.subdoc.EditHistoryEntry;
 import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.result.UpdateResult;
-import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.types.ObjectId;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.TextCriteria;
-import org.springframework.data.mongodb.core.query.TextQuery;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementation of {@link MessageCustomRepository} using {@link MongoTemplate}.
@@ -26,16 +42,32 @@ import java.util.List;
  * Design principles:
  * <ul>
  *   <li>All writes use atomic operators — no read-modify-write cycles</li>
- *   <li>Cursor-based pagination via ObjectId for O(log N) performance</li>
+ *   <li>Cursor-based pagination via ObjectId for O(log N) performance; feed filters carry no
+ *       per-user predicate ("delete for me" is filtered in memory)</li>
  *   <li>Ownership checks embedded in query predicates (not in application code)
  *       to prevent TOCTOU race conditions</li>
+ *   <li>The feed read path bypasses the reflective converter: projected BSON is decoded
+ *       by {@link MessageFeedItemCodec} while the cursor is iterated</li>
  * </ul>
  */
 @Repository
-@RequiredArgsConstructor
 public class MessageCustomRepositoryImpl implements MessageCustomRepository {
 
+    /** Computed {@code $meta: "textScore"}; same name as the {@code @TextScore} property. */
+    private static final String SCORE_FIELD = "score";
+
     private final MongoTemplate mongoTemplate;
+    private final QueryMapper queryMapper;
+    private final MongoPersistentEntity<?> messageEntity;
+    private final MessageFeedItemCodec feedCodec;
+
+    public MessageCustomRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.queryMapper = new QueryMapper(mongoTemplate.getConverter());
+        this.messageEntity = mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(MessageDocument.class);
+        this.feedCodec = new MessageFeedItemCodec(mongoTemplate.getConverter().getMappingContext());
+    }
 
     // ═══════════════════════════════════════════════════════════
     //  MESSAGE FEED — Hot Read Path
@@ -43,11 +75,140 @@ public class MessageCustomRepositoryImpl implements MessageCustomRepository {
 
     @Override
     public List<MessageDocument> findMessagesByConversation(
-            ObjectId conversationId, Long currentUserId, ObjectId cursor, Instant clearedAt, int pageSize) {
+            ObjectId conversationId, HiddenMessages hidden, ObjectId cursor, Instant clearedAt, int pageSize) {
+
+        int hiddenInRange = hidden.countBetween(minIdOf(clearedAt), cursor);
+        Query query = new Query(feedCriteria(conversationId, cursor, clearedAt))
+                .with(Sort.by(Sort.Direction.DESC, "_id"))
+                .limit(pageSize + hiddenInRange)
+                .cursorBatchSize(batchSize(pageSize, hiddenInRange));
+
+        if (hiddenInRange == 0) {
+            return mongoTemplate.find(query, MessageDocument.class);
+        }
+        try (Stream<MessageDocument> messages = mongoTemplate.stream(query, MessageDocument.class)) {
+            return messages.filter(message -> !hidden.contains(message.getId()))
+                    .limit(pageSize)
+                    .toList();
+        }
+    }
 
+    @Override
+    public List<MessageDocument> findMessagesAfter(
+            ObjectId conversationId, HiddenMessages hidden, ObjectId cursor, boolean inclusive,
+            Instant clearedAt, int pageSize) {
+
+        ObjectId minId = minIdOf(clearedAt);
+        // The clearedAt watermark wins over an older cursor (and is always exclusive)
+        boolean fromWatermark = minId != null && minId.compareTo(cursor) >= 0;
+        ObjectId lowerBound = fromWatermark ? minId : cursor;
+        boolean includeLowerBound = inclusive && !fromWatermark;
+
+        Criteria idRange = includeLowerBound
+                ? Criteria.where("_id").gte(lowerBound)
+                : Criteria.where("_id").gt(lowerBound);
         Criteria criteria = Criteria.where("conversationId").is(conversationId)
                 .and("deletedForEveryone").is(false)
-                .and("deletedFor").ne(currentUserId);
+                .andOperator(idRange);
+
+        int hiddenInRange = hidden.countBetween(lowerBound, null)
+                + (includeLowerBound && hidden.contains(lowerBound) ? 1 : 0);
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(pageSize + hiddenInRange)
+                .cursorBatchSize(batchSize(pageSize, hiddenInRange));
+
+        if (hiddenInRange == 0) {
+            return mongoTemplate.find(query, MessageDocument.class);
+        }
+        try (Stream<MessageDocument> messages = mongoTemplate.stream(query, MessageDocument.class)) {
+            return messages.filter(message -> !hidden.contains(message.getId()))
+                    .limit(pageSize)
+                    .toList();
+        }
+    }
+
+    @Override
+    public Stream<MessageFeedItem> streamFeed(
+            ObjectId conversationId, HiddenMessages hidden, ObjectId cursor, Instant clearedAt, int pageSize) {
+
+        // Same (mapped) filter as findMessagesByConversation, but raw driver access with our codec
+        Document filter = queryMapper.getMappedObject(
+                feedCriteria(conversationId, cursor, clearedAt).getCriteriaObject(), messageEntity);
+        int hiddenInRange = hidden.countBetween(minIdOf(clearedAt), cursor);
+
+        MongoCursor<MessageFeedItem> results = mongoTemplate.execute(MessageDocument.class, collection ->
+                collection.withCodecRegistry(feedCodecRegistry(collection.getCodecRegistry()))
+                        .find(filter, MessageFeedItem.class)
+                        .projection(feedCodec.projection())
+                        .sort(new Document("_id", -1))
+                        .limit(pageSize + hiddenInRange)
+                        .batchSize(batchSize(pageSize, hiddenInRange))
+                        .cursor());
+
+        Stream<MessageFeedItem> feed = StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED), false)
+                .onClose(results::close);
+        return hiddenInRange == 0
+                ? feed
+                : feed.filter(item -> !hidden.contains(item.id())).limit(pageSize);
+    }
+
+    @Override
+    public Stream<MessageFeedItem> streamHistory(
+            ObjectId conversationId, HiddenMessages hidden, Instant clearedAt, int batchSize) {
+
+        Document filter = queryMapper.getMappedObject(
+                feedCriteria(conversationId, null, clearedAt).getCriteriaObject(), messageEntity);
+
+        MongoCursor<MessageFeedItem> results = mongoTemplate.execute(MessageDocument.class, collection ->
+                collection.withCodecRegistry(feedCodecRegistry(collection.getCodecRegistry()))
+                        .find(filter, MessageFeedItem.class)
+                        .projection(feedCodec.projection())
+                        .sort(new Document("_id", 1))
+                        .batchSize(batchSize)
+                        .cursor());
+
+        Stream<MessageFeedItem> history = StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED), false)
+                .onClose(results::close);
+        return hidden.isEmpty() ? history : history.filter(item -> !hidden.contains(item.id()));
+    }
+
+    @Override
+    public Stream<MessageFeedItem> streamForIndexing(ObjectId conversationId, ObjectId afterId, int batchSize) {
+        Criteria criteria = Criteria.where("conversationId").is(conversationId)
+                .and("deletedForEveryone").is(false);
+        if (afterId != null) {
+            criteria = criteria.and("_id").gt(afterId);
+        }
+        Document filter = queryMapper.getMappedObject(criteria.getCriteriaObject(), messageEntity);
+
+        MongoCursor<MessageFeedItem> results = mongoTemplate.execute(MessageDocument.class, collection ->
+                collection.withCodecRegistry(feedCodecRegistry(collection.getCodecRegistry()))
+                        .find(filter, MessageFeedItem.class)
+                        .projection(feedCodec.projection())
+                        .sort(new Document("_id", 1))
+                        .batchSize(batchSize)
+                        .cursor());
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED), false)
+                .onClose(results::close);
+    }
+
+    private CodecRegistry feedCodecRegistry(CodecRegistry base) {
+        return CodecRegistries.fromRegistries(CodecRegistries.fromCodecs(feedCodec), base);
+    }
+
+    /**
+     * Visible messages of the feed: not recalled, inside {@code (clearedAt, cursor)}.
+     * <p>
+     * Deliberately free of per-user predicates, so {@code idx_conversation_messages_cursor}
+     * serves it as one bounded range scan; hidden messages are dropped by the caller.
+     */
+    static Criteria feedCriteria(ObjectId conversationId, ObjectId cursor, Instant clearedAt) {
+        Criteria criteria = Criteria.where("conversationId").is(conversationId)
+                .and("deletedForEveryone").is(false);
 
         // Cursor-based: fetch messages with _id < cursor (older messages)
         if (cursor != null) {
@@ -55,7 +216,7 @@ public class MessageCustomRepositoryImpl implements MessageCustomRepository {
         }
 
         if (clearedAt != null) {
-            ObjectId minId = new ObjectId(Date.from(clearedAt));
+            ObjectId minId = minIdOf(clearedAt);
 
             if (cursor != null) {
                 criteria.gt(minId); // _id < cursor AND _id > minId
@@ -64,40 +225,109 @@ public class MessageCustomRepositoryImpl implements MessageCustomRepository {
             }
         }
 
-        Query query = new Query(criteria)
-                .with(Sort.by(Sort.Direction.DESC, "_id"))
-                .limit(pageSize);
+        return criteria;
+    }
 
-        return mongoTemplate.find(query, MessageDocument.class);
+    private static ObjectId minIdOf(Instant clearedAt) {
+        return clearedAt != null ? new ObjectId(Date.from(clearedAt)) : null;
     }
 
-    // ═══════════════════════════════════════════════════════════
-    //  FULL-TEXT SEARCH
-    // ═══════════════════════════════════════════════════════════
+    /**
+     * Server batch for a page that may lose {@code hiddenInRange} messages: usually one round trip,
+     * without pulling every hidden message of a long history up front.
+     */
+    private static int batchSize(int pageSize, int hiddenInRange) {
+        return pageSize + Math.min(hiddenInRange, pageSize);
+    }
 
     @Override
-    public List<MessageDocument> searchMessages(ObjectId conversationId, Long currentUserId, Instant clearedAt, String keyword, int pageSize) {
-        // Combine text search with conversation scope
-        TextCriteria textCriteria = TextCriteria.forDefaultLanguage().matching(keyword);
+    public List<MessageDocument> findRecentMessages(ObjectId conversationId, int limit) {
+        Query query = new Query(Criteria.where("conversationId").is(conversationId)
+                .and("deletedForEveryone").is(false))
+                .with(Sort.by(Sort.Direction.DESC, "_id"))
+                .limit(limit);
 
-        Criteria additionalCriteria = Criteria.where("conversationId").is(conversationId)
-                .and("deletedForEveryone").is(false)
-                .and("deletedFor").ne(currentUserId);
+        return mongoTemplate.find(query, MessageDocument.class);
+    }
 
-        if (clearedAt != null) {
-            ObjectId minId = new ObjectId(Date.from(clearedAt));
-            additionalCriteria = additionalCriteria.and("_id").gt(minId);
+    @Override
+    public List<NewMessages> findNewMessages(Collection<ObjectId> conversationIds, Instant since,
+                                             int perConversationLimit) {
+        if (conversationIds.isEmpty()) {
+            return List.of();
         }
 
-        Query query = TextQuery.queryText(textCriteria)
-                .sortByScore()
-                .addCriteria(additionalCriteria)
-                .limit(pageSize);
+        String conversationField = messageEntity.getRequiredPersistentProperty("conversationId").getFieldName();
+        TypedAggregation<MessageDocument> aggregation = Aggregation.newAggregation(MessageDocument.class,
+                Aggregation.match(Criteria.where("conversationId").in(conversationIds)
+                        .and("_id").gt(minIdOf(since))
+                        .and("deletedForEveryone").is(false)),
+                // Index order: each conversation's messages arrive newest first
+                Aggregation.sort(Sort.by(Sort.Direction.ASC, "conversationId")
+                        .and(Sort.by(Sort.Direction.DESC, "_id"))),
+                // $firstN (MongoDB 5.2+) keeps the group bounded, however large the gap
+                context -> new Document("$group", new Document("_id", "$" + conversationField)
+                        .append("messages", new Document("$firstN",
+                                new Document("input", "$$ROOT").append("n", perConversationLimit)))
+                        .append("total", new Document("$sum", 1))));
+
+        return mongoTemplate.aggregate(aggregation, Document.class).getMappedResults().stream()
+                .map(group -> new NewMessages(
+                        group.getObjectId("_id"),
+                        group.getList("messages", Document.class).stream()
+                                .map(message -> mongoTemplate.getConverter().read(MessageDocument.class, message))
+                                .toList(),
+                        group.getInteger("total")))
+                .toList();
+    }
 
-        // Include text score for relevance ranking
-        query.fields().include("score");
+    // ═══════════════════════════════════════════════════════════
+    //  FULL-TEXT SEARCH
+    // ═══════════════════════════════════════════════════════════
 
-        return mongoTemplate.find(query, MessageDocument.class);
+    @Override
+    public List<ScoredMessage> searchMessages(ObjectId conversationId, HiddenMessages hidden, Instant clearedAt,
+                                              String keyword, boolean newestFirst, Double afterScore,
+                                              ObjectId afterId, int pageSize) {
+        // Combine text search with conversation scope ($text and the equality on the index prefix
+        // must share the first $match)
+        Criteria scope = Criteria.where("conversationId").is(conversationId)
+                .and("deletedForEveryone").is(false);
+
+        ObjectId minId = minIdOf(clearedAt);
+        if (minId != null) {
+            scope = scope.and("_id").gt(minId);
+        }
+        Document match = queryMapper.getMappedObject(scope.getCriteriaObject(), messageEntity);
+        match.putAll(TextCriteria.forDefaultLanguage().matching(keyword).getCriteriaObject());
+
+        List<Document> pipeline = new ArrayList<>();
+        pipeline.add(new Document("$match", match));
+        pipeline.add(new Document("$addFields", new Document(SCORE_FIELD, new Document("$meta", "textScore"))));
+        if (afterId != null) {
+            // Keyset: strictly after the last hit of the previous page
+            pipeline.add(new Document("$match", newestFirst
+                    ? new Document("_id", new Document("$lt", afterId))
+                    : new Document("$or", List.of(
+                            new Document(SCORE_FIELD, new Document("$lt", afterScore)),
+                            new Document(SCORE_FIELD, afterScore).append("_id", new Document("$lt", afterId))))));
+        }
+        // Over-fetch by the hidden messages that could match, then drop them in memory
+        pipeline.add(new Document("$sort", newestFirst
+                ? new Document("_id", -1)
+                : new Document(SCORE_FIELD, -1).append("_id", -1)));
+        pipeline.add(new Document("$limit", pageSize + hidden.countBetween(minId, null)));
+
+        List<ScoredMessage> results = new ArrayList<>(pageSize);
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(MessageDocument.class))
+                .aggregate(pipeline)
+                .forEach(document -> {
+                    MessageDocument message = mongoTemplate.getConverter().read(MessageDocument.class, document);
+                    if (results.size() < pageSize && !hidden.contains(message.getId())) {
+                        results.add(new ScoredMessage(message, newestFirst ? null : document.getDouble(SCORE_FIELD)));
+                    }
+                });
+        return results;
     }
 
     // ═══════════════════════════════════════════════════════════
@@ -126,18 +356,6 @@ public class MessageCustomRepositoryImpl implements MessageCustomRepository {
     //  SOFT DELETE
     // ═══════════════════════════════════════════════════════════
 
-    @Override
-    public UpdateResult deleteForUser(ObjectId messageId, Long userId) {
-        Query query = new Query(Criteria.where("_id").is(messageId));
-
-        // $addToSet prevents duplicate entries if user deletes twice
-        Update update = new Update()
-                .addToSet("deletedFor", userId)
-                .set("updatedAt", Instant.now());
-
-        return mongoTemplate.updateFirst(query, update, MessageDocument.class);
-    }
-
     @Override
     public UpdateResult deleteForEveryone(ObjectId messageId, Long senderUserId) {
         // Only the original sender can delete for everyone
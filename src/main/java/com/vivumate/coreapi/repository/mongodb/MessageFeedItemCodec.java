@@ -0,0 +1,313 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.enums.MentionType;
+import com.vivumate.coreapi.document.enums.SystemEvent;
+import com.vivumate.coreapi.document.projection.MessageFeedItem;
+import com.vivumate.coreapi.document.subdoc.LinkPreview;
+import com.vivumate.coreapi.document.subdoc.MediaInfo;
+import com.vivumate.coreapi.document.subdoc.Mention;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.document.subdoc.ReplyToSnapshot;
+import com.vivumate.coreapi.document.subdoc.SenderSnapshot;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the feed projection of {@code messages} straight from the BSON stream into
+ * {@link MessageFeedItem}: one pass over the bytes, no intermediate {@link Document},
+ * no reflective mapping.
+ * <p>
+ * Stored field names are resolved ONCE from the mapping context, so the codec follows the
+ * configured field naming strategy (e.g. snake_case) exactly like the mapped queries do.
+ * Fields outside the projection are skipped. Decode-only.
+ */
+public final class MessageFeedItemCodec implements Codec<MessageFeedItem> {
+
+    private enum Field { ID, CONVERSATION_ID, CLIENT_MSG_ID, SENDER, CONTENT_TYPE, CONTENT, MENTIONS, REPLY_TO, EDITED, CREATED_AT }
+
+    private enum SenderField { USER_ID, USERNAME, FULL_NAME, AVATAR_URL }
+
+    private enum ReplyToField { MESSAGE_ID, SENDER_NAME, CONTENT_PREVIEW }
+
+    private enum ContentField { TEXT, MEDIA, LINK_PREVIEW, SYSTEM_EVENT, ACTOR_ID, TARGET_ID }
+
+    private enum MediaField { URL, THUMBNAIL_URL, FILENAME, MIME_TYPE, SIZE_BYTES, WIDTH, HEIGHT }
+
+    private enum LinkPreviewField { URL, OG_TITLE, OG_DESCRIPTION, OG_IMAGE, OG_SITE_NAME }
+
+    private enum MentionField { USER_ID, FULL_NAME, TYPE }
+
+    private final Map<String, Field> fields;
+    private final Map<String, SenderField> senderFields;
+    private final Map<String, ReplyToField> replyToFields;
+    private final Map<String, ContentField> contentFields;
+    private final Map<String, MediaField> mediaFields;
+    private final Map<String, LinkPreviewField> linkPreviewFields;
+    private final Map<String, MentionField> mentionFields;
+    private final Document projection;
+
+    public MessageFeedItemCodec(
+            MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext) {
+        this.fields = storedNames(mappingContext, MessageDocument.class, Field.values());
+        this.senderFields = storedNames(mappingContext, SenderSnapshot.class, SenderField.values());
+        this.replyToFields = storedNames(mappingContext, ReplyToSnapshot.class, ReplyToField.values());
+        this.contentFields = storedNames(mappingContext, MessageContent.class, ContentField.values());
+        this.mediaFields = storedNames(mappingContext, MediaInfo.class, MediaField.values());
+        this.linkPreviewFields = storedNames(mappingContext, LinkPreview.class, LinkPreviewField.values());
+        this.mentionFields = storedNames(mappingContext, Mention.class, MentionField.values());
+
+        Document include = new Document();
+        fields.keySet().forEach(name -> include.append(name, 1));
+        this.projection = include;
+    }
+
+    /**
+     * Server-side projection: only the fields this codec reads ever leave MongoDB.
+     */
+    public Document projection() {
+        return projection;
+    }
+
+    @Override
+    public MessageFeedItem decode(BsonReader reader, DecoderContext decoderContext) {
+        ObjectId id = null;
+        ObjectId conversationId = null;
+        String clientMsgId = null;
+        Long senderId = null;
+        String senderUsername = null;
+        String senderFullName = null;
+        String senderAvatarUrl = null;
+        ContentType contentType = null;
+        MessageContent content = null;
+        List<Mention> mentions = List.of();
+        ObjectId replyToMessageId = null;
+        String replyToSenderName = null;
+        String replyToPreview = null;
+        boolean edited = false;
+        Instant createdAt = null;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            Field field = fields.get(reader.readName());
+            if (field == null || isNull(reader)) {
+                reader.skipValue();
+                continue;
+            }
+            switch (field) {
+                case ID -> id = reader.readObjectId();
+                case CONVERSATION_ID -> conversationId = reader.readObjectId();
+                case CLIENT_MSG_ID -> clientMsgId = reader.readString();
+                case CONTENT_TYPE -> contentType = ContentType.valueOf(reader.readString());
+                case CONTENT -> content = readContent(reader);
+                case MENTIONS -> mentions = readMentions(reader);
+                case EDITED -> edited = reader.readBoolean();
+                case CREATED_AT -> createdAt = Instant.ofEpochMilli(reader.readDateTime());
+                case SENDER -> {
+                    reader.readStartDocument();
+                    while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                        SenderField senderField = senderFields.get(reader.readName());
+                        if (senderField == null || isNull(reader)) {
+                            reader.skipValue();
+                            continue;
+                        }
+                        switch (senderField) {
+                            case USER_ID -> senderId = readLong(reader);
+                            case USERNAME -> senderUsername = reader.readString();
+                            case FULL_NAME -> senderFullName = reader.readString();
+                            case AVATAR_URL -> senderAvatarUrl = reader.readString();
+                        }
+                    }
+                    reader.readEndDocument();
+                }
+                case REPLY_TO -> {
+                    reader.readStartDocument();
+                    while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                        ReplyToField replyToField = replyToFields.get(reader.readName());
+                        if (replyToField == null || isNull(reader)) {
+                            reader.skipValue();
+                            continue;
+                        }
+                        switch (replyToField) {
+                            case MESSAGE_ID -> replyToMessageId = reader.readObjectId();
+                            case SENDER_NAME -> replyToSenderName = reader.readString();
+                            case CONTENT_PREVIEW -> replyToPreview = reader.readString();
+                        }
+                    }
+                    reader.readEndDocument();
+                }
+            }
+        }
+        reader.readEndDocument();
+
+        return new MessageFeedItem(id, conversationId, clientMsgId, senderId, senderUsername, senderFullName,
+                senderAvatarUrl, contentType, content, mentions, replyToMessageId, replyToSenderName,
+                replyToPreview, edited, createdAt);
+    }
+
+    @Override
+    public void encode(BsonWriter writer, MessageFeedItem value, EncoderContext encoderContext) {
+        throw new UnsupportedOperationException("MessageFeedItem is a read-only projection");
+    }
+
+    @Override
+    public Class<MessageFeedItem> getEncoderClass() {
+        return MessageFeedItem.class;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  SUB-DOCUMENTS
+    // ═══════════════════════════════════════════════════════════
+
+    private MessageContent readContent(BsonReader reader) {
+        MessageContent.MessageContentBuilder content = MessageContent.builder();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            ContentField field = contentFields.get(reader.readName());
+            if (field == null || isNull(reader)) {
+                reader.skipValue();
+                continue;
+            }
+            switch (field) {
+                case TEXT -> content.text(reader.readString());
+                case MEDIA -> content.media(readMedia(reader));
+                case LINK_PREVIEW -> content.linkPreview(readLinkPreview(reader));
+                case SYSTEM_EVENT -> content.systemEvent(SystemEvent.valueOf(reader.readString()));
+                case ACTOR_ID -> content.actorId(readLong(reader));
+                case TARGET_ID -> content.targetId(readLong(reader));
+            }
+        }
+        reader.readEndDocument();
+        return content.build();
+    }
+
+    private MediaInfo readMedia(BsonReader reader) {
+        MediaInfo.MediaInfoBuilder media = MediaInfo.builder();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            MediaField field = mediaFields.get(reader.readName());
+            if (field == null || isNull(reader)) {
+                reader.skipValue();
+                continue;
+            }
+            switch (field) {
+                case URL -> media.url(reader.readString());
+                case THUMBNAIL_URL -> media.thumbnailUrl(reader.readString());
+                case FILENAME -> media.filename(reader.readString());
+                case MIME_TYPE -> media.mimeType(reader.readString());
+                case SIZE_BYTES -> media.sizeBytes(readLong(reader));
+                case WIDTH -> media.width(Math.toIntExact(readLong(reader)));
+                case HEIGHT -> media.height(Math.toIntExact(readLong(reader)));
+            }
+        }
+        reader.readEndDocument();
+        return media.build();
+    }
+
+    private LinkPreview readLinkPreview(BsonReader reader) {
+        LinkPreview.LinkPreviewBuilder preview = LinkPreview.builder();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            LinkPreviewField field = linkPreviewFields.get(reader.readName());
+            if (field == null || isNull(reader)) {
+                reader.skipValue();
+                continue;
+            }
+            switch (field) {
+                case URL -> preview.url(reader.readString());
+                case OG_TITLE -> preview.ogTitle(reader.readString());
+                case OG_DESCRIPTION -> preview.ogDescription(reader.readString());
+                case OG_IMAGE -> preview.ogImage(reader.readString());
+                case OG_SITE_NAME -> preview.ogSiteName(reader.readString());
+            }
+        }
+        reader.readEndDocument();
+        return preview.build();
+    }
+
+    private List<Mention> readMentions(BsonReader reader) {
+        List<Mention> mentions = new ArrayList<>();
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            Mention.MentionBuilder mention = Mention.builder();
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                MentionField field = mentionFields.get(reader.readName());
+                if (field == null || isNull(reader)) {
+                    reader.skipValue();
+                    continue;
+                }
+                switch (field) {
+                    case USER_ID -> mention.userId(readLong(reader));
+                    case FULL_NAME -> mention.fullName(reader.readString());
+                    case TYPE -> mention.type(MentionType.valueOf(reader.readString()));
+                }
+            }
+            reader.readEndDocument();
+            mentions.add(mention.build());
+        }
+        reader.readEndArray();
+        return mentions;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  HELPERS
+    // ═══════════════════════════════════════════════════════════
+
+    private static boolean isNull(BsonReader reader) {
+        return reader.getCurrentBsonType() == BsonType.NULL;
+    }
+
+    private static Long readLong(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case INT32 -> (long) reader.readInt32();
+            case DOUBLE -> (long) reader.readDouble();
+            default -> reader.readInt64();
+        };
+    }
+
+    /**
+     * Stored field name → constant, for the properties named after the constants
+     * ({@code FULL_NAME} → property {@code fullName} → e.g. {@code full_name}).
+     */
+    private static <E extends Enum<E>> Map<String, E> storedNames(
+            MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext,
+            Class<?> type, E[] constants) {
+        MongoPersistentEntity<?> entity = mappingContext.getRequiredPersistentEntity(type);
+        Map<String, E> names = new HashMap<>();
+        for (E constant : constants) {
+            names.put(entity.getRequiredPersistentProperty(propertyName(constant)).getFieldName(), constant);
+        }
+        return Map.copyOf(names);
+    }
+
+    private static String propertyName(Enum<?> constant) {
+        StringBuilder property = new StringBuilder();
+        boolean upper = false;
+        for (char c : constant.name().toLowerCase().toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                property.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return property.toString();
+    }
+}
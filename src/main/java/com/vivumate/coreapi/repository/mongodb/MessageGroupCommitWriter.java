@@ -0,0 +1,237 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.vivumate.coreapi.document.MessageDocument;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message insert path with optional <b>group commit</b>.
+ * <p>
+ * <b>Strict mode</b> ({@code vivumate.chat.message-batch.enabled=false}, default):
+ * every call is its own {@code insert} — identical to {@code messageRepository.insert}.
+ * <p>
+ * <b>Group-commit mode</b>: concurrent callers enqueue their message and block. Flusher
+ * threads collect a micro-batch, closed by whichever comes first:
+ * <ul>
+ *   <li>{@code max-size} messages collected</li>
+ *   <li>{@code linger} elapsed since the first message of the batch (sub-millisecond by default)</li>
+ * </ul>
+ * and write it with ONE unordered {@link BulkOperations} insert. Each caller still gets its own
+ * saved document or its own error: a duplicate key on message #3 fails only caller #3.
+ * <p>
+ * Messages get their {@code _id} / {@code createdAt} assigned before enqueueing, because
+ * bulk inserts do not write generated IDs back to the entity.
+ */
+@Repository
+@Slf4j(topic = "MESSAGE_GROUP_COMMIT")
+public class MessageGroupCommitWriter {
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final int flusherCount;
+    private final BlockingQueue<PendingInsert> queue;
+    private final DistributionSummary batchSizeSummary;
+
+    private final List<Thread> flushers = new ArrayList<>();
+    private volatile boolean running;
+
+    public MessageGroupCommitWriter(MongoTemplate mongoTemplate,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${vivumate.chat.message-batch.enabled:false}") boolean enabled,
+                                    @Value("${vivumate.chat.message-batch.max-size:64}") int maxBatchSize,
+                                    @Value("${vivumate.chat.message-batch.linger:500us}") Duration linger,
+                                    @Value("${vivumate.chat.message-batch.flushers:2}") int flusherCount,
+                                    @Value("${vivumate.chat.message-batch.queue-capacity:10000}") int queueCapacity) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = linger.toNanos();
+        this.flusherCount = flusherCount;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.batchSizeSummary = DistributionSummary.builder("vivumate.chat.message_batch.size")
+                .description("Messages written per group-commit bulk insert")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Group commit disabled — messages are inserted one by one");
+            return;
+        }
+
+        running = true;
+        for (int i = 0; i < flusherCount; i++) {
+            flushers.add(Thread.ofPlatform()
+                    .name("msg-group-commit-" + i)
+                    .daemon(true)
+                    .start(this::flushLoop));
+        }
+        log.info("Group commit enabled: maxBatchSize={}, lingerNanos={}, flushers={}",
+                maxBatchSize, lingerNanos, flusherCount);
+    }
+
+    /**
+     * Stop accepting work and drain what is already queued, so no caller is left blocked.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread flusher : flushers) {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Persist a new message and return it. Blocks until the (batched) write is acknowledged.
+     * Safe to call from many virtual threads concurrently.
+     */
+    public MessageDocument insert(MessageDocument message) {
+        if (!enabled || !running) {
+            return mongoTemplate.insert(message);
+        }
+
+        assignIdentity(message);
+        PendingInsert pending = new PendingInsert(message, new CompletableFuture<>());
+
+        if (!queue.offer(pending)) {
+            // Back-pressure: queue is full, write directly rather than wait
+            return mongoTemplate.insert(message);
+        }
+        if (!running && queue.remove(pending)) {
+            // Shutdown raced with the enqueue — flushers may already be gone
+            return mongoTemplate.insert(message);
+        }
+
+        try {
+            return pending.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  FLUSHER
+    // ═══════════════════════════════════════════════════════════
+
+    private void flushLoop() {
+        List<PendingInsert> batch = new ArrayList<>(maxBatchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingInsert first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Linger: keep collecting until the batch is full or the deadline passes
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                        break;
+                    }
+                    PendingInsert next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(p -> p.result().completeExceptionally(e));
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in group-commit flusher", e);
+                // Never leave a caller blocked on a batch that is about to be dropped
+                batch.forEach(p -> p.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingInsert> batch) {
+        // Everything up to execute() can throw too (metrics, bulkOps, entity mapping in insert)
+        try {
+            batchSizeSummary.record(batch.size());
+
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MessageDocument.class);
+            for (PendingInsert pending : batch) {
+                bulk.insert(pending.message());
+            }
+
+            bulk.execute();
+            batch.forEach(p -> p.result().complete(p.message()));
+        } catch (BulkOperationException e) {
+            // Unordered: everything not listed in the errors was written
+            boolean[] failed = new boolean[batch.size()];
+            for (BulkWriteError error : e.getErrors()) {
+                failed[error.getIndex()] = true;
+                batch.get(error.getIndex()).result().completeExceptionally(translate(e, error));
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                if (!failed[i]) {
+                    batch.get(i).result().complete(batch.get(i).message());
+                }
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(p -> p.result().completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Map one bulk error to the exception a single {@code insert} would have thrown.
+     */
+    private RuntimeException translate(BulkOperationException e, BulkWriteError error) {
+        if (error.getCode() == 11000) {
+            return new DuplicateKeyException(error.getMessage(), e);
+        }
+        return new DataIntegrityViolationException(error.getMessage(), e);
+    }
+
+    private static void assignIdentity(MessageDocument message) {
+        if (message.getId() == null) {
+            message.setId(new ObjectId());
+        }
+        if (message.getCreatedAt() == null) {
+            Instant now = Instant.now();
+            message.setCreatedAt(now);
+            message.setUpdatedAt(now);
+        }
+    }
+
+    private record PendingInsert(MessageDocument message, CompletableFuture<MessageDocument> result) {
+    }
+}
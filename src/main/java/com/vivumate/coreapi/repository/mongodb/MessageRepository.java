@@ -26,11 +26,11 @@ public interface MessageRepository
     // ═══════════════════════════════════════════════════════════
 
     /**
-     * Find a single message by ID, ensuring it's not deleted for everyone
-     * AND not deleted for the requesting user.
+     * Find a single message by ID, ensuring it's not deleted for everyone.
+     * Whether it is hidden for the requesting user is checked against {@code hidden_messages}.
      */
-    @Query("{ '_id': ?0, 'deleted_for_everyone': false, 'deleted_for': { $ne: ?1 } }")
-    Optional<MessageDocument> findActiveByIdAndUserId(ObjectId messageId, Long currentUserId);
+    @Query("{ '_id': ?0, 'deleted_for_everyone': false }")
+    Optional<MessageDocument> findActiveById(ObjectId messageId);
 
     /**
      * Find the latest message in a conversation.
@@ -40,6 +40,11 @@ public interface MessageRepository
             ObjectId conversationId
     );
 
+    /**
+     * Find the message saved for a client idempotency key (served by idx_conversation_client_msg_unique).
+     */
+    Optional<MessageDocument> findByConversationIdAndClientMsgId(ObjectId conversationId, String clientMsgId);
+
     /**
      * Count total messages in a conversation (for statistics).
      */
@@ -47,9 +52,10 @@ public interface MessageRepository
 
     /**
      * Find messages in a conversation from a specific sender, with pagination.
+     * Not filtered per user — drop the requester's hidden messages in memory.
      */
-    @Query("{ 'conversation_id': ?0, 'sender.user_id': ?1, 'deleted_for_everyone': false, 'deleted_for': { $ne: ?2 } }")
+    @Query("{ 'conversation_id': ?0, 'sender.user_id': ?1, 'deleted_for_everyone': false }")
     List<MessageDocument> findBySenderInConversation(
-            ObjectId conversationId, Long senderUserId, Long currentUserId, Pageable pageable
+            ObjectId conversationId, Long senderUserId, Pageable pageable
     );
 }
@@ -0,0 +1,89 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.vivumate.coreapi.document.UserInboxDocument;
+import com.vivumate.coreapi.document.subdoc.LastMessagePreview;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Custom repository fragment for {@link UserInboxDocument}: the covered list scan and the
+ * incremental updates that keep entries in step with their conversation.
+ */
+public interface UserInboxCustomRepository {
+
+    // ═══════════════════════════════════════════════════════════
+    //  CONVERSATION LIST — Hot Read Path
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * The user's visible entries, newest activity first, after the compound cursor
+     * {@code (lastActivityAt, conversationId)}. Only {@code conversationId} and
+     * {@code lastActivityAt} are loaded.
+     * <p>
+     * Uses index: {@code idx_user_inbox_list} (covered — no document is fetched)
+     *
+     * @param cursorActivityAt lastActivityAt of the last conversation of the previous page (null for first page)
+     * @param cursorId         ID of the last conversation of the previous page (null for first page)
+     */
+    List<UserInboxDocument> findVisible(Long userId, Instant cursorActivityAt, ObjectId cursorId, int pageSize);
+
+    // ═══════════════════════════════════════════════════════════
+    //  MEMBERSHIP
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Create the given entries in one unordered bulk write; an entry that already exists is
+     * left untouched ({@code $setOnInsert}), so replays and backfills never roll back newer state.
+     */
+    void insertMissing(List<UserInboxDocument> entries);
+
+    /**
+     * Upsert the given entries, taken from their conversation, in one unordered bulk write, so
+     * that re-running it converges instead of only filling gaps: {@code lastActivityAt},
+     * {@code lastMessageId} and {@code clearedAt} only move forward ({@code $max}, the same
+     * order as the fan-out guard), unread counters only to a newer version, {@code visible} is
+     * re-derived from the result, and mute state is kept if the entry exists.
+     */
+    void mergeEntries(List<UserInboxDocument> entries);
+
+    // ═══════════════════════════════════════════════════════════
+    //  ACTIVITY FAN-OUT
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Move every member's entry of each conversation to its new last message, in one unordered
+     * bulk write ({@code updateMany} per conversation).
+     * <p>
+     * Guarded like the conversation's own preview ({@code last_message_id < preview.messageId})
+     * and by {@code cleared_at < preview.sentAt}: a message older than a member's clear neither
+     * moves nor re-shows that member's entry.
+     */
+    BulkWriteResult applyLastMessages(Map<ObjectId, LastMessagePreview> previews);
+
+    // ═══════════════════════════════════════════════════════════
+    //  PER-USER STATE
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Clear history: hide the entry until a newer message arrives.
+     */
+    UpdateResult updateClearedAt(ObjectId conversationId, Long userId, Instant clearedAt);
+
+    UpdateResult updateMuteStatus(ObjectId conversationId, Long userId, boolean muted, Instant mutedUntil);
+
+    /**
+     * Same counters as {@link ConversationCustomRepository#applyUnreadCounts}, one guarded
+     * {@code $set} per (conversation, user) entry in one unordered bulk write: entries holding
+     * the same or a newer version are left alone.
+     *
+     * @param counts conversationId → userId → {@code [count, mentions, version]}
+     */
+    BulkWriteResult applyUnreadCounts(Map<ObjectId, Map<Long, long[]>> counts);
+
+    UpdateResult resetUnreadCount(ObjectId conversationId, Long userId);
+}
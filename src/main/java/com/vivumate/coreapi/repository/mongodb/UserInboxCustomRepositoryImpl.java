@@ -0,0 +1,251 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.vivumate.coreapi.document.UserInboxDocument;
+import com.vivumate.coreapi.document.subdoc.LastMessagePreview;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of {@link UserInboxCustomRepository} using {@link MongoTemplate}.
+ * <p>
+ * Every write is a single atomic update on the unique {@code (conversation_id, user_id)} key or a
+ * guarded {@code updateMany} per conversation — no read-modify-write.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserInboxCustomRepositoryImpl implements UserInboxCustomRepository {
+
+    private static final BulkWriteResult EMPTY_BULK_RESULT =
+            BulkWriteResult.acknowledged(0, 0, 0, 0, List.of(), List.of());
+
+    private final MongoTemplate mongoTemplate;
+
+    // ═══════════════════════════════════════════════════════════
+    // CONVERSATION LIST — Hot Read Path
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public List<UserInboxDocument> findVisible(Long userId, Instant cursorActivityAt, ObjectId cursorId, int pageSize) {
+        Criteria criteria = Criteria.where("userId").is(userId).and("visible").is(true);
+
+        // Same compound cursor as the conversation pipeline; conversationId is the tiebreaker
+        if (cursorActivityAt != null && cursorId != null) {
+            criteria = criteria.orOperator(
+                    Criteria.where("lastActivityAt").lt(cursorActivityAt),
+                    Criteria.where("lastActivityAt").is(cursorActivityAt).and("conversationId").lt(cursorId));
+        }
+
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "lastActivityAt", "conversationId"))
+                .limit(pageSize);
+        // Only indexed fields and no _id: the plan is IXSCAN → PROJECTION_COVERED
+        query.fields().include("conversationId", "lastActivityAt").exclude("_id");
+
+        return mongoTemplate.find(query, UserInboxDocument.class);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // MEMBERSHIP
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public void insertMissing(List<UserInboxDocument> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserInboxDocument.class);
+        for (UserInboxDocument entry : entries) {
+            Update update = new Update()
+                    .setOnInsert("visible", entry.isVisible())
+                    .setOnInsert("lastActivityAt", entry.getLastActivityAt())
+                    .setOnInsert("lastMessageId", entry.getLastMessageId())
+                    .setOnInsert("clearedAt", entry.getClearedAt())
+                    .setOnInsert("unreadCount", entry.getUnreadCount())
+                    .setOnInsert("unreadMentions", entry.getUnreadMentions())
+                    .setOnInsert("muted", entry.isMuted())
+                    .setOnInsert("mutedUntil", entry.getMutedUntil());
+            bulkOps.upsert(entryQuery(entry.getConversationId(), entry.getUserId()), update);
+        }
+        bulkOps.execute();
+    }
+
+    @Override
+    public void mergeEntries(List<UserInboxDocument> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        // Raw pipeline: resolve the stored names once
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(UserInboxDocument.class);
+        String lastActivityAt = fieldName(entity, "lastActivityAt");
+        String lastMessageId = fieldName(entity, "lastMessageId");
+        String clearedAt = fieldName(entity, "clearedAt");
+        String unreadCount = fieldName(entity, "unreadCount");
+        String unreadMentions = fieldName(entity, "unreadMentions");
+        String unreadVersion = fieldName(entity, "unreadVersion");
+        String muted = fieldName(entity, "muted");
+        String mutedUntil = fieldName(entity, "mutedUntil");
+        String visible = fieldName(entity, "visible");
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserInboxDocument.class);
+        for (UserInboxDocument entry : entries) {
+            long version = entry.getUnreadVersion() != null ? entry.getUnreadVersion() : 0L;
+            Document newer = new Document("$lt",
+                    List.of(new Document("$ifNull", List.of("$" + unreadVersion, 0L)), version));
+
+            // $max ignores null and missing operands, so a missing field takes the entry's value
+            Document merge = new Document()
+                    .append(lastActivityAt, max(lastActivityAt, toDate(entry.getLastActivityAt())))
+                    .append(lastMessageId, max(lastMessageId, entry.getLastMessageId()))
+                    .append(clearedAt, max(clearedAt, toDate(entry.getClearedAt())))
+                    .append(unreadCount, new Document("$cond", List.of(newer, entry.getUnreadCount(),
+                            ifNull(unreadCount, entry.getUnreadCount()))))
+                    .append(unreadMentions, new Document("$cond", List.of(newer, entry.getUnreadMentions(),
+                            ifNull(unreadMentions, entry.getUnreadMentions()))))
+                    .append(unreadVersion, new Document("$cond", List.of(newer, version, "$" + unreadVersion)))
+                    .append(muted, ifNull(muted, entry.isMuted()))
+                    .append(mutedUntil, ifNull(mutedUntil, toDate(entry.getMutedUntil())));
+            // Second stage: sees the merged dates
+            Document derive = new Document(visible, new Document("$or", List.of(
+                    new Document("$eq", List.of(new Document("$ifNull", List.of("$" + clearedAt, null)), null)),
+                    new Document("$gt", List.of("$" + lastActivityAt, "$" + clearedAt)))));
+
+            bulkOps.upsert(entryQuery(entry.getConversationId(), entry.getUserId()), AggregationUpdate.from(List.of(
+                    context -> new Document("$set", merge),
+                    context -> new Document("$set", derive))));
+        }
+        bulkOps.execute();
+    }
+
+    private static String fieldName(MongoPersistentEntity<?> entity, String property) {
+        return entity.getRequiredPersistentProperty(property).getFieldName();
+    }
+
+    private static Document max(String field, Object value) {
+        return new Document("$max", Arrays.asList("$" + field, value));
+    }
+
+    private static Document ifNull(String field, Object value) {
+        return new Document("$ifNull", Arrays.asList("$" + field, value));
+    }
+
+    private static Date toDate(Instant instant) {
+        return instant != null ? Date.from(instant) : null;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // ACTIVITY FAN-OUT
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public BulkWriteResult applyLastMessages(Map<ObjectId, LastMessagePreview> previews) {
+        if (previews.isEmpty()) {
+            return EMPTY_BULK_RESULT;
+        }
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserInboxDocument.class);
+        previews.forEach((conversationId, preview) -> {
+            Query query = new Query(Criteria.where("conversationId").is(conversationId).andOperator(
+                    new Criteria().orOperator(
+                            Criteria.where("lastMessageId").lt(preview.getMessageId()),
+                            Criteria.where("lastMessageId").is(null)),
+                    new Criteria().orOperator(
+                            Criteria.where("clearedAt").is(null),
+                            Criteria.where("clearedAt").lt(preview.getSentAt()))));
+
+            Update update = new Update()
+                    .set("lastActivityAt", preview.getSentAt())
+                    .set("lastMessageId", preview.getMessageId())
+                    .set("visible", true);
+
+            bulkOps.updateMulti(query, update);
+        });
+        return bulkOps.execute();
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // PER-USER STATE
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public UpdateResult updateClearedAt(ObjectId conversationId, Long userId, Instant clearedAt) {
+        Update update = new Update()
+                .set("clearedAt", clearedAt)
+                .set("visible", false)
+                .set("unreadCount", 0)
+                .set("unreadMentions", 0);
+
+        return mongoTemplate.updateFirst(entryQuery(conversationId, userId), update, UserInboxDocument.class);
+    }
+
+    @Override
+    public UpdateResult updateMuteStatus(ObjectId conversationId, Long userId, boolean muted, Instant mutedUntil) {
+        Update update = new Update().set("muted", muted);
+
+        if (muted && mutedUntil != null) {
+            update.set("mutedUntil", mutedUntil);
+        } else {
+            update.unset("mutedUntil");
+        }
+
+        return mongoTemplate.updateFirst(entryQuery(conversationId, userId), update, UserInboxDocument.class);
+    }
+
+    @Override
+    public BulkWriteResult applyUnreadCounts(Map<ObjectId, Map<Long, long[]>> counts) {
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserInboxDocument.class);
+        int operations = 0;
+
+        for (Map.Entry<ObjectId, Map<Long, long[]>> entry : counts.entrySet()) {
+            for (Map.Entry<Long, long[]> userCount : entry.getValue().entrySet()) {
+                long[] count = userCount.getValue();
+                Query query = entryQuery(entry.getKey(), userCount.getKey()).addCriteria(new Criteria().orOperator(
+                        Criteria.where("unreadVersion").lt(count[2]),
+                        Criteria.where("unreadVersion").is(null)));
+                Update update = new Update()
+                        .set("unreadCount", (int) count[0])
+                        .set("unreadMentions", (int) count[1])
+                        .set("unreadVersion", count[2]);
+                bulkOps.updateOne(query, update);
+                operations++;
+            }
+        }
+
+        // (An empty bulk write is rejected by the driver)
+        return operations > 0 ? bulkOps.execute() : EMPTY_BULK_RESULT;
+    }
+
+    @Override
+    public UpdateResult resetUnreadCount(ObjectId conversationId, Long userId) {
+        Update update = new Update()
+                .set("unreadCount", 0)
+                .set("unreadMentions", 0);
+
+        return mongoTemplate.updateFirst(entryQuery(conversationId, userId), update, UserInboxDocument.class);
+    }
+
+    private static Query entryQuery(ObjectId conversationId, Long userId) {
+        return new Query(Criteria.where("conversationId").is(conversationId)
+                .and("userId").is(userId));
+    }
+}
@@ -0,0 +1,29 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.vivumate.coreapi.document.UserInboxDocument;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+/**
+ * Spring Data MongoDB repository for {@link UserInboxDocument}.
+ * The list scan and the incremental updates are in {@link UserInboxCustomRepository}.
+ */
+@Repository
+public interface UserInboxRepository
+        extends MongoRepository<UserInboxDocument, ObjectId>, UserInboxCustomRepository {
+
+    /**
+     * Drop the entries of members who left / were removed.
+     * Uses index: {@code idx_conversation_user_inbox_unique}
+     */
+    void deleteAllByConversationIdAndUserIdIn(ObjectId conversationId, Collection<Long> userIds);
+
+    /**
+     * Drop every entry of a deleted conversation.
+     * Uses index: {@code idx_conversation_user_inbox_unique}
+     */
+    void deleteAllByConversationId(ObjectId conversationId);
+}
@@ -0,0 +1,380 @@
+package com.vivumate.coreapi.repository.redis;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Redis store of the cached first page of each user's conversation list.
+ * <p>
+ * Keys:
+ * <ul>
+ *   <li>{@code cache:convlist:{userId}} — sorted set of conversation IDs (hex), score =
+ *       {@code lastActivityAt} millis. Equal scores order by member bytes, i.e. by {@code _id},
+ *       so {@code ZREVRANGE} is exactly the list order {@code (last_activity_at desc, _id desc)}</li>
+ *   <li>{@code cache:convlist:ver:{userId}} — write counter of the page, bumped by every mutation</li>
+ *   <li>{@code cache:convlist:conv:{convId}} — hash shared by all members: {@code doc} (BSON of
+ *       the display fields), {@code last} / {@code last_id} (BSON and ID of the last message
+ *       preview) and {@code ver} (bumped when the display fields are dropped)</li>
+ * </ul>
+ * The {@link #END_MARKER} member (score {@code -inf}) means "the page holds the user's whole
+ * list". Trimming drops the lowest members first, so the marker goes first once the page overflows.
+ * <p>
+ * <b>No stale seeds:</b> pages and display fields are only created by the seed scripts, which
+ * are skipped if the matching write counter moved since the caller read it (a mutation raced the
+ * MongoDB load). Previews are written with a {@code last_id} guard, so neither a seed nor a
+ * delayed write ever replaces a newer preview. All keys carry the same idle TTL.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ConversationListRedisRepository {
+
+    public static final String END_MARKER = "";
+
+    private static final String FIELD_DOC = "doc";
+    private static final String FIELD_LAST = "last";
+    private static final String FIELD_LAST_ID = "last_id";
+    private static final String FIELD_VERSION = "ver";
+
+    private static final RedisScript<Long> SEED_PAGE_SCRIPT = RedisScript.of("""
+            local version = redis.call('GET', KEYS[2])
+            if (version or '') ~= ARGV[1] then return 0 end
+            redis.call('DEL', KEYS[1])
+            for i = 3, #ARGV, 2 do redis.call('ZADD', KEYS[1], ARGV[i], ARGV[i + 1]) end
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    /** KEYS = item keys; ARGV = ttl, then per item: expected version, doc, last_id, last. */
+    private static final RedisScript<Long> SEED_ITEMS_SCRIPT = RedisScript.of("""
+            local seeded = 0
+            for i = 1, #KEYS do
+              local arg = 2 + (i - 1) * 4
+              if (redis.call('HGET', KEYS[i], 'ver') or '') == ARGV[arg] then
+                redis.call('HSET', KEYS[i], 'doc', ARGV[arg + 1])
+                local stored = redis.call('HGET', KEYS[i], 'last_id')
+                if ARGV[arg + 2] ~= '' and (not stored or stored < ARGV[arg + 2]) then
+                  redis.call('HSET', KEYS[i], 'last_id', ARGV[arg + 2], 'last', ARGV[arg + 3])
+                end
+                redis.call('PEXPIRE', KEYS[i], ARGV[1])
+                seeded = seeded + 1
+              end
+            end
+            return seeded
+            """, Long.class);
+
+    /**
+     * KEYS[1] = item key, then (page, page version) per user; ARGV = score, conversation ID,
+     * capacity, ttl, last_id, last ({@code last_id = ''}: entries only, preview untouched).
+     */
+    private static final RedisScript<Long> ADD_SCRIPT = RedisScript.of("""
+            if ARGV[5] ~= '' then
+              local stored = redis.call('HGET', KEYS[1], 'last_id')
+              if not stored or stored < ARGV[5] then
+                redis.call('HSET', KEYS[1], 'last_id', ARGV[5], 'last', ARGV[6])
+              end
+              redis.call('PEXPIRE', KEYS[1], ARGV[4])
+            end
+            local patched = 0
+            for i = 2, #KEYS, 2 do
+              redis.call('INCR', KEYS[i + 1])
+              redis.call('PEXPIRE', KEYS[i + 1], ARGV[4])
+              local lowest = redis.call('ZRANGE', KEYS[i], 0, 0, 'WITHSCORES')
+              if lowest[1] then
+                local score = tonumber(ARGV[1])
+                local lowestScore = tonumber(lowest[2])
+                -- Without the end marker the page is a prefix of the list: never insert below it
+                if lowest[1] == '' or score > lowestScore or (score == lowestScore and ARGV[2] > lowest[1])
+                    or redis.call('ZSCORE', KEYS[i], ARGV[2]) then
+                  redis.call('ZADD', KEYS[i], 'GT', ARGV[1], ARGV[2])
+                  redis.call('ZREMRANGEBYRANK', KEYS[i], 0, -(tonumber(ARGV[3]) + 1))
+                  patched = patched + 1
+                end
+              end
+            end
+            return patched
+            """, Long.class);
+
+    private static final RedisSerializer<Long> LONG_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+    private static final byte[] NO_PREVIEW = new byte[0];
+
+    private final StringRedisTemplate redisTemplate;
+
+    // ═══════════════════════════════════════════════════════════
+    //  READ PATH
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * The newest {@code limit} entries of the page (plus the end marker if it follows them) and
+     * the page's write counter, in one pipeline. Refreshes the idle TTL of both keys.
+     *
+     * @return {@link Page#exists()} is false if the user has no cached page
+     */
+    public Page readPage(Long userId, int limit, Duration idleTtl) {
+        byte[] pageKey = bytes(pageKey(userId));
+        byte[] versionKey = bytes(versionKey(userId));
+
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.zSetCommands().zRevRangeWithScores(pageKey, 0, limit);
+            connection.stringCommands().get(versionKey);
+            connection.keyCommands().pExpire(pageKey, idleTtl.toMillis());
+            connection.keyCommands().pExpire(versionKey, idleTtl.toMillis());
+            return null;
+        }, RedisSerializer.byteArray());
+
+        @SuppressWarnings("unchecked")
+        Collection<Object> tuples = (Collection<Object>) replies.get(0);
+        byte[] version = (byte[]) replies.get(1);
+
+        List<Entry> entries = new ArrayList<>();
+        boolean reachesEnd = false;
+        if (tuples != null) {
+            for (Object tuple : tuples) {
+                byte[] member = memberOf(tuple);
+                double score = scoreOf(tuple);
+                if (member.length == 0) {
+                    reachesEnd = true;
+                } else {
+                    entries.add(new Entry(new ObjectId(new String(member, StandardCharsets.US_ASCII)), (long) score));
+                }
+            }
+        }
+        return new Page(tuples != null && !tuples.isEmpty(), entries, reachesEnd,
+                version != null ? new String(version, StandardCharsets.UTF_8) : "");
+    }
+
+    /**
+     * Display fields, preview and version of each conversation, in one pipeline.
+     * Refreshes the idle TTL of every item.
+     *
+     * @return one {@link Item} per ID, in order; fields absent from Redis are null
+     */
+    public List<Item> readItems(List<ObjectId> conversationIds, Duration idleTtl) {
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (ObjectId conversationId : conversationIds) {
+                byte[] itemKey = bytes(itemKey(conversationId));
+                connection.hashCommands().hMGet(itemKey, bytes(FIELD_DOC), bytes(FIELD_LAST), bytes(FIELD_VERSION));
+                connection.keyCommands().pExpire(itemKey, idleTtl.toMillis());
+            }
+            return null;
+        }, RedisSerializer.byteArray());
+
+        List<Item> items = new ArrayList<>(conversationIds.size());
+        for (int i = 0; i < conversationIds.size(); i++) {
+            @SuppressWarnings("unchecked")
+            List<byte[]> fields = (List<byte[]>) replies.get(i * 2);
+            byte[] version = fields.get(2);
+            items.add(new Item(fields.get(0), fields.get(1),
+                    version != null ? new String(version, StandardCharsets.UTF_8) : ""));
+        }
+        return items;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  SEED — after a MongoDB load
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Replace the page with {@code entries} (newest first), unless it was mutated after
+     * {@code expectedVersion} was read.
+     *
+     * @param reachesEnd true if {@code entries} is the user's whole list
+     * @return true if the page was written
+     */
+    public boolean seedPage(Long userId, String expectedVersion, List<Entry> entries, boolean reachesEnd,
+                            Duration idleTtl) {
+        List<Object> args = new ArrayList<>(entries.size() * 2 + 4);
+        args.add(bytes(expectedVersion));
+        args.add(bytes(Long.toString(idleTtl.toMillis())));
+        for (Entry entry : entries) {
+            args.add(bytes(Long.toString(entry.lastActivityAtMillis())));
+            args.add(bytes(entry.conversationId().toHexString()));
+        }
+        if (reachesEnd) {
+            args.add(bytes("-inf"));
+            args.add(bytes(END_MARKER));
+        }
+        return eval(SEED_PAGE_SCRIPT, List.of(pageKey(userId), versionKey(userId)), args) == 1L;
+    }
+
+    /**
+     * Store display fields (and the preview, unless a newer one is stored) of each conversation
+     * whose item version still equals the one read before the MongoDB load.
+     */
+    public void seedItems(List<ItemSeed> seeds, Duration idleTtl) {
+        if (seeds.isEmpty()) {
+            return;
+        }
+
+        List<String> keys = new ArrayList<>(seeds.size());
+        List<Object> args = new ArrayList<>(seeds.size() * 4 + 1);
+        args.add(bytes(Long.toString(idleTtl.toMillis())));
+        for (ItemSeed seed : seeds) {
+            keys.add(itemKey(seed.conversationId()));
+            args.add(bytes(seed.expectedVersion()));
+            args.add(seed.doc());
+            args.add(seed.lastMessageId() != null ? bytes(seed.lastMessageId().toHexString()) : NO_PREVIEW);
+            args.add(seed.last() != null ? seed.last() : NO_PREVIEW);
+        }
+        eval(SEED_ITEMS_SCRIPT, keys, args);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  PATCHES
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Put the conversation into the existing pages of {@code userIds} (moved up if already
+     * there, never down) and trim them to {@code capacity}. A page without the end marker only
+     * takes conversations that sort inside it, so it stays an exact prefix of the list. With a
+     * preview, first store it on the conversation unless a newer one is stored. One script,
+     * one round trip.
+     *
+     * @param lastMessageId null to leave the stored preview untouched
+     * @return number of pages patched
+     */
+    public long addEntry(ObjectId conversationId, Collection<Long> userIds, long lastActivityAtMillis,
+                         ObjectId lastMessageId, byte[] last, int capacity, Duration idleTtl) {
+        List<String> keys = new ArrayList<>(userIds.size() * 2 + 1);
+        keys.add(itemKey(conversationId));
+        for (Long userId : userIds) {
+            keys.add(pageKey(userId));
+            keys.add(versionKey(userId));
+        }
+        List<Object> args = List.of(
+                bytes(Long.toString(lastActivityAtMillis)),
+                bytes(conversationId.toHexString()),
+                bytes(Integer.toString(capacity)),
+                bytes(Long.toString(idleTtl.toMillis())),
+                lastMessageId != null ? bytes(lastMessageId.toHexString()) : NO_PREVIEW,
+                last != null ? last : NO_PREVIEW);
+        return eval(ADD_SCRIPT, keys, args);
+    }
+
+    /**
+     * Take the conversation out of the pages of {@code userIds}, bumping their write counters.
+     */
+    public void removeEntry(ObjectId conversationId, Collection<Long> userIds, Duration idleTtl) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        byte[] member = bytes(conversationId.toHexString());
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Long userId : userIds) {
+                bumpVersion(connection, bytes(versionKey(userId)), idleTtl);
+                connection.zSetCommands().zRem(bytes(pageKey(userId)), member);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Drop whole pages (bumping their write counters so an in-flight seed cannot resurrect them).
+     */
+    public void deletePages(Collection<Long> userIds, Duration idleTtl) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Long userId : userIds) {
+                bumpVersion(connection, bytes(versionKey(userId)), idleTtl);
+                connection.keyCommands().del(bytes(pageKey(userId)));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Drop the display fields and preview of conversations (bumping their item versions so an
+     * in-flight seed cannot bring back the old state). Pages keep their entries; the next read
+     * re-loads just these conversations by {@code _id}.
+     */
+    public void evictItems(Collection<ObjectId> conversationIds, Duration idleTtl) {
+        if (conversationIds.isEmpty()) {
+            return;
+        }
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (ObjectId conversationId : conversationIds) {
+                byte[] itemKey = bytes(itemKey(conversationId));
+                connection.hashCommands().hIncrBy(itemKey, bytes(FIELD_VERSION), 1);
+                connection.hashCommands().hDel(itemKey, bytes(FIELD_DOC), bytes(FIELD_LAST), bytes(FIELD_LAST_ID));
+                connection.keyCommands().pExpire(itemKey, idleTtl.toMillis());
+            }
+            return null;
+        });
+    }
+
+    public static String pageKey(Long userId) {
+        return "cache:convlist:" + userId;
+    }
+
+    public static String versionKey(Long userId) {
+        return "cache:convlist:ver:" + userId;
+    }
+
+    public static String itemKey(ObjectId conversationId) {
+        return "cache:convlist:conv:" + conversationId.toHexString();
+    }
+
+    private static void bumpVersion(RedisConnection connection, byte[] versionKey, Duration idleTtl) {
+        connection.stringCommands().incr(versionKey);
+        connection.keyCommands().pExpire(versionKey, idleTtl.toMillis());
+    }
+
+    private long eval(RedisScript<Long> script, List<String> keys, List<Object> args) {
+        Long result = redisTemplate.execute(script, RedisSerializer.byteArray(), LONG_SERIALIZER, keys, args.toArray());
+        return result != null ? result : 0L;
+    }
+
+    private static byte[] memberOf(Object tuple) {
+        return tuple instanceof Tuple raw ? raw.getValue() : (byte[]) ((TypedTuple<?>) tuple).getValue();
+    }
+
+    private static double scoreOf(Object tuple) {
+        return tuple instanceof Tuple raw ? raw.getScore() : ((TypedTuple<?>) tuple).getScore();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param entries    page entries, newest first (end marker excluded)
+     * @param reachesEnd true if the end marker follows {@code entries}
+     * @param version    write counter at the time of the read, {@code ""} if none
+     */
+    public record Page(boolean exists, List<Entry> entries, boolean reachesEnd, String version) {
+    }
+
+    public record Entry(ObjectId conversationId, long lastActivityAtMillis) {
+    }
+
+    /**
+     * @param doc     BSON of the display fields, null if not cached
+     * @param last    BSON of the last message preview, null if none cached
+     * @param version item version at the time of the read, {@code ""} if none
+     */
+    public record Item(byte[] doc, byte[] last, String version) {
+    }
+
+    public record ItemSeed(ObjectId conversationId, String expectedVersion, byte[] doc,
+                           ObjectId lastMessageId, byte[] last) {
+    }
+}
@@ -0,0 +1,205 @@
+package com.vivumate.coreapi.repository.redis;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Redis (L2) store of the recent-messages ring of each conversation.
+ * <p>
+ * Keys:
+ * <ul>
+ *   <li>{@code recent_msgs:{convId}} — sorted set, every score {@code 0}, so members are ordered
+ *       by their bytes: {@code [12-byte _id][8-byte updatedAt millis][encoded message]}.
+ *       Byte order = {@code _id} order, and a single member can be found by its {@code _id}
+ *       prefix with {@code ZRANGEBYLEX}</li>
+ *   <li>{@code recent_msgs:ver:{convId}} — write counter, bumped by every mutation</li>
+ * </ul>
+ * The all-zero {@link #START_MARKER} sorts before every message and means "the ring reaches
+ * back to the first message of the conversation". Trimming drops the lowest members first,
+ * so the marker is the first thing to go once the ring overflows.
+ * <p>
+ * <b>No partial rings:</b> a mutation only touches a ring that already exists; rings are
+ * created by {@link #seed} alone, which is skipped if the write counter moved since the caller
+ * read it (a send raced the MongoDB load). Every call is one round trip; mutations are Lua
+ * scripts, so concurrent writers never interleave inside a ring.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RecentMessagesRedisRepository {
+
+    public static final byte[] START_MARKER = new byte[12];
+
+    /** {@code _id} prefix length of a member. */
+    public static final int ID_BYTES = 12;
+
+    /** {@code _id} + {@code updatedAt} prefix length of a member. */
+    public static final int HEADER_BYTES = ID_BYTES + Long.BYTES;
+
+    private static final RedisScript<Long> SEED_SCRIPT = RedisScript.of("""
+            local version = redis.call('GET', KEYS[2])
+            if (version or '') ~= ARGV[1] then return 0 end
+            redis.call('DEL', KEYS[1])
+            for i = 3, #ARGV do redis.call('ZADD', KEYS[1], 0, ARGV[i]) end
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    private static final RedisScript<Long> APPEND_SCRIPT = RedisScript.of("""
+            redis.call('INCR', KEYS[2])
+            redis.call('PEXPIRE', KEYS[2], ARGV[3])
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end
+            redis.call('ZADD', KEYS[1], 0, ARGV[1])
+            redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -(tonumber(ARGV[2]) + 1))
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return 1
+            """, Long.class);
+
+    /** Replace a member in place, unless the ring already holds a newer version of it. */
+    private static final RedisScript<Long> REPLACE_SCRIPT = RedisScript.of("""
+            local function updated_at(member)
+              local millis = 0
+              for i = 13, 20 do millis = millis * 256 + string.byte(member, i) end
+              return millis
+            end
+            redis.call('INCR', KEYS[2])
+            redis.call('PEXPIRE', KEYS[2], ARGV[2])
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end
+            local id = string.sub(ARGV[1], 1, 12)
+            local current = redis.call('ZRANGEBYLEX', KEYS[1], '[' .. id, '[' .. id .. '\\255')
+            if #current == 0 or updated_at(current[1]) > updated_at(ARGV[1]) then return 0 end
+            redis.call('ZREM', KEYS[1], current[1])
+            redis.call('ZADD', KEYS[1], 0, ARGV[1])
+            return 1
+            """, Long.class);
+
+    private static final RedisScript<Long> REMOVE_SCRIPT = RedisScript.of("""
+            redis.call('INCR', KEYS[2])
+            redis.call('PEXPIRE', KEYS[2], ARGV[2])
+            return redis.call('ZREMRANGEBYLEX', KEYS[1], '[' .. ARGV[1], '[' .. ARGV[1] .. '\\255')
+            """, Long.class);
+
+    private static final RedisSerializer<Long> LONG_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * Ring contents (oldest first) and the write counter, in one pipeline.
+     * Refreshes the idle TTL of both keys.
+     *
+     * @return {@link Snapshot#members()} is empty if the ring does not exist
+     */
+    public Snapshot read(ObjectId conversationId, Duration idleTtl) {
+        byte[] ringKey = bytes(ringKey(conversationId));
+        byte[] versionKey = bytes(versionKey(conversationId));
+
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.zSetCommands().zRange(ringKey, 0, -1);
+            connection.stringCommands().get(versionKey);
+            connection.keyCommands().pExpire(ringKey, idleTtl.toMillis());
+            connection.keyCommands().pExpire(versionKey, idleTtl.toMillis());
+            return null;
+        }, RedisSerializer.byteArray());
+
+        @SuppressWarnings("unchecked")
+        Collection<byte[]> members = (Collection<byte[]>) replies.get(0);
+        byte[] version = (byte[]) replies.get(1);
+        return new Snapshot(members != null ? List.copyOf(members) : List.of(),
+                version != null ? new String(version, StandardCharsets.UTF_8) : "");
+    }
+
+    /**
+     * Create the ring from a MongoDB load, unless it was mutated after {@code expectedVersion} was read.
+     *
+     * @return true if the ring was written
+     */
+    public boolean seed(ObjectId conversationId, String expectedVersion, List<byte[]> members, Duration idleTtl) {
+        List<Object> args = new ArrayList<>(members.size() + 2);
+        args.add(bytes(expectedVersion));
+        args.add(bytes(Long.toString(idleTtl.toMillis())));
+        args.addAll(members);
+        return eval(SEED_SCRIPT, conversationId, args.toArray()) == 1L;
+    }
+
+    /**
+     * Add a new message and trim the ring to {@code capacity} members. No-op if the ring does not exist.
+     */
+    public void append(ObjectId conversationId, byte[] member, int capacity, Duration idleTtl) {
+        eval(APPEND_SCRIPT, conversationId, member,
+                bytes(Integer.toString(capacity)), bytes(Long.toString(idleTtl.toMillis())));
+    }
+
+    /**
+     * Replace the member with the same {@code _id}. No-op if the ring does not hold it.
+     */
+    public void replace(ObjectId conversationId, byte[] member, Duration idleTtl) {
+        eval(REPLACE_SCRIPT, conversationId, member, bytes(Long.toString(idleTtl.toMillis())));
+    }
+
+    /**
+     * Drop the member with this {@code _id}, if present.
+     */
+    public void remove(ObjectId conversationId, ObjectId messageId, Duration idleTtl) {
+        eval(REMOVE_SCRIPT, conversationId, messageId.toByteArray(), bytes(Long.toString(idleTtl.toMillis())));
+    }
+
+    /**
+     * Drop whole rings, bumping their write counters so an in-flight seed cannot resurrect them.
+     */
+    public void delete(Collection<ObjectId> conversationIds, Duration idleTtl) {
+        if (conversationIds.isEmpty()) {
+            return;
+        }
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (ObjectId conversationId : conversationIds) {
+                byte[] versionKey = bytes(versionKey(conversationId));
+                connection.stringCommands().incr(versionKey);
+                connection.keyCommands().pExpire(versionKey, idleTtl.toMillis());
+                connection.keyCommands().del(bytes(ringKey(conversationId)));
+            }
+            return null;
+        });
+    }
+
+    public static String ringKey(ObjectId conversationId) {
+        return "recent_msgs:" + conversationId.toHexString();
+    }
+
+    public static String versionKey(ObjectId conversationId) {
+        return "recent_msgs:ver:" + conversationId.toHexString();
+    }
+
+    public static boolean isStartMarker(byte[] member) {
+        return Arrays.equals(member, START_MARKER);
+    }
+
+    private long eval(RedisScript<Long> script, ObjectId conversationId, Object... args) {
+        Long result = redisTemplate.execute(script, RedisSerializer.byteArray(), LONG_SERIALIZER,
+                List.of(ringKey(conversationId), versionKey(conversationId)), args);
+        return result != null ? result : 0L;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param members ring members, oldest first ({@link #START_MARKER} first if present)
+     * @param version write counter at the time of the read, {@code ""} if none
+     */
+    public record Snapshot(List<byte[]> members, String version) {
+    }
+}
@@ -0,0 +1,386 @@
+package com.vivumate.coreapi.repository.redis;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Redis store for unread counters — the PRIMARY counter store (see architecture doc §6.3).
+ * <p>
+ * Keys:
+ * <ul>
+ *   <li>{@code unread:{userId}:{convId}} — hash {@code {count, mentions, version}}</li>
+ *   <li>{@code unread:total:{userId}} — total unread messages across all conversations (badge)</li>
+ *   <li>{@code unread:total:checked:{userId}} — marker: total reconciled recently (TTL)</li>
+ * </ul>
+ * A missing hash means "no counter in Redis yet" (data written before Redis became the
+ * primary store): the pair's count is the lagging copy in {@code conversations.unread_counts}.
+ * Once a hash exists it is authoritative; mark-as-read resets it to 0 instead of deleting it.
+ * Keys have no TTL and are deleted only when the user leaves the conversation.
+ * <p>
+ * <b>Seeding:</b> a hash is never created from 0. Writes that find a counter missing change
+ * nothing and return {@code false}; the caller loads the MongoDB counts and repeats the call
+ * with them as {@code seeds}, which the script copies in (only where the hash is still missing)
+ * before applying the change. A pair without a hash contributes its MongoDB count to the total,
+ * so seeding never moves the total.
+ * <p>
+ * <b>Version:</b> every write to a hash raises its {@code version} to
+ * {@code max(version + 1, server time in µs)}: strictly increasing per pair, even across a
+ * delete and re-create. The MongoDB copy stores it next to the counts and only accepts a newer
+ * one, so flushes of any node, in any order or repeated, cannot move the copy backwards.
+ * <p>
+ * <b>Exact total:</b> every write that changes a {@code count} field changes the total by the
+ * same amount in the same Lua script, so no interleaving of sends, resets and removals can make
+ * them drift. A total that does not exist yet is never created by a write (it would start
+ * from 0): it is computed in full by {@link #reconcileTotal}. One script per call: one round
+ * trip regardless of group size.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UnreadCounterRedisRepository {
+
+    public static final String FIELD_COUNT = "count";
+    public static final String FIELD_MENTIONS = "mentions";
+    public static final String FIELD_VERSION = "version";
+
+    /** Lua helper shared by every script that writes a counter hash. */
+    private static final String BUMP_VERSION = """
+            local function bumpVersion(key)
+              local now = redis.call('TIME')
+              local version = math.max(tonumber(redis.call('HGET', key, 'version') or '0') + 1,
+                  now[1] * 1000000 + now[2])
+              redis.call('HSET', key, 'version', string.format('%d', version))
+            end
+            """;
+
+    /**
+     * KEYS = (counter, total) per recipient, then one counter per mentioned user;
+     * ARGV = delta, recipients, '1' if seeds follow, then {count, mentions} per counter in KEYS order.
+     * Returns 0 without writing if a counter is missing and no seeds were given.
+     */
+    private static final RedisScript<Long> INCREMENT_SCRIPT = RedisScript.of(BUMP_VERSION + """
+            local delta = tonumber(ARGV[1])
+            local recipientKeys = tonumber(ARGV[2]) * 2
+            local counters = {}
+            for i = 1, recipientKeys, 2 do counters[#counters + 1] = KEYS[i] end
+            for i = recipientKeys + 1, #KEYS do counters[#counters + 1] = KEYS[i] end
+            for n, key in ipairs(counters) do
+              if redis.call('EXISTS', key) == 0 then
+                if ARGV[3] ~= '1' then return 0 end
+                redis.call('HSET', key, 'count', ARGV[2 + 2 * n], 'mentions', ARGV[3 + 2 * n])
+              end
+            end
+            for i = 1, recipientKeys, 2 do
+              redis.call('HINCRBY', KEYS[i], 'count', delta)
+              if redis.call('EXISTS', KEYS[i + 1]) == 1 then redis.call('INCRBY', KEYS[i + 1], delta) end
+            end
+            for i = recipientKeys + 1, #KEYS do
+              redis.call('HINCRBY', KEYS[i], 'mentions', delta)
+            end
+            for _, key in ipairs(counters) do bumpVersion(key) end
+            return 1
+            """, Long.class);
+
+    /**
+     * KEYS = (counter, total) per user; ARGV[1] = '1' to delete the counter, '0' to reset it to 0;
+     * ARGV[2] = '1' if seeds follow, then the MongoDB count per user. Returns 0 without writing if
+     * a counter whose user has a total is missing and no seeds were given.
+     */
+    private static final RedisScript<Long> CLEAR_SCRIPT = RedisScript.of(BUMP_VERSION + """
+            if ARGV[2] ~= '1' then
+              for i = 1, #KEYS, 2 do
+                if redis.call('EXISTS', KEYS[i]) == 0 and redis.call('EXISTS', KEYS[i + 1]) == 1 then return 0 end
+              end
+            end
+            for i = 1, #KEYS, 2 do
+              local count
+              if redis.call('EXISTS', KEYS[i]) == 1 then
+                count = tonumber(redis.call('HGET', KEYS[i], 'count') or '0')
+              else
+                count = tonumber(ARGV[2 + (i + 1) / 2] or '0')
+              end
+              if ARGV[1] == '1' then
+                redis.call('DEL', KEYS[i])
+              else
+                redis.call('HSET', KEYS[i], 'count', '0', 'mentions', '0')
+                bumpVersion(KEYS[i])
+              end
+              if count ~= 0 and redis.call('EXISTS', KEYS[i + 1]) == 1 then redis.call('DECRBY', KEYS[i + 1], count) end
+            end
+            return 1
+            """, Long.class);
+
+    /** KEYS = counters of one user; ARGV = {count, mentions} per counter. Creates missing counters only. */
+    private static final RedisScript<Long> SEED_SCRIPT = RedisScript.of(BUMP_VERSION + """
+            for n = 1, #KEYS do
+              if redis.call('EXISTS', KEYS[n]) == 0 then
+                redis.call('HSET', KEYS[n], 'count', ARGV[2 * n - 1], 'mentions', ARGV[2 * n])
+                bumpVersion(KEYS[n])
+              end
+            end
+            return 1
+            """, Long.class);
+
+    /**
+     * KEYS[1] = total, then the user's counters; ARGV[i] = MongoDB count of KEYS[i + 1], used
+     * if that counter does not exist. Returns the correction applied (new total - old total).
+     */
+    private static final RedisScript<Long> RECONCILE_SCRIPT = RedisScript.of("""
+            local total = 0
+            for i = 2, #KEYS do
+              if redis.call('EXISTS', KEYS[i]) == 1 then
+                total = total + tonumber(redis.call('HGET', KEYS[i], 'count') or '0')
+              else
+                total = total + tonumber(ARGV[i - 1])
+              end
+            end
+            local previous = tonumber(redis.call('GET', KEYS[1]) or '0')
+            redis.call('SET', KEYS[1], total)
+            return total - previous
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * {@code HINCRBY count/mentions} and {@code INCRBY total} for every recipient, in one script.
+     * Use a negative {@code delta} to undo a previous increment.
+     *
+     * @param seeds userId → MongoDB {@code [count, mentions]} of every recipient and mentioned user,
+     *              or null on the first attempt
+     * @return false if a counter is missing and {@code seeds} is null: nothing was written
+     */
+    public boolean increment(ObjectId conversationId, List<Long> recipientIds, List<Long> mentionedUserIds,
+                             long delta, Map<Long, long[]> seeds) {
+        if (recipientIds.isEmpty() && mentionedUserIds.isEmpty()) {
+            return true;
+        }
+
+        List<String> keys = new ArrayList<>(recipientIds.size() * 2 + mentionedUserIds.size());
+        List<String> args = new ArrayList<>();
+        args.add(Long.toString(delta));
+        args.add(Integer.toString(recipientIds.size()));
+        args.add(seeds != null ? "1" : "0");
+        for (Long userId : recipientIds) {
+            keys.add(counterKey(userId, conversationId));
+            keys.add(totalKey(userId));
+            addSeed(args, seeds, userId);
+        }
+        for (Long userId : mentionedUserIds) {
+            keys.add(counterKey(userId, conversationId));
+            addSeed(args, seeds, userId);
+        }
+        return isApplied(redisTemplate.execute(INCREMENT_SCRIPT, keys, args.toArray()));
+    }
+
+    /**
+     * Read {@code {count, mentions}} of one user for many conversations in one pipeline.
+     *
+     * @return conversationId → {@code [count, mentions]}; conversations without a Redis counter are absent
+     */
+    public Map<ObjectId, long[]> getCounts(Long userId, List<ObjectId> conversationIds) {
+        if (conversationIds.isEmpty()) {
+            return Map.of();
+        }
+
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (ObjectId conversationId : conversationIds) {
+                conn.hMGet(counterKey(userId, conversationId), FIELD_COUNT, FIELD_MENTIONS);
+            }
+            return null;
+        });
+
+        Map<ObjectId, long[]> counts = new HashMap<>();
+        for (int i = 0; i < conversationIds.size(); i++) {
+            @SuppressWarnings("unchecked")
+            List<String> values = (List<String>) replies.get(i);
+            if (values == null || (values.get(0) == null && values.get(1) == null)) {
+                continue;
+            }
+            counts.put(conversationIds.get(i), new long[]{parse(values.get(0)), parse(values.get(1))});
+        }
+        return counts;
+    }
+
+    /**
+     * Read {@code {count, mentions, version}} of many (conversation, user) pairs in one pipeline
+     * (input of the MongoDB flush).
+     *
+     * @param pairs conversationId → userIds
+     * @return conversationId → userId → {@code [count, mentions, version]}, in the order of
+     *         {@code pairs}; pairs without a Redis counter (user left) are absent
+     */
+    public Map<ObjectId, Map<Long, long[]>> getVersionedCounts(Map<ObjectId, ? extends Collection<Long>> pairs) {
+        if (pairs.isEmpty()) {
+            return Map.of();
+        }
+
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            pairs.forEach((conversationId, userIds) -> userIds.forEach(userId ->
+                    conn.hMGet(counterKey(userId, conversationId), FIELD_COUNT, FIELD_MENTIONS, FIELD_VERSION)));
+            return null;
+        });
+
+        Map<ObjectId, Map<Long, long[]>> counts = new LinkedHashMap<>();
+        Iterator<Object> reply = replies.iterator();
+        pairs.forEach((conversationId, userIds) -> {
+            for (Long userId : userIds) {
+                @SuppressWarnings("unchecked")
+                List<String> values = (List<String>) reply.next();
+                if (values == null || values.stream().allMatch(Objects::isNull)) {
+                    continue;
+                }
+                counts.computeIfAbsent(conversationId, k -> new LinkedHashMap<>()).put(userId,
+                        new long[]{parse(values.get(0)), parse(values.get(1)), parse(values.get(2))});
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * Reset the counters of the given users in one conversation to 0 and subtract them from their totals.
+     * Used by mark-as-read and clear history. The hash is kept (at 0) so Redis stays authoritative
+     * and the lagging MongoDB copy is never read for this pair again.
+     *
+     * @param seeds userId → MongoDB {@code [count, mentions]}, or null on the first attempt
+     * @return false if seeds are needed: nothing was written
+     */
+    public boolean reset(ObjectId conversationId, List<Long> userIds, Map<Long, long[]> seeds) {
+        return clear(conversationId, userIds, false, seeds);
+    }
+
+    /**
+     * Delete the counters of users who are no longer members and subtract them from their totals.
+     *
+     * @see #reset
+     */
+    public boolean remove(ObjectId conversationId, List<Long> userIds, Map<Long, long[]> seeds) {
+        return clear(conversationId, userIds, true, seeds);
+    }
+
+    /**
+     * Read the counter and subtract exactly that amount from the total in the same script:
+     * a send landing between a separate read and reset would otherwise stay in the total forever.
+     * A missing counter subtracts its MongoDB count, which is what the total holds for it.
+     */
+    private boolean clear(ObjectId conversationId, List<Long> userIds, boolean deleteKey, Map<Long, long[]> seeds) {
+        if (userIds.isEmpty()) {
+            return true;
+        }
+
+        List<String> keys = new ArrayList<>(userIds.size() * 2);
+        List<String> args = new ArrayList<>(userIds.size() + 2);
+        args.add(deleteKey ? "1" : "0");
+        args.add(seeds != null ? "1" : "0");
+        for (Long userId : userIds) {
+            keys.add(counterKey(userId, conversationId));
+            keys.add(totalKey(userId));
+            long[] seed = seeds != null ? seeds.get(userId) : null;
+            args.add(Long.toString(seed != null ? seed[0] : 0L));
+        }
+        return isApplied(redisTemplate.execute(CLEAR_SCRIPT, keys, args.toArray()));
+    }
+
+    /**
+     * Copy MongoDB counts of one user into Redis where the counter does not exist yet (lazy
+     * copy on first read). Existing counters are left untouched; totals do not move.
+     *
+     * @param counts conversationId → MongoDB {@code [count, mentions]}
+     */
+    public void seedCounts(Long userId, Map<ObjectId, long[]> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+
+        List<String> keys = new ArrayList<>(counts.size());
+        List<String> args = new ArrayList<>(counts.size() * 2);
+        counts.forEach((conversationId, count) -> {
+            keys.add(counterKey(userId, conversationId));
+            args.add(Long.toString(count[0]));
+            args.add(Long.toString(count[1]));
+        });
+        redisTemplate.execute(SEED_SCRIPT, keys, args.toArray());
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  TOTAL (badge)
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * @return the user's total, or null if it was never computed
+     */
+    public Long getTotal(Long userId) {
+        String value = redisTemplate.opsForValue().get(totalKey(userId));
+        return value != null ? Long.parseLong(value) : null;
+    }
+
+    /**
+     * Recompute the total from the user's counters in one atomic script and overwrite it.
+     * Conversations without a Redis counter count with their MongoDB value, like
+     * {@link #getCounts} callers do.
+     *
+     * @param mongoCounts every live conversation of the user → its MongoDB unread count
+     * @return correction applied ({@code new - old}); 0 if the total was exact
+     */
+    public long reconcileTotal(Long userId, Map<ObjectId, Long> mongoCounts) {
+        List<String> keys = new ArrayList<>(mongoCounts.size() + 1);
+        List<String> args = new ArrayList<>(mongoCounts.size());
+        keys.add(totalKey(userId));
+        mongoCounts.forEach((conversationId, count) -> {
+            keys.add(counterKey(userId, conversationId));
+            args.add(Long.toString(count));
+        });
+        Long correction = redisTemplate.execute(RECONCILE_SCRIPT, keys, args.toArray());
+        return correction != null ? correction : 0L;
+    }
+
+    /**
+     * Claim the reconciliation of one user for {@code period}, across all nodes.
+     *
+     * @return false if the user was reconciled (or claimed) less than {@code period} ago
+     */
+    public boolean claimReconcile(Long userId, Duration period) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(checkedKey(userId), "1", period));
+    }
+
+    public static String counterKey(Long userId, ObjectId conversationId) {
+        return "unread:" + userId + ":" + conversationId.toHexString();
+    }
+
+    public static String totalKey(Long userId) {
+        return "unread:total:" + userId;
+    }
+
+    public static String checkedKey(Long userId) {
+        return "unread:total:checked:" + userId;
+    }
+
+    private static void addSeed(List<String> args, Map<Long, long[]> seeds, Long userId) {
+        long[] seed = seeds != null ? seeds.get(userId) : null;
+        args.add(Long.toString(seed != null ? seed[0] : 0L));
+        args.add(Long.toString(seed != null ? seed[1] : 0L));
+    }
+
+    private static boolean isApplied(Long reply) {
+        return reply == null || reply != 0L;
+    }
+
+    private static long parse(String value) {
+        return value == null ? 0L : Long.parseLong(value);
+    }
+}
@@ -0,0 +1,39 @@
+package com.vivumate.coreapi.search;
+
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.projection.ScoredMessage;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Full-text search over the messages of one conversation.
+ * <p>
+ * Implementations apply the same visibility rules as the feed: recalled messages, messages before
+ * the user's {@code clearedAt} and messages the user hid are never returned.
+ *
+ * @see MongoTextSearchEngine
+ * @see com.vivumate.coreapi.search.embedded.EmbeddedMessageSearchEngine
+ */
+public interface MessageSearchEngine {
+
+    /**
+     * One page of results: in the engine's ranking order for a first page, in the cursor's
+     * {@link SearchCursor#ordering()} for the next ones (whichever engine issued it).
+     *
+     * @param after position after the last hit of the previous page ({@link SearchCursor#after}),
+     *              null for the first page
+     * @return at most {@code limit} matching messages
+     */
+    List<ScoredMessage> search(ObjectId conversationId, HiddenMessages hidden, Instant clearedAt,
+                               String keyword, SearchCursor after, int limit);
+
+    /**
+     * A message was edited or recalled; {@code message} is its current state, re-read from MongoDB.
+     * Called after the write has completed.
+     */
+    default void onUpdated(MessageDocument message) {
+    }
+}
@@ -0,0 +1,38 @@
+package com.vivumate.coreapi.search;
+
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.projection.ScoredMessage;
+import com.vivumate.coreapi.repository.mongodb.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * MongoDB {@code $text} search on {@code idx_conversation_text_search}, ranked by text score.
+ * <p>
+ * Exact (stemming-free, {@code language: none}) word matches only: no accent folding and no
+ * prefix matching. Paged by {@code (score, _id)} keyset. The default engine
+ * ({@code vivumate.chat.search.engine=mongo}); also used by the embedded engine while a
+ * conversation's index is still being built.
+ * <p>
+ * A {@link SearchCursor.Ordering#NEWEST} cursor (issued by the embedded engine, before a switch
+ * of engine or by a node that had the index) is continued newest first, with the same
+ * {@code $text} match.
+ */
+@Component
+@RequiredArgsConstructor
+public class MongoTextSearchEngine implements MessageSearchEngine {
+
+    private final MessageRepository messageRepository;
+
+    @Override
+    public List<ScoredMessage> search(ObjectId conversationId, HiddenMessages hidden, Instant clearedAt,
+                                      String keyword, SearchCursor after, int limit) {
+        boolean newestFirst = after != null && after.ordering() == SearchCursor.Ordering.NEWEST;
+        return messageRepository.searchMessages(conversationId, hidden, clearedAt, keyword, newestFirst,
+                after != null ? after.score() : null, after != null ? after.messageId() : null, limit);
+    }
+}
@@ -0,0 +1,94 @@
+package com.vivumate.coreapi.search;
+
+import com.vivumate.coreapi.document.projection.ScoredMessage;
+import com.vivumate.coreapi.exception.AppException;
+import com.vivumate.coreapi.exception.ErrorCode;
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in a search result list: the ordering the list was produced in and the sort
+ * key of the last hit returned.
+ * <p>
+ * {@link Ordering#RELEVANCE} lists are ordered by {@code (score desc, _id desc)},
+ * {@link Ordering#NEWEST} lists by {@code _id desc} ({@code score} is null). The next page
+ * starts strictly after this key <i>in the same ordering</i>, whichever engine serves it: a
+ * keyset of one ordering applied to the other would skip and repeat hits. Sent to clients as an
+ * opaque URL-safe token ({@link #encode()}).
+ */
+public record SearchCursor(Ordering ordering, Double score, ObjectId messageId) {
+
+    private static final char SEPARATOR = '_';
+    private static final char ORDERING_SEPARATOR = ':';
+
+    public enum Ordering {
+        /** {@code $text} score, best first. */
+        RELEVANCE('t'),
+        /** Message ID, newest first. */
+        NEWEST('e');
+
+        private final char code;
+
+        Ordering(char code) {
+            this.code = code;
+        }
+
+        static Ordering of(char code) {
+            for (Ordering ordering : values()) {
+                if (ordering.code == code) {
+                    return ordering;
+                }
+            }
+            throw new IllegalArgumentException("Unknown search ordering: " + code);
+        }
+    }
+
+    public SearchCursor {
+        if (ordering == null || messageId == null || (ordering == Ordering.RELEVANCE) != (score != null)) {
+            throw new IllegalArgumentException("A relevance cursor needs a score, a newest-first one none");
+        }
+    }
+
+    public static SearchCursor relevance(double score, ObjectId messageId) {
+        return new SearchCursor(Ordering.RELEVANCE, score, messageId);
+    }
+
+    public static SearchCursor newest(ObjectId messageId) {
+        return new SearchCursor(Ordering.NEWEST, null, messageId);
+    }
+
+    public String encode() {
+        String key = String.valueOf(ordering.code) + ORDERING_SEPARATOR
+                + (score != null ? Double.toString(score) : "") + SEPARATOR + messageId.toHexString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @throws AppException {@link ErrorCode#INVALID_INPUT} if the token was not issued by {@link #encode()}
+     */
+    public static SearchCursor decode(String token) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            if (key.charAt(1) != ORDERING_SEPARATOR) {
+                throw new IllegalArgumentException("Search cursor without an ordering");
+            }
+            int separator = key.lastIndexOf(SEPARATOR);
+            String score = key.substring(2, separator);
+            return new SearchCursor(Ordering.of(key.charAt(0)), score.isEmpty() ? null : Double.valueOf(score),
+                    new ObjectId(key.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new AppException(ErrorCode.INVALID_INPUT);
+        }
+    }
+
+    /**
+     * Position right after {@code hit}, in the ordering it was ranked by.
+     */
+    public static SearchCursor after(ScoredMessage hit) {
+        return hit.score() != null
+                ? relevance(hit.score(), hit.message().getId())
+                : newest(hit.message().getId());
+    }
+}
@@ -0,0 +1,103 @@
+package com.vivumate.coreapi.search;
+
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.search.SearchHit.MatchOffset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Server-side snippet and match offsets of a search hit, so clients never re-scan message text.
+ * <p>
+ * A word is highlighted when its folded form ({@link SearchTokenizer#fold}) starts with one of
+ * the query tokens — the same rule the engines match by — and the WHOLE original word is marked
+ * ("kien" marks "Kiên"). Bounded cost per message: at most {@link #MAX_SCANNED_CHARS} characters
+ * are scanned and at most {@link #MAX_OFFSETS} matches kept, however long the text.
+ */
+public final class SearchHighlighter {
+
+    public static final int SNIPPET_LENGTH = 160;
+    static final int MAX_SCANNED_CHARS = 4_000;
+    static final int MAX_OFFSETS = 16;
+
+    private static final int LEADING_CONTEXT = 40;
+    private static final String ELLIPSIS = "…";
+
+    private SearchHighlighter() {
+    }
+
+    /**
+     * @param tokens query tokens from {@link SearchTokenizer#tokenize}
+     */
+    public static SearchHit highlight(MessageDocument message, List<String> tokens) {
+        String text = message.getContent() != null ? message.getContent().getText() : null;
+        return excerpt(message, text != null ? text : "", tokens);
+    }
+
+    private static SearchHit excerpt(MessageDocument message, String text, List<String> tokens) {
+        List<MatchOffset> matches = findMatches(text, tokens);
+        int length = text.length();
+        if (length <= SNIPPET_LENGTH) {
+            return new SearchHit(message.getId(), text, matches, message.getCreatedAt());
+        }
+
+        // Window of SNIPPET_LENGTH chars with some context before the first match, cut between words
+        int anchor = matches.isEmpty() ? 0 : matches.getFirst().start();
+        int from = Math.max(0, Math.min(anchor - LEADING_CONTEXT, length - SNIPPET_LENGTH));
+        int to = Math.min(length, from + SNIPPET_LENGTH);
+        while (from > 0 && from < anchor && (isWordChar(text.charAt(from - 1)) || Character.isWhitespace(text.charAt(from)))) {
+            from++;
+        }
+        int firstEnd = matches.isEmpty() ? from : matches.getFirst().end();
+        while (to < length && to > firstEnd && isWordChar(text.charAt(to - 1)) && isWordChar(text.charAt(to))) {
+            to--;
+        }
+        if (from > 0 && Character.isLowSurrogate(text.charAt(from))) {
+            from++;
+        }
+        if (to < length && Character.isLowSurrogate(text.charAt(to))) {
+            to--;
+        }
+
+        String prefix = from > 0 ? ELLIPSIS : "";
+        String suffix = to < length ? ELLIPSIS : "";
+        int shift = prefix.length() - from;
+        List<MatchOffset> offsets = new ArrayList<>();
+        for (MatchOffset match : matches) {
+            if (match.start() >= from && match.start() < to) {
+                offsets.add(new MatchOffset(match.start() + shift, Math.min(match.end(), to) + shift));
+            }
+        }
+        return new SearchHit(message.getId(), prefix + text.substring(from, to) + suffix, offsets,
+                message.getCreatedAt());
+    }
+
+    /**
+     * Matched words of {@code text}, as offsets into {@code text}.
+     */
+    static List<MatchOffset> findMatches(String text, List<String> tokens) {
+        List<MatchOffset> matches = new ArrayList<>();
+        int scanEnd = Math.min(text.length(), MAX_SCANNED_CHARS);
+        int start = -1;
+        for (int i = 0; i <= scanEnd && matches.size() < MAX_OFFSETS; i++) {
+            boolean wordChar = i < scanEnd && isWordChar(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = SearchTokenizer.fold(text.substring(start, i));
+                if (tokens.stream().anyMatch(word::startsWith)) {
+                    matches.add(new MatchOffset(start, i));
+                }
+                start = -1;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Letters, digits and combining marks (decomposed input keeps its accents inside the word).
+     */
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || Character.getType(c) == Character.NON_SPACING_MARK;
+    }
+}
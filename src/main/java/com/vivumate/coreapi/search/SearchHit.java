@@ -0,0 +1,21 @@
+package com.vivumate.coreapi.search;
+
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Lightweight search result: what a result list renders, without the message document.
+ *
+ * @param snippet excerpt of the message text around the first match ("…" where it was cut)
+ * @param offsets matched words inside {@code snippet}, in order
+ */
+public record SearchHit(ObjectId messageId, String snippet, List<MatchOffset> offsets, Instant sentAt) {
+
+    /**
+     * One highlighted range {@code [start, end)} of {@link #snippet()}, in UTF-16 code units.
+     */
+    public record MatchOffset(int start, int end) {
+    }
+}
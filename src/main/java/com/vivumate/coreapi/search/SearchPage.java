@@ -0,0 +1,11 @@
+package com.vivumate.coreapi.search;
+
+import java.util.List;
+
+/**
+ * One page of search hits.
+ *
+ * @param next cursor of the following page, null on the last page
+ */
+public record SearchPage(List<SearchHit> hits, SearchCursor next) {
+}
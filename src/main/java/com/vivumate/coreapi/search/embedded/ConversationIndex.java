@@ -0,0 +1,608 @@
+package com.vivumate.coreapi.search.embedded;
+
+import com.vivumate.coreapi.search.SearchTokenizer;
+import org.bson.types.ObjectId;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index of ONE conversation: immutable {@link Segment}s on disk plus an in-memory tail.
+ * <p>
+ * Writes go to the tail; {@link #flush} turns it into a new segment and {@link #maybeMerge} keeps
+ * the segment count logarithmic (the two newest are merged while the older one is at most twice
+ * the size of the newer one). The {@code manifest} file lists the live segments and is replaced
+ * atomically after every flush / merge, so a crash loses at most the tail — which the engine
+ * re-reads from MongoDB ({@link #indexedThrough()} is only persisted for flushed messages).
+ * <p>
+ * Edits and recalls are generation tombstones: a copy of a message in a segment of generation
+ * {@code g} is dead once a tombstone {@code t > g} exists for it. An edit tombstones the old copies
+ * and re-adds the message to the tail (which flushes as a newer generation); a recall only
+ * tombstones. Merges drop dead copies, and a tombstone is forgotten once every segment is at
+ * least as new as it.
+ * <p>
+ * Thread-safe: searches share the read lock, tail writes and segment swaps take the write lock,
+ * merges build their output without holding it.
+ */
+final class ConversationIndex {
+
+    static final String MANIFEST = "manifest";
+
+    private static final int MANIFEST_MAGIC = 0x564d414e; // "VMAN"
+    private static final int MANIFEST_VERSION = 1;
+    private static final int RECENT_IDS = 4096;
+
+    private final Path dir;
+    private final int maxPrefixExpansions;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock mergeLock = new ReentrantLock();
+    private final AtomicBoolean maintenanceScheduled = new AtomicBoolean();
+
+    // ── Guarded by lock ──
+    private final List<Segment> segments = new ArrayList<>(); // oldest first
+    private final Map<ObjectId, Long> tombstones = new HashMap<>();
+    private long nextGeneration = 1;
+    private ObjectId flushedThrough;
+    private ObjectId indexedThrough;
+    private boolean dirty;
+    private boolean closed;
+
+    // ── In-memory tail (guarded by lock) ──
+    private final List<ObjectId> tailDocs = new ArrayList<>();
+    private final Map<ObjectId, Integer> tailDocNumbers = new HashMap<>();
+    private final BitSet tailDeleted = new BitSet();
+    private final TreeMap<String, IntList> tailPostings = new TreeMap<>();
+
+    /** Recently indexed IDs: the catch-up overlap re-reads them, they must not be added twice. */
+    private final Map<ObjectId, Boolean> recentIds = new LinkedHashMap<>(RECENT_IDS, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ObjectId, Boolean> eldest) {
+            return size() > RECENT_IDS;
+        }
+    };
+
+    private ConversationIndex(Path dir, int maxPrefixExpansions) {
+        this.dir = dir;
+        this.maxPrefixExpansions = maxPrefixExpansions;
+    }
+
+    /**
+     * Open (or create) the index stored in {@code dir}.
+     *
+     * @param maxPrefixExpansions cap on the terms a query token may expand to, per segment
+     */
+    static ConversationIndex open(Path dir, int maxPrefixExpansions) throws IOException {
+        Files.createDirectories(dir);
+        ConversationIndex index = new ConversationIndex(dir, maxPrefixExpansions);
+        index.readManifest();
+        return index;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  WRITES
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Index a new message. Ignored if it was indexed recently (catch-up overlap).
+     *
+     * @return false if the index has been closed (evicted) — the caller retries on a fresh one
+     */
+    boolean add(ObjectId messageId, String text) {
+        List<String> tokens = SearchTokenizer.tokenize(text);
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            if (!recentIds.containsKey(messageId)) {
+                appendToTail(messageId, tokens);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A message was edited: older copies die, the new text goes to the tail.
+     */
+    boolean replace(ObjectId messageId, String text) {
+        List<String> tokens = SearchTokenizer.tokenize(text);
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            tombstone(messageId);
+            appendToTail(messageId, tokens);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A message was recalled: every copy dies.
+     */
+    boolean remove(ObjectId messageId) {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            tombstone(messageId);
+            recentIds.put(messageId, Boolean.TRUE);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void tombstone(ObjectId messageId) {
+        tombstones.put(messageId, nextGeneration);
+        Integer tailDoc = tailDocNumbers.remove(messageId);
+        if (tailDoc != null) {
+            tailDeleted.set(tailDoc);
+        }
+        dirty = true;
+    }
+
+    private void appendToTail(ObjectId messageId, List<String> tokens) {
+        int doc = tailDocs.size();
+        tailDocs.add(messageId);
+        tailDocNumbers.put(messageId, doc);
+        for (String token : tokens) {
+            tailPostings.computeIfAbsent(token, key -> new IntList()).add(doc);
+        }
+        recentIds.put(messageId, Boolean.TRUE);
+        if (indexedThrough == null || messageId.compareTo(indexedThrough) > 0) {
+            indexedThrough = messageId;
+        }
+        dirty = true;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  SEARCH
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * IDs of messages containing, for EVERY token, a word starting with it — newest first.
+     * <p>
+     * Candidates only: may include messages the caller must still filter (hidden, stale text
+     * after a lost tail), never misses an indexed match inside the range.
+     *
+     * @param after  exclusive lower bound ({@code clearedAt} watermark), or null
+     * @param before exclusive upper bound (next batch), or null
+     */
+    List<ObjectId> search(List<String> tokens, ObjectId after, ObjectId before, int limit) {
+        List<byte[]> prefixes = tokens.stream().map(token -> token.getBytes(StandardCharsets.UTF_8)).toList();
+        TreeSet<ObjectId> newest = new TreeSet<>();
+
+        lock.readLock().lock();
+        try {
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                collect(segments.get(i), prefixes, after, before, limit, newest);
+            }
+            collectTail(tokens, after, before, limit, newest);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new ArrayList<>(newest.descendingSet());
+    }
+
+    private void collect(Segment segment, List<byte[]> prefixes, ObjectId after, ObjectId before,
+                         int limit, TreeSet<ObjectId> newest) {
+        BitSet matches = null;
+        for (byte[] prefix : prefixes) {
+            BitSet tokenMatches = new BitSet(segment.docCount());
+            segment.matchPrefix(prefix, tokenMatches, maxPrefixExpansions);
+            if (matches == null) {
+                matches = tokenMatches;
+            } else {
+                matches.and(tokenMatches);
+            }
+            if (matches.isEmpty()) {
+                return;
+            }
+        }
+
+        // Docs are sorted by _id: walk the matches downwards and stop at the first one too old
+        for (int doc = matches.previousSetBit(segment.docCount() - 1); doc >= 0;
+             doc = matches.previousSetBit(doc - 1)) {
+            ObjectId id = segment.docId(doc);
+            if (before != null && id.compareTo(before) >= 0) {
+                continue;
+            }
+            if ((after != null && id.compareTo(after) <= 0)
+                    || (newest.size() >= limit && id.compareTo(newest.first()) <= 0)) {
+                return;
+            }
+            Long tombstone = tombstones.get(id);
+            if (tombstone == null || tombstone <= segment.generation()) {
+                offer(newest, id, limit);
+            }
+        }
+    }
+
+    private void collectTail(List<String> tokens, ObjectId after, ObjectId before, int limit,
+                             TreeSet<ObjectId> newest) {
+        if (tailDocs.isEmpty()) {
+            return;
+        }
+        BitSet matches = null;
+        for (String token : tokens) {
+            BitSet tokenMatches = new BitSet(tailDocs.size());
+            int expanded = 0;
+            for (Map.Entry<String, IntList> term : tailPostings.tailMap(token).entrySet()) {
+                if (!term.getKey().startsWith(token) || expanded++ >= maxPrefixExpansions) {
+                    break;
+                }
+                IntList docs = term.getValue();
+                for (int i = 0; i < docs.size(); i++) {
+                    tokenMatches.set(docs.get(i));
+                }
+            }
+            matches = matches == null ? tokenMatches : and(matches, tokenMatches);
+        }
+        matches.andNot(tailDeleted);
+
+        for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+            ObjectId id = tailDocs.get(doc);
+            if ((after == null || id.compareTo(after) > 0) && (before == null || id.compareTo(before) < 0)) {
+                offer(newest, id, limit);
+            }
+        }
+    }
+
+    private static BitSet and(BitSet left, BitSet right) {
+        left.and(right);
+        return left;
+    }
+
+    private static void offer(TreeSet<ObjectId> newest, ObjectId id, int limit) {
+        if (newest.add(id) && newest.size() > limit) {
+            newest.pollFirst();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  FLUSH / MERGE
+    // ═══════════════════════════════════════════════════════════
+
+    int tailSize() {
+        lock.readLock().lock();
+        try {
+            return tailDocs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Newest message ID added (flushed or not); null for an empty index.
+     */
+    ObjectId indexedThrough() {
+        lock.readLock().lock();
+        try {
+            return indexedThrough;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Claim the (single) pending background flush + merge; released by {@link #maintenanceDone()}.
+     */
+    boolean tryScheduleMaintenance() {
+        return maintenanceScheduled.compareAndSet(false, true);
+    }
+
+    void maintenanceDone() {
+        maintenanceScheduled.set(false);
+    }
+
+    /**
+     * Write the tail as a new segment (and the manifest, if anything changed).
+     */
+    void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            flushLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flush and refuse further writes; searches keep working on the flushed segments.
+     */
+    void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                flushLocked();
+                closed = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void flushLocked() throws IOException {
+        if (closed || !dirty) {
+            return;
+        }
+
+        // Live tail docs in _id order, renumbered
+        int[] renumbered = new int[tailDocs.size()];
+        List<Integer> live = new ArrayList<>();
+        for (int doc = 0; doc < tailDocs.size(); doc++) {
+            if (!tailDeleted.get(doc)) {
+                live.add(doc);
+            }
+        }
+        live.sort(Comparator.comparing(tailDocs::get));
+        ObjectId[] docs = new ObjectId[live.size()];
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = tailDocs.get(live.get(i));
+            renumbered[live.get(i)] = i;
+        }
+
+        if (docs.length > 0) {
+            Map<String, IntList> postings = new HashMap<>();
+            tailPostings.forEach((term, tailDocList) -> {
+                IntList segmentDocs = new IntList();
+                for (int i = 0; i < tailDocList.size(); i++) {
+                    int doc = tailDocList.get(i);
+                    if (!tailDeleted.get(doc)) {
+                        segmentDocs.add(renumbered[doc]);
+                    }
+                }
+                if (segmentDocs.size() > 0) {
+                    segmentDocs.sort();
+                    postings.put(term, segmentDocs);
+                }
+            });
+            long generation = nextGeneration++;
+            segments.add(Segment.write(dir.resolve(fileName(generation)), generation, docs, postings));
+        }
+
+        tailDocs.clear();
+        tailDocNumbers.clear();
+        tailDeleted.clear();
+        tailPostings.clear();
+        flushedThrough = indexedThrough;
+        pruneTombstones();
+        writeManifest();
+        dirty = false;
+    }
+
+    /**
+     * Merge the newest segments while the logarithmic size rule asks for it.
+     */
+    void maybeMerge() throws IOException {
+        mergeLoop(false);
+    }
+
+    /**
+     * Merge every segment into one (end of a full build).
+     */
+    void mergeAll() throws IOException {
+        mergeLoop(true);
+    }
+
+    private void mergeLoop(boolean all) throws IOException {
+        mergeLock.lock();
+        try {
+            while (true) {
+                List<Segment> inputs;
+                Map<ObjectId, Long> tombstoneSnapshot;
+                long fileNumber;
+
+                lock.writeLock().lock();
+                try {
+                    int count = segments.size();
+                    if (closed || count < 2
+                            || (!all && segments.get(count - 2).docCount() > 2L * segments.get(count - 1).docCount())) {
+                        return;
+                    }
+                    inputs = List.copyOf(all ? segments : segments.subList(count - 2, count));
+                    tombstoneSnapshot = new HashMap<>(tombstones);
+                    fileNumber = nextGeneration++; // names the file only: the output keeps the inputs' max generation
+                } finally {
+                    lock.writeLock().unlock();
+                }
+
+                Segment merged = merge(inputs, tombstoneSnapshot, fileNumber);
+                install(inputs, merged);
+            }
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    /**
+     * K-way merge of sorted segments: dead copies are dropped, a message present in several
+     * inputs keeps its newest live copy, and postings are renumbered into the merged order.
+     */
+    private Segment merge(List<Segment> inputs, Map<ObjectId, Long> tombstoneSnapshot, long fileNumber)
+            throws IOException {
+        int inputCount = inputs.size();
+        int[][] renumbered = new int[inputCount][];
+        int[] positions = new int[inputCount];
+        ObjectId[] heads = new ObjectId[inputCount];
+        int total = 0;
+        for (int i = 0; i < inputCount; i++) {
+            renumbered[i] = new int[inputs.get(i).docCount()];
+            heads[i] = inputs.get(i).docCount() > 0 ? inputs.get(i).docId(0) : null;
+            total += inputs.get(i).docCount();
+        }
+
+        List<ObjectId> docs = new ArrayList<>(total);
+        while (true) {
+            ObjectId smallest = null;
+            for (ObjectId head : heads) {
+                if (head != null && (smallest == null || head.compareTo(smallest) < 0)) {
+                    smallest = head;
+                }
+            }
+            if (smallest == null) {
+                break;
+            }
+
+            boolean kept = false;
+            Long tombstone = tombstoneSnapshot.get(smallest);
+            for (int i = inputCount - 1; i >= 0; i--) { // newest input first
+                if (!smallest.equals(heads[i])) {
+                    continue;
+                }
+                Segment input = inputs.get(i);
+                boolean live = tombstone == null || tombstone <= input.generation();
+                if (live && !kept) {
+                    renumbered[i][positions[i]] = docs.size();
+                    kept = true;
+                } else {
+                    renumbered[i][positions[i]] = -1;
+                }
+                positions[i]++;
+                heads[i] = positions[i] < input.docCount() ? input.docId(positions[i]) : null;
+            }
+            if (kept) {
+                docs.add(smallest);
+            }
+        }
+
+        Map<String, IntList> postings = new HashMap<>();
+        for (int i = 0; i < inputCount; i++) {
+            int[] docNumbers = renumbered[i];
+            inputs.get(i).forEachPosting((term, doc) -> {
+                if (docNumbers[doc] >= 0) {
+                    postings.computeIfAbsent(term, key -> new IntList()).add(docNumbers[doc]);
+                }
+            });
+        }
+        postings.values().forEach(IntList::sort);
+
+        long generation = inputs.stream().mapToLong(Segment::generation).max().orElseThrow();
+        return Segment.write(dir.resolve(fileName(fileNumber)), generation, docs.toArray(ObjectId[]::new), postings);
+    }
+
+    private void install(List<Segment> inputs, Segment merged) throws IOException {
+        lock.writeLock().lock();
+        try {
+            int at = segments.indexOf(inputs.getFirst());
+            segments.subList(at, at + inputs.size()).clear();
+            segments.add(at, merged);
+            pruneTombstones();
+            writeManifest();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // Nobody can still be reading them: searches hold the read lock for their whole scan
+        for (Segment input : inputs) {
+            Files.deleteIfExists(input.file());
+        }
+    }
+
+    /**
+     * A tombstone only kills copies in OLDER segments; once there are none it is useless.
+     */
+    private void pruneTombstones() {
+        long oldest = segments.stream().mapToLong(Segment::generation).min().orElse(Long.MAX_VALUE);
+        tombstones.values().removeIf(tombstone -> tombstone <= oldest);
+    }
+
+    private static String fileName(long number) {
+        return String.format("%016x%s", number, Segment.FILE_SUFFIX);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  MANIFEST
+    // ═══════════════════════════════════════════════════════════
+
+    private void writeManifest() throws IOException {
+        Path temp = dir.resolve(MANIFEST + ".tmp");
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeInt(MANIFEST_VERSION);
+            out.writeLong(nextGeneration);
+            out.writeBoolean(flushedThrough != null);
+            if (flushedThrough != null) {
+                out.write(flushedThrough.toByteArray());
+            }
+            out.writeInt(segments.size());
+            for (Segment segment : segments) {
+                out.writeLong(segment.generation());
+                out.writeUTF(segment.file().getFileName().toString());
+            }
+            out.writeInt(tombstones.size());
+            for (Map.Entry<ObjectId, Long> tombstone : tombstones.entrySet()) {
+                out.write(tombstone.getKey().toByteArray());
+                out.writeLong(tombstone.getValue());
+            }
+        }
+        Files.move(temp, dir.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void readManifest() throws IOException {
+        Set<String> referenced = new HashSet<>();
+        try (InputStream file = Files.newInputStream(dir.resolve(MANIFEST));
+             DataInputStream in = new DataInputStream(file)) {
+            if (in.readInt() != MANIFEST_MAGIC || in.readInt() != MANIFEST_VERSION) {
+                throw new IOException("Not a search index manifest: " + dir);
+            }
+            nextGeneration = in.readLong();
+            if (in.readBoolean()) {
+                flushedThrough = new ObjectId(in.readNBytes(12));
+            }
+            int segmentCount = in.readInt();
+            for (int i = 0; i < segmentCount; i++) {
+                long generation = in.readLong();
+                String name = in.readUTF();
+                segments.add(Segment.open(dir.resolve(name), generation));
+                referenced.add(name);
+            }
+            int tombstoneCount = in.readInt();
+            for (int i = 0; i < tombstoneCount; i++) {
+                tombstones.put(new ObjectId(in.readNBytes(12)), in.readLong());
+            }
+        } catch (NoSuchFileException e) {
+            dirty = true; // New index: the first flush writes the manifest even if nothing was added
+        }
+        indexedThrough = flushedThrough;
+
+        // Leftovers of a crash between a segment write and the manifest swap
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path path : files) {
+                if (!path.getFileName().toString().equals(MANIFEST) && !referenced.contains(path.getFileName().toString())) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.vivumate.coreapi.search.embedded;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vivumate.coreapi.cache.CacheInvalidationBus;
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.projection.MessageFeedItem;
+import com.vivumate.coreapi.document.projection.ScoredMessage;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.event.MessageSentEvent;
+import com.vivumate.coreapi.repository.mongodb.MessageRepository;
+import com.vivumate.coreapi.search.MessageSearchEngine;
+import com.vivumate.coreapi.search.MongoTextSearchEngine;
+import com.vivumate.coreapi.search.SearchCursor;
+import com.vivumate.coreapi.search.SearchTokenizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Message search on a per-conversation inverted index stored on local disk ({@link ConversationIndex}).
+ * <p>
+ * Diacritic- and case-insensitive prefix matching ({@link SearchTokenizer}): "kien" finds "Kiên",
+ * "ngu" finds "ngủ". Results are newest first, paged by message ID. A search continued from a
+ * {@link SearchCursor.Ordering#RELEVANCE} cursor (its first page came from {@code $text}) stays
+ * on {@code $text} to the end, so switching ranking mid-list cannot skip or repeat hits. The index only proposes candidates; every returned
+ * message is re-read from MongoDB and re-checked (recalled, {@code clearedAt}, hidden, text), so
+ * a stale index can miss a match but never return a wrong one.
+ * <p>
+ * Keeping the index current:
+ * <ul>
+ *   <li><b>First search</b> of a conversation without an index: answered by
+ *       {@link MongoTextSearchEngine} while the index is built in the background</li>
+ *   <li><b>Sends</b> on this node are added from {@link MessageSentEvent} if the index is open</li>
+ *   <li><b>Catch-up</b>: before each search, messages after {@link ConversationIndex#indexedThrough()}
+ *       (minus an overlap) are read from MongoDB — sends on other nodes, sends while the index was
+ *       closed, the tail lost in a crash</li>
+ *   <li><b>Edits / recalls</b> arrive through {@link #onUpdated} and are broadcast to other nodes on
+ *       {@link CacheInvalidationBus}; each node re-reads the message</li>
+ * </ul>
+ * At most {@code max-open} indexes are open per node (LRU); evicted ones are flushed and closed.
+ * <p>
+ * Metrics: {@code vivumate.chat.search.duration{engine=embedded|mongo}}.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "vivumate.chat.search.engine", havingValue = "embedded")
+@Slf4j(topic = "MESSAGE_SEARCH")
+public class EmbeddedMessageSearchEngine implements MessageSearchEngine {
+
+    public static final String CACHE_NAME = "message_search";
+
+    private static final String SEARCH_METRIC = "vivumate.chat.search.duration";
+    private static final String ENGINE_TAG = "engine";
+    private static final String BUILDING_SUFFIX = ".building";
+    private static final int MAX_PREFIX_EXPANSIONS = 512;
+    private static final int BUILD_SEGMENT_DOCS = 65_536;
+    private static final char KEY_SEPARATOR = ':';
+
+    private final MessageRepository messageRepository;
+    private final MongoTextSearchEngine fallback;
+    private final ExecutorService chatIoExecutor;
+    private final CacheInvalidationBus invalidationBus;
+    private final Path indexDir;
+    private final int flushDocs;
+    private final int batchSize;
+    private final Duration catchUpOverlap;
+
+    private final Cache<ObjectId, ConversationIndex> indexes;
+    /** Conversations being built → edits / recalls seen meanwhile, replayed once the index is open. */
+    private final ConcurrentHashMap<ObjectId, Set<ObjectId>> building = new ConcurrentHashMap<>();
+
+    private final Timer embeddedTimer;
+    private final Timer fallbackTimer;
+
+    public EmbeddedMessageSearchEngine(MessageRepository messageRepository,
+                                       MongoTextSearchEngine fallback,
+                                       @Qualifier("chatIoExecutor") ExecutorService chatIoExecutor,
+                                       CacheInvalidationBus invalidationBus,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${vivumate.chat.search.index-dir:${java.io.tmpdir}/vivumate-search}") Path indexDir,
+                                       @Value("${vivumate.chat.search.max-open:1000}") long maxOpen,
+                                       @Value("${vivumate.chat.search.flush-docs:256}") int flushDocs,
+                                       @Value("${vivumate.chat.search.batch-size:1000}") int batchSize,
+                                       @Value("${vivumate.chat.search.catch-up-overlap:PT5S}") Duration catchUpOverlap)
+            throws IOException {
+        this.messageRepository = messageRepository;
+        this.fallback = fallback;
+        this.chatIoExecutor = chatIoExecutor;
+        this.invalidationBus = invalidationBus;
+        this.indexDir = Files.createDirectories(indexDir);
+        this.flushDocs = flushDocs;
+        this.batchSize = batchSize;
+        this.catchUpOverlap = catchUpOverlap;
+
+        // Eviction listener runs inside the entry's atomic operation: a concurrent reopen of the
+        // same conversation waits until the evicted instance is flushed
+        this.indexes = Caffeine.newBuilder()
+                .maximumSize(maxOpen)
+                .<ObjectId, ConversationIndex>evictionListener((conversationId, index, cause) -> closeQuietly(index))
+                .build();
+
+        this.embeddedTimer = searchTimer(meterRegistry, "embedded");
+        this.fallbackTimer = searchTimer(meterRegistry, "mongo");
+
+        invalidationBus.register(CACHE_NAME, key -> chatIoExecutor.execute(() -> onRemoteUpdate(key)));
+
+        log.info("Initialized with indexDir={}, maxOpen={}, flushDocs={}", indexDir, maxOpen, flushDocs);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  SEARCH
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public List<ScoredMessage> search(ObjectId conversationId, HiddenMessages hidden, Instant clearedAt,
+                                      String keyword, SearchCursor after, int limit) {
+        List<String> tokens = SearchTokenizer.tokenize(keyword);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        if (after != null && after.ordering() == SearchCursor.Ordering.RELEVANCE) {
+            // The list was started by $text: finish it there even if the index is ready now
+            return fallbackTimer.record(() -> fallback.search(conversationId, hidden, clearedAt, keyword, after, limit));
+        }
+        ConversationIndex index = openIndex(conversationId);
+        if (index == null) {
+            scheduleBuild(conversationId);
+            return fallbackTimer.record(() -> fallback.search(conversationId, hidden, clearedAt, keyword, after, limit));
+        }
+        ObjectId before = after != null ? after.messageId() : null;
+        return embeddedTimer.record(() -> search(index, conversationId, hidden, clearedAt, tokens, before, limit));
+    }
+
+    private List<ScoredMessage> search(ConversationIndex index, ObjectId conversationId, HiddenMessages hidden,
+                                       Instant clearedAt, List<String> tokens, ObjectId before, int limit) {
+        catchUp(conversationId, index);
+
+        ObjectId minId = clearedAt != null ? new ObjectId(Date.from(clearedAt)) : null;
+        int batch = limit + Math.min(hidden.countBetween(minId, before), limit);
+        List<ScoredMessage> results = new ArrayList<>(limit);
+
+        while (results.size() < limit) {
+            List<ObjectId> candidates = index.search(tokens, minId, before, batch);
+            List<ObjectId> visible = candidates.stream().filter(id -> !hidden.contains(id)).toList();
+            if (!visible.isEmpty()) {
+                messageRepository.findAllById(visible).stream()
+                        .filter(message -> matches(message, conversationId, tokens))
+                        .sorted(Comparator.comparing(MessageDocument::getId).reversed())
+                        .limit(limit - results.size())
+                        .forEach(message -> results.add(new ScoredMessage(message, null)));
+            }
+            if (candidates.size() < batch) {
+                break;
+            }
+            before = candidates.getLast();
+        }
+        return results;
+    }
+
+    /**
+     * The index may be stale (lost tail, edit replayed late): trust only the current document.
+     */
+    private static boolean matches(MessageDocument message, ObjectId conversationId, List<String> tokens) {
+        if (message.isDeletedForEveryone() || !conversationId.equals(message.getConversationId())) {
+            return false;
+        }
+        List<String> words = SearchTokenizer.tokenize(textOf(message.getContent()));
+        return tokens.stream().allMatch(token -> words.stream().anyMatch(word -> word.startsWith(token)));
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  INDEX UPDATES
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * New message sent on this node. Indexes that are not open catch up on their next search.
+     */
+    @EventListener
+    public void onMessageSent(MessageSentEvent event) {
+        MessageDocument message = event.getMessage();
+        ObjectId conversationId = message.getConversationId();
+        apply(conversationId, indexes.getIfPresent(conversationId),
+                index -> index.add(message.getId(), textOf(message.getContent())));
+    }
+
+    @Override
+    public void onUpdated(MessageDocument message) {
+        applyUpdate(message);
+        invalidationBus.publish(CACHE_NAME,
+                message.getConversationId().toHexString() + KEY_SEPARATOR + message.getId().toHexString());
+    }
+
+    private void onRemoteUpdate(String key) {
+        int separator = key.indexOf(KEY_SEPARATOR);
+        ObjectId conversationId = new ObjectId(key.substring(0, separator));
+        if (building.containsKey(conversationId) || Files.exists(manifestOf(conversationId))) {
+            messageRepository.findById(new ObjectId(key.substring(separator + 1))).ifPresent(this::applyUpdate);
+        }
+    }
+
+    private void applyUpdate(MessageDocument message) {
+        ObjectId conversationId = message.getConversationId();
+        Set<ObjectId> pending = building.get(conversationId);
+        if (pending != null) {
+            pending.add(message.getId());
+        }
+        // Opened if needed: unlike a send, an edit is invisible to the catch-up scan
+        apply(conversationId, openIndex(conversationId), index -> message.isDeletedForEveryone()
+                ? index.remove(message.getId())
+                : index.replace(message.getId(), textOf(message.getContent())));
+    }
+
+    /**
+     * Run a write on the open index; retried once if it was evicted (closed) in between.
+     */
+    private void apply(ObjectId conversationId, ConversationIndex index, Predicate<ConversationIndex> write) {
+        if (index == null) {
+            return;
+        }
+        if (!write.test(index)) {
+            index = indexes.getIfPresent(conversationId);
+            if (index == null || !write.test(index)) {
+                return;
+            }
+        }
+        scheduleFlushIfFull(index);
+    }
+
+    /**
+     * Index messages after the watermark, minus an overlap: IDs are generated by the sending
+     * node, so a message of another node may sort slightly before one indexed already.
+     */
+    private void catchUp(ObjectId conversationId, ConversationIndex index) {
+        ObjectId through = index.indexedThrough();
+        ObjectId after = through == null
+                ? null
+                : new ObjectId(Date.from(through.getDate().toInstant().minus(catchUpOverlap)));
+        try (Stream<MessageFeedItem> messages = messageRepository.streamForIndexing(conversationId, after, batchSize)) {
+            messages.forEach(message -> index.add(message.id(), textOf(message.content())));
+        }
+        scheduleFlushIfFull(index);
+    }
+
+    private void scheduleFlushIfFull(ConversationIndex index) {
+        if (index.tailSize() < flushDocs || !index.tryScheduleMaintenance()) {
+            return;
+        }
+        chatIoExecutor.execute(() -> {
+            try {
+                index.flush();
+                index.maybeMerge();
+            } catch (IOException e) {
+                log.error("Failed to flush search index segment", e);
+            } finally {
+                index.maintenanceDone();
+            }
+        });
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  OPEN / BUILD
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * The open index of the conversation, opened from disk if built; null if not built yet.
+     */
+    private ConversationIndex openIndex(ObjectId conversationId) {
+        ConversationIndex open = indexes.getIfPresent(conversationId);
+        if (open != null || !Files.exists(manifestOf(conversationId))) {
+            return open;
+        }
+        try {
+            return indexes.get(conversationId, id -> {
+                try {
+                    return ConversationIndex.open(dirOf(id), MAX_PREFIX_EXPANSIONS);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            log.error("Failed to open search index of conversation {}, falling back to $text", conversationId, e);
+            return null;
+        }
+    }
+
+    private void scheduleBuild(ObjectId conversationId) {
+        if (building.putIfAbsent(conversationId, ConcurrentHashMap.newKeySet()) != null) {
+            return;
+        }
+        chatIoExecutor.execute(() -> {
+            try {
+                build(conversationId);
+            } catch (Exception e) {
+                log.error("Failed to build search index of conversation {}", conversationId, e);
+            } finally {
+                replayPending(conversationId, building.remove(conversationId));
+            }
+        });
+    }
+
+    /**
+     * Full build in a side directory, moved into place only when complete: a crash mid-build
+     * leaves no half index behind, and searches keep using {@code $text} until the move.
+     */
+    private void build(ObjectId conversationId) throws IOException {
+        long startNanos = System.nanoTime();
+        Path target = dirOf(conversationId);
+        Path temp = indexDir.resolve(conversationId.toHexString() + BUILDING_SUFFIX);
+        deleteRecursively(temp);
+
+        ConversationIndex index = ConversationIndex.open(temp, MAX_PREFIX_EXPANSIONS);
+        int messages = 0;
+        try (Stream<MessageFeedItem> history = messageRepository.streamForIndexing(conversationId, null, batchSize)) {
+            for (Iterator<MessageFeedItem> it = history.iterator(); it.hasNext(); messages++) {
+                MessageFeedItem message = it.next();
+                index.add(message.id(), textOf(message.content()));
+                if (index.tailSize() >= BUILD_SEGMENT_DOCS) {
+                    index.flush();
+                    index.maybeMerge();
+                }
+            }
+        }
+        index.flush();
+        index.mergeAll();
+        index.close();
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+
+        log.info("Search index built: conversationId={}, messages={}, took={}ms",
+                conversationId, messages, Duration.ofNanos(System.nanoTime() - startNanos).toMillis());
+    }
+
+    /**
+     * Edits / recalls that raced with the build: the scan may have read the old text.
+     */
+    private void replayPending(ObjectId conversationId, Set<ObjectId> pending) {
+        if (pending == null || pending.isEmpty()) {
+            return;
+        }
+        ConversationIndex index = openIndex(conversationId);
+        if (index != null) {
+            messageRepository.findAllById(pending).forEach(message -> apply(conversationId, index,
+                    open -> message.isDeletedForEveryone()
+                            ? open.remove(message.getId())
+                            : open.replace(message.getId(), textOf(message.getContent()))));
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        indexes.asMap().values().forEach(EmbeddedMessageSearchEngine::closeQuietly);
+        indexes.invalidateAll();
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  HELPERS
+    // ═══════════════════════════════════════════════════════════
+
+    private Path dirOf(ObjectId conversationId) {
+        return indexDir.resolve(conversationId.toHexString());
+    }
+
+    private Path manifestOf(ObjectId conversationId) {
+        return dirOf(conversationId).resolve(ConversationIndex.MANIFEST);
+    }
+
+    private static String textOf(MessageContent content) {
+        return content != null ? content.getText() : null;
+    }
+
+    private static void closeQuietly(ConversationIndex index) {
+        try {
+            index.close();
+        } catch (IOException e) {
+            log.error("Failed to flush search index on close", e);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static Timer searchTimer(MeterRegistry meterRegistry, String engine) {
+        return Timer.builder(SEARCH_METRIC)
+                .description("Message search latency")
+                .tag(ENGINE_TAG, engine)
+                .register(meterRegistry);
+    }
+}
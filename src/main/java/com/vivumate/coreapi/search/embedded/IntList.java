@@ -0,0 +1,31 @@
+package com.vivumate.coreapi.search.embedded;
+
+import java.util.Arrays;
+
+/**
+ * Growable {@code int[]} for posting lists — no boxing on the indexing path.
+ */
+final class IntList {
+
+    private int[] values = new int[4];
+    private int size;
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void sort() {
+        Arrays.sort(values, 0, size);
+    }
+}
@@ -0,0 +1,307 @@
+package com.vivumate.coreapi.search.embedded;
+
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * One immutable, memory-mapped segment of a {@link ConversationIndex}.
+ * <p>
+ * File layout (big-endian):
+ * <pre>
+ * header    magic "VSEG", version, docCount, termCount, termOffsetsPos, termAreaPos, postingsPos
+ * docs      docCount × 12-byte ObjectId, strictly ascending (doc number = position)
+ * offsets   termCount × int — start of each term entry, relative to termAreaPos
+ * terms     per term: short length, UTF-8 bytes, int postingsOffset, int postingsBytes, int docFreq
+ * postings  per term: ascending doc numbers as varint gaps
+ * </pre>
+ * Terms are sorted by unsigned UTF-8 bytes, so a prefix is one binary search followed by a
+ * contiguous run of entries. Docs are sorted by {@code _id}, so the newest matches are the
+ * highest set bits. Only absolute reads are used on the shared buffer: concurrent searches need
+ * no copy and no lock.
+ */
+final class Segment {
+
+    static final String FILE_SUFFIX = ".seg";
+
+    private static final int MAGIC = 0x56534547; // "VSEG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 7 * Integer.BYTES;
+    private static final int ID_BYTES = 12;
+
+    private final Path file;
+    private final long generation;
+    private final ByteBuffer buffer;
+    private final int docCount;
+    private final int termCount;
+    private final int termOffsetsPos;
+    private final int termAreaPos;
+    private final int postingsPos;
+
+    private Segment(Path file, long generation, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.generation = generation;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a search segment: " + file);
+        }
+        this.docCount = buffer.getInt(8);
+        this.termCount = buffer.getInt(12);
+        this.termOffsetsPos = buffer.getInt(16);
+        this.termAreaPos = buffer.getInt(20);
+        this.postingsPos = buffer.getInt(24);
+    }
+
+    /**
+     * Map an existing segment file read-only.
+     */
+    static Segment open(Path file, long generation) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Segment(file, generation, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Write a segment and map it. The file appears atomically (temp file + rename), so a crash
+     * never leaves a truncated segment behind a manifest entry.
+     *
+     * @param docs     strictly ascending message IDs
+     * @param postings term → ascending doc numbers (positions in {@code docs})
+     */
+    static Segment write(Path file, long generation, ObjectId[] docs, Map<String, IntList> postings)
+            throws IOException {
+        byte[][] terms = postings.keySet().stream()
+                .map(term -> term.getBytes(StandardCharsets.UTF_8))
+                .sorted(Arrays::compareUnsigned)
+                .toArray(byte[][]::new);
+
+        ByteSink termArea = new ByteSink(terms.length * 24);
+        ByteSink postingArea = new ByteSink(terms.length * 8);
+        int[] termOffsets = new int[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            IntList docNumbers = postings.get(new String(terms[i], StandardCharsets.UTF_8));
+            int postingsOffset = postingArea.size();
+            int previous = 0;
+            for (int j = 0; j < docNumbers.size(); j++) {
+                postingArea.putVarint(docNumbers.get(j) - previous);
+                previous = docNumbers.get(j);
+            }
+
+            termOffsets[i] = termArea.size();
+            termArea.putShort(terms[i].length);
+            termArea.put(terms[i]);
+            termArea.putInt(postingsOffset);
+            termArea.putInt(postingArea.size() - postingsOffset);
+            termArea.putInt(docNumbers.size());
+        }
+
+        int termOffsetsPos = HEADER_BYTES + docs.length * ID_BYTES;
+        int termAreaPos = termOffsetsPos + terms.length * Integer.BYTES;
+        int postingsPos = termAreaPos + termArea.size();
+        ByteBuffer out = ByteBuffer.allocate(postingsPos + postingArea.size());
+        out.putInt(MAGIC).putInt(VERSION).putInt(docs.length).putInt(terms.length)
+                .putInt(termOffsetsPos).putInt(termAreaPos).putInt(postingsPos);
+        for (ObjectId doc : docs) {
+            doc.putToByteBuffer(out);
+        }
+        for (int offset : termOffsets) {
+            out.putInt(offset);
+        }
+        out.put(termArea.bytes(), 0, termArea.size());
+        out.put(postingArea.bytes(), 0, postingArea.size());
+        out.flip();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(file, generation);
+    }
+
+    Path file() {
+        return file;
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    int docCount() {
+        return docCount;
+    }
+
+    ObjectId docId(int doc) {
+        byte[] id = new byte[ID_BYTES];
+        buffer.get(HEADER_BYTES + doc * ID_BYTES, id);
+        return new ObjectId(id);
+    }
+
+    /**
+     * Set the bit of every doc containing a term that starts with {@code prefix}.
+     *
+     * @param maxTerms cap on expanded terms (a one-letter prefix may match thousands)
+     * @return number of terms expanded
+     */
+    int matchPrefix(byte[] prefix, BitSet into, int maxTerms) {
+        int expanded = 0;
+        for (int term = lowerBound(prefix); term < termCount && expanded < maxTerms; term++) {
+            int entry = termAreaPos + buffer.getInt(termOffsetsPos + term * Integer.BYTES);
+            if (!startsWith(entry, prefix)) {
+                break;
+            }
+            decodePostings(entry, into::set);
+            expanded++;
+        }
+        return expanded;
+    }
+
+    /**
+     * Every (term, doc) pair of the segment, for merging.
+     */
+    void forEachPosting(ObjIntConsumer<String> consumer) {
+        for (int term = 0; term < termCount; term++) {
+            int entry = termAreaPos + buffer.getInt(termOffsetsPos + term * Integer.BYTES);
+            byte[] bytes = new byte[buffer.getShort(entry)];
+            buffer.get(entry + Short.BYTES, bytes);
+            String text = new String(bytes, StandardCharsets.UTF_8);
+            decodePostings(entry, doc -> consumer.accept(text, doc));
+        }
+    }
+
+    private void decodePostings(int entry, IntConsumer docs) {
+        int length = buffer.getShort(entry);
+        int meta = entry + Short.BYTES + length;
+        int position = postingsPos + buffer.getInt(meta);
+        int docFreq = buffer.getInt(meta + 2 * Integer.BYTES);
+
+        int doc = 0;
+        for (int i = 0; i < docFreq; i++) {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                gap |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            doc += gap;
+            docs.accept(doc);
+        }
+    }
+
+    /**
+     * First term {@code >= prefix} in unsigned byte order.
+     */
+    private int lowerBound(byte[] prefix) {
+        int low = 0;
+        int high = termCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int entry = termAreaPos + buffer.getInt(termOffsetsPos + mid * Integer.BYTES);
+            if (compare(entry, prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compare(int entry, byte[] key) {
+        int length = buffer.getShort(entry);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int diff = Byte.toUnsignedInt(buffer.get(entry + Short.BYTES + i)) - Byte.toUnsignedInt(key[i]);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - key.length;
+    }
+
+    private boolean startsWith(int entry, byte[] prefix) {
+        int length = buffer.getShort(entry);
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(entry + Short.BYTES + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Growable byte array with the few writers the file format needs.
+     */
+    private static final class ByteSink {
+
+        private byte[] bytes;
+        private int size;
+
+        ByteSink(int capacity) {
+            this.bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        void putVarint(int value) {
+            while ((value & ~0x7f) != 0) {
+                putByte((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            putByte(value);
+        }
+
+        void putShort(int value) {
+            putByte(value >>> 8);
+            putByte(value);
+        }
+
+        void putInt(int value) {
+            putShort(value >>> 16);
+            putShort(value);
+        }
+
+        void put(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, bytes, size, value.length);
+            size += value.length;
+        }
+
+        private void putByte(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
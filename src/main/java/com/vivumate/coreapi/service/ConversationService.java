@@ -1,7 +1,9 @@
 package com.vivumate.coreapi.service;
 
 import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.enums.ConversationType;
 import com.vivumate.coreapi.document.enums.JoinMethod;
+import com.vivumate.coreapi.document.projection.ConversationChanges;
 import org.bson.types.ObjectId;
 
 import java.time.Instant;
@@ -36,6 +38,20 @@ public interface ConversationService {
     List<ConversationDocument> getConversationList(Long userId, Instant cursorActivityAt,
                                                     ObjectId cursorId, int pageSize);
 
+    /**
+     * {@link #getConversationList} restricted to one conversation type (DMs vs groups);
+     * {@code type == null} is the full list.
+     */
+    List<ConversationDocument> getConversationList(Long userId, ConversationType type, Instant cursorActivityAt,
+                                                    ObjectId cursorId, int pageSize);
+
+    /**
+     * What changed in the user's conversation list after {@code since} (the {@code watermark}
+     * of the previous call): conversations to upsert and tombstones for those the user left,
+     * was removed from, cleared or that were dissolved.
+     */
+    ConversationChanges getConversationChanges(Long userId, Instant since);
+
     /**
      * Get a single conversation, ensuring the user has access.
      */
@@ -0,0 +1,36 @@
+package com.vivumate.coreapi.service;
+
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.projection.NewMessages;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Delta sync of a reconnecting device ({@code SYNC {lastSyncTimestamp}} → {@code SYNC_BATCH}).
+ * <p>
+ * Replaces "page the conversation list, then load messages per conversation" with a fixed
+ * number of round trips per chunk of conversations, independent of how many changed.
+ */
+public interface DeltaSyncService {
+
+    /**
+     * Everything {@code userId} missed since {@code since}, handed to {@code sink} in bounded
+     * chunks (newest activity first). Always emits at least one chunk; the last one has
+     * {@link SyncChunk#last()} set.
+     */
+    void sync(Long userId, Instant since, Consumer<SyncChunk> sink);
+
+    /**
+     * One bounded slice of a sync.
+     *
+     * @param conversations   conversations with activity after the watermark, live unread counts applied
+     * @param messages        their new messages, already filtered for the user (clearedAt, hidden)
+     * @param truncated       more conversations changed than one sync serves: reload the list instead
+     * @param serverTimestamp watermark for the next sync (identical in every chunk)
+     */
+    record SyncChunk(int index, boolean last, boolean truncated, Instant serverTimestamp,
+                     List<ConversationDocument> conversations, List<NewMessages> messages) {
+    }
+}
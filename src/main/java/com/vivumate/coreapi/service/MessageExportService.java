@@ -0,0 +1,35 @@
+package com.vivumate.coreapi.service;
+
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Full-history export of a conversation (compliance, user data export) as NDJSON:
+ * one {@link com.vivumate.coreapi.dto.response.MessageResponse} per line, oldest first.
+ */
+public interface MessageExportService {
+
+    /**
+     * Check access and resolve the user's visibility rules NOW (so errors are answered before
+     * any byte is streamed); the returned export reads MongoDB only when written.
+     */
+    ConversationExport prepareExport(ObjectId conversationId, Long userId);
+
+    /**
+     * A prepared export, written once to a (typically servlet) output stream.
+     */
+    @FunctionalInterface
+    interface ConversationExport {
+
+        /**
+         * Stream the history to {@code out}; blocks while the client is slower than MongoDB.
+         * Does not close {@code out}.
+         *
+         * @param gzip compress the NDJSON
+         * @return number of exported messages
+         */
+        long writeTo(OutputStream out, boolean gzip) throws IOException;
+    }
+}
@@ -1,13 +1,18 @@
 package com.vivumate.coreapi.service;
 
 import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.projection.MessageFeedItem;
+import com.vivumate.coreapi.document.projection.MessageWindow;
 import com.vivumate.coreapi.document.subdoc.MessageContent;
 import com.vivumate.coreapi.document.subdoc.Mention;
 import com.vivumate.coreapi.document.subdoc.ReplyToSnapshot;
 import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.search.SearchCursor;
+import com.vivumate.coreapi.search.SearchPage;
 import org.bson.types.ObjectId;
 
 import java.util.List;
+import java.util.Map;
 
 public interface MessageService {
 
@@ -20,9 +25,28 @@ public interface MessageService {
      * Side effects: update lastMessage, increment unread counts,
      * increment unread mentions (if applicable).
      */
+    default MessageDocument sendMessage(ObjectId conversationId, Long senderUserId,
+                                        ContentType contentType, MessageContent content,
+                                        List<Mention> mentions, ReplyToSnapshot replyTo) {
+        return sendMessage(conversationId, senderUserId, contentType, content, mentions, replyTo, null, null);
+    }
+
+    /**
+     * Same as above, sent from a client.
+     * <p>
+     * <b>Idempotent:</b> a retry with the same {@code clientMsgId} returns the ORIGINAL saved
+     * message without a second insert, unread increment or delivery.
+     * <p>
+     * The message is delivered in real time to every recipient session and to the sender's
+     * other sessions, but not echoed back to {@code originSessionId}.
+     *
+     * @param clientMsgId     client-generated idempotency key, nullable
+     * @param originSessionId STOMP session the send came from, nullable
+     */
     MessageDocument sendMessage(ObjectId conversationId, Long senderUserId,
                                 ContentType contentType, MessageContent content,
-                                List<Mention> mentions, ReplyToSnapshot replyTo);
+                                List<Mention> mentions, ReplyToSnapshot replyTo,
+                                String clientMsgId, String originSessionId);
 
     // ═══════════════════════════════════════════════════════════
     //  LOAD MESSAGES
@@ -36,11 +60,49 @@ public interface MessageService {
                                         ObjectId cursor, int pageSize);
 
     /**
-     * Full-text search within a conversation.
+     * Same page as {@link #loadMessages}, through the feed read path: projected and decoded
+     * straight into {@link MessageFeedItem}, without the full document graph.
+     */
+    List<MessageFeedItem> loadMessageFeed(ObjectId conversationId, Long currentUserId,
+                                          ObjectId cursor, int pageSize);
+
+    /**
+     * First page of several conversations at once (app start: the top of the conversation list).
+     * Same rules as {@link #loadMessages}; memberships and hidden messages are fetched in one
+     * query each, the pages concurrently.
+     *
+     * @return pages keyed by conversation, in request order; conversations the user cannot
+     *         access are omitted
+     */
+    Map<ObjectId, List<MessageDocument>> prefetchFirstPages(List<ObjectId> conversationIds, Long currentUserId,
+                                                            int pageSize);
+
+    /**
+     * Forward pagination: messages newer than {@code cursor}, oldest first.
+     * Same rules as {@link #loadMessages} (clearedAt, hidden and recalled messages).
+     */
+    List<MessageDocument> loadNewerMessages(ObjectId conversationId, Long currentUserId,
+                                            ObjectId cursor, int pageSize);
+
+    /**
+     * Jump to a message: up to {@code before} older and {@code after} newer messages around
+     * {@code anchorId}, plus the anchor itself when it is visible to the user. One request
+     * instead of paging backwards until the target shows up.
+     */
+    MessageWindow loadAround(ObjectId conversationId, Long currentUserId,
+                             ObjectId anchorId, int before, int after);
+
+    /**
+     * Full-text search within a conversation, through the configured
+     * {@link com.vivumate.coreapi.search.MessageSearchEngine}.
      * Respects user's clearedAt watermark.
+     * <p>
+     * Returns lightweight hits (snippet + match offsets) and a keyset cursor for the next page.
+     *
+     * @param cursor {@link SearchPage#next()} of the previous page, null for the first page
      */
-    List<MessageDocument> searchMessages(ObjectId conversationId, Long currentUserId,
-                                          String keyword, int pageSize);
+    SearchPage searchMessages(ObjectId conversationId, Long currentUserId,
+                              String keyword, SearchCursor cursor, int pageSize);
 
     // ═══════════════════════════════════════════════════════════
     //  EDIT & DELETE
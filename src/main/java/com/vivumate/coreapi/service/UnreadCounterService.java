@@ -0,0 +1,66 @@
+package com.vivumate.coreapi.service;
+
+import com.vivumate.coreapi.document.ConversationDocument;
+import org.bson.types.ObjectId;
+
+import java.util.List;
+
+/**
+ * Unread / unread-mention counters. Redis is the primary store; MongoDB
+ * ({@code unread_counts} / {@code unread_mentions}) is a periodically flushed copy.
+ */
+public interface UnreadCounterService {
+
+    // ═══════════════════════════════════════════════════════════
+    //  WRITE PATH
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * +1 unread for every recipient, +1 mention for every mentioned user.
+     */
+    void recordMessageSent(ObjectId conversationId, List<Long> recipientIds, List<Long> mentionedUserIds);
+
+    /**
+     * Undo {@link #recordMessageSent} (e.g. the message insert failed).
+     */
+    void revertMessageSent(ObjectId conversationId, List<Long> recipientIds, List<Long> mentionedUserIds);
+
+    /**
+     * Reset the user's counters of one conversation to 0 (mark as read, clear history).
+     */
+    void reset(ObjectId conversationId, Long userId);
+
+    /**
+     * Drop the counters of users who left / were removed from the conversation.
+     */
+    void remove(ObjectId conversationId, List<Long> userIds);
+
+    // ═══════════════════════════════════════════════════════════
+    //  READ PATH
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Overwrite the user's {@code unreadCounts} / {@code unreadMentions} entries of the given
+     * conversations with the live values from Redis (one pipelined round trip).
+     */
+    void applyLiveCounts(Long userId, List<ConversationDocument> conversations);
+
+    /**
+     * Total unread messages of the user across all conversations (the global badge), O(1).
+     */
+    long getTotalUnread(Long userId);
+
+    // ═══════════════════════════════════════════════════════════
+    //  BACKGROUND FLUSH
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Persist the deltas accumulated on this node since the last flush to MongoDB in bulk.
+     */
+    void flushPendingDeltas();
+
+    /**
+     * Recompute the totals of users who read their badge recently and correct any drift.
+     */
+    void reconcileTotals();
+}
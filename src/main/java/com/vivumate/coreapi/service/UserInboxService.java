@@ -0,0 +1,66 @@
+package com.vivumate.coreapi.service;
+
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.subdoc.LastMessagePreview;
+import com.vivumate.coreapi.document.subdoc.Participant;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Materialized per-user conversation list ({@code user_inbox}). Entries are always maintained;
+ * {@code vivumate.chat.inbox.enabled} only selects the read path — while disabled the list is
+ * served by the conversation pipeline.
+ * <p>
+ * Writers call the matching method right after the conversation document itself changed.
+ */
+public interface UserInboxService {
+
+    boolean isEnabled();
+
+    // ═══════════════════════════════════════════════════════════
+    //  READ PATH
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Same page as {@code ConversationRepository#findConversationsByUserId}: one covered scan of
+     * the user's visible entries, then one {@code _id} lookup of the page's conversations.
+     */
+    List<ConversationDocument> findConversationList(Long userId, Instant cursorActivityAt,
+                                                    ObjectId cursorId, int pageSize);
+
+    // ═══════════════════════════════════════════════════════════
+    //  WRITE PATH
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Create the entries of new members (conversation created, members added).
+     */
+    void addMembers(ConversationDocument conversation, List<Participant> participants);
+
+    void removeMembers(ObjectId conversationId, List<Long> userIds);
+
+    /**
+     * Drop every entry of a dissolved conversation.
+     */
+    void removeConversation(ObjectId conversationId);
+
+    void clearHistory(ObjectId conversationId, Long userId, Instant clearedAt);
+
+    void updateMuteStatus(ObjectId conversationId, Long userId, boolean muted, Instant mutedUntil);
+
+    /**
+     * Fan new last messages out to every member's entry (called wherever the conversation's
+     * guarded preview is written).
+     */
+    void applyLastMessages(Map<ObjectId, LastMessagePreview> previews);
+
+    /**
+     * @param counts conversationId → userId → {@code [count, mentions, version]} read from Redis
+     */
+    void applyUnreadCounts(Map<ObjectId, Map<Long, long[]>> counts);
+
+    void resetUnread(ObjectId conversationId, Long userId);
+}
@@ -1,5 +1,8 @@
 package com.vivumate.coreapi.service.impl;
 
+import com.vivumate.coreapi.cache.ConversationListCache;
+import com.vivumate.coreapi.cache.RecentMessagesCache;
+import com.vivumate.coreapi.cache.SenderSnapshotCache;
 import com.vivumate.coreapi.document.ConversationDocument;
 import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
 import com.vivumate.coreapi.repository.mongodb.MessageRepository;
@@ -23,6 +26,9 @@ public class ChatSyncServiceImpl implements ChatSyncService {
 
     private final MessageRepository messageRepository;
     private final ConversationRepository conversationRepository;
+    private final SenderSnapshotCache senderSnapshotCache;
+    private final RecentMessagesCache recentMessagesCache;
+    private final ConversationListCache conversationListCache;
 
     @Async
     public void syncUserProfileToMongoDB(Long userId, String fullName, String avatarUrl) {
@@ -40,6 +46,21 @@ public class ChatSyncServiceImpl implements ChatSyncService {
             long updatedMessages = messageRepository.updateSenderSnapshot(userId, fullName, avatarUrl, recentDays,
                     groupIds);
 
+            // Cached recent messages still carry the old sender snapshot
+            if (updatedMessages > 0) {
+                recentMessagesCache.invalidate(groupIds);
+            }
+
+            // Cached conversation lists still show the old avatar / sender name
+            if (updatedConversations > 0) {
+                conversationListCache.invalidate(conversationRepository.findIdsByUserId(userId).stream()
+                        .map(ConversationDocument::getId)
+                        .toList());
+            }
+
+            // Evict again once MongoDB is in sync: a send that raced the commit may have re-cached the old profile
+            senderSnapshotCache.invalidate(userId);
+
             log.info("Background sync completed for user {}. Updated {} conversations and {} recent group messages.",
                     userId, updatedConversations, updatedMessages);
 
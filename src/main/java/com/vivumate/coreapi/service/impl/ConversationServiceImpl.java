@@ -1,9 +1,16 @@
 package com.vivumate.coreapi.service.impl;
 
+import com.vivumate.coreapi.cache.ConversationListCache;
+import com.vivumate.coreapi.cache.ConversationMembership;
+import com.vivumate.coreapi.cache.ConversationMembershipCache;
 import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.ConversationTombstoneDocument;
 import com.vivumate.coreapi.document.enums.ConversationType;
 import com.vivumate.coreapi.document.enums.JoinMethod;
 import com.vivumate.coreapi.document.enums.ParticipantRole;
+import com.vivumate.coreapi.document.enums.RemovalReason;
+import com.vivumate.coreapi.document.projection.ConversationChanges;
+import com.vivumate.coreapi.document.projection.ConversationChanges.Removal;
 import com.vivumate.coreapi.document.subdoc.ConversationSettings;
 import com.vivumate.coreapi.document.subdoc.Participant;
 import com.vivumate.coreapi.dto.response.UserMiniResponse;
@@ -11,13 +18,18 @@ import com.vivumate.coreapi.exception.AppException;
 import com.vivumate.coreapi.exception.ErrorCode;
 import com.vivumate.coreapi.repository.UserRepository;
 import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import com.vivumate.coreapi.repository.mongodb.ConversationTombstoneRepository;
 import com.vivumate.coreapi.service.ConversationService;
+import com.vivumate.coreapi.service.UnreadCounterService;
+import com.vivumate.coreapi.service.UserInboxService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.types.ObjectId;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.function.Function;
@@ -31,6 +43,13 @@ import java.util.stream.Collectors;
  *   <li>All atomic checks (capacity, ownership) are embedded in repository query predicates</li>
  *   <li>Service checks {@code modifiedCount} from {@code UpdateResult} — never re-queries to verify</li>
  *   <li>This avoids TOCTOU (Time-of-Check to Time-of-Use) race conditions</li>
+ *   <li>Every write that changes members, roles, {@code clearedAt} or soft-deletes MUST
+ *       invalidate {@link ConversationMembershipCache}</li>
+ *   <li>Every write that changes members, {@code clearedAt}, mute state or soft-deletes MUST
+ *       be mirrored to {@link UserInboxService}</li>
+ *   <li>Every write that changes members, display fields, {@code clearedAt} or soft-deletes MUST
+ *       patch {@link ConversationListCache}</li>
+ *   <li>Every removal of a member MUST record a {@link ConversationTombstoneDocument}</li>
  * </ul>
  */
 @Service
@@ -40,9 +59,17 @@ public class ConversationServiceImpl implements ConversationService {
 
     private static final int MAX_GROUP_MEMBERS = 100;
     private static final int MIN_GROUP_MEMBERS = 3;
+    private static final int MAX_LIST_CHANGES = 200;
+    // Clock skew between nodes and coalesced lastActivityAt writes (same as delta sync)
+    private static final Duration CHANGES_OVERLAP = Duration.ofSeconds(5);
 
     private final ConversationRepository conversationRepository;
     private final UserRepository userRepository;
+    private final ConversationMembershipCache membershipCache;
+    private final UnreadCounterService unreadCounterService;
+    private final UserInboxService userInboxService;
+    private final ConversationListCache conversationListCache;
+    private final ConversationTombstoneRepository conversationTombstoneRepository;
 
     // ═══════════════════════════════════════════════════════════
     //  CREATE CONVERSATIONS
@@ -124,6 +151,8 @@ public class ConversationServiceImpl implements ConversationService {
                 .build();
 
         ConversationDocument saved = conversationRepository.save(conversation);
+        userInboxService.addMembers(saved, saved.getParticipants());
+        conversationListCache.addEntries(saved, saved.getParticipantIds());
 
         // TODO: Call MessageService to create System Message: "User X created the group"
 
@@ -139,7 +168,107 @@ public class ConversationServiceImpl implements ConversationService {
     @Override
     public List<ConversationDocument> getConversationList(Long userId, Instant cursorActivityAt,
                                                           ObjectId cursorId, int pageSize) {
-        return conversationRepository.findConversationsByUserId(userId, cursorActivityAt, cursorId, pageSize);
+        // First page: patched in place by events, recomputed only when missing or expired
+        List<ConversationDocument> conversations = cursorActivityAt == null && cursorId == null
+                ? conversationListCache.firstPage(userId, pageSize,
+                        limit -> findConversationList(userId, null, null, limit))
+                : findConversationList(userId, cursorActivityAt, cursorId, pageSize);
+
+        // Unread counters live in Redis; the copy in MongoDB lags by up to one flush interval
+        unreadCounterService.applyLiveCounts(userId, conversations);
+        return conversations;
+    }
+
+    @Override
+    public List<ConversationDocument> getConversationList(Long userId, ConversationType type, Instant cursorActivityAt,
+                                                          ObjectId cursorId, int pageSize) {
+        if (type == null) {
+            return getConversationList(userId, cursorActivityAt, cursorId, pageSize);
+        }
+
+        // Neither user_inbox nor the cached first page is partitioned by type: served by its own index
+        List<ConversationDocument> conversations = conversationRepository.findConversationsByUserIdAndType(
+                userId, type, cursorActivityAt, cursorId, pageSize);
+        unreadCounterService.applyLiveCounts(userId, conversations);
+        return conversations;
+    }
+
+    private List<ConversationDocument> findConversationList(Long userId, Instant cursorActivityAt,
+                                                            ObjectId cursorId, int pageSize) {
+        return userInboxService.isEnabled()
+                ? userInboxService.findConversationList(userId, cursorActivityAt, cursorId, pageSize)
+                : conversationRepository.findConversationsByUserId(userId, cursorActivityAt, cursorId, pageSize);
+    }
+
+    /**
+     * Two bounded index ranges and one tombstone range, each starting at {@code since}:
+     * <ol>
+     *   <li>{@code lastActivityAt > since} — {@code idx_user_conversations_latest} walked in reverse</li>
+     *   <li>{@code updatedAt > since}, activity unchanged — {@code idx_user_conversations_updated}</li>
+     *   <li>left / removed — {@code conversation_tombstones}</li>
+     * </ol>
+     * Dissolved conversations keep their members, so they come back from (1) or (2) and are
+     * turned into tombstones here, as are conversations the user cleared with nothing newer.
+     */
+    @Override
+    public ConversationChanges getConversationChanges(Long userId, Instant since) {
+        // Taken BEFORE the queries: a write landing while they run is sent again, never lost
+        Instant watermark = Instant.now().minus(CHANGES_OVERLAP);
+        if (since.isBefore(watermark.minus(ConversationTombstoneDocument.RETENTION))) {
+            // Removals that old have expired
+            return ConversationChanges.reload(watermark);
+        }
+
+        // One extra row per range tells us the delta is larger than one response serves
+        List<ConversationDocument> byActivity =
+                conversationRepository.findActivityChangesSince(userId, since, MAX_LIST_CHANGES + 1);
+        List<ConversationDocument> byUpdate =
+                conversationRepository.findMetadataChangesSince(userId, since, MAX_LIST_CHANGES + 1);
+        List<ConversationTombstoneDocument> tombstones = conversationTombstoneRepository
+                .findByUserIdAndRemovedAtGreaterThanOrderByRemovedAtAsc(userId, since, Limit.of(MAX_LIST_CHANGES + 1));
+        if (byActivity.size() + byUpdate.size() + tombstones.size() > MAX_LIST_CHANGES) {
+            return ConversationChanges.reload(watermark);
+        }
+
+        List<ConversationDocument> found = new ArrayList<>(byActivity);
+        found.addAll(byUpdate);
+        Map<ObjectId, ConversationMembership> memberships = membershipCache.getAll(found.stream()
+                .filter(conversation -> conversation.getDeletedAt() == null)
+                .map(ConversationDocument::getId)
+                .toList());
+
+        List<ConversationDocument> changed = new ArrayList<>();
+        Map<ObjectId, Removal> removed = new LinkedHashMap<>();
+        Set<ObjectId> foundIds = new HashSet<>();
+        for (ConversationDocument conversation : found) {
+            foundIds.add(conversation.getId());
+            if (conversation.getDeletedAt() != null) {
+                removed.put(conversation.getId(),
+                        new Removal(conversation.getId(), RemovalReason.DISSOLVED, conversation.getDeletedAt()));
+                continue;
+            }
+            // Same visibility rule as the list: hidden until activity newer than the clear
+            ConversationMembership membership = memberships.get(conversation.getId());
+            Instant clearedAt = membership != null ? membership.clearedAtOf(userId) : null;
+            if (clearedAt != null && !conversation.getLastActivityAt().isAfter(clearedAt)) {
+                removed.put(conversation.getId(), new Removal(conversation.getId(), RemovalReason.CLEARED, clearedAt));
+            } else {
+                changed.add(conversation);
+            }
+        }
+
+        for (ConversationTombstoneDocument tombstone : tombstones) {
+            // Re-added since: the conversation itself is in the delta and wins
+            if (!foundIds.contains(tombstone.getConversationId())) {
+                removed.put(tombstone.getConversationId(),
+                        new Removal(tombstone.getConversationId(), tombstone.getReason(), tombstone.getRemovedAt()));
+            }
+        }
+
+        unreadCounterService.applyLiveCounts(userId, changed);
+        log.debug("List changes: userId={}, since={}, changed={}, removed={}",
+                userId, since, changed.size(), removed.size());
+        return new ConversationChanges(changed, List.copyOf(removed.values()), false, watermark);
     }
 
     @Override
@@ -217,6 +346,11 @@ public class ConversationServiceImpl implements ConversationService {
         if (modified == 0) {
             throw new AppException(ErrorCode.CONVERSATION_MEMBER_LIMIT);
         }
+        membershipCache.invalidate(conversationId);
+        userInboxService.addMembers(conversation, newParticipants);
+        // Member count and avatars changed for everyone; new members get the entry
+        conversationListCache.invalidate(List.of(conversationId));
+        conversationListCache.addEntries(conversation, validIdsToAdd);
 
         log.info("Added {} members to group {}", validIdsToAdd.size(), conversationId);
 
@@ -226,15 +360,13 @@ public class ConversationServiceImpl implements ConversationService {
 
     @Override
     public void removeMembers(ObjectId conversationId, Long adminUserId, List<Long> inputMemberIds) {
-        ConversationDocument conversation = getConversationAndValidateGroup(conversationId, adminUserId);
-        validateAdminCanDeleteMembers(conversation, adminUserId);
+        ConversationMembership membership = getMembershipAndValidateGroup(conversationId, adminUserId);
+        validateAdminCanDeleteMembers(membership, adminUserId);
 
         // (Filter valid IDs (only remove people who are actually in the group))
-        Set<Long> existingIds = new HashSet<>(conversation.getParticipantIds());
-
         List<Long> validIdsToRemove = inputMemberIds.stream()
                 .distinct()
-                .filter(existingIds::contains)
+                .filter(membership::isMember)
                 .filter(id -> !id.equals(adminUserId))
                 .toList();
 
@@ -245,10 +377,17 @@ public class ConversationServiceImpl implements ConversationService {
 
         long modified = conversationRepository.removeParticipants(conversationId, validIdsToRemove)
                 .getModifiedCount();
+        membershipCache.invalidate(conversationId);
+        unreadCounterService.remove(conversationId, validIdsToRemove);
+        userInboxService.removeMembers(conversationId, validIdsToRemove);
+        conversationListCache.invalidate(List.of(conversationId));
+        conversationListCache.removeEntries(conversationId, validIdsToRemove);
 
         if (modified == 0) {
             throw new AppException(ErrorCode.PARTICIPANT_NOT_FOUND);
         }
+        conversationTombstoneRepository.insert(ConversationTombstoneDocument.of(
+                conversationId, validIdsToRemove, RemovalReason.REMOVED, Instant.now()));
 
         log.info("Members removed: conversationId={}, targetCount={}, removedBy={}",
                 conversationId, validIdsToRemove.size(), adminUserId);
@@ -258,26 +397,21 @@ public class ConversationServiceImpl implements ConversationService {
 
     @Override
     public void leaveGroup(ObjectId conversationId, Long userId, Long nextAdminId) {
-        ConversationDocument conversation = getConversationAndValidateGroup(conversationId, userId);
+        ConversationMembership membership = getMembershipAndValidateGroup(conversationId, userId);
 
         // check if the person wanting to leave is the Admin
-        boolean isAdmin = conversation.getParticipants().stream()
-                .anyMatch(p -> p.getUserId().equals(userId) && p.getRole() == ParticipantRole.ADMIN);
-
-        if (isAdmin) {
-            if(conversation.getMemberCount() > 1) {
+        if (membership.isAdmin(userId)) {
+            if(membership.memberCount() > 1) {
                 if(nextAdminId == null) {
                     throw new AppException(ErrorCode.MUST_TRANSFER_ADMIN_BEFORE_LEAVING);
                 }
 
-                boolean isNextAdminValid = conversation.getParticipants().stream()
-                        .anyMatch(p -> p.getUserId().equals(nextAdminId));
-
-                if (!isNextAdminValid || nextAdminId.equals(userId)) {
+                if (!membership.isMember(nextAdminId) || nextAdminId.equals(userId)) {
                     throw new AppException(ErrorCode.PARTICIPANT_INVALID);
                 }
 
                 conversationRepository.promoteToAdmin(conversationId, nextAdminId);
+                membershipCache.invalidate(conversationId);
                 log.info("Admin right transferred from {} to {} in group {}", userId, nextAdminId, conversationId);
             } else {
                 dissolveGroup(conversationId, userId);
@@ -287,10 +421,17 @@ public class ConversationServiceImpl implements ConversationService {
 
         long modified = conversationRepository.removeParticipants(conversationId, List.of(userId))
                 .getModifiedCount();
+        membershipCache.invalidate(conversationId);
+        unreadCounterService.remove(conversationId, List.of(userId));
+        userInboxService.removeMembers(conversationId, List.of(userId));
+        conversationListCache.invalidate(List.of(conversationId));
+        conversationListCache.removeEntries(conversationId, List.of(userId));
 
         if (modified == 0) {
             throw new AppException(ErrorCode.PARTICIPANT_NOT_FOUND);
         }
+        conversationTombstoneRepository.insert(ConversationTombstoneDocument.of(
+                conversationId, List.of(userId), RemovalReason.LEFT, Instant.now()));
 
         log.info("User left group: conversationId={}, userId={}", conversationId, userId);
 
@@ -317,6 +458,7 @@ public class ConversationServiceImpl implements ConversationService {
         if (modified == 0) {
             throw new AppException(ErrorCode.INTERNAL_SERVER_ERROR);
         }
+        conversationListCache.invalidate(List.of(conversationId));
 
         log.info("Group info updated: conversationId={}, updatedBy={}, newName={}, newAvatar={}",
                 conversationId, currentUserId, finalName, finalAvatar);
@@ -331,20 +473,25 @@ public class ConversationServiceImpl implements ConversationService {
 
     @Override
     public void clearHistory(ObjectId conversationId, Long userId) {
-        long modified = conversationRepository.updateClearedAt(conversationId, userId, Instant.now())
+        Instant clearedAt = Instant.now();
+        long modified = conversationRepository.updateClearedAt(conversationId, userId, clearedAt)
                 .getModifiedCount();
 
         if (modified == 0) {
             throw new AppException(ErrorCode.CONVERSATION_NOT_FOUND);
         }
+        membershipCache.invalidate(conversationId);
+        unreadCounterService.reset(conversationId, userId);
+        userInboxService.clearHistory(conversationId, userId, clearedAt);
+        conversationListCache.removeEntries(conversationId, List.of(userId));
 
         log.info("History cleared: conversationId={}, userId={}", conversationId, userId);
     }
 
     @Override
     public void dissolveGroup(ObjectId conversationId, Long adminUserId) {
-        ConversationDocument conversation = getConversationAndValidateGroup(conversationId, adminUserId);
-        validateAdminCanDissolveGroup(conversation, adminUserId);
+        ConversationMembership membership = getMembershipAndValidateGroup(conversationId, adminUserId);
+        validateAdminCanDissolveGroup(membership, adminUserId);
 
         long modified = conversationRepository.softDelete(conversationId)
                 .getModifiedCount();
@@ -352,6 +499,11 @@ public class ConversationServiceImpl implements ConversationService {
         if (modified == 0) {
             throw new AppException(ErrorCode.CONVERSATION_NOT_FOUND);
         }
+        membershipCache.invalidate(conversationId);
+        unreadCounterService.remove(conversationId, membership.memberIds());
+        userInboxService.removeConversation(conversationId);
+        conversationListCache.invalidate(List.of(conversationId));
+        conversationListCache.removeEntries(conversationId, membership.memberIds());
 
         log.info("Group dissolved: conversationId={}, by adminUserId={}", conversationId, adminUserId);
     }
@@ -382,6 +534,7 @@ public class ConversationServiceImpl implements ConversationService {
         if (modified == 0) {
             throw new AppException(ErrorCode.CONVERSATION_NOT_FOUND);
         }
+        userInboxService.updateMuteStatus(conversationId, userId, muted, mutedUntil);
 
         log.info("Mute updated: conversationId={}, userId={}, muted={}, mutedUntil={}",
                 conversationId, userId, muted, mutedUntil);
@@ -389,6 +542,7 @@ public class ConversationServiceImpl implements ConversationService {
 
     @Override
     public void markAsRead(ObjectId conversationId, Long userId) {
+        unreadCounterService.reset(conversationId, userId);
         conversationRepository.resetUnreadCount(conversationId, userId);
     }
 
@@ -407,6 +561,7 @@ public class ConversationServiceImpl implements ConversationService {
         String finalNickname = isRemoving ? null : nickname.trim();
 
         conversationRepository.updateNickname(conversationId, userId, finalNickname, fallbackFullName);
+        conversationListCache.invalidate(List.of(conversationId));
 
         log.info("Nickname updated: conversationId={}, targetUserId={}, newNickname={}",
                 conversationId, userId, finalNickname);
@@ -464,6 +619,8 @@ public class ConversationServiceImpl implements ConversationService {
                 .build();
 
         ConversationDocument saved = conversationRepository.save(conversation);
+        userInboxService.addMembers(saved, saved.getParticipants());
+        conversationListCache.addEntries(saved, saved.getParticipantIds());
         log.info("DM conversation created: id={}, between {} and {}", saved.getId(), currentUserId, otherUserId);
         return saved;
     }
@@ -479,6 +636,19 @@ public class ConversationServiceImpl implements ConversationService {
         return conversation;
     }
 
+    /**
+     * Get membership (from cache) and validate it's a GROUP type + user is a participant.
+     * Use instead of {@link #getConversationAndValidateGroup} when only members/roles are needed.
+     */
+    private ConversationMembership getMembershipAndValidateGroup(ObjectId conversationId, Long userId) {
+        ConversationMembership membership = membershipCache.getIfMember(conversationId, userId)
+                .orElseThrow(() -> new AppException(ErrorCode.CONVERSATION_NOT_FOUND));
+        if (!membership.isGroup()) {
+            throw new AppException(ErrorCode.CONVERSATION_NOT_GROUP);
+        }
+        return membership;
+    }
+
     /**
      * Validate that the user has ADMIN role in the conversation.
      */
@@ -494,11 +664,8 @@ public class ConversationServiceImpl implements ConversationService {
         }
     }
 
-    private void validateAdminCanDeleteMembers(ConversationDocument conversation, Long userId) {
-        boolean isAdmin = conversation.getParticipants().stream()
-                .anyMatch(p -> p.getUserId().equals(userId) && p.getRole() == ParticipantRole.ADMIN);
-
-        if (!isAdmin) {
+    private void validateAdminCanDeleteMembers(ConversationMembership membership, Long userId) {
+        if (!membership.isAdmin(userId)) {
             throw new AppException(ErrorCode.ONLY_ADMIN_CAN_DELETE_MEMBER);
         }
     }
@@ -516,11 +683,8 @@ public class ConversationServiceImpl implements ConversationService {
         }
     }
 
-    private void validateAdminCanDissolveGroup(ConversationDocument conversation, Long userId) {
-        boolean isAdmin = conversation.getParticipants().stream()
-                .anyMatch(p -> p.getUserId().equals(userId) && p.getRole() == ParticipantRole.ADMIN);
-
-        if (!isAdmin) {
+    private void validateAdminCanDissolveGroup(ConversationMembership membership, Long userId) {
+        if (!membership.isAdmin(userId)) {
             throw new AppException(ErrorCode.ONLY_ADMIN_CAN_DISSOLVE_GROUP);
         }
     }
@@ -2,6 +2,7 @@ package com.vivumate.coreapi.service.impl;
 
 import com.vivumate.coreapi.document.ConversationDocument;
 import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import com.vivumate.coreapi.repository.mongodb.HiddenMessagesRepository;
 import com.vivumate.coreapi.repository.mongodb.MessageRepository;
 import com.vivumate.coreapi.service.DataCleanupJobService;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +24,7 @@ public class DataCleanupJobServiceImpl implements DataCleanupJobService {
 
     private final ConversationRepository conversationRepository;
     private final MessageRepository messageRepository;
+    private final HiddenMessagesRepository hiddenMessagesRepository;
 
     // (Runs at 3:00 AM every day - when the Server has the lowest load)
     @Scheduled(cron = "0 0 3 * * ?")
@@ -51,7 +53,10 @@ public class DataCleanupJobServiceImpl implements DataCleanupJobService {
         // 2. TODO: Call MessageRepository to delete ALL messages belonging to these groups (Crucial to free up disk space!)
         // messageRepository.deleteAllByConversationIdIn(expiredGroupIds);
 
-        // 3. Call ConversationRepository to permanently delete those Groups
+        // 3. Drop the members' "delete for me" buckets of these groups
+        hiddenMessagesRepository.deleteAllByConversationIdIn(expiredGroupIds);
+
+        // 4. Call ConversationRepository to permanently delete those Groups
         conversationRepository.deleteAllByIdIn(expiredGroupIds);
 
         log.info("Nightly cleanup job completed successfully. Freed up storage for {} groups.", expiredGroupIds.size());
@@ -0,0 +1,151 @@
+package com.vivumate.coreapi.service.impl;
+
+import com.vivumate.coreapi.cache.ConversationMembershipCache;
+import com.vivumate.coreapi.cache.HiddenMessagesCache;
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.projection.NewMessages;
+import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import com.vivumate.coreapi.repository.mongodb.MessageRepository;
+import com.vivumate.coreapi.service.DeltaSyncService;
+import com.vivumate.coreapi.service.UnreadCounterService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reconnect sync in a constant number of round trips per chunk of {@code chunkSize} conversations:
+ * <ol>
+ *   <li>ONE conversation query: activity after the watermark ({@code idx_user_conversations_latest} range)</li>
+ *   <li>per chunk: ONE Redis pipeline (live unread counts), ONE {@code $in}-bounded message
+ *       aggregation (capped per conversation), ONE hidden-messages lookup for cache misses</li>
+ * </ol>
+ * Each chunk is handed to the sink as soon as it is built, so memory and frame size stay bounded
+ * by {@code chunkSize × messagesPerConversation} however long the device was offline.
+ * <p>
+ * <b>Watermark:</b> {@code serverTimestamp} is taken BEFORE the queries and moved back by
+ * {@code overlap}, so a message whose {@code _id} was minted on a node with a slightly late clock,
+ * or whose {@code lastActivityAt} write was coalesced, is re-sent by the next sync rather than lost.
+ * Clients de-duplicate by message ID; messages sent during the sync also arrive by live push.
+ */
+@Service
+@Slf4j(topic = "DELTA_SYNC")
+public class DeltaSyncServiceImpl implements DeltaSyncService {
+
+    private final ConversationRepository conversationRepository;
+    private final MessageRepository messageRepository;
+    private final ConversationMembershipCache membershipCache;
+    private final HiddenMessagesCache hiddenMessagesCache;
+    private final UnreadCounterService unreadCounterService;
+    private final Timer syncTimer;
+    private final int maxConversations;
+    private final int chunkSize;
+    private final int messagesPerConversation;
+    private final Duration overlap;
+
+    public DeltaSyncServiceImpl(ConversationRepository conversationRepository,
+                                MessageRepository messageRepository,
+                                ConversationMembershipCache membershipCache,
+                                HiddenMessagesCache hiddenMessagesCache,
+                                UnreadCounterService unreadCounterService,
+                                MeterRegistry meterRegistry,
+                                @Value("${vivumate.chat.sync.max-conversations:500}") int maxConversations,
+                                @Value("${vivumate.chat.sync.chunk-size:20}") int chunkSize,
+                                @Value("${vivumate.chat.sync.messages-per-conversation:50}") int messagesPerConversation,
+                                @Value("${vivumate.chat.sync.overlap:PT5S}") Duration overlap) {
+        this.conversationRepository = conversationRepository;
+        this.messageRepository = messageRepository;
+        this.membershipCache = membershipCache;
+        this.hiddenMessagesCache = hiddenMessagesCache;
+        this.unreadCounterService = unreadCounterService;
+        this.syncTimer = Timer.builder("vivumate.chat.sync.duration")
+                .description("Reconnect delta sync, all chunks")
+                .register(meterRegistry);
+        this.maxConversations = maxConversations;
+        this.chunkSize = chunkSize;
+        this.messagesPerConversation = messagesPerConversation;
+        this.overlap = overlap;
+    }
+
+    @Override
+    public void sync(Long userId, Instant since, Consumer<SyncChunk> sink) {
+        syncTimer.record(() -> doSync(userId, since, sink));
+    }
+
+    private void doSync(Long userId, Instant since, Consumer<SyncChunk> sink) {
+        Instant serverTimestamp = Instant.now().minus(overlap);
+
+        // One extra row tells us the delta is larger than one sync serves
+        List<ConversationDocument> changed =
+                conversationRepository.findConversationsActiveSince(userId, since, maxConversations + 1);
+        boolean truncated = changed.size() > maxConversations;
+        if (truncated) {
+            changed = changed.subList(0, maxConversations);
+        }
+
+        if (changed.isEmpty()) {
+            sink.accept(new SyncChunk(0, true, false, serverTimestamp, List.of(), List.of()));
+            return;
+        }
+
+        int chunks = (changed.size() + chunkSize - 1) / chunkSize;
+        for (int i = 0; i < chunks; i++) {
+            List<ConversationDocument> conversations =
+                    changed.subList(i * chunkSize, Math.min(changed.size(), (i + 1) * chunkSize));
+            sink.accept(new SyncChunk(i, i == chunks - 1, truncated, serverTimestamp,
+                    conversations, newMessages(userId, since, conversations)));
+        }
+
+        log.debug("Delta sync: userId={}, since={}, conversations={}, chunks={}, truncated={}",
+                userId, since, changed.size(), chunks, truncated);
+    }
+
+    /**
+     * Live unread counts and the user-visible new messages of one chunk.
+     */
+    private List<NewMessages> newMessages(Long userId, Instant since, List<ConversationDocument> conversations) {
+        unreadCounterService.applyLiveCounts(userId, conversations);
+
+        List<ObjectId> ids = conversations.stream().map(ConversationDocument::getId).toList();
+        List<NewMessages> found = messageRepository.findNewMessages(ids, since, messagesPerConversation);
+        if (found.isEmpty()) {
+            return found;
+        }
+
+        Map<ObjectId, HiddenMessages> hidden = hiddenMessagesCache.getAll(
+                found.stream().map(NewMessages::conversationId).toList(), userId);
+
+        return found.stream()
+                .map(delta -> visibleTo(userId, delta, hidden.getOrDefault(delta.conversationId(), HiddenMessages.NONE)))
+                .toList();
+    }
+
+    /**
+     * Apply the user's {@code clearedAt} watermark and hidden messages. Filtered messages are
+     * taken off {@code total}, so a gap larger than the cap is still reported but a filtered one is not.
+     */
+    private NewMessages visibleTo(Long userId, NewMessages delta, HiddenMessages hidden) {
+        Instant clearedAt = membershipCache.get(delta.conversationId())
+                .map(membership -> membership.clearedAtOf(userId))
+                .orElse(null);
+        ObjectId minId = clearedAt != null ? new ObjectId(Date.from(clearedAt)) : null;
+
+        List<MessageDocument> visible = delta.newestFirst().stream()
+                .filter(message -> minId == null || message.getId().compareTo(minId) > 0)
+                .filter(message -> !hidden.contains(message.getId()))
+                .toList();
+        return new NewMessages(delta.conversationId(), visible,
+                delta.total() - (delta.newestFirst().size() - visible.size()));
+    }
+}
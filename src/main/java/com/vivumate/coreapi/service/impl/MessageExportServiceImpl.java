@@ -0,0 +1,102 @@
+package com.vivumate.coreapi.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.vivumate.coreapi.cache.ConversationMembershipCache;
+import com.vivumate.coreapi.cache.HiddenMessagesCache;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.projection.MessageFeedItem;
+import com.vivumate.coreapi.dto.response.MessageResponse;
+import com.vivumate.coreapi.exception.AppException;
+import com.vivumate.coreapi.exception.ErrorCode;
+import com.vivumate.coreapi.mapper.MessageMapper;
+import com.vivumate.coreapi.repository.mongodb.MessageRepository;
+import com.vivumate.coreapi.service.MessageExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * NDJSON export with memory bounded by one cursor batch, whatever the history size:
+ * <ul>
+ *   <li><b>Read</b>: {@code streamHistory} walks {@code idx_conversation_messages_cursor} upwards
+ *       and decodes each projected document straight into a {@link MessageFeedItem}</li>
+ *   <li><b>Write</b>: each item is serialized into a small reusable buffer and dropped;
+ *       nothing is collected</li>
+ *   <li><b>Backpressure</b>: writes block when the client reads slower than MongoDB answers,
+ *       and the driver only sends the next {@code getMore} once the current batch is written</li>
+ * </ul>
+ * Visibility rules are those of the feed: the user's {@code clearedAt}, recalled and hidden messages.
+ */
+@Service
+@Slf4j(topic = "MESSAGE_EXPORT")
+public class MessageExportServiceImpl implements MessageExportService {
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final MessageRepository messageRepository;
+    private final ConversationMembershipCache membershipCache;
+    private final HiddenMessagesCache hiddenMessagesCache;
+    private final ObjectWriter lineWriter;
+    private final int batchSize;
+
+    public MessageExportServiceImpl(MessageRepository messageRepository,
+                                    ConversationMembershipCache membershipCache,
+                                    HiddenMessagesCache hiddenMessagesCache,
+                                    ObjectMapper objectMapper,
+                                    @Value("${vivumate.chat.export.batch-size:1000}") int batchSize) {
+        this.messageRepository = messageRepository;
+        this.membershipCache = membershipCache;
+        this.hiddenMessagesCache = hiddenMessagesCache;
+        this.lineWriter = objectMapper.writerFor(MessageResponse.class)
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET); // The caller owns the output stream
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public ConversationExport prepareExport(ObjectId conversationId, Long userId) {
+        Instant clearedAt = membershipCache.getIfMember(conversationId, userId)
+                .orElseThrow(() -> new AppException(ErrorCode.CONVERSATION_ACCESS_DENIED))
+                .clearedAtOf(userId);
+        HiddenMessages hidden = hiddenMessagesCache.get(conversationId, userId);
+
+        return (out, gzip) -> write(conversationId, userId, hidden, clearedAt, out, gzip);
+    }
+
+    private long write(ObjectId conversationId, Long userId, HiddenMessages hidden, Instant clearedAt,
+                       OutputStream out, boolean gzip) throws IOException {
+        long startNanos = System.nanoTime();
+        long exported = 0;
+
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, GZIP_BUFFER_SIZE) : null;
+        try (Stream<MessageFeedItem> history = messageRepository.streamHistory(
+                conversationId, hidden, clearedAt, batchSize);
+             SequenceWriter lines = lineWriter.writeValues(compressed != null ? compressed : out)) {
+
+            Iterator<MessageFeedItem> items = history.iterator();
+            while (items.hasNext()) {
+                lines.write(MessageMapper.toMessageResponse(items.next()));
+                exported++;
+            }
+            lines.flush();
+            if (compressed != null) {
+                compressed.finish(); // Trailer only — the servlet stream stays open
+            }
+        }
+
+        log.info("Conversation exported: conversationId={}, userId={}, messages={}, gzip={}, took={}ms",
+                conversationId, userId, exported, gzip, (System.nanoTime() - startNanos) / 1_000_000);
+        return exported;
+    }
+}
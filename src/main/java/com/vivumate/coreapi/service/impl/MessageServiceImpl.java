@@ -1,25 +1,61 @@
 package com.vivumate.coreapi.service.impl;
 
+import com.vivumate.coreapi.cache.ConversationListCache;
+import com.vivumate.coreapi.cache.ConversationMembership;
+import com.vivumate.coreapi.cache.ConversationMembershipCache;
+import com.vivumate.coreapi.cache.HiddenMessagesCache;
+import com.vivumate.coreapi.cache.MessageDedupCache;
+import com.vivumate.coreapi.cache.RecentMessagesCache;
+import com.vivumate.coreapi.cache.SenderSnapshotCache;
 import com.vivumate.coreapi.document.ConversationDocument;
 import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.projection.MessageFeedItem;
+import com.vivumate.coreapi.document.projection.MessageWindow;
+import com.vivumate.coreapi.document.projection.ScoredMessage;
 import com.vivumate.coreapi.document.enums.ContentType;
 import com.vivumate.coreapi.document.enums.MentionType;
 import com.vivumate.coreapi.document.subdoc.*;
 import com.vivumate.coreapi.dto.response.UserMiniResponse;
+import com.vivumate.coreapi.event.MessageSentEvent;
 import com.vivumate.coreapi.exception.AppException;
 import com.vivumate.coreapi.exception.ErrorCode;
 import com.vivumate.coreapi.repository.UserRepository;
 import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import com.vivumate.coreapi.repository.mongodb.HiddenMessagesRepository;
+import com.vivumate.coreapi.repository.mongodb.LastMessageWriter;
+import com.vivumate.coreapi.repository.mongodb.MessageGroupCommitWriter;
 import com.vivumate.coreapi.repository.mongodb.MessageRepository;
+import com.vivumate.coreapi.search.MessageSearchEngine;
+import com.vivumate.coreapi.search.SearchCursor;
+import com.vivumate.coreapi.search.SearchHighlighter;
+import com.vivumate.coreapi.search.SearchHit;
+import com.vivumate.coreapi.search.SearchPage;
+import com.vivumate.coreapi.search.SearchTokenizer;
 import com.vivumate.coreapi.service.MessageService;
+import com.vivumate.coreapi.service.UnreadCounterService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Business logic for message lifecycle (send, load, edit, recall).
@@ -29,8 +65,22 @@ import java.util.List;
  *   <li><b>Subset Pattern</b>: Every send/edit/recall that affects the last message
  *       MUST update {@code lastMessage} on the conversation</li>
  *   <li><b>Watermark Pattern</b>: Load/search always respect the user's {@code clearedAt}</li>
+ *   <li><b>Membership</b>: access checks and {@code clearedAt} come from {@link ConversationMembershipCache},
+ *       never from a full conversation fetch</li>
  *   <li><b>TOCTOU-free</b>: Ownership checks in repository predicates,
  *       service only reads {@code modifiedCount}</li>
+ *   <li><b>Two round trips per send</b>: independent reads run concurrently, then the
+ *       message insert runs concurrently with the lastMessage update and the Redis unread counters</li>
+ *   <li><b>Idempotent send</b>: a retried {@code clientMsgId} is answered from {@link MessageDedupCache},
+ *       or from the unique index when the retry misses the window</li>
+ *   <li><b>Recent messages</b>: first-page loads are served from {@link RecentMessagesCache};
+ *       every send / edit / recall updates it after the MongoDB write</li>
+ *   <li><b>Delete for me</b>: hidden IDs live in per-user {@code hidden_messages} buckets
+ *       ({@link HiddenMessagesCache}) and are filtered in memory, never in the feed query</li>
+ *   <li><b>Search</b>: delegated to the configured {@link MessageSearchEngine}, which is told about
+ *       every edit / recall like the recent-messages cache</li>
+ *   <li><b>Jump to message</b>: the window around an anchor is two range scans of the cursor
+ *       index (older / newer), run concurrently</li>
  * </ul>
  */
 @Service
@@ -39,10 +89,39 @@ import java.util.List;
 public class MessageServiceImpl implements MessageService {
 
     private static final int CONTENT_PREVIEW_MAX_LENGTH = 100;
+    private static final int MAX_PREFETCH_CONVERSATIONS = 20;
+
+    private static final String SEND_STAGE_METRIC = "vivumate.chat.send.stage";
+    private static final String STAGE_TAG = "stage";
+    private static final String STAGE_VALIDATE = "validate";
+    private static final String STAGE_SENDER_SNAPSHOT = "sender_snapshot";
+    private static final String STAGE_PERSIST = "persist";
+    private static final String STAGE_CONVERSATION_UPDATE = "conversation_update";
+    private static final String STAGE_UNREAD = "unread";
+    private static final String STAGE_RECENT_CACHE = "recent_cache";
+    private static final String STAGE_TOTAL = "total";
+
+    private static final String SEND_DEDUP_METRIC = "vivumate.chat.send.deduplicated";
+    private static final String DEDUP_SOURCE_CACHE = "cache";
+    private static final String DEDUP_SOURCE_INDEX = "index";
 
     private final MessageRepository messageRepository;
+    private final MessageGroupCommitWriter messageWriter;
+    private final LastMessageWriter lastMessageWriter;
     private final ConversationRepository conversationRepository;
     private final UserRepository userRepository;
+    private final SenderSnapshotCache senderSnapshotCache;
+    private final ConversationMembershipCache membershipCache;
+    private final UnreadCounterService unreadCounterService;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService chatIoExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MessageDedupCache dedupCache;
+    private final RecentMessagesCache recentMessages;
+    private final HiddenMessagesRepository hiddenMessagesRepository;
+    private final HiddenMessagesCache hiddenMessagesCache;
+    private final MessageSearchEngine messageSearchEngine;
+    private final ConversationListCache conversationListCache;
 
     // ═══════════════════════════════════════════════════════════
     //  SEND MESSAGE
@@ -51,51 +130,100 @@ public class MessageServiceImpl implements MessageService {
     @Override
     public MessageDocument sendMessage(ObjectId conversationId, Long senderUserId,
                                         ContentType contentType, MessageContent content,
-                                        List<Mention> mentions, ReplyToSnapshot replyTo) {
-        // 1. Validate the sender is a participant
-        ConversationDocument conversation = conversationRepository.findByIdAndParticipantId(conversationId, senderUserId)
-                .orElseThrow(() -> new AppException(ErrorCode.CONVERSATION_ACCESS_DENIED));
+                                        List<Mention> mentions, ReplyToSnapshot replyTo,
+                                        String clientMsgId, String originSessionId) {
+        long startNanos = System.nanoTime();
+
+        // ── Retry of a recent send: answer from the dedup window, no pipeline at all ──
+        if (clientMsgId != null) {
+            MessageDocument original = dedupCache.get(conversationId, clientMsgId);
+            if (original != null) {
+                dedupCounter(DEDUP_SOURCE_CACHE).increment();
+                return requireSameSender(original, senderUserId);
+            }
+        }
 
-        // 2. Build sender snapshot from PostgreSQL
+        // ── Round trip 1: validate membership (MongoDB) ‖ sender snapshot (PostgreSQL) ──
+        CompletableFuture<ConversationMembership> membershipFuture = CompletableFuture.supplyAsync(
+                () -> timeStage(STAGE_VALIDATE, () -> membershipCache.getIfMember(conversationId, senderUserId)
+                        .orElseThrow(() -> new AppException(ErrorCode.CONVERSATION_ACCESS_DENIED))),
+                chatIoExecutor);
         /*
         Nếu như tin nhắn này thuộc GROUP thì SenderSnapshot mới cần đủ thông tin (userId, username, full_name, avatar_url)
         Còn nếu là tin nhắn DIRECT thì lấy trực tiếp tại conversation đó luôn (lấy userId để biết ai gửi là được rồi)
          */
-        SenderSnapshot sender = buildSenderSnapshot(senderUserId);
+        CompletableFuture<SenderSnapshot> senderFuture = CompletableFuture.supplyAsync(
+                () -> timeStage(STAGE_SENDER_SNAPSHOT, () -> buildSenderSnapshot(senderUserId)),
+                chatIoExecutor);
+
+        ConversationMembership membership = join(membershipFuture);
+        SenderSnapshot sender = join(senderFuture);
 
-        // 3. Persist the message
+        // Assign _id and createdAt up-front so the preview can be built before the insert completes
+        Instant now = Instant.now();
         MessageDocument message = MessageDocument.builder()
                 .conversationId(conversationId)
+                .clientMsgId(clientMsgId)
                 .sender(sender)
                 .contentType(contentType)
                 .content(content)
                 .mentions(mentions != null ? mentions : Collections.emptyList())
                 .replyTo(replyTo)
                 .build();
-
-        MessageDocument saved = messageRepository.save(message);
-
-        // 4. Update lastMessage preview (Subset Pattern)
-        LastMessagePreview preview = buildLastMessagePreview(saved, sender);
-        conversationRepository.updateLastMessage(conversationId, preview);
-
-        // 5. Increment unread counts for all participants except sender
-        List<Long> recipientIds = conversation.getParticipantIds().stream()
-                .filter(id -> !id.equals(senderUserId))
-                .toList();
-        conversationRepository.incrementUnreadCounts(conversationId, recipientIds);
-
-        // 6. Increment unread mention counts (if applicable)
-        List<Long> mentionedUserIds = extractMentionedUserIds(mentions, conversation.getParticipantIds(), senderUserId);
-        if (!mentionedUserIds.isEmpty()) {
-            conversationRepository.incrementUnreadMentionsCounts(conversationId, mentionedUserIds);
+        message.setId(new ObjectId());
+        message.setCreatedAt(now);
+        message.setUpdatedAt(now);
+
+        LastMessagePreview preview = buildLastMessagePreview(message, sender);
+        List<Long> recipientIds = membership.memberIdsExcept(senderUserId);
+        List<Long> mentionedUserIds = extractMentionedUserIds(mentions, membership, senderUserId);
+
+        // ── Round trip 2: insert message ‖ lastMessage update (MongoDB) ‖ unread counters (one Redis pipeline) ──
+        CompletableFuture<MessageDocument> insertFuture = CompletableFuture.supplyAsync(
+                () -> timeStage(STAGE_PERSIST, () -> messageWriter.insert(message)),
+                chatIoExecutor);
+        CompletableFuture<Void> lastMessageFuture = CompletableFuture.runAsync(
+                () -> timeStageRun(STAGE_CONVERSATION_UPDATE,
+                        () -> lastMessageWriter.submit(conversationId, preview)),
+                chatIoExecutor);
+        CompletableFuture<Void> unreadFuture = CompletableFuture.runAsync(
+                () -> timeStageRun(STAGE_UNREAD,
+                        () -> unreadCounterService.recordMessageSent(conversationId, recipientIds, mentionedUserIds)),
+                chatIoExecutor);
+
+        MessageDocument saved;
+        try {
+            saved = join(insertFuture);
+        } catch (RuntimeException e) {
+            compensateFailedInsert(conversationId, message.getId(), lastMessageFuture, unreadFuture,
+                    recipientIds, mentionedUserIds);
+            if (clientMsgId != null && e instanceof DuplicateKeyException) {
+                // Retry that missed the dedup window (other node / in flight): the index kept it unique
+                return findOriginalSend(conversationId, clientMsgId, senderUserId);
+            }
+            throw e;
+        }
+        dedupCache.put(saved);
+        CompletableFuture<Void> recentFuture = CompletableFuture.runAsync(
+                () -> timeStageRun(STAGE_RECENT_CACHE, () -> recentMessages.onSent(saved)),
+                chatIoExecutor);
+
+        try {
+            join(CompletableFuture.allOf(lastMessageFuture, unreadFuture, recentFuture));
+        } catch (RuntimeException e) {
+            // The message itself is durable — a stale preview/unread count is recoverable, a lost message is not
+            log.error("Conversation update failed after message insert: messageId={}, conversationId={}",
+                    saved.getId(), conversationId, e);
         }
 
+        meterRegistry.timer(SEND_STAGE_METRIC, STAGE_TAG, STAGE_TOTAL)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+
         log.info("Message sent: id={}, conversationId={}, sender={}, type={}",
                 saved.getId(), conversationId, senderUserId, contentType);
 
-        // TODO: Publish event for real-time delivery (WebSocket/Push Notification)
-        // eventPublisher.publishEvent(new MessageSentEvent(saved, recipientIds));
+        // Real-time delivery (WebSocket) — push notifications will subscribe to the same event
+        eventPublisher.publishEvent(new MessageSentEvent(saved, recipientIds, originSessionId, startNanos));
 
         return saved;
     }
@@ -107,20 +235,139 @@ public class MessageServiceImpl implements MessageService {
     @Override
     public List<MessageDocument> loadMessages(ObjectId conversationId, Long currentUserId,
                                                ObjectId cursor, int pageSize) {
-        // 1. Get the user's clearedAt watermark
+        // 1. Get the user's clearedAt watermark and the messages they deleted for themselves
         Instant clearedAt = getClearedAt(conversationId, currentUserId);
+        HiddenMessages hidden = hiddenMessagesCache.get(conversationId, currentUserId);
+
+        // 2. First page (opening a conversation): served from the recent-messages ring when it can answer
+        if (cursor == null) {
+            Optional<List<MessageDocument>> recent = recentMessages.firstPage(
+                    conversationId, hidden, clearedAt, pageSize);
+            if (recent.isPresent()) {
+                return recent.get();
+            }
+        }
 
-        // 2. Delegate to repository with clearedAt as lower bound
+        // 3. Delegate to repository with clearedAt as lower bound
         return messageRepository.findMessagesByConversation(
-                conversationId, currentUserId, cursor, clearedAt, pageSize
+                conversationId, hidden, cursor, clearedAt, pageSize
         );
     }
 
     @Override
-    public List<MessageDocument> searchMessages(ObjectId conversationId, Long currentUserId,
-                                                 String keyword, int pageSize) {
+    public List<MessageFeedItem> loadMessageFeed(ObjectId conversationId, Long currentUserId,
+                                                 ObjectId cursor, int pageSize) {
         Instant clearedAt = getClearedAt(conversationId, currentUserId);
-        return messageRepository.searchMessages(conversationId, currentUserId, clearedAt, keyword, pageSize);
+        HiddenMessages hidden = hiddenMessagesCache.get(conversationId, currentUserId);
+
+        if (cursor == null) {
+            Optional<List<MessageDocument>> recent = recentMessages.firstPage(
+                    conversationId, hidden, clearedAt, pageSize);
+            if (recent.isPresent()) {
+                return recent.get().stream().map(MessageFeedItem::from).toList();
+            }
+        }
+
+        try (Stream<MessageFeedItem> feed = messageRepository.streamFeed(
+                conversationId, hidden, cursor, clearedAt, pageSize)) {
+            return feed.toList();
+        }
+    }
+
+    @Override
+    public Map<ObjectId, List<MessageDocument>> prefetchFirstPages(List<ObjectId> conversationIds,
+                                                                   Long currentUserId, int pageSize) {
+        if (conversationIds.size() > MAX_PREFETCH_CONVERSATIONS) {
+            throw new AppException(ErrorCode.INVALID_INPUT);
+        }
+        List<ObjectId> distinctIds = conversationIds.stream().distinct().toList();
+
+        // 1. Access + clearedAt of every conversation, then the hidden sets: at most one query each
+        Map<ObjectId, ConversationMembership> memberships = membershipCache.getAll(distinctIds);
+        List<ObjectId> accessible = distinctIds.stream()
+                .filter(id -> memberships.containsKey(id) && memberships.get(id).isMember(currentUserId))
+                .toList();
+        if (accessible.isEmpty()) {
+            return Map.of();
+        }
+        Map<ObjectId, HiddenMessages> hidden = hiddenMessagesCache.getAll(accessible, currentUserId);
+
+        // 2. One first page per conversation, concurrently (ring cache, else one bounded index scan)
+        Map<ObjectId, CompletableFuture<List<MessageDocument>>> pages = new LinkedHashMap<>();
+        for (ObjectId conversationId : accessible) {
+            Instant clearedAt = memberships.get(conversationId).clearedAtOf(currentUserId);
+            HiddenMessages hiddenInConversation = hidden.getOrDefault(conversationId, HiddenMessages.NONE);
+            pages.put(conversationId, CompletableFuture.supplyAsync(
+                    () -> recentMessages.firstPage(conversationId, hiddenInConversation, clearedAt, pageSize)
+                            .orElseGet(() -> messageRepository.findMessagesByConversation(
+                                    conversationId, hiddenInConversation, null, clearedAt, pageSize)),
+                    chatIoExecutor));
+        }
+
+        Map<ObjectId, List<MessageDocument>> result = new LinkedHashMap<>();
+        pages.forEach((conversationId, page) -> result.put(conversationId, join(page)));
+        return result;
+    }
+
+    @Override
+    public List<MessageDocument> loadNewerMessages(ObjectId conversationId, Long currentUserId,
+                                                   ObjectId cursor, int pageSize) {
+        Instant clearedAt = getClearedAt(conversationId, currentUserId);
+        HiddenMessages hidden = hiddenMessagesCache.get(conversationId, currentUserId);
+        return messageRepository.findMessagesAfter(conversationId, hidden, cursor, false, clearedAt, pageSize);
+    }
+
+    @Override
+    public MessageWindow loadAround(ObjectId conversationId, Long currentUserId,
+                                    ObjectId anchorId, int before, int after) {
+        if (before < 0 || after < 0) {
+            throw new AppException(ErrorCode.INVALID_INPUT);
+        }
+        Instant clearedAt = getClearedAt(conversationId, currentUserId);
+        HiddenMessages hidden = hiddenMessagesCache.get(conversationId, currentUserId);
+
+        // Two range scans of idx_conversation_messages_cursor from the anchor, in parallel.
+        // One extra row each tells whether the client can keep paging in that direction.
+        CompletableFuture<List<MessageDocument>> olderFuture = CompletableFuture.supplyAsync(
+                () -> messageRepository.findMessagesByConversation(
+                        conversationId, hidden, anchorId, clearedAt, before + 1),
+                chatIoExecutor);
+        CompletableFuture<List<MessageDocument>> newerFuture = CompletableFuture.supplyAsync(
+                () -> messageRepository.findMessagesAfter(
+                        conversationId, hidden, anchorId, true, clearedAt, after + 2),
+                chatIoExecutor);
+
+        List<MessageDocument> older = join(olderFuture);
+        List<MessageDocument> newer = join(newerFuture);
+
+        // The inclusive scan starts with the anchor when it is visible; it does not count toward "after"
+        boolean anchorVisible = !newer.isEmpty() && newer.getFirst().getId().equals(anchorId);
+        int newerLimit = after + (anchorVisible ? 1 : 0);
+
+        List<MessageDocument> window = new ArrayList<>(before + newerLimit);
+        window.addAll(newer.subList(0, Math.min(newer.size(), newerLimit)).reversed());
+        window.addAll(older.subList(0, Math.min(older.size(), before)));
+
+        return new MessageWindow(window, older.size() > before, newer.size() > newerLimit);
+    }
+
+    @Override
+    public SearchPage searchMessages(ObjectId conversationId, Long currentUserId,
+                                     String keyword, SearchCursor cursor, int pageSize) {
+        Instant clearedAt = getClearedAt(conversationId, currentUserId);
+        HiddenMessages hidden = hiddenMessagesCache.get(conversationId, currentUserId);
+
+        // One extra hit tells whether a next page exists
+        List<ScoredMessage> matches = messageSearchEngine.search(
+                conversationId, hidden, clearedAt, keyword, cursor, pageSize + 1);
+        boolean hasMore = matches.size() > pageSize;
+        List<ScoredMessage> page = hasMore ? matches.subList(0, pageSize) : matches;
+
+        List<String> tokens = SearchTokenizer.tokenize(keyword);
+        List<SearchHit> hits = page.stream()
+                .map(match -> SearchHighlighter.highlight(match.message(), tokens))
+                .toList();
+        return new SearchPage(hits, hasMore ? SearchCursor.after(page.getLast()) : null);
     }
 
     // ═══════════════════════════════════════════════════════════
@@ -131,7 +378,8 @@ public class MessageServiceImpl implements MessageService {
     public void editMessage(ObjectId conversationId, ObjectId messageId,
                             Long senderUserId, MessageContent newContent) {
         // 1. Fetch the current message to build edit history
-        MessageDocument originalMessage = messageRepository.findActiveByIdAndUserId(messageId, senderUserId)
+        MessageDocument originalMessage = messageRepository.findActiveById(messageId)
+                .filter(message -> !hiddenMessagesCache.get(conversationId, senderUserId).contains(messageId))
                 .orElseThrow(() -> new AppException(ErrorCode.MESSAGE_NOT_FOUND));
 
         // 2. Build edit history entry from the OLD content
@@ -149,7 +397,10 @@ public class MessageServiceImpl implements MessageService {
         }
 
         // 4. If this message is the conversation's lastMessage, update the preview
+        //    (flush a coalesced preview first, so it cannot land on top of the edit)
+        lastMessageWriter.flush(conversationId);
         updateLastMessageIfNeeded(conversationId, messageId, senderUserId, newContent);
+        refreshMessageViews(messageId);
 
         log.info("Message edited: id={}, conversationId={}, by={}", messageId, conversationId, senderUserId);
     }
@@ -169,7 +420,10 @@ public class MessageServiceImpl implements MessageService {
         }
 
         // 2. If the recalled message IS the lastMessage, replace with penultimate
+        //    (flush a coalesced preview first, so it cannot land on top of the replacement)
+        lastMessageWriter.flush(conversationId);
         replaceLastMessageIfNeeded(conversationId, messageId);
+        refreshMessageViews(messageId);
 
         log.info("Message recalled: id={}, conversationId={}, by={}", messageId, conversationId, senderUserId);
     }
@@ -180,12 +434,16 @@ public class MessageServiceImpl implements MessageService {
 
     @Override
     public void deleteForMe(ObjectId messageId, Long userId) {
-        long modified = messageRepository.deleteForUser(messageId, userId)
-                .getModifiedCount();
+        // 1. Resolve the conversation; only its members may hide its messages
+        ObjectId conversationId = messageRepository.findById(messageId)
+                .map(MessageDocument::getConversationId)
+                .filter(convId -> membershipCache.getIfMember(convId, userId).isPresent())
+                .orElseThrow(() -> new AppException(ErrorCode.MESSAGE_NOT_FOUND));
 
-        if (modified == 0) {
-            throw new AppException(ErrorCode.MESSAGE_NOT_FOUND);
-        }
+        // 2. Add it to the user's bucket — the message document itself is not touched,
+        //    so the shared recent-messages ring needs no update
+        hiddenMessagesRepository.hide(userId, conversationId, messageId);
+        hiddenMessagesCache.invalidate(conversationId, userId);
 
         log.debug("Message deleted for user: messageId={}, userId={}", messageId, userId);
     }
@@ -195,9 +453,16 @@ public class MessageServiceImpl implements MessageService {
     // ═══════════════════════════════════════════════════════════
 
     /**
-     * Build a sender snapshot from PostgreSQL user data.
+     * Build a sender snapshot, served from the L1 cache when possible.
      */
     private SenderSnapshot buildSenderSnapshot(Long userId) {
+        return senderSnapshotCache.get(userId, this::loadSenderSnapshot);
+    }
+
+    /**
+     * Load a sender snapshot from PostgreSQL user data (cache miss path).
+     */
+    private SenderSnapshot loadSenderSnapshot(Long userId) {
         List<UserMiniResponse> users = userRepository.findChatMembersByIds(List.of(userId));
         if (users.isEmpty()) {
             throw new AppException(ErrorCode.USER_NOT_FOUND);
@@ -282,6 +547,7 @@ public class MessageServiceImpl implements MessageService {
                     .build();
 
             conversationRepository.updateLastMessage(conversationId, updated);
+            conversationListCache.invalidate(List.of(conversationId));
             log.debug("LastMessage preview updated after edit: conversationId={}, messageId={}", conversationId, messageId);
         }
     }
@@ -306,6 +572,7 @@ public class MessageServiceImpl implements MessageService {
                             SenderSnapshot sender = penultimate.getSender();
                             LastMessagePreview newPreview = buildLastMessagePreview(penultimate, sender);
                             conversationRepository.updateLastMessage(conversationId, newPreview);
+                            conversationListCache.invalidateLists(conversationId, conversation.getParticipantIds());
                             log.debug("LastMessage replaced with penultimate: conversationId={}", conversationId);
                         },
                         () -> {
@@ -316,11 +583,118 @@ public class MessageServiceImpl implements MessageService {
                                             .contentType(ContentType.SYSTEM)
                                             .sentAt(Instant.now())
                                             .build());
+                            conversationListCache.invalidateLists(conversationId, conversation.getParticipantIds());
                             log.debug("No messages left, lastMessage cleared: conversationId={}", conversationId);
                         }
                 );
     }
 
+    /**
+     * Push the current state of a modified message into the recent-messages ring and the
+     * search engine. Re-read from MongoDB (by _id) so concurrent edits / deletions of the same
+     * message cannot be lost in the cached copy.
+     */
+    private void refreshMessageViews(ObjectId messageId) {
+        messageRepository.findById(messageId).ifPresent(message -> {
+            recentMessages.onUpdated(message);
+            messageSearchEngine.onUpdated(message);
+        });
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  PRIVATE HELPERS — Send pipeline
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Undo the conversation-side effects of a send whose message insert failed.
+     * Waits for each concurrent update first, so the revert cannot race it.
+     */
+    private void compensateFailedInsert(ObjectId conversationId, ObjectId messageId,
+                                        CompletableFuture<Void> lastMessageFuture,
+                                        CompletableFuture<Void> unreadFuture,
+                                        List<Long> recipientIds, List<Long> mentionedUserIds) {
+        if (completedNormally(unreadFuture)) {
+            try {
+                unreadCounterService.revertMessageSent(conversationId, recipientIds, mentionedUserIds);
+            } catch (RuntimeException e) {
+                log.error("Failed to revert unread counters after message insert failure: conversationId={}, messageId={}",
+                        conversationId, messageId, e);
+            }
+        }
+
+        if (completedNormally(lastMessageFuture)) {
+            try {
+                lastMessageWriter.cancel(conversationId, messageId);
+                replaceLastMessageIfNeeded(conversationId, messageId);
+            } catch (RuntimeException e) {
+                log.error("Failed to restore lastMessage after message insert failure: conversationId={}, messageId={}",
+                        conversationId, messageId, e);
+            }
+        }
+    }
+
+    /**
+     * Load the message a duplicate {@code clientMsgId} insert collided with.
+     */
+    private MessageDocument findOriginalSend(ObjectId conversationId, String clientMsgId, Long senderUserId) {
+        MessageDocument original = messageRepository.findByConversationIdAndClientMsgId(conversationId, clientMsgId)
+                .orElseThrow(() -> new AppException(ErrorCode.MESSAGE_CLIENT_ID_CONFLICT));
+        dedupCounter(DEDUP_SOURCE_INDEX).increment();
+        dedupCache.put(original);
+        log.info("Duplicate send resolved: id={}, conversationId={}, clientMsgId={}",
+                original.getId(), conversationId, clientMsgId);
+        return requireSameSender(original, senderUserId);
+    }
+
+    /**
+     * A clientMsgId only identifies a retry of the SAME sender; anything else is a collision.
+     */
+    private static MessageDocument requireSameSender(MessageDocument original, Long senderUserId) {
+        if (!senderUserId.equals(original.getSender().getUserId())) {
+            throw new AppException(ErrorCode.MESSAGE_CLIENT_ID_CONFLICT);
+        }
+        return original;
+    }
+
+    private Counter dedupCounter(String source) {
+        return meterRegistry.counter(SEND_DEDUP_METRIC, "source", source);
+    }
+
+    private static boolean completedNormally(CompletableFuture<?> future) {
+        try {
+            join(future);
+            return true;
+        } catch (RuntimeException e) {
+            return false; // Never applied — nothing to undo
+        }
+    }
+
+    /**
+     * Run one stage of the send pipeline and record its latency under {@code vivumate.chat.send.stage}.
+     */
+    private <T> T timeStage(String stage, Supplier<T> action) {
+        return meterRegistry.timer(SEND_STAGE_METRIC, STAGE_TAG, stage).record(action);
+    }
+
+    private void timeStageRun(String stage, Runnable action) {
+        meterRegistry.timer(SEND_STAGE_METRIC, STAGE_TAG, stage).record(action);
+    }
+
+    /**
+     * Join a future, unwrapping the {@link CompletionException} so callers
+     * (and the global exception handler) see the original {@link AppException}.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
     // ═══════════════════════════════════════════════════════════
     //  PRIVATE HELPERS — Mentions
     // ═══════════════════════════════════════════════════════════
@@ -329,7 +703,8 @@ public class MessageServiceImpl implements MessageService {
      * Extract user IDs that should have their unread mention count incremented.
      * Handles EVERYONE mentions (all participants except sender).
      */
-    private List<Long> extractMentionedUserIds(List<Mention> mentions, List<Long> participantIds, Long senderUserId) {
+    private List<Long> extractMentionedUserIds(List<Mention> mentions, ConversationMembership membership,
+                                               Long senderUserId) {
         if (mentions == null || mentions.isEmpty()) {
             return Collections.emptyList();
         }
@@ -339,16 +714,15 @@ public class MessageServiceImpl implements MessageService {
 
         if (hasEveryoneMention) {
             // @everyone: all participants except sender
-            return participantIds.stream()
-                    .filter(id -> !id.equals(senderUserId))
-                    .toList();
+            return membership.memberIdsExcept(senderUserId);
         }
 
-        // Individual @user mentions (excluding sender)
+        // Individual @user mentions (excluding sender and non-members)
         return mentions.stream()
                 .filter(m -> m.getType() == MentionType.USER && m.getUserId() != null)
                 .map(Mention::getUserId)
                 .filter(id -> !id.equals(senderUserId))
+                .filter(membership::isMember)
                 .distinct()
                 .toList();
     }
@@ -358,17 +732,15 @@ public class MessageServiceImpl implements MessageService {
     // ═══════════════════════════════════════════════════════════
 
     /**
-     * Get the clearedAt timestamp for the current user from the conversation's participant list.
+     * Get the clearedAt timestamp for the current user from the membership cache.
      * Returns null if the user has never cleared history.
+     * <p>
+     * No conversation read on a hit, so a history page costs one MongoDB query; a miss loads the
+     * narrow membership projection once for every member. {@code clearHistory} invalidates it.
      */
     private Instant getClearedAt(ObjectId conversationId, Long userId) {
-        ConversationDocument conversation = conversationRepository.findByIdAndParticipantId(conversationId, userId)
-                .orElseThrow(() -> new AppException(ErrorCode.CONVERSATION_ACCESS_DENIED));
-
-        return conversation.getParticipants().stream()
-                .filter(p -> p.getUserId().equals(userId))
-                .findFirst()
-                .map(Participant::getClearedAt)
-                .orElse(null);
+        return membershipCache.getIfMember(conversationId, userId)
+                .orElseThrow(() -> new AppException(ErrorCode.CONVERSATION_ACCESS_DENIED))
+                .clearedAtOf(userId);
     }
 }
@@ -0,0 +1,387 @@
+package com.vivumate.coreapi.service.impl;
+
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import com.vivumate.coreapi.repository.redis.UnreadCounterRedisRepository;
+import com.vivumate.coreapi.service.UnreadCounterService;
+import com.vivumate.coreapi.service.UserInboxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.DistributionSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Redis-first unread counters with a coalesced write-behind to MongoDB.
+ * <p>
+ * <b>Write path:</b> every send does ONE Redis script round trip and marks the (conversation,
+ * user) pairs it touched as dirty in an in-memory set. The conversation document is no longer
+ * rewritten per message for unread counts.
+ * <p>
+ * <b>Flush:</b> every {@code vivumate.chat.unread.flush-interval-ms}, the dirty pairs of this
+ * node are drained, their current counters read from Redis in one pipeline and copied with ONE
+ * unordered bulk write — 50 messages to a 100-member group become 1 update instead of 50.
+ * <p>
+ * <b>Consistency:</b> Redis is authoritative. The MongoDB copy is an absolute value stamped with
+ * the Redis counter's version and only overwritten by a newer one, so it converges whatever the
+ * order of flushes across nodes: a batch drained before a reset, or a reset handled on another
+ * node, can no longer re-add counts the user has read, and retrying a write is harmless. It lags
+ * by at most one flush interval; a crash loses at most the dirty marks of this node, repaired by
+ * the pair's next change.
+ * <p>
+ * <b>First touch:</b> (user, conversation) pairs from before Redis became primary have only a
+ * MongoDB count. The first write to such a pair copies that count into Redis before applying
+ * its change, and the first read copies it lazily, so a counter never restarts from 0 and the
+ * two stores move together from then on.
+ * <p>
+ * <b>Total (badge):</b> {@code unread:total:{userId}} moves with every counter change in the
+ * same Redis script, so reading it is O(1) and exact. Users who read their badge are
+ * reconciled at most once per {@code reconcile-period}: their conversations are streamed from
+ * MongoDB and the total is recomputed atomically from the counters, correcting drift from
+ * partial failures. A total is only ever created by that recomputation, never by a write.
+ */
+@Service
+@Slf4j(topic = "UNREAD_COUNTER_SERVICE")
+public class UnreadCounterServiceImpl implements UnreadCounterService {
+
+    private static final int COUNT = 0;
+    private static final int MENTIONS = 1;
+
+    private final UnreadCounterRedisRepository unreadRedisRepository;
+    private final ConversationRepository conversationRepository;
+    private final UserInboxService userInboxService;
+    private final Counter flushedPairsCounter;
+    private final Counter flushedConversationsCounter;
+    private final Counter exactTotalsCounter;
+    private final Counter correctedTotalsCounter;
+    private final DistributionSummary totalDrift;
+    private final Duration reconcilePeriod;
+    private final int reconcileBatchSize;
+
+    /**
+     * conversationId → users whose counter changed since the last flush on this node.
+     * Inner sets are only mutated inside {@code compute*} of the outer map (atomic per conversation).
+     */
+    private final ConcurrentHashMap<ObjectId, Set<Long>> dirtyPairs = new ConcurrentHashMap<>();
+
+    /** Users who read their badge since the last reconciliation run on this node. */
+    private final Set<Long> reconcileCandidates = ConcurrentHashMap.newKeySet();
+
+    public UnreadCounterServiceImpl(UnreadCounterRedisRepository unreadRedisRepository,
+                                    ConversationRepository conversationRepository,
+                                    UserInboxService userInboxService,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${vivumate.chat.unread.reconcile-period:PT1H}") Duration reconcilePeriod,
+                                    @Value("${vivumate.chat.unread.reconcile-batch-size:200}") int reconcileBatchSize) {
+        this.unreadRedisRepository = unreadRedisRepository;
+        this.conversationRepository = conversationRepository;
+        this.userInboxService = userInboxService;
+        this.flushedPairsCounter = Counter.builder("vivumate.chat.unread.flush.deltas")
+                .description("Per-user unread counters copied to MongoDB")
+                .register(meterRegistry);
+        this.flushedConversationsCounter = Counter.builder("vivumate.chat.unread.flush.conversations")
+                .description("Conversation documents updated by the unread flusher")
+                .register(meterRegistry);
+        this.exactTotalsCounter = reconciledCounter(meterRegistry, "exact");
+        this.correctedTotalsCounter = reconciledCounter(meterRegistry, "corrected");
+        this.totalDrift = DistributionSummary.builder("vivumate.chat.unread.total.drift")
+                .description("Absolute correction applied to a drifted total-unread counter")
+                .register(meterRegistry);
+        this.reconcilePeriod = reconcilePeriod;
+        this.reconcileBatchSize = reconcileBatchSize;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  WRITE PATH
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public void recordMessageSent(ObjectId conversationId, List<Long> recipientIds, List<Long> mentionedUserIds) {
+        increment(conversationId, recipientIds, mentionedUserIds, 1);
+        markDirty(conversationId, recipientIds, mentionedUserIds);
+    }
+
+    @Override
+    public void revertMessageSent(ObjectId conversationId, List<Long> recipientIds, List<Long> mentionedUserIds) {
+        increment(conversationId, recipientIds, mentionedUserIds, -1);
+        markDirty(conversationId, recipientIds, mentionedUserIds);
+    }
+
+    @Override
+    public void reset(ObjectId conversationId, Long userId) {
+        if (!unreadRedisRepository.reset(conversationId, List.of(userId), null)) {
+            unreadRedisRepository.reset(conversationId, List.of(userId), mongoCounts(conversationId, List.of(userId)));
+        }
+        userInboxService.resetUnread(conversationId, userId);
+        // The direct reset above is unversioned: the flush stamps it, outranking older flushes
+        markDirty(conversationId, List.of(userId), List.of());
+    }
+
+    @Override
+    public void remove(ObjectId conversationId, List<Long> userIds) {
+        // Nothing to flush: the counters are deleted, and the flush skips pairs without one
+        if (!unreadRedisRepository.remove(conversationId, userIds, null)) {
+            unreadRedisRepository.remove(conversationId, userIds, mongoCounts(conversationId, userIds));
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  READ PATH
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public void applyLiveCounts(Long userId, List<ConversationDocument> conversations) {
+        if (conversations.isEmpty()) {
+            return;
+        }
+
+        List<ObjectId> ids = conversations.stream().map(ConversationDocument::getId).toList();
+        Map<ObjectId, long[]> liveCounts = new HashMap<>(unreadRedisRepository.getCounts(userId, ids));
+        String userKey = String.valueOf(userId);
+
+        if (liveCounts.size() < ids.size()) {
+            // No Redis counter yet: copy the MongoDB count over (pages served from Redis carry none)
+            Map<ObjectId, long[]> seeds = mongoCounts(userId, ids.stream()
+                    .filter(id -> !liveCounts.containsKey(id))
+                    .toList());
+            unreadRedisRepository.seedCounts(userId, seeds);
+            liveCounts.putAll(seeds);
+        }
+
+        for (ConversationDocument conversation : conversations) {
+            long[] live = liveCounts.get(conversation.getId());
+            if (live == null) {
+                continue; // Gone from MongoDB since the page was read
+            }
+            conversation.setUnreadCounts(putCount(conversation.getUnreadCounts(), userKey, live[COUNT]));
+            conversation.setUnreadMentions(putCount(conversation.getUnreadMentions(), userKey, live[MENTIONS]));
+        }
+    }
+
+    @Override
+    public long getTotalUnread(Long userId) {
+        Long total = unreadRedisRepository.getTotal(userId);
+        if (total == null) {
+            // Never computed (no message received since the counter exists): compute it now
+            unreadRedisRepository.claimReconcile(userId, reconcilePeriod);
+            reconcileTotal(userId);
+            total = unreadRedisRepository.getTotal(userId);
+        } else {
+            reconcileCandidates.add(userId);
+        }
+        return total != null ? Math.max(0, total) : 0;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  BACKGROUND FLUSH
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    @Scheduled(fixedDelayString = "${vivumate.chat.unread.flush-interval-ms:3000}")
+    public void flushPendingDeltas() {
+        if (dirtyPairs.isEmpty()) {
+            return;
+        }
+
+        // Drain conversation by conversation: remove() is atomic with concurrent compute()
+        Map<ObjectId, Set<Long>> batch = new LinkedHashMap<>();
+        for (ObjectId conversationId : dirtyPairs.keySet()) {
+            Set<Long> userIds = dirtyPairs.remove(conversationId);
+            if (userIds != null && !userIds.isEmpty()) {
+                batch.put(conversationId, userIds);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<ObjectId, Map<Long, long[]>> counts;
+        try {
+            counts = unreadRedisRepository.getVersionedCounts(batch);
+        } catch (Exception e) {
+            batch.forEach(this::markDirty);
+            log.error("Failed to read unread counters of {} conversations, will retry", batch.size(), e);
+            return;
+        }
+
+        try {
+            conversationRepository.applyUnreadCounts(counts);
+
+            flushedConversationsCounter.increment(counts.size());
+            flushedPairsCounter.increment(counts.values().stream().mapToInt(Map::size).sum());
+            log.debug("Flushed unread counters: conversations={}", counts.size());
+        } catch (BulkOperationException e) {
+            // One operation per conversation, in map order: retry only the ones that failed
+            List<ObjectId> order = new ArrayList<>(counts.keySet());
+            e.getErrors().forEach(error -> {
+                ObjectId conversationId = order.get(error.getIndex());
+                markDirty(conversationId, batch.get(conversationId));
+            });
+            log.error("Failed to flush unread counters of {} of {} conversations, will retry",
+                    e.getErrors().size(), counts.size(), e);
+        } catch (Exception e) {
+            // Outcome unknown: retry all (versioned writes make a second apply a no-op)
+            batch.forEach(this::markDirty);
+            log.error("Failed to flush unread counters of {} conversations, will retry", batch.size(), e);
+            return;
+        }
+
+        // Informational copy: not retried; the pair's next change rewrites the absolute value
+        try {
+            userInboxService.applyUnreadCounts(counts);
+        } catch (Exception e) {
+            log.warn("Failed to copy unread counters of {} conversations to user_inbox", counts.size(), e);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  SELF-HEALING — total reconciliation
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    @Scheduled(fixedDelayString = "${vivumate.chat.unread.reconcile-interval-ms:60000}")
+    public void reconcileTotals() {
+        int reconciled = 0;
+        Iterator<Long> candidates = reconcileCandidates.iterator();
+        while (candidates.hasNext() && reconciled < reconcileBatchSize) {
+            Long userId = candidates.next();
+            candidates.remove();
+            try {
+                // At most once per period per user, across all nodes
+                if (unreadRedisRepository.claimReconcile(userId, reconcilePeriod)) {
+                    reconcileTotal(userId);
+                    reconciled++;
+                }
+            } catch (Exception e) {
+                log.warn("Failed to reconcile unread total: userId={}", userId, e);
+            }
+        }
+    }
+
+    /**
+     * Stream the user's conversations (MongoDB counts stand in for pairs without a Redis
+     * counter) and recompute the total in one atomic Redis script.
+     */
+    private void reconcileTotal(Long userId) {
+        String userKey = String.valueOf(userId);
+        Map<ObjectId, Long> mongoCounts = new HashMap<>();
+        try (Stream<ConversationDocument> rows = conversationRepository.streamUnreadCounts(userId)) {
+            rows.forEach(row -> {
+                Integer count = row.getUnreadCounts() != null ? row.getUnreadCounts().get(userKey) : null;
+                mongoCounts.put(row.getId(), count != null ? count.longValue() : 0L);
+            });
+        }
+
+        long correction = unreadRedisRepository.reconcileTotal(userId, mongoCounts);
+        if (correction == 0) {
+            exactTotalsCounter.increment();
+            return;
+        }
+        correctedTotalsCounter.increment();
+        totalDrift.record(Math.abs(correction));
+        log.info("Unread total corrected: userId={}, correction={}, conversations={}",
+                userId, correction, mongoCounts.size());
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  PRIVATE HELPERS
+    // ═══════════════════════════════════════════════════════════
+
+    private static Counter reconciledCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("vivumate.chat.unread.total.reconciled")
+                .description("Total-unread counters recomputed, by whether they had drifted")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * One script in the common case; a pair touched for the first time costs one MongoDB read
+     * and a second script that starts its counter from the MongoDB count.
+     */
+    private void increment(ObjectId conversationId, List<Long> recipientIds, List<Long> mentionedUserIds, long delta) {
+        if (unreadRedisRepository.increment(conversationId, recipientIds, mentionedUserIds, delta, null)) {
+            return;
+        }
+        Set<Long> userIds = new HashSet<>(recipientIds);
+        userIds.addAll(mentionedUserIds);
+        unreadRedisRepository.increment(conversationId, recipientIds, mentionedUserIds, delta,
+                mongoCounts(conversationId, userIds));
+    }
+
+    /**
+     * @return userId → MongoDB {@code [count, mentions]} in one conversation (0 where absent)
+     */
+    private Map<Long, long[]> mongoCounts(ObjectId conversationId, Collection<Long> userIds) {
+        ConversationDocument counts = conversationRepository.findUnreadCountsById(conversationId, userIds)
+                .orElse(null);
+        Map<Long, long[]> result = new HashMap<>();
+        for (Long userId : userIds) {
+            result.put(userId, countsOf(counts, String.valueOf(userId)));
+        }
+        return result;
+    }
+
+    /**
+     * @return conversationId → MongoDB {@code [count, mentions]} of one user; deleted / unknown IDs are absent
+     */
+    private Map<ObjectId, long[]> mongoCounts(Long userId, List<ObjectId> conversationIds) {
+        String userKey = String.valueOf(userId);
+        Map<ObjectId, long[]> result = new HashMap<>();
+        for (ConversationDocument counts : conversationRepository.findUnreadCountsByIds(userId, conversationIds)) {
+            result.put(counts.getId(), countsOf(counts, userKey));
+        }
+        return result;
+    }
+
+    private static long[] countsOf(ConversationDocument counts, String userKey) {
+        if (counts == null) {
+            return new long[2];
+        }
+        return new long[]{valueOf(counts.getUnreadCounts(), userKey), valueOf(counts.getUnreadMentions(), userKey)};
+    }
+
+    private static long valueOf(Map<String, Integer> counts, String userKey) {
+        Integer value = counts != null ? counts.get(userKey) : null;
+        return value != null ? value : 0L;
+    }
+
+    private void markDirty(ObjectId conversationId, List<Long> recipientIds, List<Long> mentionedUserIds) {
+        if (recipientIds.isEmpty() && mentionedUserIds.isEmpty()) {
+            return;
+        }
+        Set<Long> userIds = new HashSet<>(recipientIds);
+        userIds.addAll(mentionedUserIds);
+        markDirty(conversationId, userIds);
+    }
+
+    private void markDirty(ObjectId conversationId, Set<Long> userIds) {
+        dirtyPairs.compute(conversationId, (id, dirty) -> {
+            Set<Long> result = dirty != null ? dirty : new HashSet<>();
+            result.addAll(userIds);
+            return result;
+        });
+    }
+
+    private static Map<String, Integer> putCount(Map<String, Integer> counts, String userKey, long value) {
+        Map<String, Integer> result = counts != null ? new HashMap<>(counts) : new HashMap<>();
+        result.put(userKey, (int) Math.max(0, value));
+        return result;
+    }
+}
@@ -0,0 +1,133 @@
+package com.vivumate.coreapi.service.impl;
+
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.UserInboxDocument;
+import com.vivumate.coreapi.document.subdoc.LastMessagePreview;
+import com.vivumate.coreapi.document.subdoc.Participant;
+import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import com.vivumate.coreapi.repository.mongodb.UserInboxRepository;
+import com.vivumate.coreapi.service.UserInboxService;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@code user_inbox} maintenance and the list read path built on it.
+ * <p>
+ * <b>Read:</b> the page is decided by the inbox alone (visible entries, newest activity first,
+ * covered by {@code idx_user_inbox_list}), so the scan stops after exactly {@code pageSize}
+ * index keys however many conversations the user has cleared. The page's conversations are
+ * then loaded by {@code _id} and returned in inbox order, with the inbox's
+ * {@code lastActivityAt} so that the client's next cursor matches the inbox sort.
+ * <p>
+ * <b>Write:</b> every update is incremental and guarded (see {@code UserInboxCustomRepository}),
+ * so replays and concurrent writers converge. Entries are maintained whether or not the flag is
+ * on — it only selects the read path — so the list can be switched over (and back) node by node
+ * without leaving entries behind. Existing data is merged in by {@code UserInboxBackfill}.
+ */
+@Service
+@Slf4j(topic = "USER_INBOX_SERVICE")
+public class UserInboxServiceImpl implements UserInboxService {
+
+    private final UserInboxRepository userInboxRepository;
+    private final ConversationRepository conversationRepository;
+    private final boolean enabled;
+
+    public UserInboxServiceImpl(UserInboxRepository userInboxRepository,
+                                ConversationRepository conversationRepository,
+                                @Value("${vivumate.chat.inbox.enabled:false}") boolean enabled) {
+        this.userInboxRepository = userInboxRepository;
+        this.conversationRepository = conversationRepository;
+        this.enabled = enabled;
+
+        log.info("Conversation list source: {}", enabled ? "user_inbox" : "conversations pipeline");
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  READ PATH
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public List<ConversationDocument> findConversationList(Long userId, Instant cursorActivityAt,
+                                                           ObjectId cursorId, int pageSize) {
+        List<UserInboxDocument> entries = userInboxRepository.findVisible(userId, cursorActivityAt, cursorId, pageSize);
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+
+        Map<ObjectId, ConversationDocument> byId = conversationRepository
+                .findListItemsByIds(userId, entries.stream().map(UserInboxDocument::getConversationId).toList())
+                .stream()
+                .collect(Collectors.toMap(ConversationDocument::getId, Function.identity()));
+
+        List<ConversationDocument> conversations = new ArrayList<>(entries.size());
+        for (UserInboxDocument entry : entries) {
+            ConversationDocument conversation = byId.get(entry.getConversationId());
+            if (conversation == null) {
+                continue; // Deleted meanwhile
+            }
+            conversation.setLastActivityAt(entry.getLastActivityAt());
+            conversations.add(conversation);
+        }
+        return conversations;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  WRITE PATH
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public void addMembers(ConversationDocument conversation, List<Participant> participants) {
+        userInboxRepository.insertMissing(participants.stream()
+                .map(participant -> UserInboxDocument.of(conversation, participant))
+                .toList());
+    }
+
+    @Override
+    public void removeMembers(ObjectId conversationId, List<Long> userIds) {
+        userInboxRepository.deleteAllByConversationIdAndUserIdIn(conversationId, userIds);
+    }
+
+    @Override
+    public void removeConversation(ObjectId conversationId) {
+        userInboxRepository.deleteAllByConversationId(conversationId);
+    }
+
+    @Override
+    public void clearHistory(ObjectId conversationId, Long userId, Instant clearedAt) {
+        userInboxRepository.updateClearedAt(conversationId, userId, clearedAt);
+    }
+
+    @Override
+    public void updateMuteStatus(ObjectId conversationId, Long userId, boolean muted, Instant mutedUntil) {
+        userInboxRepository.updateMuteStatus(conversationId, userId, muted, mutedUntil);
+    }
+
+    @Override
+    public void applyLastMessages(Map<ObjectId, LastMessagePreview> previews) {
+        userInboxRepository.applyLastMessages(previews);
+    }
+
+    @Override
+    public void applyUnreadCounts(Map<ObjectId, Map<Long, long[]>> counts) {
+        userInboxRepository.applyUnreadCounts(counts);
+    }
+
+    @Override
+    public void resetUnread(ObjectId conversationId, Long userId) {
+        userInboxRepository.resetUnreadCount(conversationId, userId);
+    }
+}
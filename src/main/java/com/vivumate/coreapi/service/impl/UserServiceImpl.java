@@ -1,5 +1,6 @@
 package com.vivumate.coreapi.service.impl;
 
+import com.vivumate.coreapi.cache.SenderSnapshotCache;
 import com.vivumate.coreapi.dto.request.ChangePasswordRequest;
 import com.vivumate.coreapi.dto.request.UserUpdateRequest;
 import com.vivumate.coreapi.dto.response.PageResponse;
@@ -38,6 +39,7 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final ChatSyncService chatSyncService;
+    private final SenderSnapshotCache senderSnapshotCache;
 
     // ========= READ ===========
     private User getAuthenticatedUser() {
@@ -244,6 +246,8 @@ public class UserServiceImpl implements UserService {
             TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
                 @Override
                 public void afterCommit() {
+                    senderSnapshotCache.invalidate(savedUser.getId());
+
                     log.info("Postgres commit successful. Triggering MongoDB sync in background...");
                     chatSyncService.syncUserProfileToMongoDB(
                             savedUser.getId(),
@@ -0,0 +1,146 @@
+package com.vivumate.coreapi.websocket.controller;
+
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.dto.response.MessageResponse;
+import com.vivumate.coreapi.exception.AppException;
+import com.vivumate.coreapi.document.projection.NewMessages;
+import com.vivumate.coreapi.exception.ErrorCode;
+import com.vivumate.coreapi.mapper.ConversationMapper;
+import com.vivumate.coreapi.mapper.MessageMapper;
+import com.vivumate.coreapi.service.DeltaSyncService;
+import com.vivumate.coreapi.service.MessageService;
+import com.vivumate.coreapi.websocket.dto.ChatSendAck;
+import com.vivumate.coreapi.websocket.dto.ChatSendRequest;
+import com.vivumate.coreapi.websocket.dto.ChatSyncRequest;
+import com.vivumate.coreapi.websocket.dto.SyncBatch;
+import com.vivumate.coreapi.websocket.security.StompPrincipal;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * STOMP entry point for chat messages ({@code /app/chat.*}).
+ * <p>
+ * <b>Send flow:</b> {@code SEND /app/chat.send} → {@link MessageService#sendMessage} persists the
+ * message and publishes a {@code MessageSentEvent} → {@code MessageDeliveryEngine} pushes it to
+ * {@code /user/queue/messages} of every recipient session and of the sender's OTHER sessions →
+ * the originating session receives a {@link ChatSendAck} on {@code /user/queue/ack}.
+ * <p>
+ * Clients should set {@code clientMsgId} and resend with the SAME id when no ack arrives;
+ * a retry is acked with the original message and never stored or delivered twice.
+ * <p>
+ * <b>Sync flow:</b> after (re)connecting, a device sends {@code SEND /app/chat.sync} with the
+ * {@code server_timestamp} of its last sync → {@link DeltaSyncService} answers with one or more
+ * {@link SyncBatch} chunks on {@code /user/queue/sync} of that session only.
+ * <p>
+ * Errors are answered on {@code /user/queue/errors} by
+ * {@link com.vivumate.coreapi.websocket.handler.WebSocketExceptionHandler}.
+ */
+@Controller
+@RequiredArgsConstructor
+public class ChatMessageController {
+
+    private final MessageService messageService;
+    private final DeltaSyncService deltaSyncService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @MessageMapping("chat.send")
+    @SendToUser(destinations = "/queue/ack", broadcast = false)
+    public ChatSendAck sendMessage(@Valid @Payload ChatSendRequest request,
+                                   Principal principal,
+                                   @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        Long senderUserId = ((StompPrincipal) principal).getUserId();
+
+        if (!ObjectId.isValid(request.getConversationId())) {
+            throw new AppException(ErrorCode.INVALID_INPUT);
+        }
+        // SYSTEM messages are generated by the server only
+        if (request.getContentType() == ContentType.SYSTEM) {
+            throw new AppException(ErrorCode.INVALID_INPUT);
+        }
+
+        MessageDocument saved = messageService.sendMessage(
+                new ObjectId(request.getConversationId()), senderUserId,
+                request.getContentType(), request.getContent(),
+                request.getMentions(), request.getReplyTo(), request.getClientMsgId(), sessionId);
+
+        return ChatSendAck.builder()
+                .messageId(saved.getId().toHexString())
+                .clientMsgId(saved.getClientMsgId())
+                .conversationId(saved.getConversationId().toHexString())
+                .createdAt(saved.getCreatedAt())
+                .build();
+    }
+
+    @MessageMapping("chat.sync")
+    public void sync(@Valid @Payload ChatSyncRequest request,
+                     Principal principal,
+                     @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        Long userId = ((StompPrincipal) principal).getUserId();
+
+        deltaSyncService.sync(userId, request.getLastSyncTimestamp(), chunk ->
+                messagingTemplate.convertAndSendToUser(principal.getName(), "/queue/sync",
+                        toSyncBatch(userId, chunk), sessionHeaders(sessionId)));
+    }
+
+    private static SyncBatch toSyncBatch(Long userId, DeltaSyncService.SyncChunk chunk) {
+        String userKey = String.valueOf(userId);
+        Map<String, Integer> unreadCounts = new HashMap<>();
+        Map<String, Integer> unreadMentions = new HashMap<>();
+        for (ConversationDocument conversation : chunk.conversations()) {
+            String conversationId = conversation.getId().toHexString();
+            unreadCounts.put(conversationId, countOf(conversation.getUnreadCounts(), userKey));
+            unreadMentions.put(conversationId, countOf(conversation.getUnreadMentions(), userKey));
+        }
+
+        Map<String, List<MessageResponse>> messages = new HashMap<>();
+        for (NewMessages delta : chunk.messages()) {
+            messages.put(delta.conversationId().toHexString(),
+                    delta.newestFirst().stream().map(MessageMapper::toMessageResponse).toList());
+        }
+
+        return SyncBatch.builder()
+                .chunk(chunk.index())
+                .last(chunk.last())
+                .truncated(chunk.truncated())
+                .serverTimestamp(chunk.serverTimestamp())
+                .conversations(chunk.conversations().stream().map(ConversationMapper::toSyncConversation).toList())
+                .messages(messages)
+                .hasMoreMessages(chunk.messages().stream()
+                        .filter(NewMessages::hasMore)
+                        .map(delta -> delta.conversationId().toHexString())
+                        .toList())
+                .unreadCounts(unreadCounts)
+                .unreadMentions(unreadMentions)
+                .build();
+    }
+
+    private static int countOf(Map<String, Integer> counts, String userKey) {
+        return counts != null ? counts.getOrDefault(userKey, 0) : 0;
+    }
+
+    /**
+     * Headers that make the user destination resolve to the requesting session only.
+     */
+    private static Map<String, Object> sessionHeaders(String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setLeaveMutable(true);
+        return accessor.getMessageHeaders();
+    }
+}
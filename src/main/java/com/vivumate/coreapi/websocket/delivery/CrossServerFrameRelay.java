@@ -0,0 +1,160 @@
+package com.vivumate.coreapi.websocket.delivery;
+
+import com.vivumate.coreapi.websocket.session.WebSocketSessionManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cross-server hop of real-time delivery over Redis pub/sub.
+ * <p>
+ * Each instance listens on its own channel {@code ws:deliver:{serverId}}. For a sent message,
+ * the target users are looked up in {@code ws_routing:*} (ONE pipelined round trip), grouped by
+ * server, and every OTHER server holding at least one of them receives ONE envelope carrying
+ * the already-serialized {@link PreparedFrame} bytes verbatim:
+ * <pre>
+ * long   acceptedAtEpochMillis
+ * int    userCount
+ * long   userId × userCount
+ * byte[] payload (rest of the message)
+ * </pre>
+ * The receiving node hands the payload to {@link FrameBroadcaster} as-is — no JSON decoding
+ * or re-encoding on either side of the hop.
+ * <p>
+ * Pub/sub is fire-and-forget: a user whose server misses an envelope catches up on the next
+ * load / sync, the message itself is already persisted.
+ * <p>
+ * Metrics: {@code vivumate.chat.relay.envelopes{direction=out|in}}.
+ */
+@Component
+@Slf4j(topic = "CROSS_SERVER_FRAME_RELAY")
+public class CrossServerFrameRelay implements MessageListener {
+
+    public static final String CHANNEL_PREFIX = "ws:deliver:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final WebSocketSessionManager sessionManager;
+    private final FrameBroadcaster frameBroadcaster;
+    private final ExecutorService chatIoExecutor;
+    private final String serverId;
+    private final Counter outCounter;
+    private final Counter inCounter;
+
+    public CrossServerFrameRelay(StringRedisTemplate redisTemplate,
+                                 RedisMessageListenerContainer listenerContainer,
+                                 WebSocketSessionManager sessionManager,
+                                 FrameBroadcaster frameBroadcaster,
+                                 ExecutorService chatIoExecutor,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${vivumate.server.id:local-dev}") String serverId) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.sessionManager = sessionManager;
+        this.frameBroadcaster = frameBroadcaster;
+        this.chatIoExecutor = chatIoExecutor;
+        this.serverId = serverId;
+        this.outCounter = envelopeCounter(meterRegistry, "out");
+        this.inCounter = envelopeCounter(meterRegistry, "in");
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL_PREFIX + serverId));
+    }
+
+    /**
+     * Forward {@code frame} to the other servers holding sessions of {@code userIds}.
+     * Runs in the background — never blocks the send.
+     *
+     * @param acceptedAtNanos {@link System#nanoTime()} when the send was accepted
+     */
+    public void relay(PreparedFrame frame, List<Long> userIds, long acceptedAtNanos) {
+        long acceptedAtEpochMillis = System.currentTimeMillis()
+                - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - acceptedAtNanos);
+
+        chatIoExecutor.execute(() -> {
+            try {
+                Map<String, List<Long>> usersByServer = new HashMap<>();
+                for (Map.Entry<Long, Set<String>> entry : sessionManager.getServersForUsers(userIds).entrySet()) {
+                    for (String server : entry.getValue()) {
+                        if (!serverId.equals(server)) {
+                            usersByServer.computeIfAbsent(server, k -> new ArrayList<>()).add(entry.getKey());
+                        }
+                    }
+                }
+                usersByServer.forEach((server, users) ->
+                        publish(server, encodeEnvelope(acceptedAtEpochMillis, users, frame)));
+            } catch (Exception e) {
+                log.error("Cross-server relay failed: recipients={}", userIds.size(), e);
+            }
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        inCounter.increment();
+        ByteBuffer envelope = ByteBuffer.wrap(message.getBody());
+        try {
+            long acceptedAtEpochMillis = envelope.getLong();
+            int userCount = envelope.getInt();
+            List<Long> userIds = new ArrayList<>(userCount);
+            for (int i = 0; i < userCount; i++) {
+                userIds.add(envelope.getLong());
+            }
+            PreparedFrame frame = PreparedFrame.wrap(
+                    Arrays.copyOfRange(message.getBody(), envelope.position(), envelope.limit()));
+
+            // Map the sender's wall clock onto this JVM's nanoTime (subject to clock skew)
+            long elapsedMillis = Math.max(0, System.currentTimeMillis() - acceptedAtEpochMillis);
+            long acceptedAtNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(elapsedMillis);
+
+            frameBroadcaster.broadcast(frame, userIds, null, acceptedAtNanos);
+        } catch (RuntimeException e) {
+            log.warn("Malformed relay envelope ignored: bytes={}", message.getBody().length, e);
+        }
+    }
+
+    static byte[] encodeEnvelope(long acceptedAtEpochMillis, List<Long> userIds, PreparedFrame frame) {
+        ByteBuffer envelope = ByteBuffer.allocate(Long.BYTES + Integer.BYTES
+                + userIds.size() * Long.BYTES + frame.size());
+        envelope.putLong(acceptedAtEpochMillis);
+        envelope.putInt(userIds.size());
+        userIds.forEach(envelope::putLong);
+        envelope.put(frame.asByteBuffer());
+        return envelope.array();
+    }
+
+    private void publish(String server, byte[] envelope) {
+        byte[] channel = (CHANNEL_PREFIX + server).getBytes(StandardCharsets.UTF_8);
+        redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, envelope));
+        outCounter.increment();
+    }
+
+    private static Counter envelopeCounter(MeterRegistry meterRegistry, String direction) {
+        return Counter.builder("vivumate.chat.relay.envelopes")
+                .description("Cross-server delivery envelopes published / received")
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,27 @@
+package com.vivumate.coreapi.websocket.delivery;
+
+/**
+ * Fan-out strategy of a message, chosen by conversation size
+ * (system_architecture_design_v2 §10.1).
+ */
+public enum FanOutTier {
+
+    /** Below {@code direct-max} members: one loop on the sending thread. */
+    DIRECT,
+
+    /**
+     * Up to {@code partitioned-max} members: recipients are split into partitions delivered
+     * concurrently on virtual threads; the send waits for all of them.
+     */
+    PARTITIONED,
+
+    /**
+     * Larger groups: partitions are delivered asynchronously — the send returns immediately,
+     * at most {@code max-in-flight-per-conversation} partitions of a conversation run at once.
+     */
+    ASYNC_BATCHED;
+
+    public String tagValue() {
+        return name().toLowerCase();
+    }
+}
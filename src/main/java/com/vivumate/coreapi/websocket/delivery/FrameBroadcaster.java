@@ -0,0 +1,84 @@
+package com.vivumate.coreapi.websocket.delivery;
+
+import com.vivumate.coreapi.websocket.session.WebSocketSessionManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode-once broadcast to the sessions of THIS server instance.
+ * <p>
+ * Every frame is addressed to {@code /user/{userId}/queue/messages} with the
+ * {@code simpSessionId} header set, so Spring's user destination resolver delivers it to
+ * exactly that session. All frames of one {@link PreparedFrame} carry the SAME payload array;
+ * only the small header map is allocated per session, and {@link SimpMessagingTemplate#send}
+ * skips the message converter for pre-built messages — no Jackson work per recipient.
+ * <p>
+ * Metrics: {@code vivumate.chat.delivery.latency} — send accepted → frame handed to the
+ * client outbound channel, per session.
+ */
+@Component
+public class FrameBroadcaster {
+
+    private static final String MESSAGES_DESTINATION = "/queue/messages";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final WebSocketSessionManager sessionManager;
+    private final String userDestinationPrefix;
+    private final Timer deliveryLatency;
+
+    public FrameBroadcaster(SimpMessagingTemplate messagingTemplate,
+                            WebSocketSessionManager sessionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${vivumate.websocket.user-destination-prefix:/user}") String userDestinationPrefix) {
+        this.messagingTemplate = messagingTemplate;
+        this.sessionManager = sessionManager;
+        this.userDestinationPrefix = userDestinationPrefix;
+        this.deliveryLatency = Timer.builder("vivumate.chat.delivery.latency")
+                .description("Send accepted → message frame handed to a recipient session")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Send {@code frame} to every local session of {@code userIds}, except {@code excludedSessionId}.
+     *
+     * @param acceptedAtNanos {@link System#nanoTime()} when the send was accepted
+     */
+    public void broadcast(PreparedFrame frame, Collection<Long> userIds, String excludedSessionId,
+                          long acceptedAtNanos) {
+        for (Long userId : userIds) {
+            Set<String> sessionIds = sessionManager.getLocalSessions(userId);
+            if (sessionIds.isEmpty()) {
+                continue;
+            }
+
+            String destination = userDestinationPrefix + "/" + userId + MESSAGES_DESTINATION;
+            for (String sessionId : sessionIds) {
+                if (sessionId.equals(excludedSessionId)) {
+                    continue;
+                }
+                messagingTemplate.send(destination, buildMessage(frame.payload(), sessionId));
+                deliveryLatency.record(System.nanoTime() - acceptedAtNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private static Message<byte[]> buildMessage(byte[] payload, String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,140 @@
+package com.vivumate.coreapi.websocket.delivery;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Size-tiered fan-out of one message to its recipients.
+ * <p>
+ * <b>Tiers</b> ({@link FanOutTier}, by {@code memberCount} = recipients + sender):
+ * <pre>
+ * memberCount &lt;  direct-max (50)        → DIRECT        inline loop, lowest latency
+ * memberCount &lt;= partitioned-max (200)  → PARTITIONED   partitions in parallel, send waits
+ * memberCount &gt;  partitioned-max        → ASYNC_BATCHED partitions in background, send returns
+ * </pre>
+ * Partitions of {@code batch-size} recipients run on the virtual-thread {@code chatIoExecutor}.
+ * <p>
+ * <b>Isolation:</b> every partition of a concurrent tier holds one permit of its conversation's
+ * own semaphore, so a huge group has at most {@code max-in-flight-per-conversation} partitions
+ * in flight and cannot flood the outbound channel ahead of small conversations, nor wait for
+ * another group's permits. Semaphores are weakly held: one lives as long as a partition of its
+ * conversation does. DIRECT never takes a permit — a DM is never queued behind a group.
+ * <p>
+ * Metrics: {@code vivumate.chat.fanout.latency{tier=direct|partitioned|async_batched}} — fan-out
+ * start → last partition delivered.
+ */
+@Component
+@Slf4j(topic = "GROUP_FAN_OUT")
+public class GroupFanOutExecutor {
+
+    private final ExecutorService chatIoExecutor;
+    private final int directMax;
+    private final int partitionedMax;
+    private final int batchSize;
+    private final int maxInFlight;
+    /** conversationId → in-flight partition permits; collected once no partition holds a reference. */
+    private final Cache<ObjectId, Semaphore> inFlightPermits = Caffeine.newBuilder().weakValues().build();
+    private final Map<FanOutTier, Timer> tierTimers = new EnumMap<>(FanOutTier.class);
+
+    public GroupFanOutExecutor(ExecutorService chatIoExecutor,
+                               MeterRegistry meterRegistry,
+                               @Value("${vivumate.chat.fan-out.direct-max:50}") int directMax,
+                               @Value("${vivumate.chat.fan-out.partitioned-max:200}") int partitionedMax,
+                               @Value("${vivumate.chat.fan-out.batch-size:50}") int batchSize,
+                               @Value("${vivumate.chat.fan-out.max-in-flight-per-conversation:4}") int maxInFlight) {
+        this.chatIoExecutor = chatIoExecutor;
+        this.directMax = directMax;
+        this.partitionedMax = partitionedMax;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+        for (FanOutTier tier : FanOutTier.values()) {
+            tierTimers.put(tier, Timer.builder("vivumate.chat.fanout.latency")
+                    .description("Fan-out of one message to all its recipients, per size tier")
+                    .tag("tier", tier.tagValue())
+                    .register(meterRegistry));
+        }
+    }
+
+    public FanOutTier tierFor(int memberCount) {
+        if (memberCount < directMax) {
+            return FanOutTier.DIRECT;
+        }
+        return memberCount <= partitionedMax ? FanOutTier.PARTITIONED : FanOutTier.ASYNC_BATCHED;
+    }
+
+    /**
+     * Deliver to {@code recipientIds} with the tier matching the conversation size.
+     *
+     * @param deliverBatch delivers to one partition of recipients; must be thread-safe
+     * @return completes when every partition has been delivered (already complete for
+     * DIRECT and PARTITIONED)
+     */
+    public CompletableFuture<Void> fanOut(ObjectId conversationId, List<Long> recipientIds,
+                                          Consumer<List<Long>> deliverBatch) {
+        FanOutTier tier = tierFor(recipientIds.size() + 1);
+        long startNanos = System.nanoTime();
+
+        if (tier == FanOutTier.DIRECT) {
+            deliverBatch.accept(recipientIds);
+            record(tier, startNanos);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Captured by every partition: stays reachable (and shared) until the last one finishes
+        Semaphore permits = inFlightPermits.get(conversationId, id -> new Semaphore(maxInFlight));
+        List<CompletableFuture<Void>> partitions = new ArrayList<>();
+        for (int from = 0; from < recipientIds.size(); from += batchSize) {
+            List<Long> batch = recipientIds.subList(from, Math.min(from + batchSize, recipientIds.size()));
+            partitions.add(CompletableFuture.runAsync(() -> deliverWithPermit(permits, batch, deliverBatch),
+                    chatIoExecutor));
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(partitions.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, error) -> {
+                    record(tier, startNanos);
+                    if (error != null) {
+                        log.error("Fan-out failed: conversationId={}, tier={}, recipients={}",
+                                conversationId, tier, recipientIds.size(), error);
+                    }
+                });
+
+        if (tier == FanOutTier.PARTITIONED) {
+            try {
+                all.join();
+            } catch (CompletionException e) {
+                // Already logged — partial delivery is recovered by the next load / sync
+            }
+        }
+        return all;
+    }
+
+    private static void deliverWithPermit(Semaphore permits, List<Long> batch, Consumer<List<Long>> deliverBatch) {
+        // Blocking here parks a virtual thread only
+        permits.acquireUninterruptibly();
+        try {
+            deliverBatch.accept(batch);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void record(FanOutTier tier, long startNanos) {
+        tierTimers.get(tier).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
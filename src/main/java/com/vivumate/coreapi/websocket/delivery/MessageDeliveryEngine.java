@@ -0,0 +1,72 @@
+package com.vivumate.coreapi.websocket.delivery;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.event.MessageSentEvent;
+import com.vivumate.coreapi.mapper.MessageMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pushes newly sent messages to their recipients in real time.
+ * <p>
+ * <b>Targets</b> (per {@link MessageSentEvent}):
+ * <ul>
+ *   <li>every session of every recipient</li>
+ *   <li>every session of the sender EXCEPT the originating one (multi-device echo —
+ *       the originating session gets an ack from {@code ChatMessageController})</li>
+ * </ul>
+ * <p>
+ * <b>Encode once:</b> the message is mapped and serialized ONCE into a {@link PreparedFrame};
+ * the same bytes go to every local session ({@link FrameBroadcaster}) and across servers
+ * ({@link CrossServerFrameRelay}).
+ * <p>
+ * Local recipients are fanned out by {@link GroupFanOutExecutor} with a strategy matching the
+ * conversation size; large groups are delivered asynchronously.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j(topic = "MESSAGE_DELIVERY_ENGINE")
+public class MessageDeliveryEngine {
+
+    private final FrameBroadcaster frameBroadcaster;
+    private final CrossServerFrameRelay crossServerRelay;
+    private final GroupFanOutExecutor fanOutExecutor;
+    private final ObjectMapper objectMapper;
+
+    @EventListener
+    public void onMessageSent(MessageSentEvent event) {
+        MessageDocument message = event.getMessage();
+        try {
+            PreparedFrame frame = PreparedFrame.encode(objectMapper, MessageMapper.toMessageResponse(message));
+            long acceptedAtNanos = event.getAcceptedAtNanos();
+            Long senderId = message.getSender().getUserId();
+
+            // Sender's other devices first: never queued behind a large group fan-out
+            frameBroadcaster.broadcast(frame, List.of(senderId), event.getOriginSessionId(), acceptedAtNanos);
+
+            fanOutExecutor.fanOut(message.getConversationId(), event.getRecipientIds(),
+                    batch -> frameBroadcaster.broadcast(frame, batch, null, acceptedAtNanos));
+
+            List<Long> everyone = new ArrayList<>(event.getRecipientIds().size() + 1);
+            everyone.addAll(event.getRecipientIds());
+            everyone.add(senderId);
+            crossServerRelay.relay(frame, everyone, acceptedAtNanos);
+
+            log.debug("Message dispatched: id={}, recipients={}, bytes={}",
+                    message.getId(), event.getRecipientIds().size(), frame.size());
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize message for delivery: id={}", message.getId(), e);
+        } catch (RuntimeException e) {
+            // The message is persisted — clients catch up on the next load, never fail the send
+            log.error("Real-time delivery failed: id={}, conversationId={}",
+                    message.getId(), message.getConversationId(), e);
+        }
+    }
+}
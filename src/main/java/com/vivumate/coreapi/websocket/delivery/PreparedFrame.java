@@ -0,0 +1,51 @@
+package com.vivumate.coreapi.websocket.delivery;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A message payload serialized ONCE and shared by every delivery of that message —
+ * all local sessions and the cross-server hop.
+ * <p>
+ * Immutable by contract: the backing array is never written after {@link #encode}, and
+ * callers of {@link #payload()} must not modify it. {@link #asByteBuffer()} hands out
+ * read-only views.
+ */
+public final class PreparedFrame {
+
+    private final byte[] payload;
+
+    private PreparedFrame(byte[] payload) {
+        this.payload = payload;
+    }
+
+    /**
+     * Serialize {@code dto} to JSON once.
+     */
+    public static PreparedFrame encode(ObjectMapper objectMapper, Object dto) throws JsonProcessingException {
+        return new PreparedFrame(objectMapper.writeValueAsBytes(dto));
+    }
+
+    /**
+     * Adopt bytes that are already JSON (e.g. received from another server). The caller
+     * hands over ownership of the array.
+     */
+    static PreparedFrame wrap(byte[] payload) {
+        return new PreparedFrame(payload);
+    }
+
+    /** Shared backing array — read only. */
+    public byte[] payload() {
+        return payload;
+    }
+
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(payload).asReadOnlyBuffer();
+    }
+
+    public int size() {
+        return payload.length;
+    }
+}
@@ -0,0 +1,31 @@
+package com.vivumate.coreapi.websocket.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Acknowledgement sent to the originating session only ({@code /user/queue/ack})
+ * once its message has been persisted. The other devices of the sender receive
+ * the full message on {@code /user/queue/messages} instead.
+ */
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChatSendAck {
+
+    @JsonProperty("message_id")
+    private final String messageId;
+
+    @JsonProperty("client_msg_id")
+    private final String clientMsgId;
+
+    @JsonProperty("conversation_id")
+    private final String conversationId;
+
+    @JsonProperty("created_at")
+    private final Instant createdAt;
+}
@@ -0,0 +1,41 @@
+package com.vivumate.coreapi.websocket.dto;
+
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.subdoc.Mention;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.document.subdoc.ReplyToSnapshot;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Payload of a STOMP SEND to {@code /app/chat.send}.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChatSendRequest {
+
+    @NotBlank(message = "Conversation id is required")
+    private String conversationId;
+
+    @NotNull(message = "Content type is required")
+    private ContentType contentType;
+
+    @NotNull(message = "Content is required")
+    private MessageContent content;
+
+    /** Client-generated idempotency key (e.g. a UUID), reused on every retry of the same send. */
+    @Size(max = 64, message = "Client message id must not exceed 64 characters")
+    private String clientMsgId;
+
+    private List<Mention> mentions;
+    private ReplyToSnapshot replyTo;
+}
@@ -0,0 +1,23 @@
+package com.vivumate.coreapi.websocket.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Payload of a STOMP SEND to {@code /app/chat.sync}, sent by a device after (re)connecting.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChatSyncRequest {
+
+    /** {@code server_timestamp} of the last {@link SyncBatch} the device fully applied. */
+    @NotNull(message = "Last sync timestamp is required")
+    private Instant lastSyncTimestamp;
+}
@@ -0,0 +1,52 @@
+package com.vivumate.coreapi.websocket.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.vivumate.coreapi.dto.response.MessageResponse;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One chunk of the answer to {@code /app/chat.sync}, sent to the requesting session only
+ * ({@code /user/queue/sync}). Maps are keyed by conversation ID.
+ * <p>
+ * The client applies chunks as they arrive and stores {@code server_timestamp} once the chunk
+ * with {@code last = true} is applied. Conversations listed in {@code has_more_messages} missed
+ * more messages than a sync carries: reload their feed. {@code truncated} means the delta was too
+ * large for one sync: reload the conversation list.
+ */
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SyncBatch {
+
+    @Builder.Default
+    private final String type = "SYNC_BATCH";
+
+    private final int chunk;
+
+    private final boolean last;
+
+    private final boolean truncated;
+
+    @JsonProperty("server_timestamp")
+    private final Instant serverTimestamp;
+
+    private final List<SyncConversation> conversations;
+
+    /** Newest first, per conversation. */
+    private final Map<String, List<MessageResponse>> messages;
+
+    @JsonProperty("has_more_messages")
+    private final List<String> hasMoreMessages;
+
+    @JsonProperty("unread_counts")
+    private final Map<String, Integer> unreadCounts;
+
+    @JsonProperty("unread_mentions")
+    private final Map<String, Integer> unreadMentions;
+}
@@ -0,0 +1,52 @@
+package com.vivumate.coreapi.websocket.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.enums.ConversationType;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Conversation list row of a {@link SyncBatch}: what the client needs to re-sort and
+ * re-render its list, without the embedded participant snapshots.
+ */
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SyncConversation {
+
+    private final String id;
+
+    private final ConversationType type;
+
+    private final String name;
+
+    @JsonProperty("avatar_url")
+    private final String avatarUrl;
+
+    @JsonProperty("member_count")
+    private final Integer memberCount;
+
+    /** DIRECT only: the two participants, to resolve the peer. */
+    @JsonProperty("participant_ids")
+    private final List<Long> participantIds;
+
+    @JsonProperty("last_activity_at")
+    private final Instant lastActivityAt;
+
+    @JsonProperty("last_message_id")
+    private final String lastMessageId;
+
+    @JsonProperty("last_message_sender_name")
+    private final String lastMessageSenderName;
+
+    @JsonProperty("last_message_preview")
+    private final String lastMessagePreview;
+
+    @JsonProperty("last_message_content_type")
+    private final ContentType lastMessageContentType;
+}
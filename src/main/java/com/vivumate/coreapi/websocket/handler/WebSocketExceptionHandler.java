@@ -5,6 +5,7 @@ import com.vivumate.coreapi.exception.ErrorCode;
 import com.vivumate.coreapi.websocket.dto.WebSocketErrorResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.support.MethodArgumentNotValidException;
 import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 
@@ -64,6 +65,23 @@ public class WebSocketExceptionHandler {
         );
     }
 
+    /**
+     * Handles {@code @Valid @Payload} failures (e.g. a {@code chat.send} without content).
+     *
+     * @param ex the payload validation exception
+     * @return error response sent to /user/queue/errors
+     */
+    @MessageExceptionHandler(MethodArgumentNotValidException.class)
+    @SendToUser("/queue/errors")
+    public WebSocketErrorResponse handleMethodArgumentNotValid(MethodArgumentNotValidException ex) {
+        String message = ex.getBindingResult() != null && ex.getBindingResult().getFieldError() != null
+                ? ex.getBindingResult().getFieldError().getDefaultMessage()
+                : ErrorCode.INVALID_INPUT.getMessageKey();
+        log.warn("WebSocket payload validation failed: {}", message);
+
+        return WebSocketErrorResponse.of(ErrorCode.INVALID_INPUT.getCode(), message);
+    }
+
     /**
      * Fallback handler for all uncaught exceptions in @MessageMapping methods.
      * <p>
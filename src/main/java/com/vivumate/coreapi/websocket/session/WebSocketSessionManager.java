@@ -3,11 +3,15 @@ package com.vivumate.coreapi.websocket.session;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -22,7 +26,7 @@ import java.util.concurrent.ConcurrentHashMap;
  *       tracks which sessions belong to which user on THIS server instance.</li>
  *   <li><b>Global state</b> (Redis): {@code ws_routing:{userId} → Set<serverId>} —
  *       tracks which server instances hold connections for a given user.
- *       Used by {@code CrossServerMessageRouter} (Phase 6) to route messages.</li>
+ *       Used by {@code CrossServerFrameRelay} to route messages.</li>
  * </ul>
  * <p>
  * <b>Multi-device support:</b> A single user can have multiple active sessions
@@ -336,7 +340,7 @@ public class WebSocketSessionManager {
      * Returns all server IDs that currently hold WebSocket connections
      * for the given user. Reads from Redis (global state).
      * <p>
-     * Used by {@code CrossServerMessageRouter} to determine where
+     * Used by {@code CrossServerFrameRelay} to determine where
      * to publish messages for cross-server delivery.
      *
      * @param userId PostgreSQL user ID
@@ -351,6 +355,37 @@ public class WebSocketSessionManager {
         return Collections.unmodifiableSet(members);
     }
 
+    /**
+     * Batch variant of {@link #getServersForUser(Long)}: one pipelined round trip
+     * for all users (group fan-out).
+     *
+     * @param userIds PostgreSQL user IDs
+     * @return userId → server IDs; users offline everywhere are absent
+     */
+    public Map<Long, Set<String>> getServersForUsers(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (Long userId : userIds) {
+                conn.sMembers(WS_ROUTING_KEY_PREFIX + userId);
+            }
+            return null;
+        });
+
+        Map<Long, Set<String>> serversByUser = new HashMap<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Set<String> servers = (Set<String>) replies.get(i);
+            if (servers != null && !servers.isEmpty()) {
+                serversByUser.put(userIds.get(i), servers);
+            }
+        }
+        return serversByUser;
+    }
+
     /**
      * Checks if a user is connected to ANY server in the cluster.
      * Reads from Redis routing set.
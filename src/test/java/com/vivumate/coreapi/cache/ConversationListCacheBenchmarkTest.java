@@ -0,0 +1,303 @@
+package com.vivumate.coreapi.cache;
+
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.enums.ConversationType;
+import com.vivumate.coreapi.document.subdoc.LastMessagePreview;
+import com.vivumate.coreapi.document.subdoc.Participant;
+import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import com.vivumate.coreapi.repository.redis.ConversationListRedisRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Replays a synthetic chat trace against the conversation-list cache on a live Redis and checks
+ * every served page against an in-memory model of the data.
+ * <p>
+ * 2,000 users in 5,000 conversations of 2–8 members; 200,000 operations: 60% first-page loads
+ * (skewed towards active users), 35% messages, 3% renames, 2% joins / leaves. The model plays
+ * MongoDB: it answers the list query (counted) and the by-{@code _id} re-loads. Reports the hit
+ * ratio and the list queries run with the cache vs one per load without it. Uses the given
+ * database, which is flushed:
+ * <pre>
+ * mvn test -Dtest=ConversationListCacheBenchmarkTest -Dbenchmark=true [-Dbenchmark.redis-uri=redis://localhost:6379/15]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ConversationListCacheBenchmarkTest {
+
+    private static final int USERS = 2_000;
+    private static final int CONVERSATIONS = 5_000;
+    private static final int OPERATIONS = 200_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int CAPACITY = 50;
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    /** In-memory "database". */
+    private final Map<ObjectId, Conversation> conversations = new HashMap<>();
+    private final Map<Long, Set<ObjectId>> conversationsByUser = new HashMap<>();
+    private final AtomicLong clock = new AtomicLong(Instant.parse("2025-06-01T00:00:00Z").toEpochMilli());
+    private final AtomicLong listQueries = new AtomicLong();
+
+    @BeforeAll
+    static void connect() {
+        URI uri = URI.create(System.getProperty("benchmark.redis-uri", "redis://localhost:6379/15"));
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(uri.getHost(), uri.getPort());
+        configuration.setDatabase(uri.getPath().length() > 1 ? Integer.parseInt(uri.getPath().substring(1)) : 15);
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        flushDb();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        flushDb();
+        connectionFactory.destroy();
+    }
+
+    private static void flushDb() {
+        try (var connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushDb();
+        }
+    }
+
+    @Test
+    void replayTrace() {
+        Random random = new Random(42);
+        seedModel(random);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ConversationListCache cache = new ConversationListCache(new ConversationListRedisRepository(redisTemplate),
+                conversationRepository(), membershipCache(), converter(), meterRegistry,
+                true, CAPACITY, Duration.ofMinutes(5));
+
+        long loads = 0;
+        long start = System.nanoTime();
+        for (int op = 0; op < OPERATIONS; op++) {
+            clock.addAndGet(1 + random.nextInt(50));
+            int dice = random.nextInt(100);
+            if (dice < 60) {
+                Long userId = activeUser(random);
+                List<ConversationDocument> page = cache.firstPage(userId, PAGE_SIZE, limit -> runListQuery(userId, limit));
+                assertMatchesModel(userId, page);
+                loads++;
+            } else if (dice < 95) {
+                ObjectId conversationId = activeConversation(random);
+                cache.onLastMessages(Map.of(conversationId, send(conversationId)));
+            } else if (dice < 98) {
+                ObjectId conversationId = activeConversation(random);
+                conversations.get(conversationId).name = "renamed " + op;
+                cache.invalidate(List.of(conversationId));
+            } else {
+                joinOrLeave(cache, random);
+            }
+        }
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        double hits = count(meterRegistry, "hit") + count(meterRegistry, "partial");
+        System.out.printf("conversation list: %,d loads in %,d ms — hit ratio %.1f%% (hit=%.0f partial=%.0f loaded=%.0f)%n",
+                loads, elapsedMs, 100.0 * hits / loads, count(meterRegistry, "hit"),
+                count(meterRegistry, "partial"), count(meterRegistry, "loaded"));
+        System.out.printf("list queries: %,d with the cache vs %,d without (-%.1f%%)%n",
+                listQueries.get(), loads, 100.0 * (loads - listQueries.get()) / loads);
+
+        assertThat(hits / loads).isGreaterThan(0.8);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  TRACE
+    // ═══════════════════════════════════════════════════════════
+
+    private void seedModel(Random random) {
+        for (int i = 0; i < CONVERSATIONS; i++) {
+            Conversation conversation = new Conversation();
+            conversation.id = new ObjectId(new Date(clock.get()), i);
+            conversation.name = "conversation " + i;
+            int size = 2 + random.nextInt(7);
+            while (conversation.members.size() < size) {
+                conversation.members.add(activeUser(random));
+            }
+            conversations.put(conversation.id, conversation);
+            conversation.members.forEach(userId ->
+                    conversationsByUser.computeIfAbsent(userId, k -> new LinkedHashSet<>()).add(conversation.id));
+            clock.incrementAndGet();
+            send(conversation.id);
+        }
+    }
+
+    /** Squared uniform: low user IDs are much more active. */
+    private static Long activeUser(Random random) {
+        double r = random.nextDouble();
+        return 1L + (long) (r * r * USERS);
+    }
+
+    private ObjectId activeConversation(Random random) {
+        Set<ObjectId> ids = conversationsByUser.get(activeUser(random));
+        while (ids == null || ids.isEmpty()) {
+            ids = conversationsByUser.get(activeUser(random));
+        }
+        return ids.stream().skip(random.nextInt(ids.size())).findFirst().orElseThrow();
+    }
+
+    private LastMessagePreview send(ObjectId conversationId) {
+        Conversation conversation = conversations.get(conversationId);
+        long now = clock.get();
+        conversation.lastActivityAt = now;
+        conversation.lastMessage = LastMessagePreview.builder()
+                .messageId(new ObjectId(new Date(now), (int) (now % 1000)))
+                .senderId(conversation.members.iterator().next())
+                .contentPreview("message at " + now)
+                .contentType(ContentType.TEXT)
+                .sentAt(Instant.ofEpochMilli(now))
+                .build();
+        return conversation.lastMessage;
+    }
+
+    private void joinOrLeave(ConversationListCache cache, Random random) {
+        ObjectId conversationId = activeConversation(random);
+        Conversation conversation = conversations.get(conversationId);
+        if (random.nextBoolean() && conversation.members.size() > 2) {
+            Long userId = conversation.members.iterator().next();
+            conversation.members.remove(userId);
+            conversationsByUser.get(userId).remove(conversationId);
+            cache.invalidate(List.of(conversationId));
+            cache.removeEntries(conversationId, List.of(userId));
+        } else {
+            Long userId = activeUser(random);
+            if (conversation.members.add(userId)) {
+                conversationsByUser.computeIfAbsent(userId, k -> new LinkedHashSet<>()).add(conversationId);
+                cache.invalidate(List.of(conversationId));
+                cache.addEntries(toDocument(conversation), List.of(userId));
+            }
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    //  MODEL (plays MongoDB)
+    // ═══════════════════════════════════════════════════════════
+
+    private List<ConversationDocument> runListQuery(Long userId, int limit) {
+        listQueries.incrementAndGet();
+        return expectedList(userId, limit).stream().map(this::toDocument).toList();
+    }
+
+    private List<Conversation> expectedList(Long userId, int limit) {
+        return conversationsByUser.getOrDefault(userId, Set.of()).stream()
+                .map(conversations::get)
+                .sorted(Comparator.comparingLong((Conversation c) -> c.lastActivityAt).thenComparing(c -> c.id)
+                        .reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private void assertMatchesModel(Long userId, List<ConversationDocument> page) {
+        List<Conversation> expected = expectedList(userId, PAGE_SIZE);
+        assertThat(page).extracting(ConversationDocument::getId)
+                .containsExactlyElementsOf(expected.stream().map(c -> c.id).toList());
+        for (int i = 0; i < page.size(); i++) {
+            assertThat(page.get(i).getName()).isEqualTo(expected.get(i).name);
+            assertThat(page.get(i).getLastMessage().getContentPreview())
+                    .isEqualTo(expected.get(i).lastMessage.getContentPreview());
+            assertThat(page.get(i).getLastActivityAt().toEpochMilli()).isEqualTo(expected.get(i).lastActivityAt);
+        }
+    }
+
+    private ConversationDocument toDocument(Conversation conversation) {
+        ConversationDocument document = ConversationDocument.builder()
+                .type(ConversationType.GROUP)
+                .name(conversation.name)
+                .memberCount(conversation.members.size())
+                .participantIds(new ArrayList<>(conversation.members))
+                .participants(conversation.members.stream()
+                        .map(userId -> Participant.builder().userId(userId).build())
+                        .toList())
+                .lastActivityAt(Instant.ofEpochMilli(conversation.lastActivityAt))
+                .lastMessage(conversation.lastMessage)
+                .build();
+        document.setId(conversation.id);
+        return document;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConversationRepository conversationRepository() {
+        ConversationRepository repository = mock(ConversationRepository.class);
+        given(repository.findListItemsByIds(any(), anyCollection())).willAnswer(invocation ->
+                ((Collection<ObjectId>) invocation.getArgument(1)).stream()
+                        .map(conversations::get)
+                        .map(this::toDocument)
+                        .toList());
+        return repository;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConversationMembershipCache membershipCache() {
+        ConversationMembershipCache membershipCache = mock(ConversationMembershipCache.class);
+        given(membershipCache.getAll(anyCollection())).willAnswer(invocation -> {
+            Map<ObjectId, ConversationMembership> memberships = new HashMap<>();
+            for (ObjectId id : (Collection<ObjectId>) invocation.getArgument(0)) {
+                memberships.put(id, ConversationMembership.from(toDocument(conversations.get(id))));
+            }
+            return memberships;
+        });
+        return membershipCache;
+    }
+
+    private static MappingMongoConverter converter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    private static double count(SimpleMeterRegistry meterRegistry, String result) {
+        return meterRegistry.get("vivumate.chat.conversation_list.lookups").tag("result", result).counter().count();
+    }
+
+    private static final class Conversation {
+        ObjectId id;
+        String name;
+        final Set<Long> members = new LinkedHashSet<>();
+        long lastActivityAt;
+        LastMessagePreview lastMessage;
+    }
+}
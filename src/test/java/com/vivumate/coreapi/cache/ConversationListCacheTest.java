@@ -0,0 +1,216 @@
+package com.vivumate.coreapi.cache;
+
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.enums.ConversationType;
+import com.vivumate.coreapi.document.subdoc.LastMessagePreview;
+import com.vivumate.coreapi.document.subdoc.Participant;
+import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import com.vivumate.coreapi.repository.redis.ConversationListRedisRepository;
+import com.vivumate.coreapi.repository.redis.ConversationListRedisRepository.Entry;
+import com.vivumate.coreapi.repository.redis.ConversationListRedisRepository.Item;
+import com.vivumate.coreapi.repository.redis.ConversationListRedisRepository.ItemSeed;
+import com.vivumate.coreapi.repository.redis.ConversationListRedisRepository.Page;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willThrow;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationListCacheTest {
+
+    private static final int CAPACITY = 5;
+    private static final Long USER_ID = 10L;
+    private static final Instant BASE = Instant.parse("2025-06-01T00:00:00Z");
+
+    @Mock
+    private ConversationListRedisRepository redisRepository;
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Mock
+    private ConversationMembershipCache membershipCache;
+
+    private ConversationListCache cache;
+
+    @BeforeEach
+    void setUp() {
+        // Same conversions Spring Boot configures for the application converter
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        cache = new ConversationListCache(redisRepository, conversationRepository, membershipCache, converter,
+                new SimpleMeterRegistry(), true, CAPACITY, Duration.ofMinutes(5));
+    }
+
+    /**
+     * @return {@code count} group conversations, newest activity first, one second apart
+     */
+    private static List<ConversationDocument> conversations(int count) {
+        List<ConversationDocument> newestFirst = new ArrayList<>();
+        for (int i = count - 1; i >= 0; i--) {
+            Instant activity = BASE.plusSeconds(i);
+            ConversationDocument conversation = ConversationDocument.builder()
+                    .type(ConversationType.GROUP)
+                    .name("group " + i)
+                    .memberCount(3)
+                    .lastActivityAt(activity)
+                    .lastMessage(preview(new ObjectId(Date.from(activity), i), activity, "hello " + i))
+                    .unreadCounts(Map.of(String.valueOf(USER_ID), i))
+                    .build();
+            conversation.setId(new ObjectId(Date.from(BASE), i));
+            newestFirst.add(conversation);
+        }
+        return newestFirst;
+    }
+
+    private static LastMessagePreview preview(ObjectId messageId, Instant sentAt, String text) {
+        return LastMessagePreview.builder()
+                .messageId(messageId)
+                .senderId(20L)
+                .contentPreview(text)
+                .contentType(ContentType.TEXT)
+                .sentAt(sentAt)
+                .build();
+    }
+
+    private static List<Entry> entries(List<ConversationDocument> newestFirst) {
+        return newestFirst.stream()
+                .map(c -> new Entry(c.getId(), c.getLastActivityAt().toEpochMilli()))
+                .toList();
+    }
+
+    private Item item(ConversationDocument conversation) {
+        return new Item(cache.encodeDisplayFields(conversation), cache.encode(conversation.getLastMessage()), "");
+    }
+
+    @Test
+    @DisplayName("Should load capacity conversations on a miss, seed Redis and return only the requested page")
+    void firstPage_Miss_LoadsCapacityAndSeeds() {
+        List<ConversationDocument> all = conversations(3);
+        given(redisRepository.readPage(eq(USER_ID), eq(2), any())).willReturn(new Page(false, List.of(), false, "7"));
+        List<Integer> limits = new ArrayList<>();
+
+        List<ConversationDocument> page = cache.firstPage(USER_ID, 2, limit -> {
+            limits.add(limit);
+            return all;
+        });
+
+        assertThat(limits).containsExactly(CAPACITY);
+        assertThat(page).extracting(ConversationDocument::getName).containsExactly("group 2", "group 1");
+        then(redisRepository).should().seedItems(anyList(), any());
+        // Fewer than capacity conversations: the page is the whole list
+        then(redisRepository).should().seedPage(USER_ID, "7", entries(all), true, Duration.ofMinutes(5));
+    }
+
+    @Test
+    @DisplayName("Should serve a cached page without MongoDB, activity from the page and without unread counters")
+    void firstPage_Hit_ServesFromRedis() {
+        List<ConversationDocument> all = conversations(3);
+        given(redisRepository.readPage(eq(USER_ID), eq(2), any()))
+                .willReturn(new Page(true, entries(all), false, "3"));
+        given(redisRepository.readItems(eq(List.of(all.get(0).getId(), all.get(1).getId())), any()))
+                .willReturn(List.of(item(all.get(0)), item(all.get(1))));
+
+        List<ConversationDocument> page = cache.firstPage(USER_ID, 2, limit -> {
+            throw new AssertionError("list query must not run on a hit");
+        });
+
+        assertThat(page).extracting(ConversationDocument::getName).containsExactly("group 2", "group 1");
+        assertThat(page.getFirst().getLastMessage().getContentPreview()).isEqualTo("hello 2");
+        assertThat(page.getFirst().getLastActivityAt()).isEqualTo(BASE.plusSeconds(2));
+        assertThat(page.getFirst().getUnreadCounts()).doesNotContainKey(String.valueOf(USER_ID));
+        then(conversationRepository).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("Should re-load only evicted conversations by _id and store them under the version read")
+    void firstPage_EvictedItem_ReloadsById() {
+        List<ConversationDocument> all = conversations(2);
+        ConversationDocument renamed = all.get(1);
+        renamed.setName("renamed");
+        given(redisRepository.readPage(eq(USER_ID), eq(2), any()))
+                .willReturn(new Page(true, entries(all), true, "3"));
+        given(redisRepository.readItems(anyList(), any()))
+                .willReturn(List.of(item(all.get(0)), new Item(null, null, "4")));
+        given(conversationRepository.findListItemsByIds(USER_ID, Set.of(renamed.getId())))
+                .willReturn(List.of(renamed));
+
+        List<ConversationDocument> page = cache.firstPage(USER_ID, 2, limit -> {
+            throw new AssertionError("list query must not run when only display fields are missing");
+        });
+
+        assertThat(page).extracting(ConversationDocument::getName).containsExactly("group 1", "renamed");
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ItemSeed>> seeds = ArgumentCaptor.forClass(List.class);
+        then(redisRepository).should().seedItems(seeds.capture(), any());
+        assertThat(seeds.getValue()).singleElement().satisfies(seed -> {
+            assertThat(seed.conversationId()).isEqualTo(renamed.getId());
+            assertThat(seed.expectedVersion()).isEqualTo("4");
+        });
+    }
+
+    @Test
+    @DisplayName("Should move a conversation up only in the pages of members who did not clear it later")
+    void onLastMessages_SkipsMembersWhoClearedLater() {
+        ObjectId convId = new ObjectId();
+        Instant sentAt = BASE.plusSeconds(60);
+        ConversationDocument conversation = ConversationDocument.builder()
+                .type(ConversationType.GROUP)
+                .participants(List.of(
+                        Participant.builder().userId(10L).build(),
+                        Participant.builder().userId(11L).clearedAt(sentAt.plusSeconds(1)).build(),
+                        Participant.builder().userId(12L).clearedAt(sentAt.minusSeconds(1)).build()))
+                .build();
+        given(membershipCache.getAll(Set.of(convId)))
+                .willReturn(Map.of(convId, ConversationMembership.from(conversation)));
+        ObjectId messageId = new ObjectId();
+
+        cache.onLastMessages(Map.of(convId, preview(messageId, sentAt, "hi")));
+
+        then(redisRepository).should().addEntry(eq(convId), eq(List.of(10L, 12L)), eq(sentAt.toEpochMilli()),
+                eq(messageId), any(), eq(CAPACITY), any());
+    }
+
+    @Test
+    @DisplayName("Should drop the affected pages when a patch fails")
+    void patchFailure_DropsPages() {
+        ObjectId convId = new ObjectId();
+        willThrow(new IllegalStateException("redis down"))
+                .given(redisRepository).removeEntry(eq(convId), anyList(), any());
+
+        cache.removeEntries(convId, List.of(10L, 11L));
+
+        then(redisRepository).should().deletePages(List.of(10L, 11L), Duration.ofMinutes(5));
+    }
+}
@@ -0,0 +1,131 @@
+package com.vivumate.coreapi.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.enums.ConversationType;
+import com.vivumate.coreapi.document.enums.ParticipantRole;
+import com.vivumate.coreapi.document.subdoc.Participant;
+import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationMembershipCacheTest {
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    private ConversationMembershipCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ConversationMembershipCache(conversationRepository, invalidationBus,
+                new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+    }
+
+    private static ConversationDocument group(Instant clearedAt) {
+        ConversationDocument conversation = new ConversationDocument();
+        conversation.setType(ConversationType.GROUP);
+        conversation.setParticipants(List.of(
+                Participant.builder().userId(30L).role(ParticipantRole.MEMBER).build(),
+                Participant.builder().userId(10L).role(ParticipantRole.ADMIN).clearedAt(clearedAt).build()
+        ));
+        return conversation;
+    }
+
+    @Test
+    @DisplayName("Should answer membership, role and clearedAt from one projected load")
+    void get_CachesProjectedMembership() {
+        ObjectId convId = new ObjectId();
+        Instant clearedAt = Instant.parse("2025-01-01T00:00:00Z");
+        given(conversationRepository.findMembershipById(convId)).willReturn(Optional.of(group(clearedAt)));
+
+        ConversationMembership first = cache.getIfMember(convId, 10L).orElseThrow();
+        Optional<ConversationMembership> outsider = cache.getIfMember(convId, 20L);
+
+        assertThat(first.isAdmin(10L)).isTrue();
+        assertThat(first.clearedAtOf(10L)).isEqualTo(clearedAt);
+        assertThat(first.memberIdsExcept(10L)).containsExactly(30L);
+        assertThat(outsider).isEmpty();
+        then(conversationRepository).should(times(1)).findMembershipById(convId);
+    }
+
+    @Test
+    @DisplayName("Should not cache a load that raced with an invalidation")
+    void get_InvalidatedDuringLoad_DoesNotCacheStaleSnapshot() {
+        ObjectId convId = new ObjectId();
+        given(conversationRepository.findMembershipById(convId)).willAnswer(invocation -> {
+            // A membership change commits while this (stale) read is in flight
+            cache.invalidate(convId);
+            return Optional.of(group(null));
+        });
+
+        cache.get(convId);
+        cache.get(convId);
+
+        then(conversationRepository).should(times(2)).findMembershipById(convId);
+    }
+
+    @Test
+    @DisplayName("Should not keep a snapshot when the invalidation lands between the version check and the put")
+    void get_InvalidatedBeforePut_DoesNotKeepStaleSnapshot() {
+        ObjectId convId = new ObjectId();
+        Cache<ObjectId, ConversationMembership> caffeine = spy(Caffeine.newBuilder().<ObjectId, ConversationMembership>build());
+        ConversationMembershipCache racingCache =
+                new ConversationMembershipCache(caffeine, conversationRepository, invalidationBus);
+        given(conversationRepository.findMembershipById(convId)).willReturn(Optional.of(group(null)));
+        // The version check has passed; the membership change commits right before the put
+        willAnswer(invocation -> {
+            racingCache.invalidate(convId);
+            return invocation.callRealMethod();
+        }).given(caffeine).put(eq(convId), any());
+
+        racingCache.get(convId);
+
+        assertThat(caffeine.getIfPresent(convId)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should not keep a batch-loaded snapshot when the invalidation lands between the version check and the put")
+    void getAll_InvalidatedBeforePut_DoesNotKeepStaleSnapshot() {
+        ObjectId convId = new ObjectId();
+        Cache<ObjectId, ConversationMembership> caffeine = spy(Caffeine.newBuilder().<ObjectId, ConversationMembership>build());
+        ConversationMembershipCache racingCache =
+                new ConversationMembershipCache(caffeine, conversationRepository, invalidationBus);
+        ConversationDocument conversation = group(null);
+        conversation.setId(convId);
+        given(conversationRepository.findMembershipsByIdIn(Set.of(convId))).willReturn(List.of(conversation));
+        willAnswer(invocation -> {
+            racingCache.invalidate(convId);
+            return invocation.callRealMethod();
+        }).given(caffeine).put(eq(convId), any());
+
+        assertThat(racingCache.getAll(List.of(convId))).containsKey(convId);
+        assertThat(caffeine.getIfPresent(convId)).isNull();
+    }
+}
@@ -0,0 +1,99 @@
+package com.vivumate.coreapi.cache;
+
+import com.vivumate.coreapi.document.HiddenMessagesDocument;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.repository.mongodb.HiddenMessagesRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+@ExtendWith(MockitoExtension.class)
+class HiddenMessagesCacheTest {
+
+    private static final Long USER_ID = 10L;
+
+    @Mock
+    private HiddenMessagesRepository hiddenMessagesRepository;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    private HiddenMessagesCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new HiddenMessagesCache(hiddenMessagesRepository, invalidationBus,
+                new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+    }
+
+    private static ObjectId idAt(int second) {
+        return new ObjectId(Date.from(Instant.parse("2025-06-01T00:00:00Z").plusSeconds(second)), 0);
+    }
+
+    @Test
+    @DisplayName("Should load a bucket once and answer membership and range counts from the sorted IDs")
+    void get_LoadsBucketOnce() {
+        ObjectId convId = new ObjectId();
+        HiddenMessagesDocument bucket = HiddenMessagesDocument.builder()
+                .userId(USER_ID).conversationId(convId)
+                .messageIds(List.of(idAt(30), idAt(10), idAt(20)))
+                .build();
+        given(hiddenMessagesRepository.findByUserIdAndConversationId(USER_ID, convId)).willReturn(Optional.of(bucket));
+
+        HiddenMessages hidden = cache.get(convId, USER_ID);
+        cache.get(convId, USER_ID);
+
+        assertThat(hidden.contains(idAt(20))).isTrue();
+        assertThat(hidden.contains(idAt(25))).isFalse();
+        assertThat(hidden.countBetween(null, null)).isEqualTo(3);
+        assertThat(hidden.countBetween(idAt(10), idAt(30))).isEqualTo(1); // exclusive bounds
+        assertThat(hidden.countBetween(idAt(15), null)).isEqualTo(2);
+        then(hiddenMessagesRepository).should(times(1)).findByUserIdAndConversationId(USER_ID, convId);
+    }
+
+    @Test
+    @DisplayName("Should cache users without a bucket as an empty set")
+    void get_NoBucket_CachesNone() {
+        ObjectId convId = new ObjectId();
+        given(hiddenMessagesRepository.findByUserIdAndConversationId(USER_ID, convId)).willReturn(Optional.empty());
+
+        assertThat(cache.get(convId, USER_ID)).isSameAs(HiddenMessages.NONE);
+        assertThat(cache.get(convId, USER_ID)).isSameAs(HiddenMessages.NONE);
+
+        then(hiddenMessagesRepository).should(times(1)).findByUserIdAndConversationId(USER_ID, convId);
+    }
+
+    @Test
+    @DisplayName("Should not cache a load that raced with a hide, and broadcast the invalidation")
+    void get_InvalidatedDuringLoad_DoesNotCacheStaleSet() {
+        ObjectId convId = new ObjectId();
+        given(hiddenMessagesRepository.findByUserIdAndConversationId(USER_ID, convId)).willAnswer(invocation -> {
+            // A hide commits while this (stale) read is in flight
+            cache.invalidate(convId, USER_ID);
+            return Optional.empty();
+        });
+
+        cache.get(convId, USER_ID);
+        cache.get(convId, USER_ID);
+
+        then(hiddenMessagesRepository).should(times(2)).findByUserIdAndConversationId(USER_ID, convId);
+        then(invalidationBus).should(times(2))
+                .publish(HiddenMessagesCache.CACHE_NAME, USER_ID + ":" + convId.toHexString());
+    }
+}
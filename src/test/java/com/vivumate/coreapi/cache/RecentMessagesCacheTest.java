@@ -0,0 +1,186 @@
+package com.vivumate.coreapi.cache;
+
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.document.subdoc.SenderSnapshot;
+import com.vivumate.coreapi.repository.mongodb.MessageRepository;
+import com.vivumate.coreapi.repository.redis.RecentMessagesRedisRepository;
+import com.vivumate.coreapi.repository.redis.RecentMessagesRedisRepository.Snapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+@ExtendWith(MockitoExtension.class)
+class RecentMessagesCacheTest {
+
+    private static final int CAPACITY = 5;
+
+    @Mock
+    private RecentMessagesRedisRepository redisRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    private RecentMessagesCache cache;
+
+    @BeforeEach
+    void setUp() {
+        // Same conversions Spring Boot configures for the application converter
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        cache = new RecentMessagesCache(redisRepository, messageRepository, converter, invalidationBus,
+                new SimpleMeterRegistry(), CAPACITY, 1000, Duration.ofMinutes(2), Duration.ofMinutes(5),
+                Duration.ofMinutes(30));
+    }
+
+    /**
+     * @return {@code count} messages of one conversation, newest first, one second apart
+     */
+    private static List<MessageDocument> messages(ObjectId convId, int count) {
+        Instant base = Instant.parse("2025-06-01T00:00:00Z");
+        List<MessageDocument> newestFirst = new ArrayList<>();
+        for (int i = count - 1; i >= 0; i--) {
+            MessageDocument message = MessageDocument.builder()
+                    .conversationId(convId)
+                    .sender(SenderSnapshot.builder().userId(20L).fullName("Lan").build())
+                    .contentType(ContentType.TEXT)
+                    .content(MessageContent.builder().text("message " + i).build())
+                    .build();
+            message.setId(new ObjectId(Date.from(base.plusSeconds(i)), i));
+            message.setCreatedAt(base.plusSeconds(i));
+            message.setUpdatedAt(base.plusSeconds(i));
+            newestFirst.add(message);
+        }
+        return newestFirst;
+    }
+
+    private List<byte[]> redisMembers(List<MessageDocument> newestFirst, boolean reachesStart) {
+        List<byte[]> oldestFirst = new ArrayList<>();
+        if (reachesStart) {
+            oldestFirst.add(RecentMessagesRedisRepository.START_MARKER);
+        }
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            oldestFirst.add(cache.encode(newestFirst.get(i)));
+        }
+        return oldestFirst;
+    }
+
+    private static List<String> texts(List<MessageDocument> page) {
+        return page.stream().map(m -> m.getContent().getText()).toList();
+    }
+
+    @Test
+    @DisplayName("Should serve the first page from the Redis ring, applying hidden messages and clearedAt per user")
+    void firstPage_RedisRing_AppliesPerUserFilters() {
+        ObjectId convId = new ObjectId();
+        List<MessageDocument> ring = messages(convId, 4);
+        HiddenMessages hidden = HiddenMessages.of(List.of(ring.get(1).getId()));
+        given(redisRepository.read(eq(convId), any())).willReturn(new Snapshot(redisMembers(ring, true), "3"));
+
+        List<MessageDocument> page = cache.firstPage(convId, hidden, null, 3).orElseThrow();
+        List<MessageDocument> afterClear = cache.firstPage(convId, hidden,
+                ring.get(2).getCreatedAt().plusMillis(500), 3).orElseThrow();
+
+        assertThat(texts(page)).containsExactly("message 3", "message 1", "message 0");
+        assertThat(page.getFirst().getSender().getFullName()).isEqualTo("Lan");
+        assertThat(texts(afterClear)).containsExactly("message 3");
+        then(redisRepository).should(times(1)).read(eq(convId), any());
+        then(messageRepository).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("Should seed Redis from one MongoDB load on a miss, marking a conversation shorter than the ring")
+    void firstPage_Miss_SeedsFromMongo() {
+        ObjectId convId = new ObjectId();
+        given(redisRepository.read(eq(convId), any())).willReturn(new Snapshot(List.of(), "7"));
+        given(messageRepository.findRecentMessages(convId, CAPACITY)).willReturn(messages(convId, 2));
+        given(redisRepository.seed(eq(convId), eq("7"), anyList(), any())).willReturn(true);
+
+        List<MessageDocument> page = cache.firstPage(convId, HiddenMessages.NONE, null, 3).orElseThrow();
+        cache.firstPage(convId, HiddenMessages.NONE, null, 3);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<byte[]>> members = ArgumentCaptor.forClass(List.class);
+        then(redisRepository).should().seed(eq(convId), eq("7"), members.capture(), any());
+        assertThat(members.getValue()).hasSize(3);
+        assertThat(RecentMessagesRedisRepository.isStartMarker(members.getValue().getFirst())).isTrue();
+        assertThat(texts(page)).containsExactly("message 1", "message 0");
+        then(messageRepository).should(times(1)).findRecentMessages(convId, CAPACITY);
+    }
+
+    @Test
+    @DisplayName("Should fall back to MongoDB when hidden messages leave the ring short of a page")
+    void firstPage_RingCannotFillPage_Empty() {
+        ObjectId convId = new ObjectId();
+        List<MessageDocument> ring = messages(convId, CAPACITY);
+        HiddenMessages hiddenAll = HiddenMessages.of(ring.stream().map(MessageDocument::getId).toList());
+        given(redisRepository.read(eq(convId), any())).willReturn(new Snapshot(redisMembers(ring, false), "1"));
+
+        assertThat(cache.firstPage(convId, hiddenAll, null, 3)).isEmpty();
+        assertThat(cache.firstPage(convId, HiddenMessages.NONE, null, 3)).isPresent();
+    }
+
+    @Test
+    @DisplayName("Should serve but not cache a MongoDB load that raced with a write")
+    void firstPage_SeedRejected_NotCached() {
+        ObjectId convId = new ObjectId();
+        given(redisRepository.read(eq(convId), any())).willReturn(new Snapshot(List.of(), ""));
+        given(messageRepository.findRecentMessages(convId, CAPACITY)).willReturn(messages(convId, 1));
+        given(redisRepository.seed(eq(convId), eq(""), anyList(), any())).willReturn(false);
+
+        assertThat(cache.firstPage(convId, HiddenMessages.NONE, null, 3)).isPresent();
+        cache.firstPage(convId, HiddenMessages.NONE, null, 3);
+
+        then(messageRepository).should(times(2)).findRecentMessages(convId, CAPACITY);
+    }
+
+    @Test
+    @DisplayName("Should update the Redis ring and evict L1 everywhere after a send")
+    void onSent_AppendsAndEvicts() {
+        ObjectId convId = new ObjectId();
+        given(redisRepository.read(eq(convId), any())).willReturn(new Snapshot(redisMembers(messages(convId, 1), true), "1"));
+        cache.firstPage(convId, HiddenMessages.NONE, null, 3);
+
+        MessageDocument sent = messages(convId, 2).getFirst();
+        cache.onSent(sent);
+        cache.firstPage(convId, HiddenMessages.NONE, null, 3);
+
+        then(redisRepository).should().append(eq(convId), any(byte[].class), eq(CAPACITY), any());
+        then(invalidationBus).should().publish(RecentMessagesCache.CACHE_NAME, convId.toHexString());
+        then(redisRepository).should(times(2)).read(eq(convId), any());
+    }
+}
@@ -0,0 +1,82 @@
+package com.vivumate.coreapi.cache;
+
+import com.vivumate.coreapi.document.subdoc.SenderSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+@ExtendWith(MockitoExtension.class)
+class SenderSnapshotCacheTest {
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SenderSnapshotCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new SenderSnapshotCache(invalidationBus, meterRegistry, 100, Duration.ofMinutes(10));
+    }
+
+    private SenderSnapshot load(Long userId) {
+        loads.incrementAndGet();
+        return SenderSnapshot.builder().userId(userId).fullName("User " + userId).build();
+    }
+
+    @Test
+    @DisplayName("Should hit PostgreSQL only once for repeated sends by the same user")
+    void get_RepeatedLookups_LoadsOnce() {
+        for (int i = 0; i < 120; i++) {
+            cache.get(1L, this::load);
+        }
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(119);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should reload after invalidation and broadcast it to other nodes")
+    void invalidate_EvictsLocallyAndPublishes() {
+        cache.get(1L, this::load);
+
+        cache.invalidate(1L);
+        cache.get(1L, this::load);
+
+        assertThat(loads.get()).isEqualTo(2);
+        then(invalidationBus).should().publish(SenderSnapshotCache.CACHE_NAME, "1");
+    }
+
+    @Test
+    @DisplayName("Should evict locally when another node broadcasts an invalidation")
+    @SuppressWarnings("unchecked")
+    void remoteInvalidation_EvictsLocally() {
+        ArgumentCaptor<Consumer<String>> handler = ArgumentCaptor.forClass(Consumer.class);
+        then(invalidationBus).should().register(eq(SenderSnapshotCache.CACHE_NAME), handler.capture());
+
+        cache.get(1L, this::load);
+        handler.getValue().accept("1");
+        cache.get(1L, this::load);
+
+        assertThat(loads.get()).isEqualTo(2);
+        then(invalidationBus).should(never()).publish(any(), any());
+    }
+}
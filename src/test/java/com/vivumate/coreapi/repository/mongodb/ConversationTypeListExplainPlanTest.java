@@ -0,0 +1,109 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.enums.ConversationType;
+import com.vivumate.coreapi.document.subdoc.Participant;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query plan of the type-filtered conversation list against a live MongoDB: an index-bounded
+ * scan of {@code idx_user_type_conversations_latest} that reads about {@code pageSize} keys,
+ * not a walk over the user's whole list that drops the other type after fetching.
+ * <p>
+ * The user has 1,000 conversations; 100 of them are groups, spread over the whole list. Needs
+ * a live MongoDB, so it runs with the benchmarks:
+ * <pre>
+ * mvn test -Dtest=ConversationTypeListExplainPlanTest -Dbenchmark=true [-Dbenchmark.mongo-uri=mongodb://localhost:27017]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ConversationTypeListExplainPlanTest {
+
+    private static final int CONVERSATIONS = 1_000;
+    private static final int PAGE_SIZE = 20;
+    private static final long USER_ID = 10L;
+    private static final String TYPE_INDEX = "idx_user_type_conversations_latest";
+
+    private static LiveMongoFixture mongo;
+    private static MongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void seed() {
+        // All conversation indexes of MongoIndexConfig: the untyped list index competes for the plan
+        mongo = LiveMongoFixture.start("vivumate_explain");
+        mongoTemplate = mongo.mongoTemplate();
+
+        Instant base = Instant.parse("2025-06-01T00:00:00Z");
+        List<ConversationDocument> conversations = new ArrayList<>();
+        for (int i = 0; i < CONVERSATIONS; i++) {
+            long otherUserId = 1_000L + i;
+            conversations.add(ConversationDocument.builder()
+                    .type(i % 10 == 0 ? ConversationType.GROUP : ConversationType.DIRECT)
+                    .participants(List.of(
+                            Participant.builder().userId(USER_ID).build(),
+                            Participant.builder().userId(otherUserId).build()))
+                    .participantIds(List.of(USER_ID, otherUserId))
+                    .memberCount(2)
+                    .lastActivityAt(base.plusSeconds(i))
+                    .build());
+        }
+        mongoTemplate.insertAll(conversations);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        mongo.close();
+    }
+
+    @Test
+    void typeFilteredListIsIndexBounded() {
+        ConversationCustomRepositoryImpl repository = new ConversationCustomRepositoryImpl(mongoTemplate);
+        List<ConversationDocument> firstPage = repository.findConversationsByUserIdAndType(
+                USER_ID, ConversationType.GROUP, null, null, PAGE_SIZE);
+        assertThat(firstPage).hasSize(PAGE_SIZE)
+                .allMatch(conversation -> conversation.getType() == ConversationType.GROUP);
+
+        // The pipeline's leading $match + $sort + $limit, which MongoDB answers from one index scan
+        Document explain = mongoTemplate.getDb().runCommand(new Document("explain", new Document("find", "conversations")
+                        .append("filter", new Document("participant_ids", USER_ID)
+                                .append("type", ConversationType.GROUP.name())
+                                .append("deleted_at", null))
+                        .append("sort", new Document("last_activity_at", -1).append("_id", -1))
+                        .append("limit", PAGE_SIZE))
+                .append("verbosity", "executionStats"));
+
+        Document stats = explain.get("executionStats", Document.class);
+        System.out.printf("group page: keys=%,d docs=%,d returned=%,d%n",
+                stats.getInteger("totalKeysExamined"), stats.getInteger("totalDocsExamined"), stats.getInteger("nReturned"));
+
+        Set<String> stages = new HashSet<>();
+        Set<String> indexes = new HashSet<>();
+        LiveMongoFixture.collectPlan(explain.get("queryPlanner", Document.class).get("winningPlan"), stages, indexes);
+        assertThat(indexes).containsExactly(TYPE_INDEX);
+        assertThat(stages).doesNotContain("SORT", "COLLSCAN");
+        // Without the type in the key this reads ~10 keys per group returned
+        assertThat(stats.getInteger("totalKeysExamined")).isLessThanOrEqualTo(PAGE_SIZE + 1);
+        assertThat(stats.getInteger("totalDocsExamined")).isLessThanOrEqualTo(PAGE_SIZE);
+        assertThat(stats.getInteger("nReturned")).isEqualTo(PAGE_SIZE);
+
+        ConversationDocument last = firstPage.getLast();
+        List<ConversationDocument> secondPage = repository.findConversationsByUserIdAndType(
+                USER_ID, ConversationType.GROUP, last.getLastActivityAt(), last.getId(), PAGE_SIZE);
+        assertThat(secondPage).hasSize(PAGE_SIZE)
+                .allMatch(conversation -> conversation.getType() == ConversationType.GROUP)
+                .allMatch(conversation -> conversation.getLastActivityAt().isBefore(last.getLastActivityAt()));
+    }
+}
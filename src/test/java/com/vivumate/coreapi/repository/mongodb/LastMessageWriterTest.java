@@ -0,0 +1,78 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.vivumate.coreapi.cache.ConversationListCache;
+import com.vivumate.coreapi.document.subdoc.LastMessagePreview;
+import com.vivumate.coreapi.service.UserInboxService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+@ExtendWith(MockitoExtension.class)
+class LastMessageWriterTest {
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Mock
+    private UserInboxService userInboxService;
+
+    @Mock
+    private ConversationListCache conversationListCache;
+
+    @Captor
+    private ArgumentCaptor<Map<ObjectId, LastMessagePreview>> batchCaptor;
+
+    private static LastMessagePreview preview(ObjectId messageId) {
+        return LastMessagePreview.builder().messageId(messageId).contentPreview(messageId.toHexString()).build();
+    }
+
+    @Test
+    @DisplayName("Coalesced mode should write only the newest preview per conversation")
+    void coalesced_KeepsNewestPreviewOnly() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        LastMessageWriter writer = new LastMessageWriter(conversationRepository, userInboxService, conversationListCache,
+                meterRegistry, "coalesced");
+        ObjectId convId = new ObjectId();
+        ObjectId older = new ObjectId();
+        ObjectId newest = new ObjectId();
+
+        writer.submit(convId, preview(older));
+        writer.submit(convId, preview(newest));
+        writer.submit(convId, preview(older)); // delayed, out-of-order submit
+        writer.flushAll();
+
+        then(conversationRepository).should(times(1)).updateLastMessagesIfNewer(batchCaptor.capture());
+        assertThat(batchCaptor.getValue().get(convId).getMessageId()).isEqualTo(newest);
+        then(userInboxService).should(times(1)).applyLastMessages(batchCaptor.getValue());
+        then(conversationListCache).should(times(1)).onLastMessages(batchCaptor.getValue());
+        assertThat(meterRegistry.get("vivumate.chat.last_message.writes").tag("result", "coalesced")
+                .counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Strict mode should write every preview through the monotonic guard")
+    void strict_WritesEveryPreview() {
+        LastMessageWriter writer = new LastMessageWriter(conversationRepository, userInboxService,
+                conversationListCache, new SimpleMeterRegistry(), "strict");
+        ObjectId convId = new ObjectId();
+
+        writer.submit(convId, preview(new ObjectId()));
+        writer.submit(convId, preview(new ObjectId()));
+
+        then(conversationRepository).should(times(2)).updateLastMessageIfNewer(eq(convId), any());
+    }
+}
@@ -0,0 +1,85 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.event.CommandListener;
+import com.vivumate.coreapi.config.MongoIndexConfig;
+import org.bson.Document;
+import org.springframework.data.mapping.model.SnakeCaseFieldNamingStrategy;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Empty database on a live MongoDB for the query-plan and cursor tests, mapped and indexed like the
+ * application: snake_case field names (as in {@code application-dev.yml}) and the indexes of
+ * {@link MongoIndexConfig}, so a plan asserted here is the plan production gets.
+ * <p>
+ * Connects to {@code -Dbenchmark.mongo-uri} (default {@code mongodb://localhost:27017}), with
+ * optional command listeners to observe what the driver sends; the database is dropped on start
+ * and on {@link #close()}.
+ */
+final class LiveMongoFixture implements AutoCloseable {
+
+    private final MongoClient mongoClient;
+    private final MongoTemplate mongoTemplate;
+
+    private LiveMongoFixture(MongoClient mongoClient, MongoTemplate mongoTemplate) {
+        this.mongoClient = mongoClient;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    static LiveMongoFixture start(String database, CommandListener... commandListeners) {
+        MongoClientSettings.Builder settings = MongoClientSettings.builder().applyConnectionString(
+                new ConnectionString(System.getProperty("benchmark.mongo-uri", "mongodb://localhost:27017")));
+        for (CommandListener commandListener : commandListeners) {
+            settings.addCommandListener(commandListener);
+        }
+        MongoClient mongoClient = MongoClients.create(settings.build());
+
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setFieldNamingStrategy(new SnakeCaseFieldNamingStrategy());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+        MongoTemplate mongoTemplate = new MongoTemplate(new SimpleMongoClientDatabaseFactory(mongoClient, database), converter);
+
+        mongoTemplate.getDb().drop();
+        new MongoIndexConfig(mongoTemplate).initIndicesAfterStartup();
+        return new LiveMongoFixture(mongoClient, mongoTemplate);
+    }
+
+    MongoTemplate mongoTemplate() {
+        return mongoTemplate;
+    }
+
+    @Override
+    public void close() {
+        mongoTemplate.getDb().drop();
+        mongoClient.close();
+    }
+
+    /**
+     * Stage names and index names anywhere in a (classic or slot-based) winning plan.
+     */
+    static void collectPlan(Object node, Set<String> stages, Set<String> indexes) {
+        if (node instanceof Document document) {
+            if (document.get("stage") instanceof String stage) {
+                stages.add(stage);
+            }
+            if (document.get("indexName") instanceof String index) {
+                indexes.add(index);
+            }
+            document.values().forEach(value -> collectPlan(value, stages, indexes));
+        } else if (node instanceof List<?> list) {
+            list.forEach(value -> collectPlan(value, stages, indexes));
+        }
+    }
+}
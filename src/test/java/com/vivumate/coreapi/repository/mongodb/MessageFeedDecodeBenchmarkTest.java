@@ -0,0 +1,147 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.projection.MessageFeedItem;
+import com.vivumate.coreapi.document.subdoc.EditHistoryEntry;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.document.subdoc.SenderSnapshot;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mapping.model.SnakeCaseFieldNamingStrategy;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bytes on the wire and decode time of one 50-message feed page: full documents through the
+ * reflective converter (before) vs the feed projection through {@link MessageFeedItemCodec} (after).
+ * <p>
+ * The page is a typical group chat: ~200-char texts, every 3rd message edited, each message
+ * hidden ("delete for me") by 40 members.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test -Dtest=MessageFeedDecodeBenchmarkTest -Dbenchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MessageFeedDecodeBenchmarkTest {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int WARMUP_PAGES = 5_000;
+    private static final int MEASURED_PAGES = 5_000;
+
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    @Test
+    void compareFullDocumentAndFeedProjection() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.setFieldNamingStrategy(new SnakeCaseFieldNamingStrategy());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        MessageFeedItemCodec codec = new MessageFeedItemCodec(mappingContext);
+
+        List<RawBsonDocument> fullPage = new ArrayList<>();
+        List<RawBsonDocument> projectedPage = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Document document = new Document();
+            converter.write(message(i), document);
+            fullPage.add(new RawBsonDocument(document, DOCUMENT_CODEC));
+            document.keySet().retainAll(codec.projection().keySet());
+            projectedPage.add(new RawBsonDocument(document, DOCUMENT_CODEC));
+        }
+
+        long fullBytes = fullPage.stream().mapToLong(d -> d.getByteBuffer().remaining()).sum();
+        long projectedBytes = projectedPage.stream().mapToLong(d -> d.getByteBuffer().remaining()).sum();
+
+        for (int i = 0; i < WARMUP_PAGES; i++) {
+            decodeFull(converter, fullPage);
+            decodeProjected(codec, projectedPage);
+        }
+        long fullNanos = time(() -> decodeFull(converter, fullPage));
+        long projectedNanos = time(() -> decodeProjected(codec, projectedPage));
+
+        System.out.printf("full documents : %,7d bytes/page  %,8.1f us/page%n",
+                fullBytes, fullNanos / 1_000.0 / MEASURED_PAGES);
+        System.out.printf("feed projection: %,7d bytes/page  %,8.1f us/page%n",
+                projectedBytes, projectedNanos / 1_000.0 / MEASURED_PAGES);
+
+        assertThat(projectedBytes).isLessThan(fullBytes);
+        assertThat(projectedNanos).isLessThan(fullNanos);
+    }
+
+    private static long time(Runnable page) {
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_PAGES; i++) {
+            page.run();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Before: the driver decodes into a {@link Document}, then Spring Data maps it reflectively.
+     */
+    private static void decodeFull(MappingMongoConverter converter, List<RawBsonDocument> page) {
+        List<MessageDocument> messages = new ArrayList<>(page.size());
+        for (RawBsonDocument bson : page) {
+            try (BsonBinaryReader reader = new BsonBinaryReader(bson.getByteBuffer().asNIO())) {
+                messages.add(converter.read(MessageDocument.class, DOCUMENT_CODEC.decode(reader, DECODER_CONTEXT)));
+            }
+        }
+        assertThat(messages).hasSize(PAGE_SIZE);
+    }
+
+    /**
+     * After: one pass from BSON into the record.
+     */
+    private static void decodeProjected(MessageFeedItemCodec codec, List<RawBsonDocument> page) {
+        List<MessageFeedItem> items = new ArrayList<>(page.size());
+        for (RawBsonDocument bson : page) {
+            try (BsonBinaryReader reader = new BsonBinaryReader(bson.getByteBuffer().asNIO())) {
+                items.add(codec.decode(reader, DECODER_CONTEXT));
+            }
+        }
+        assertThat(items).hasSize(PAGE_SIZE);
+    }
+
+    private static MessageDocument message(int i) {
+        MessageDocument message = MessageDocument.builder()
+                .conversationId(new ObjectId())
+                .clientMsgId("client-" + i)
+                .sender(SenderSnapshot.builder().userId(1000L + i % 7).username("user" + i % 7)
+                        .fullName("Member " + i % 7).avatarUrl("https://cdn.vivumate.com/avatars/" + i % 7 + ".png")
+                        .build())
+                .contentType(ContentType.TEXT)
+                .content(MessageContent.builder().text("x".repeat(200)).build())
+                .edited(i % 3 == 0)
+                .previousEdit(i % 3 == 0
+                        ? EditHistoryEntry.builder().previousContent("y".repeat(200)).editedAt(Instant.now()).build()
+                        : null)
+                .deletedFor(LongStream.range(0, 40).map(u -> 2000 + u).boxed().toList())
+                .build();
+        message.setId(new ObjectId());
+        message.setCreatedAt(Instant.now());
+        message.setUpdatedAt(Instant.now());
+        return message;
+    }
+}
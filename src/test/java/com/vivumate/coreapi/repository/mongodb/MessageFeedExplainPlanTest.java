@@ -0,0 +1,128 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.mongodb.ExplainVerbosity;
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.document.subdoc.SenderSnapshot;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query plan of the feed against a live MongoDB: without the {@code deleted_for: {$ne: user}}
+ * predicate the page is one bounded range scan of {@code idx_conversation_messages_cursor},
+ * while the legacy filter examines every hidden message it skips.
+ * <p>
+ * The conversation has 2,000 messages; the reader hid every other one of the newest 1,000.
+ * Needs a live MongoDB, so it runs with the benchmarks:
+ * <pre>
+ * mvn test -Dtest=MessageFeedExplainPlanTest -Dbenchmark=true [-Dbenchmark.mongo-uri=mongodb://localhost:27017]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MessageFeedExplainPlanTest {
+
+    private static final int MESSAGES = 2_000;
+    private static final int PAGE_SIZE = 50;
+    private static final long READER_ID = 10L;
+    private static final String CURSOR_INDEX = "idx_conversation_messages_cursor";
+
+    private static LiveMongoFixture mongo;
+    private static MongoTemplate mongoTemplate;
+    private static ObjectId conversationId;
+    private static final List<ObjectId> hiddenIds = new ArrayList<>();
+
+    @BeforeAll
+    static void seed() {
+        // All message indexes of MongoIndexConfig, so the planner has alternatives to reject
+        mongo = LiveMongoFixture.start("vivumate_explain");
+        mongoTemplate = mongo.mongoTemplate();
+
+        conversationId = new ObjectId();
+        Instant base = Instant.parse("2025-06-01T00:00:00Z");
+        List<MessageDocument> messages = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            boolean hidden = i >= MESSAGES / 2 && i % 2 == 0;
+            MessageDocument message = MessageDocument.builder()
+                    .conversationId(conversationId)
+                    .sender(SenderSnapshot.builder().userId(20L + i % 5).fullName("Member").build())
+                    .contentType(ContentType.TEXT)
+                    .content(MessageContent.builder().text("message " + i).build())
+                    .deletedFor(hidden ? List.of(READER_ID) : null) // legacy shape, for the "before" plan
+                    .build();
+            message.setId(new ObjectId(Date.from(base.plusSeconds(i)), i));
+            messages.add(message);
+            if (hidden) {
+                hiddenIds.add(message.getId());
+            }
+        }
+        mongoTemplate.insertAll(messages);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        mongo.close();
+    }
+
+    @Test
+    void feedQueryIsARangeScanOfTheCursorIndex() {
+        HiddenMessages hidden = HiddenMessages.of(hiddenIds);
+        Criteria feed = MessageCustomRepositoryImpl.feedCriteria(conversationId, null, null);
+        Criteria legacy = MessageCustomRepositoryImpl.feedCriteria(conversationId, null, null)
+                .and("deletedFor").ne(READER_ID);
+
+        Document after = explain(feed, PAGE_SIZE + hidden.countBetween(null, null));
+        Document before = explain(legacy, PAGE_SIZE);
+
+        Document afterStats = after.get("executionStats", Document.class);
+        Document beforeStats = before.get("executionStats", Document.class);
+        System.out.printf("deleted_for $ne (before): keys=%,d docs=%,d returned=%,d%n",
+                beforeStats.getInteger("totalKeysExamined"), beforeStats.getInteger("totalDocsExamined"),
+                beforeStats.getInteger("nReturned"));
+        System.out.printf("range scan (after)      : keys=%,d docs=%,d returned=%,d%n",
+                afterStats.getInteger("totalKeysExamined"), afterStats.getInteger("totalDocsExamined"),
+                afterStats.getInteger("nReturned"));
+
+        Set<String> stages = new HashSet<>();
+        Set<String> indexes = new HashSet<>();
+        LiveMongoFixture.collectPlan(after.get("queryPlanner", Document.class).get("winningPlan"), stages, indexes);
+        assertThat(indexes).containsExactly(CURSOR_INDEX);
+        assertThat(stages).contains("IXSCAN").doesNotContain("SORT", "COLLSCAN");
+        // No document is examined and then rejected by a per-user predicate
+        assertThat(afterStats.getInteger("totalDocsExamined")).isEqualTo(afterStats.getInteger("nReturned"));
+        assertThat(beforeStats.getInteger("totalDocsExamined")).isGreaterThan(beforeStats.getInteger("nReturned"));
+
+        // The repository fills the page despite the hidden half
+        List<MessageDocument> page = new MessageCustomRepositoryImpl(mongoTemplate)
+                .findMessagesByConversation(conversationId, hidden, null, null, PAGE_SIZE);
+        assertThat(page).hasSize(PAGE_SIZE).noneMatch(m -> hidden.contains(m.getId()));
+    }
+
+    private static Document explain(Criteria criteria, int limit) {
+        QueryMapper queryMapper = new QueryMapper(mongoTemplate.getConverter());
+        Document filter = queryMapper.getMappedObject(criteria.getCriteriaObject(),
+                mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(MessageDocument.class));
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(MessageDocument.class))
+                .find(filter)
+                .sort(new Document("_id", -1))
+                .limit(limit)
+                .explain(ExplainVerbosity.EXECUTION_STATS);
+    }
+}
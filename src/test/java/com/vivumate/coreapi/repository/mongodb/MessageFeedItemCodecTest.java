@@ -0,0 +1,145 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.enums.MentionType;
+import com.vivumate.coreapi.document.projection.MessageFeedItem;
+import com.vivumate.coreapi.document.subdoc.EditHistoryEntry;
+import com.vivumate.coreapi.document.subdoc.MediaInfo;
+import com.vivumate.coreapi.document.subdoc.Mention;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.document.subdoc.ReplyToSnapshot;
+import com.vivumate.coreapi.document.subdoc.SenderSnapshot;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mapping.model.SnakeCaseFieldNamingStrategy;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageFeedItemCodecTest {
+
+    private MappingMongoConverter converter;
+    private MessageFeedItemCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        // Same setup as the application (dev profile: snake_case field names)
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.setFieldNamingStrategy(new SnakeCaseFieldNamingStrategy());
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        codec = new MessageFeedItemCodec(mappingContext);
+    }
+
+    /**
+     * BSON of {@code message} as MongoDB would return it, optionally with the feed projection applied.
+     */
+    private RawBsonDocument stored(MessageDocument message, boolean projected) {
+        Document document = new Document();
+        converter.write(message, document);
+        if (projected) {
+            document.keySet().retainAll(codec.projection().keySet());
+        }
+        return new RawBsonDocument(document, new DocumentCodec());
+    }
+
+    private MessageFeedItem decode(RawBsonDocument bson) {
+        try (BsonBinaryReader reader = new BsonBinaryReader(bson.getByteBuffer().asNIO())) {
+            return codec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    private static MessageDocument editedTextMessage() {
+        MessageDocument message = MessageDocument.builder()
+                .conversationId(new ObjectId())
+                .clientMsgId("c-42")
+                .sender(SenderSnapshot.builder().userId(10L).username("lan").fullName("Lan Nguyen")
+                        .avatarUrl("https://cdn/a.png").build())
+                .contentType(ContentType.TEXT)
+                .content(MessageContent.builder().text("see you @Minh").build())
+                .mentions(List.of(Mention.builder().userId(20L).fullName("Minh").type(MentionType.USER).build()))
+                .replyTo(ReplyToSnapshot.builder().messageId(new ObjectId()).senderName("Minh")
+                        .contentPreview("dinner?").contentType(ContentType.TEXT).build())
+                .edited(true)
+                .previousEdit(EditHistoryEntry.builder().previousContent("see u").editedAt(Instant.now()).build())
+                .deletedFor(LongStream.rangeClosed(1, 200).boxed().toList())
+                .build();
+        message.setId(new ObjectId());
+        message.setCreatedAt(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        message.setUpdatedAt(Instant.now());
+        return message;
+    }
+
+    @Test
+    @DisplayName("Should project away edit history, deletedFor and audit fields")
+    void projection_OnlyFeedFields() {
+        assertThat(codec.projection().keySet()).containsExactlyInAnyOrder(
+                "_id", "conversation_id", "client_msg_id", "sender", "content_type", "content",
+                "mentions", "reply_to", "is_edited", "created_at");
+    }
+
+    @Test
+    @DisplayName("Should decode the projected BSON of a message into a flat feed item")
+    void decode_ProjectedMessage_FlatItem() {
+        MessageDocument message = editedTextMessage();
+
+        RawBsonDocument full = stored(message, false);
+        RawBsonDocument projected = stored(message, true);
+        MessageFeedItem item = decode(projected);
+
+        assertThat(projected.getByteBuffer().remaining()).isLessThan(full.getByteBuffer().remaining() / 3);
+        assertThat(item.id()).isEqualTo(message.getId());
+        assertThat(item.conversationId()).isEqualTo(message.getConversationId());
+        assertThat(item.clientMsgId()).isEqualTo("c-42");
+        assertThat(item.senderId()).isEqualTo(10L);
+        assertThat(item.senderFullName()).isEqualTo("Lan Nguyen");
+        assertThat(item.senderAvatarUrl()).isEqualTo("https://cdn/a.png");
+        assertThat(item.content().getText()).isEqualTo("see you @Minh");
+        assertThat(item.mentions()).singleElement()
+                .satisfies(m -> assertThat(m.getType()).isEqualTo(MentionType.USER));
+        assertThat(item.replyToMessageId()).isEqualTo(message.getReplyTo().getMessageId());
+        assertThat(item.replyToPreview()).isEqualTo("dinner?");
+        assertThat(item.edited()).isTrue();
+        assertThat(item.createdAt()).isEqualTo(message.getCreatedAt());
+        assertThat(item).usingRecursiveComparison().isEqualTo(MessageFeedItem.from(message));
+    }
+
+    @Test
+    @DisplayName("Should decode polymorphic media content and skip fields outside the projection")
+    void decode_UnprojectedMediaMessage_SkipsUnknownFields() {
+        MessageDocument message = editedTextMessage();
+        message.setContentType(ContentType.IMAGE);
+        message.setContent(MessageContent.builder().text("beach")
+                .media(MediaInfo.builder().url("https://cdn/p.jpg").mimeType("image/jpeg")
+                        .sizeBytes(123_456L).width(1920).height(1080).build())
+                .build());
+        message.setMentions(List.of());
+
+        MessageFeedItem item = decode(stored(message, false));
+
+        assertThat(item.contentType()).isEqualTo(ContentType.IMAGE);
+        assertThat(item.content().getMedia().getWidth()).isEqualTo(1920);
+        assertThat(item.content().getMedia().getSizeBytes()).isEqualTo(123_456L);
+        assertThat(item.mentions()).isEmpty();
+    }
+}
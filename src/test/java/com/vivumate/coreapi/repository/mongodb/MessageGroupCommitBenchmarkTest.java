@@ -0,0 +1,112 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.document.subdoc.SenderSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput / p99 of per-message inserts vs group commit against a live MongoDB.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test -Dtest=MessageGroupCommitBenchmarkTest -Dbenchmark=true [-Dbenchmark.mongo-uri=mongodb://localhost:27017]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MessageGroupCommitBenchmarkTest {
+
+    private static final int SENDERS = 200;
+    private static final int MESSAGES_PER_SENDER = 100;
+
+    private static MongoClient mongoClient;
+    private static MongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void connect() {
+        mongoClient = MongoClients.create(System.getProperty("benchmark.mongo-uri", "mongodb://localhost:27017"));
+        mongoTemplate = new MongoTemplate(mongoClient, "vivumate_benchmark");
+    }
+
+    @AfterAll
+    static void disconnect() {
+        mongoTemplate.getDb().drop();
+        mongoClient.close();
+    }
+
+    @Test
+    void compareStrictAndGroupCommit() throws Exception {
+        Result strict = run(false);
+        Result grouped = run(true);
+
+        System.out.printf("strict       : %,8.0f msg/s  p50=%6.2f ms  p99=%6.2f ms%n",
+                strict.throughput(), strict.p50Millis(), strict.p99Millis());
+        System.out.printf("group commit : %,8.0f msg/s  p50=%6.2f ms  p99=%6.2f ms%n",
+                grouped.throughput(), grouped.p50Millis(), grouped.p99Millis());
+
+        assertThat(mongoTemplate.count(new Query(), MessageDocument.class))
+                .isEqualTo(2L * SENDERS * MESSAGES_PER_SENDER);
+    }
+
+    private Result run(boolean groupCommit) throws Exception {
+        MessageGroupCommitWriter writer = new MessageGroupCommitWriter(mongoTemplate, new SimpleMeterRegistry(),
+                groupCommit, 64, Duration.ofNanos(500_000), 2, 10_000);
+        writer.start();
+
+        int total = SENDERS * MESSAGES_PER_SENDER;
+        long[] latencies = new long[total];
+        AtomicInteger slot = new AtomicInteger();
+        ObjectId conversationId = new ObjectId();
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int s = 0; s < SENDERS; s++) {
+                long senderId = s;
+                executor.submit(() -> {
+                    for (int i = 0; i < MESSAGES_PER_SENDER; i++) {
+                        long t0 = System.nanoTime();
+                        writer.insert(message(conversationId, senderId, i));
+                        latencies[slot.getAndIncrement()] = System.nanoTime() - t0;
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        writer.stop();
+
+        Arrays.sort(latencies);
+        return new Result(total / (elapsed / 1e9),
+                latencies[total / 2] / 1e6,
+                latencies[(int) (total * 0.99)] / 1e6);
+    }
+
+    private static MessageDocument message(ObjectId conversationId, long senderId, int seq) {
+        return MessageDocument.builder()
+                .conversationId(conversationId)
+                .sender(SenderSnapshot.builder().userId(senderId).fullName("Sender " + senderId).build())
+                .contentType(ContentType.TEXT)
+                .content(MessageContent.builder().text("benchmark message #" + seq).build())
+                .build();
+    }
+
+    private record Result(double throughput, double p50Millis, double p99Millis) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.vivumate.coreapi.document.MessageDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+@ExtendWith(MockitoExtension.class)
+class MessageGroupCommitWriterTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private MessageGroupCommitWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        writer = new MessageGroupCommitWriter(mongoTemplate, new SimpleMeterRegistry(),
+                true, 64, Duration.ofNanos(500_000), 1, 100);
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.stop();
+    }
+
+    @Test
+    @DisplayName("Should fail the caller instead of blocking it when bulkOps cannot be created")
+    void insert_BulkOpsThrows_FailsCaller() {
+        given(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MessageDocument.class))
+                .willThrow(new IllegalStateException("mongo down"));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () ->
+                assertThatThrownBy(() -> writer.insert(new MessageDocument()))
+                        .isInstanceOf(IllegalStateException.class)
+                        .hasMessage("mongo down"));
+    }
+
+    @Test
+    @DisplayName("Should fail the caller instead of blocking it when mapping a message for the bulk insert throws")
+    void insert_BulkInsertThrows_FailsCaller() {
+        given(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MessageDocument.class))
+                .willReturn(bulkOperations);
+        given(bulkOperations.insert(any(Object.class))).willThrow(new IllegalArgumentException("unmappable"));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () ->
+                assertThatThrownBy(() -> writer.insert(new MessageDocument()))
+                        .isInstanceOf(IllegalArgumentException.class)
+                        .hasMessage("unmappable"));
+        then(bulkOperations).should(never()).execute();
+    }
+}
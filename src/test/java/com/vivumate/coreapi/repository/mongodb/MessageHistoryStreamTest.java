@@ -0,0 +1,128 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.projection.MessageFeedItem;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.document.subdoc.SenderSnapshot;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The export's read path against a live MongoDB: {@code streamHistory} walks the conversation
+ * oldest first through a server cursor fetched {@code batchSize} documents per {@code getMore},
+ * applies the visibility rules on the way, and kills the cursor when the stream is closed early.
+ * <p>
+ * The conversation has 2,500 messages: the first 100 are older than the reader's
+ * {@code clearedAt}, every 10th is recalled and every 7th is hidden by the reader. Needs a live
+ * MongoDB, so it runs with the benchmarks:
+ * <pre>
+ * mvn test -Dtest=MessageHistoryStreamTest -Dbenchmark=true [-Dbenchmark.mongo-uri=mongodb://localhost:27017]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MessageHistoryStreamTest {
+
+    private static final int MESSAGES = 2_500;
+    private static final int CLEARED = 100;
+    private static final int BATCH_SIZE = 100;
+    private static final Instant BASE = Instant.parse("2025-06-01T00:00:00Z");
+
+    private static final List<CommandStartedEvent> commands = new CopyOnWriteArrayList<>();
+    private static LiveMongoFixture mongo;
+    private static MongoTemplate mongoTemplate;
+    private static ObjectId conversationId;
+    private static final List<ObjectId> visibleIds = new ArrayList<>();
+    private static final List<ObjectId> hiddenIds = new ArrayList<>();
+
+    @BeforeAll
+    static void seed() {
+        mongo = LiveMongoFixture.start("vivumate_export", new CommandListener() {
+            @Override
+            public void commandStarted(CommandStartedEvent event) {
+                commands.add(event);
+            }
+        });
+        mongoTemplate = mongo.mongoTemplate();
+
+        conversationId = new ObjectId();
+        List<MessageDocument> messages = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            MessageDocument message = MessageDocument.builder()
+                    .conversationId(conversationId)
+                    .sender(SenderSnapshot.builder().userId(20L + i % 5).fullName("Member").build())
+                    .contentType(ContentType.TEXT)
+                    .content(MessageContent.builder().text("message " + i).build())
+                    .deletedForEveryone(i % 10 == 0)
+                    .build();
+            // Two seconds apart: clearedAt falls in a second of its own (IDs compare by second first)
+            message.setId(new ObjectId(Date.from(BASE.plusSeconds(2L * i)), i));
+            messages.add(message);
+
+            if (i < CLEARED || message.isDeletedForEveryone()) {
+                continue;
+            }
+            (i % 7 == 0 ? hiddenIds : visibleIds).add(message.getId());
+        }
+        mongoTemplate.insertAll(messages);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        mongo.close();
+    }
+
+    @Test
+    void streamsVisibleHistoryOldestFirstInCursorBatches() {
+        MessageCustomRepositoryImpl repository = new MessageCustomRepositoryImpl(mongoTemplate);
+        // Between message CLEARED - 1 and CLEARED
+        Instant clearedAt = BASE.plusSeconds(2L * CLEARED - 1);
+        commands.clear();
+
+        List<ObjectId> exported;
+        try (Stream<MessageFeedItem> history = repository.streamHistory(
+                conversationId, HiddenMessages.of(hiddenIds), clearedAt, BATCH_SIZE)) {
+            exported = history.map(MessageFeedItem::id).toList();
+        }
+
+        assertThat(exported).containsExactlyElementsOf(visibleIds);
+
+        // One find and one getMore per further batch, each asking for batchSize documents
+        List<CommandStartedEvent> reads = commands.stream()
+                .filter(event -> event.getCommandName().equals("find") || event.getCommandName().equals("getMore"))
+                .toList();
+        int matching = MESSAGES - CLEARED - (MESSAGES - CLEARED) / 10;
+        assertThat(reads.getFirst().getCommandName()).isEqualTo("find");
+        assertThat(reads).hasSize((matching + BATCH_SIZE - 1) / BATCH_SIZE);
+        assertThat(reads).allMatch(event -> event.getCommand().getNumber("batchSize").intValue() == BATCH_SIZE);
+    }
+
+    @Test
+    void closingTheStreamEarlyKillsTheCursor() {
+        MessageCustomRepositoryImpl repository = new MessageCustomRepositoryImpl(mongoTemplate);
+        commands.clear();
+
+        try (Stream<MessageFeedItem> history = repository.streamHistory(
+                conversationId, HiddenMessages.NONE, null, BATCH_SIZE)) {
+            assertThat(history.limit(BATCH_SIZE + 1).count()).isEqualTo(BATCH_SIZE + 1);
+        }
+
+        assertThat(commands).extracting(CommandStartedEvent::getCommandName).contains("killCursors");
+    }
+}
@@ -0,0 +1,95 @@
+package com.vivumate.coreapi.repository.mongodb;
+
+import com.vivumate.coreapi.document.UserInboxDocument;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query plan of the inbox list against a live MongoDB: a covered scan of
+ * {@code idx_user_inbox_list} that reads {@code pageSize} keys and no document, even when most
+ * of the user's conversations are hidden by "clear history".
+ * <p>
+ * The user has 1,000 entries; 900 of them are cleared. Needs a live MongoDB, so it runs with
+ * the benchmarks:
+ * <pre>
+ * mvn test -Dtest=UserInboxExplainPlanTest -Dbenchmark=true [-Dbenchmark.mongo-uri=mongodb://localhost:27017]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class UserInboxExplainPlanTest {
+
+    private static final int ENTRIES = 1_000;
+    private static final int PAGE_SIZE = 20;
+    private static final long USER_ID = 10L;
+    private static final String LIST_INDEX = "idx_user_inbox_list";
+
+    private static LiveMongoFixture mongo;
+    private static MongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void seed() {
+        mongo = LiveMongoFixture.start("vivumate_explain");
+        mongoTemplate = mongo.mongoTemplate();
+
+        Instant base = Instant.parse("2025-06-01T00:00:00Z");
+        List<UserInboxDocument> entries = new ArrayList<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            entries.add(UserInboxDocument.builder()
+                    .userId(USER_ID)
+                    .conversationId(new ObjectId())
+                    .visible(i % 10 == 0)
+                    .lastActivityAt(base.plusSeconds(i))
+                    .build());
+        }
+        mongoTemplate.insertAll(entries);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        mongo.close();
+    }
+
+    @Test
+    void listQueryIsACoveredScan() {
+        UserInboxCustomRepositoryImpl repository = new UserInboxCustomRepositoryImpl(mongoTemplate);
+        List<UserInboxDocument> firstPage = repository.findVisible(USER_ID, null, null, PAGE_SIZE);
+        UserInboxDocument last = firstPage.getLast();
+
+        Document explain = mongoTemplate.getDb().runCommand(new Document("explain", new Document("find", "user_inbox")
+                        .append("filter", new Document("user_id", USER_ID).append("visible", true))
+                        .append("sort", new Document("last_activity_at", -1).append("conversation_id", -1))
+                        .append("projection", new Document("conversation_id", 1).append("last_activity_at", 1).append("_id", 0))
+                        .append("limit", PAGE_SIZE))
+                .append("verbosity", "executionStats"));
+
+        Document stats = explain.get("executionStats", Document.class);
+        System.out.printf("inbox page: keys=%,d docs=%,d returned=%,d%n",
+                stats.getInteger("totalKeysExamined"), stats.getInteger("totalDocsExamined"), stats.getInteger("nReturned"));
+
+        Set<String> stages = new HashSet<>();
+        Set<String> indexes = new HashSet<>();
+        LiveMongoFixture.collectPlan(explain.get("queryPlanner", Document.class).get("winningPlan"), stages, indexes);
+        assertThat(indexes).containsExactly(LIST_INDEX);
+        assertThat(stages).doesNotContain("FETCH", "SORT", "COLLSCAN");
+        assertThat(stats.getInteger("totalDocsExamined")).isZero();
+        assertThat(stats.getInteger("nReturned")).isEqualTo(PAGE_SIZE);
+
+        List<UserInboxDocument> secondPage = repository.findVisible(USER_ID, last.getLastActivityAt(),
+                last.getConversationId(), PAGE_SIZE);
+        assertThat(secondPage).hasSize(PAGE_SIZE)
+                .allMatch(entry -> entry.getLastActivityAt().isBefore(last.getLastActivityAt()));
+    }
+}
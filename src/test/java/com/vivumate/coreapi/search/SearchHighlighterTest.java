@@ -0,0 +1,82 @@
+package com.vivumate.coreapi.search;
+
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.exception.AppException;
+import com.vivumate.coreapi.search.SearchHit.MatchOffset;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchHighlighterTest {
+
+    private static MessageDocument message(String text) {
+        MessageDocument message = MessageDocument.builder()
+                .content(MessageContent.builder().text(text).build())
+                .build();
+        message.setId(new ObjectId());
+        return message;
+    }
+
+    private static String marked(SearchHit hit) {
+        return hit.offsets().stream()
+                .map(offset -> hit.snippet().substring(offset.start(), offset.end()))
+                .reduce((left, right) -> left + "|" + right)
+                .orElse("");
+    }
+
+    @Test
+    @DisplayName("Should mark whole original words whose folded form starts with a query token")
+    void highlight_MarksFoldedWholeWords() {
+        SearchHit hit = SearchHighlighter.highlight(message("Anh Kiên đi Đà Lạt, kiếm quán cà phê"),
+                SearchTokenizer.tokenize("kie da"));
+
+        assertThat(hit.snippet()).isEqualTo("Anh Kiên đi Đà Lạt, kiếm quán cà phê");
+        assertThat(marked(hit)).isEqualTo("Kiên|Đà|kiếm");
+        assertThat(hit.offsets().getFirst()).isEqualTo(new MatchOffset(4, 8));
+    }
+
+    @Test
+    @DisplayName("Should cut long text around the first match at word boundaries and shift offsets into the snippet")
+    void highlight_WindowsLongText() {
+        String text = "lorem ipsum ".repeat(30) + "hẹn gặp ở Hội An nhé " + "dolor sit amet ".repeat(30);
+
+        SearchHit hit = SearchHighlighter.highlight(message(text), SearchTokenizer.tokenize("hoi an"));
+
+        assertThat(hit.snippet()).startsWith("…").endsWith("…").contains("hẹn gặp ở Hội An nhé");
+        assertThat(hit.snippet().length()).isLessThanOrEqualTo(SearchHighlighter.SNIPPET_LENGTH + 2);
+        assertThat(hit.snippet()).doesNotContain("…orem", "…psum", "dolo…", "ame…", "si…");
+        assertThat(marked(hit)).isEqualTo("Hội|An");
+    }
+
+    @Test
+    @DisplayName("Should bound the scanned text and the number of offsets")
+    void findMatches_IsBounded() {
+        assertThat(SearchHighlighter.findMatches("an ".repeat(100), List.of("an")))
+                .hasSize(SearchHighlighter.MAX_OFFSETS);
+        assertThat(SearchHighlighter.findMatches("x".repeat(SearchHighlighter.MAX_SCANNED_CHARS) + " an", List.of("an")))
+                .isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should round-trip cursors of both orderings and reject tampered or legacy ones")
+    void searchCursor_RoundTrips() {
+        SearchCursor scored = SearchCursor.relevance(1.0833333333333333, new ObjectId());
+        SearchCursor newestFirst = SearchCursor.newest(new ObjectId());
+        // Issued before cursors recorded their ordering: ambiguous, so rejected
+        String legacy = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("_" + new ObjectId().toHexString()).getBytes(StandardCharsets.US_ASCII));
+
+        assertThat(SearchCursor.decode(scored.encode())).isEqualTo(scored);
+        assertThat(SearchCursor.decode(newestFirst.encode())).isEqualTo(newestFirst);
+        assertThatThrownBy(() -> SearchCursor.decode("not-a-cursor")).isInstanceOf(AppException.class);
+        assertThatThrownBy(() -> SearchCursor.decode(legacy)).isInstanceOf(AppException.class);
+    }
+}
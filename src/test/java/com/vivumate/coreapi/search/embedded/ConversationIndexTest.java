@@ -0,0 +1,130 @@
+package com.vivumate.coreapi.search.embedded;
+
+import com.vivumate.coreapi.search.SearchTokenizer;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversationIndexTest {
+
+    private static final int MAX_EXPANSIONS = 512;
+
+    @TempDir
+    private Path dir;
+
+    private static ObjectId idAt(int second) {
+        return new ObjectId(Date.from(Instant.parse("2025-06-01T00:00:00Z").plusSeconds(second)), 0);
+    }
+
+    private static List<ObjectId> search(ConversationIndex index, String keyword, int limit) {
+        return index.search(SearchTokenizer.tokenize(keyword), null, null, limit);
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.toString().endsWith(Segment.FILE_SUFFIX)).count();
+        }
+    }
+
+    @Test
+    @DisplayName("Should match accent- and case-insensitive word prefixes, newest first, in the tail and on disk")
+    void search_FoldsDiacriticsAndMatchesPrefixes() throws IOException {
+        ConversationIndex index = ConversationIndex.open(dir, MAX_EXPANSIONS);
+        index.add(idAt(1), "Kiên đi ngủ sớm nhé");
+        index.add(idAt(2), "hello world");
+        index.add(idAt(3), "KIEN DI NGU CHUA?");
+        index.add(idAt(4), "Đà Lạt mùa này đẹp lắm");
+
+        assertThat(search(index, "kien ngu", 10)).containsExactly(idAt(3), idAt(1));
+        assertThat(search(index, "Kiên", 10)).containsExactly(idAt(3), idAt(1));
+        assertThat(search(index, "da lat", 10)).containsExactly(idAt(4));
+        assertThat(search(index, "kien hello", 10)).isEmpty();
+
+        index.flush();
+
+        assertThat(search(index, "kien ngu", 10)).containsExactly(idAt(3), idAt(1));
+        assertThat(search(index, "wor", 10)).containsExactly(idAt(2));
+        assertThat(search(index, "kien", 1)).containsExactly(idAt(3));
+        assertThat(index.search(SearchTokenizer.tokenize("kien"), null, idAt(3), 10)).containsExactly(idAt(1));
+        assertThat(index.search(SearchTokenizer.tokenize("kien"), idAt(1), null, 10)).containsExactly(idAt(3));
+    }
+
+    @Test
+    @DisplayName("Should forget the old text of an edit and every copy of a recall, across flushes and merges")
+    void replaceAndRemove_TombstoneOlderCopies() throws IOException {
+        ConversationIndex index = ConversationIndex.open(dir, MAX_EXPANSIONS);
+        index.add(idAt(1), "hẹn gặp ở quán cà phê");
+        index.add(idAt(2), "quán nào vậy");
+        index.flush();
+
+        index.replace(idAt(1), "hẹn gặp ở nhà sách");
+        index.remove(idAt(2));
+
+        assertThat(search(index, "quan", 10)).isEmpty();
+        assertThat(search(index, "nha sach", 10)).containsExactly(idAt(1));
+
+        index.flush();
+        index.mergeAll();
+
+        assertThat(segmentFiles()).isEqualTo(1);
+        assertThat(search(index, "quan", 10)).isEmpty();
+        assertThat(search(index, "hen", 10)).containsExactly(idAt(1));
+    }
+
+    @Test
+    @DisplayName("Should reopen flushed segments and tombstones from the manifest; the unflushed tail is re-fed by the caller")
+    void open_RestoresFlushedState() throws IOException {
+        ConversationIndex index = ConversationIndex.open(dir, MAX_EXPANSIONS);
+        index.add(idAt(1), "chuyến đi Hội An");
+        index.add(idAt(2), "chuyến bay lúc 7 giờ");
+        index.flush();
+        index.remove(idAt(2));
+        index.flush();
+        index.add(idAt(3), "chuyến tàu đêm"); // lost: the node dies before the next flush
+
+        ConversationIndex reopened = ConversationIndex.open(dir, MAX_EXPANSIONS);
+
+        assertThat(search(reopened, "chuyen", 10)).containsExactly(idAt(1));
+        assertThat(reopened.indexedThrough()).isEqualTo(idAt(2));
+        assertThat(reopened.add(idAt(3), "chuyến tàu đêm")).isTrue();
+        assertThat(search(reopened, "chuyen", 10)).containsExactly(idAt(3), idAt(1));
+    }
+
+    @Test
+    @DisplayName("Should keep segments logarithmic and results identical through merges")
+    void maybeMerge_KeepsResults() throws IOException {
+        ConversationIndex index = ConversationIndex.open(dir, MAX_EXPANSIONS);
+        List<ObjectId> expected = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            index.add(idAt(i), (i % 3 == 0 ? "Vịnh Hạ Long " : "Sài Gòn ") + i);
+            if (i % 3 == 0) {
+                expected.addFirst(idAt(i));
+            }
+            if (i % 50 == 49) {
+                index.flush();
+                index.maybeMerge();
+            }
+        }
+
+        assertThat(segmentFiles()).isLessThanOrEqualTo(6);
+        assertThat(search(index, "vinh ha", 1_000)).isEqualTo(expected);
+
+        index.mergeAll();
+
+        assertThat(segmentFiles()).isEqualTo(1);
+        assertThat(search(index, "vinh ha", 1_000)).isEqualTo(expected);
+        assertThat(search(index, "ha long 99", 10)).containsExactly(idAt(999), idAt(996), idAt(993), idAt(990), idAt(99));
+    }
+}
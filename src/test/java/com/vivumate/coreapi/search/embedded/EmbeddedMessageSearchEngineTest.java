@@ -0,0 +1,158 @@
+package com.vivumate.coreapi.search.embedded;
+
+import com.vivumate.coreapi.cache.CacheInvalidationBus;
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.projection.MessageFeedItem;
+import com.vivumate.coreapi.document.projection.ScoredMessage;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.repository.mongodb.MessageRepository;
+import com.vivumate.coreapi.search.MongoTextSearchEngine;
+import com.vivumate.coreapi.search.SearchCursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.never;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddedMessageSearchEngineTest {
+
+    private static final String KEYWORD = "da lat";
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private MongoTextSearchEngine fallback;
+
+    @Mock
+    private ExecutorService chatIoExecutor;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @TempDir
+    private Path indexDir;
+
+    private final ObjectId convId = new ObjectId();
+    private List<MessageDocument> messages;
+    private EmbeddedMessageSearchEngine engine;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        messages = List.of(message(1, "Đà Lạt mùa này đẹp lắm"), message(2, "đi Đà Lạt không?"),
+                message(3, "Da Lat thi sao"));
+        // Builds run inline: the index is ready as soon as the first search returns
+        willAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).given(chatIoExecutor).execute(any());
+
+        engine = new EmbeddedMessageSearchEngine(messageRepository, fallback, chatIoExecutor, invalidationBus,
+                new SimpleMeterRegistry(), indexDir, 10, 256, 1000, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.closeAll();
+    }
+
+    private MessageDocument message(int second, String text) {
+        MessageDocument message = MessageDocument.builder()
+                .conversationId(convId)
+                .contentType(ContentType.TEXT)
+                .content(MessageContent.builder().text(text).build())
+                .build();
+        message.setId(new ObjectId(Date.from(Instant.parse("2025-06-01T00:00:00Z").plusSeconds(second)), 0));
+        return message;
+    }
+
+    private void givenIndexable() {
+        given(messageRepository.streamForIndexing(eq(convId), isNull(), anyInt())).willAnswer(invocation ->
+                messages.stream().map(message -> new MessageFeedItem(message.getId(), convId, null, 1L,
+                        null, null, null, ContentType.TEXT, message.getContent(), List.of(),
+                        null, null, null, false, null)));
+        given(messageRepository.streamForIndexing(eq(convId), any(ObjectId.class), anyInt()))
+                .willAnswer(invocation -> Stream.empty());
+        given(messageRepository.findAllById(any())).willAnswer(invocation -> {
+            Set<ObjectId> ids = new HashSet<>();
+            invocation.<Iterable<ObjectId>>getArgument(0).forEach(ids::add);
+            return messages.stream().filter(message -> ids.contains(message.getId())).toList();
+        });
+    }
+
+    private List<ScoredMessage> search(SearchCursor after, int limit) {
+        return engine.search(convId, HiddenMessages.NONE, null, KEYWORD, after, limit);
+    }
+
+    @Test
+    @DisplayName("Should finish a $text-ranked list on $text after the index becomes ready mid-list")
+    void search_RelevanceCursorAcrossIndexBuild_StaysOnText() {
+        givenIndexable();
+        List<ScoredMessage> firstPage = List.of(
+                new ScoredMessage(messages.get(1), 1.5), new ScoredMessage(messages.get(0), 1.1));
+        given(fallback.search(convId, HiddenMessages.NONE, null, KEYWORD, null, 2)).willReturn(firstPage);
+        SearchCursor cursor = SearchCursor.after(firstPage.getLast());
+        given(fallback.search(convId, HiddenMessages.NONE, null, KEYWORD, cursor, 2))
+                .willReturn(List.of(new ScoredMessage(messages.get(2), 0.75)));
+
+        assertThat(search(null, 2)).isEqualTo(firstPage); // no index yet: $text, build scheduled
+        assertThat(cursor.ordering()).isEqualTo(SearchCursor.Ordering.RELEVANCE);
+        List<ScoredMessage> secondPage = search(cursor, 2); // index ready now
+
+        assertThat(secondPage).extracting(hit -> hit.message().getId()).containsExactly(messages.get(2).getId());
+        then(messageRepository).should(never()).findAllById(any());
+
+        // A new search uses the index, and its cursor keeps it there
+        List<ScoredMessage> newest = search(null, 2);
+        assertThat(newest).extracting(hit -> hit.message().getId())
+                .containsExactly(messages.get(2).getId(), messages.get(1).getId());
+        SearchCursor newestCursor = SearchCursor.after(newest.getLast());
+        assertThat(newestCursor.ordering()).isEqualTo(SearchCursor.Ordering.NEWEST);
+        assertThat(search(newestCursor, 2)).extracting(hit -> hit.message().getId())
+                .containsExactly(messages.get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Should continue a newest-first list newest first on $text when this node has no index")
+    void search_NewestCursorWithoutIndex_ContinuesNewestFirst() {
+        SearchCursor cursor = SearchCursor.newest(messages.get(1).getId());
+        MongoTextSearchEngine text = new MongoTextSearchEngine(messageRepository);
+        given(fallback.search(convId, HiddenMessages.NONE, null, KEYWORD, cursor, 2)).willAnswer(invocation ->
+                text.search(convId, HiddenMessages.NONE, null, KEYWORD, cursor, 2));
+        given(messageRepository.streamForIndexing(eq(convId), isNull(), anyInt())).willReturn(Stream.empty());
+
+        search(cursor, 2);
+
+        then(messageRepository).should().searchMessages(convId, HiddenMessages.NONE, null, KEYWORD,
+                true, null, messages.get(1).getId(), 2);
+    }
+}
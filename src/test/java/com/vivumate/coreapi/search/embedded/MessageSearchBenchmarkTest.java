@@ -0,0 +1,186 @@
+package com.vivumate.coreapi.search.embedded;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.model.IndexOptions;
+import com.vivumate.coreapi.cache.CacheInvalidationBus;
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.projection.ScoredMessage;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.document.subdoc.SenderSnapshot;
+import com.vivumate.coreapi.repository.mongodb.MessageCustomRepositoryImpl;
+import com.vivumate.coreapi.repository.mongodb.MessageRepository;
+import com.vivumate.coreapi.search.MessageSearchEngine;
+import com.vivumate.coreapi.search.MongoTextSearchEngine;
+import com.vivumate.coreapi.search.SearchTokenizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Search latency on one large conversation: MongoDB {@code $text} (exact accented words) vs the
+ * embedded index (accent-free prefixes), against the P99 < 500 ms target.
+ * <p>
+ * 200,000 messages of 8–20 words drawn from a Vietnamese vocabulary of ~120 words; every query
+ * has one or two words. The embedded engine is measured once its background build completed.
+ * Needs a live MongoDB:
+ * <pre>
+ * mvn test -Dtest=MessageSearchBenchmarkTest -Dbenchmark=true [-Dbenchmark.mongo-uri=mongodb://localhost:27017]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MessageSearchBenchmarkTest {
+
+    private static final int MESSAGES = 200_000;
+    private static final int QUERIES = 300;
+    private static final int PAGE_SIZE = 20;
+
+    private static final String[] VOCABULARY = ("anh em chị bạn mình đi về ăn uống cà phê trà sữa phở bún bánh mì "
+            + "sáng trưa chiều tối hôm nay mai qua tuần tháng năm đẹp vui buồn mệt khỏe nhớ thương yêu ghét "
+            + "nhà trường công ty văn phòng quán chợ biển núi sông hồ Đà Lạt Hà Nội Sài Gòn Huế Hội An Nha Trang "
+            + "chuyến bay tàu xe máy ô tô khách sạn homestay vé giá tiền đặt hủy đổi hẹn gặp chờ đợi nhanh chậm "
+            + "được không nhé nha ạ vậy thế sao nào đâu gì ai lúc giờ phút xong rồi chưa sắp đang sẽ đã "
+            + "chụp ảnh video gửi nhận xem nghe gọi nhắn tin kế hoạch lịch trình du lịch nghỉ dưỡng").split(" ");
+
+    private static MongoClient mongoClient;
+    private static MongoTemplate mongoTemplate;
+    private static MessageRepository messageRepository;
+    private static ExecutorService executor;
+    private static ObjectId conversationId;
+
+    @BeforeAll
+    static void seed() {
+        mongoClient = MongoClients.create(System.getProperty("benchmark.mongo-uri", "mongodb://localhost:27017"));
+        mongoTemplate = new MongoTemplate(mongoClient, "vivumate_search_benchmark");
+        mongoTemplate.dropCollection(MessageDocument.class);
+        // Same text index as MongoIndexConfig (field names of the default mapping)
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(MessageDocument.class)).createIndex(
+                new Document("conversationId", 1).append("content.text", "text"),
+                new IndexOptions().name("idx_conversation_text_search").defaultLanguage("none"));
+
+        messageRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(MessageRepository.class,
+                RepositoryFragments.just(new MessageCustomRepositoryImpl(mongoTemplate)));
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        conversationId = new ObjectId();
+        Random random = new Random(42);
+        Instant base = Instant.parse("2025-01-01T00:00:00Z");
+        List<MessageDocument> batch = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            MessageDocument message = MessageDocument.builder()
+                    .conversationId(conversationId)
+                    .sender(SenderSnapshot.builder().userId(20L + i % 7).fullName("Member").build())
+                    .contentType(ContentType.TEXT)
+                    .content(MessageContent.builder().text(sentence(random, 8 + random.nextInt(13))).build())
+                    .build();
+            message.setId(new ObjectId(Date.from(base.plusSeconds(i * 30L)), i));
+            batch.add(message);
+            if (batch.size() == 10_000) {
+                mongoTemplate.insertAll(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.close();
+        mongoTemplate.getDb().drop();
+        mongoClient.close();
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(i == 0 ? "" : " ").append(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+        }
+        return text.toString();
+    }
+
+    @Test
+    void compareTextIndexAndEmbeddedIndex(@TempDir Path indexDir) throws Exception {
+        MongoTextSearchEngine textEngine = new MongoTextSearchEngine(messageRepository);
+        EmbeddedMessageSearchEngine embeddedEngine = new EmbeddedMessageSearchEngine(messageRepository, textEngine,
+                executor, mock(CacheInvalidationBus.class), new SimpleMeterRegistry(), indexDir,
+                100, 256, 1000, Duration.ofSeconds(5));
+
+        // First search falls back to $text and starts the build
+        long buildStart = System.nanoTime();
+        embeddedEngine.search(conversationId, HiddenMessages.NONE, null, "pho", null, PAGE_SIZE);
+        Path manifest = indexDir.resolve(conversationId.toHexString()).resolve(ConversationIndex.MANIFEST);
+        while (!Files.exists(manifest)) {
+            assertThat(Duration.ofNanos(System.nanoTime() - buildStart)).isLessThan(Duration.ofMinutes(5));
+            Thread.sleep(100);
+        }
+        System.out.printf("embedded index build: %,d ms for %,d messages%n",
+                Duration.ofNanos(System.nanoTime() - buildStart).toMillis(), MESSAGES);
+
+        Random random = new Random(7);
+        List<String> accented = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            accented.add(random.nextBoolean()
+                    ? VOCABULARY[random.nextInt(VOCABULARY.length)]
+                    : sentence(random, 2));
+        }
+        // Users type without accents and often stop mid-word
+        List<String> folded = accented.stream()
+                .map(query -> Arrays.stream(SearchTokenizer.fold(query).split(" "))
+                        .map(word -> word.length() > 3 ? word.substring(0, word.length() - 1) : word)
+                        .reduce((left, right) -> left + " " + right).orElseThrow())
+                .toList();
+
+        long[] text = measure(textEngine, accented);
+        long[] embedded = measure(embeddedEngine, folded);
+        System.out.printf("$text (exact words)   : p50=%,d µs p99=%,d µs%n", text[0], text[1]);
+        System.out.printf("embedded (prefix, ascii): p50=%,d µs p99=%,d µs%n", embedded[0], embedded[1]);
+
+        assertThat(Duration.ofNanos(embedded[1] * 1_000)).isLessThan(Duration.ofMillis(500));
+        List<ScoredMessage> hits = embeddedEngine.search(conversationId, HiddenMessages.NONE, null, "ha noi", null, PAGE_SIZE);
+        assertThat(hits).hasSize(PAGE_SIZE).allMatch(hit ->
+                SearchTokenizer.tokenize(hit.message().getContent().getText()).containsAll(List.of("ha", "noi")));
+    }
+
+    /**
+     * @return {p50, p99} in microseconds, after one warm-up pass
+     */
+    private static long[] measure(MessageSearchEngine engine, List<String> queries) {
+        Function<String, List<ScoredMessage>> search =
+                query -> engine.search(conversationId, HiddenMessages.NONE, null, query, null, PAGE_SIZE);
+        queries.forEach(search::apply);
+
+        long[] micros = new long[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            long start = System.nanoTime();
+            search.apply(queries.get(i));
+            micros[i] = (System.nanoTime() - start) / 1_000;
+        }
+        Arrays.sort(micros);
+        return new long[]{micros[micros.length / 2], micros[(int) (micros.length * 0.99)]};
+    }
+}
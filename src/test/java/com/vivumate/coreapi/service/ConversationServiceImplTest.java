@@ -1,10 +1,20 @@
 package com.vivumate.coreapi.service;
 
+import com.mongodb.client.result.UpdateResult;
+import com.vivumate.coreapi.cache.ConversationListCache;
+import com.vivumate.coreapi.cache.ConversationMembership;
+import com.vivumate.coreapi.cache.ConversationMembershipCache;
 import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.ConversationTombstoneDocument;
+import com.vivumate.coreapi.document.enums.ConversationType;
+import com.vivumate.coreapi.document.enums.RemovalReason;
+import com.vivumate.coreapi.document.projection.ConversationChanges;
+import com.vivumate.coreapi.document.projection.ConversationChanges.Removal;
 import com.vivumate.coreapi.document.subdoc.Participant;
 import com.vivumate.coreapi.exception.AppException;
 import com.vivumate.coreapi.exception.ErrorCode;
 import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import com.vivumate.coreapi.repository.mongodb.ConversationTombstoneRepository;
 import com.vivumate.coreapi.service.impl.ConversationServiceImpl;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.DisplayName;
@@ -16,7 +26,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -31,6 +44,21 @@ class ConversationServiceImplTest {
     @Mock
     private ConversationRepository conversationRepository;
 
+    @Mock
+    private ConversationMembershipCache membershipCache;
+
+    @Mock
+    private UnreadCounterService unreadCounterService;
+
+    @Mock
+    private UserInboxService userInboxService;
+
+    @Mock
+    private ConversationListCache conversationListCache;
+
+    @Mock
+    private ConversationTombstoneRepository conversationTombstoneRepository;
+
     @InjectMocks
     private ConversationServiceImpl conversationService;
 
@@ -113,4 +141,110 @@ class ConversationServiceImplTest {
         );
     }
 
+    @Test
+    @DisplayName("Should invalidate the cached clearedAt watermark after clearing history")
+    void clearHistory_InvalidatesMembershipCache() {
+        ObjectId convId = new ObjectId();
+        Long userId = 10L;
+        given(conversationRepository.updateClearedAt(
+                org.mockito.ArgumentMatchers.eq(convId),
+                org.mockito.ArgumentMatchers.eq(userId),
+                org.mockito.ArgumentMatchers.any(Instant.class)))
+                .willReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        conversationService.clearHistory(convId, userId);
+
+        // (The next page load must re-read the watermark, on this node and on the others)
+        then(membershipCache).should().invalidate(convId);
+        then(unreadCounterService).should().reset(convId, userId);
+    }
+
+    @Test
+    @DisplayName("Should split list changes into upserts and tombstones for dissolved, cleared and left conversations")
+    void getConversationChanges_SplitsChangesAndTombstones() {
+        Long userId = 10L;
+        Instant since = Instant.now().minus(Duration.ofHours(1));
+        ConversationDocument active = listItem(since.plusSeconds(60));
+        ConversationDocument dissolved = listItem(since.minusSeconds(60));
+        dissolved.setDeletedAt(since.plusSeconds(30));
+        ConversationDocument cleared = listItem(since.minusSeconds(60));
+        ConversationDocument rejoined = listItem(since.minusSeconds(60));
+        ObjectId leftId = new ObjectId();
+
+        given(conversationRepository.findActivityChangesSince(userId, since, 201)).willReturn(List.of(active));
+        given(conversationRepository.findMetadataChangesSince(userId, since, 201))
+                .willReturn(List.of(dissolved, cleared, rejoined));
+        given(conversationTombstoneRepository.findByUserIdAndRemovedAtGreaterThanOrderByRemovedAtAsc(
+                org.mockito.ArgumentMatchers.eq(userId), org.mockito.ArgumentMatchers.eq(since),
+                org.mockito.ArgumentMatchers.any()))
+                .willReturn(List.of(
+                        tombstone(userId, leftId, RemovalReason.LEFT, since.plusSeconds(10)),
+                        tombstone(userId, rejoined.getId(), RemovalReason.REMOVED, since.plusSeconds(20))));
+        Instant clearedAt = since.plusSeconds(40);
+        given(membershipCache.getAll(List.of(active.getId(), cleared.getId(), rejoined.getId()))).willReturn(Map.of(
+                cleared.getId(), membership(userId, clearedAt),
+                rejoined.getId(), membership(userId, null)));
+
+        ConversationChanges changes = conversationService.getConversationChanges(userId, since);
+
+        assertThat(changes.truncated()).isFalse();
+        assertThat(changes.changed()).containsExactly(active, rejoined);
+        assertThat(changes.removed()).containsExactlyInAnyOrder(
+                new Removal(dissolved.getId(), RemovalReason.DISSOLVED, dissolved.getDeletedAt()),
+                new Removal(cleared.getId(), RemovalReason.CLEARED, clearedAt),
+                new Removal(leftId, RemovalReason.LEFT, since.plusSeconds(10)));
+        assertThat(changes.watermark()).isAfter(since);
+        then(unreadCounterService).should().applyLiveCounts(userId, changes.changed());
+    }
+
+    @Test
+    @DisplayName("Should ask for a reload without querying when the watermark is older than tombstones are kept")
+    void getConversationChanges_ExpiredWatermark_Reloads() {
+        Instant since = Instant.now().minus(ConversationTombstoneDocument.RETENTION).minus(Duration.ofDays(1));
+
+        ConversationChanges changes = conversationService.getConversationChanges(10L, since);
+
+        assertThat(changes.truncated()).isTrue();
+        assertThat(changes.changed()).isEmpty();
+        assertThat(changes.removed()).isEmpty();
+        then(conversationRepository).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("Should serve a type-filtered list from the typed query, bypassing the cached first page")
+    void getConversationList_WithType_UsesTypedQuery() {
+        Long userId = 10L;
+        List<ConversationDocument> groups = List.of(listItem(Instant.now()));
+        given(conversationRepository.findConversationsByUserIdAndType(userId, ConversationType.GROUP, null, null, 20))
+                .willReturn(groups);
+
+        List<ConversationDocument> page = conversationService.getConversationList(
+                userId, ConversationType.GROUP, null, null, 20);
+
+        assertThat(page).isSameAs(groups);
+        then(unreadCounterService).should().applyLiveCounts(userId, groups);
+        then(conversationListCache).shouldHaveNoInteractions();
+        then(userInboxService).shouldHaveNoInteractions();
+    }
+
+    private static ConversationDocument listItem(Instant lastActivityAt) {
+        ConversationDocument conversation = ConversationDocument.builder()
+                .type(ConversationType.GROUP)
+                .lastActivityAt(lastActivityAt)
+                .build();
+        conversation.setId(new ObjectId());
+        return conversation;
+    }
+
+    private static ConversationTombstoneDocument tombstone(Long userId, ObjectId conversationId,
+                                                           RemovalReason reason, Instant removedAt) {
+        return ConversationTombstoneDocument.of(conversationId, List.of(userId), reason, removedAt).getFirst();
+    }
+
+    private static ConversationMembership membership(Long userId, Instant clearedAt) {
+        return ConversationMembership.from(ConversationDocument.builder()
+                .type(ConversationType.GROUP)
+                .participants(List.of(Participant.builder().userId(userId).clearedAt(clearedAt).build()))
+                .build());
+    }
 }
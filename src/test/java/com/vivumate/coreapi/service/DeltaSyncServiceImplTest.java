@@ -0,0 +1,148 @@
+package com.vivumate.coreapi.service;
+
+import com.vivumate.coreapi.cache.ConversationMembership;
+import com.vivumate.coreapi.cache.ConversationMembershipCache;
+import com.vivumate.coreapi.cache.HiddenMessagesCache;
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.enums.ConversationType;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.projection.NewMessages;
+import com.vivumate.coreapi.document.subdoc.Participant;
+import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import com.vivumate.coreapi.repository.mongodb.MessageRepository;
+import com.vivumate.coreapi.service.impl.DeltaSyncServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+@ExtendWith(MockitoExtension.class)
+class DeltaSyncServiceImplTest {
+
+    private static final Long USER_ID = 10L;
+    private static final Instant SINCE = Instant.parse("2025-06-01T00:00:00Z");
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private ConversationMembershipCache membershipCache;
+
+    @Mock
+    private HiddenMessagesCache hiddenMessagesCache;
+
+    @Mock
+    private UnreadCounterService unreadCounterService;
+
+    private DeltaSyncServiceImpl deltaSyncService;
+
+    @BeforeEach
+    void setUp() {
+        deltaSyncService = new DeltaSyncServiceImpl(conversationRepository, messageRepository, membershipCache,
+                hiddenMessagesCache, unreadCounterService, new SimpleMeterRegistry(),
+                5, 2, 50, Duration.ofSeconds(5));
+    }
+
+    private static ConversationDocument conversation() {
+        ConversationDocument conversation = ConversationDocument.builder().type(ConversationType.GROUP).build();
+        conversation.setId(new ObjectId());
+        return conversation;
+    }
+
+    private static MessageDocument messageAt(ObjectId convId, int second) {
+        MessageDocument message = MessageDocument.builder().conversationId(convId).build();
+        message.setId(new ObjectId(Date.from(SINCE.plusSeconds(second)), second));
+        return message;
+    }
+
+    private List<DeltaSyncService.SyncChunk> sync() {
+        List<DeltaSyncService.SyncChunk> chunks = new ArrayList<>();
+        deltaSyncService.sync(USER_ID, SINCE, chunks::add);
+        return chunks;
+    }
+
+    @Test
+    @DisplayName("Should answer an idle device with one empty last chunk and no message query")
+    void sync_NothingChanged_EmitsEmptyLastChunk() {
+        given(conversationRepository.findConversationsActiveSince(USER_ID, SINCE, 6)).willReturn(List.of());
+
+        List<DeltaSyncService.SyncChunk> chunks = sync();
+
+        assertThat(chunks).singleElement().satisfies(chunk -> {
+            assertThat(chunk.last()).isTrue();
+            assertThat(chunk.truncated()).isFalse();
+            assertThat(chunk.conversations()).isEmpty();
+            assertThat(chunk.serverTimestamp()).isBefore(Instant.now());
+        });
+        then(messageRepository).should(never()).findNewMessages(any(), any(), any(Integer.class));
+    }
+
+    @Test
+    @DisplayName("Should split the delta into bounded chunks with one message query each, and flag truncation")
+    void sync_LargeDelta_ChunksAndTruncates() {
+        List<ConversationDocument> changed = IntStream.range(0, 6).mapToObj(i -> conversation()).toList();
+        given(conversationRepository.findConversationsActiveSince(USER_ID, SINCE, 6)).willReturn(changed);
+        given(messageRepository.findNewMessages(anyList(), eq(SINCE), eq(50))).willReturn(List.of());
+
+        List<DeltaSyncService.SyncChunk> chunks = sync();
+
+        // 5 served (max-conversations), 2 per chunk
+        assertThat(chunks).extracting(chunk -> chunk.conversations().size()).containsExactly(2, 2, 1);
+        assertThat(chunks).extracting(DeltaSyncService.SyncChunk::last).containsExactly(false, false, true);
+        assertThat(chunks).allMatch(DeltaSyncService.SyncChunk::truncated);
+        assertThat(chunks).extracting(DeltaSyncService.SyncChunk::serverTimestamp).containsOnly(chunks.getFirst().serverTimestamp());
+        then(messageRepository).should(times(3)).findNewMessages(anyList(), eq(SINCE), eq(50));
+        then(unreadCounterService).should(times(3)).applyLiveCounts(eq(USER_ID), anyList());
+    }
+
+    @Test
+    @DisplayName("Should drop messages before the user's clearedAt and messages the user hid")
+    void sync_FiltersClearedAndHiddenMessages() {
+        ConversationDocument conversation = conversation();
+        ObjectId convId = conversation.getId();
+        conversation.setParticipants(List.of(Participant.builder()
+                .userId(USER_ID).clearedAt(SINCE.plusSeconds(20)).build()));
+        MessageDocument hidden = messageAt(convId, 40);
+        MessageDocument visible = messageAt(convId, 30);
+        MessageDocument cleared = messageAt(convId, 10);
+
+        given(conversationRepository.findConversationsActiveSince(USER_ID, SINCE, 6)).willReturn(List.of(conversation));
+        given(messageRepository.findNewMessages(List.of(convId), SINCE, 50))
+                .willReturn(List.of(new NewMessages(convId, List.of(hidden, visible, cleared), 120)));
+        given(hiddenMessagesCache.getAll(List.of(convId), USER_ID))
+                .willReturn(Map.of(convId, HiddenMessages.of(List.of(hidden.getId()))));
+        given(membershipCache.get(convId)).willReturn(Optional.of(ConversationMembership.from(conversation)));
+
+        NewMessages delta = sync().getFirst().messages().getFirst();
+
+        assertThat(delta.newestFirst()).containsExactly(visible);
+        assertThat(delta.total()).isEqualTo(118);
+        assertThat(delta.hasMore()).isTrue();
+    }
+}
@@ -0,0 +1,168 @@
+package com.vivumate.coreapi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vivumate.coreapi.cache.ConversationMembership;
+import com.vivumate.coreapi.cache.ConversationMembershipCache;
+import com.vivumate.coreapi.cache.HiddenMessagesCache;
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.enums.ConversationType;
+import com.vivumate.coreapi.document.enums.ParticipantRole;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.projection.MessageFeedItem;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.document.subdoc.Participant;
+import com.vivumate.coreapi.exception.AppException;
+import com.vivumate.coreapi.exception.ErrorCode;
+import com.vivumate.coreapi.repository.mongodb.MessageRepository;
+import com.vivumate.coreapi.service.impl.MessageExportServiceImpl;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+
+@ExtendWith(MockitoExtension.class)
+class MessageExportServiceImplTest {
+
+    private static final Long USER_ID = 10L;
+    private static final int BATCH_SIZE = 1000;
+    private static final Instant BASE = Instant.parse("2025-06-01T00:00:00Z");
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private ConversationMembershipCache membershipCache;
+
+    @Mock
+    private HiddenMessagesCache hiddenMessagesCache;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private MessageExportServiceImpl exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new MessageExportServiceImpl(messageRepository, membershipCache, hiddenMessagesCache,
+                objectMapper, BATCH_SIZE);
+    }
+
+    private void givenMember(ObjectId convId, Instant clearedAt) {
+        ConversationDocument conversation = new ConversationDocument();
+        conversation.setType(ConversationType.GROUP);
+        conversation.setParticipants(List.of(Participant.builder()
+                .userId(USER_ID).role(ParticipantRole.MEMBER).clearedAt(clearedAt).build()));
+        given(membershipCache.getIfMember(convId, USER_ID))
+                .willReturn(Optional.of(ConversationMembership.from(conversation)));
+        given(hiddenMessagesCache.get(convId, USER_ID)).willReturn(HiddenMessages.NONE);
+    }
+
+    /** Lazily generated history: nothing is materialized unless the export retains it. */
+    private static Stream<MessageFeedItem> history(ObjectId convId, long messages, AtomicBoolean closed) {
+        return LongStream.range(0, messages)
+                .mapToObj(i -> new MessageFeedItem(
+                        new ObjectId(Date.from(BASE.plusSeconds(i)), (int) (i & 0xffffff)), convId, null,
+                        20L + i % 5, "member" + i % 5, "Member " + i % 5, null,
+                        ContentType.TEXT, MessageContent.builder().text("message number " + i).build(),
+                        List.of(), null, null, null, false, BASE.plusSeconds(i)))
+                .onClose(() -> closed.set(true));
+    }
+
+    @Test
+    @DisplayName("Should write one JSON message per line, gzipped, and close the cursor")
+    void export_Gzip_WritesNdjsonLines() throws Exception {
+        ObjectId convId = new ObjectId();
+        Instant clearedAt = BASE.minusSeconds(60);
+        givenMember(convId, clearedAt);
+        AtomicBoolean closed = new AtomicBoolean();
+        given(messageRepository.streamHistory(convId, HiddenMessages.NONE, clearedAt, BATCH_SIZE))
+                .willReturn(history(convId, 3, closed));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = exportService.prepareExport(convId, USER_ID).writeTo(out, true);
+
+        List<String> lines = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), StandardCharsets.UTF_8))
+                .lines().toList();
+        assertThat(exported).isEqualTo(3);
+        assertThat(lines).hasSize(3);
+        JsonNode first = objectMapper.readTree(lines.getFirst());
+        assertThat(first.get("conversation_id").asText()).isEqualTo(convId.toHexString());
+        assertThat(first.get("content").get("text").asText()).isEqualTo("message number 0");
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should reject a non-member before anything is read or streamed")
+    void prepareExport_NotMember_AccessDenied() {
+        ObjectId convId = new ObjectId();
+        given(membershipCache.getIfMember(convId, USER_ID)).willReturn(Optional.empty());
+
+        assertThatThrownBy(() -> exportService.prepareExport(convId, USER_ID))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.CONVERSATION_ACCESS_DENIED);
+        then(messageRepository).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("Should keep the heap flat while exporting a large conversation")
+    void export_LargeConversation_HeapStaysFlat() throws Exception {
+        long messages = 500_000;
+        ObjectId convId = new ObjectId();
+        givenMember(convId, null);
+
+        // Heap sampled after 10% and after 100% of the history has been written
+        AtomicLong early = new AtomicLong();
+        AtomicLong late = new AtomicLong();
+        AtomicLong written = new AtomicLong();
+        Stream<MessageFeedItem> history = history(convId, messages, new AtomicBoolean())
+                .peek(item -> {
+                    long n = written.incrementAndGet();
+                    if (n == messages / 10) {
+                        early.set(usedHeapAfterGc());
+                    } else if (n == messages) {
+                        late.set(usedHeapAfterGc());
+                    }
+                });
+        given(messageRepository.streamHistory(convId, HiddenMessages.NONE, null, BATCH_SIZE)).willReturn(history);
+
+        long exported = exportService.prepareExport(convId, USER_ID).writeTo(OutputStream.nullOutputStream(), false);
+
+        assertThat(exported).isEqualTo(messages);
+        // Retaining the 450k messages written in between would cost well over 100 MB
+        assertThat(late.get() - early.get()).isLessThan(16L * 1024 * 1024);
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,357 @@
+package com.vivumate.coreapi.service;
+
+import com.vivumate.coreapi.cache.ConversationListCache;
+import com.vivumate.coreapi.cache.ConversationMembership;
+import com.vivumate.coreapi.cache.ConversationMembershipCache;
+import com.vivumate.coreapi.cache.HiddenMessagesCache;
+import com.vivumate.coreapi.cache.MessageDedupCache;
+import com.vivumate.coreapi.cache.RecentMessagesCache;
+import com.vivumate.coreapi.cache.SenderSnapshotCache;
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.enums.ConversationType;
+import com.vivumate.coreapi.document.enums.ParticipantRole;
+import com.vivumate.coreapi.document.projection.HiddenMessages;
+import com.vivumate.coreapi.document.projection.MessageWindow;
+import com.vivumate.coreapi.document.projection.ScoredMessage;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.document.subdoc.Participant;
+import com.vivumate.coreapi.document.subdoc.SenderSnapshot;
+import com.vivumate.coreapi.exception.AppException;
+import com.vivumate.coreapi.exception.ErrorCode;
+import com.vivumate.coreapi.repository.UserRepository;
+import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import com.vivumate.coreapi.repository.mongodb.HiddenMessagesRepository;
+import com.vivumate.coreapi.repository.mongodb.LastMessageWriter;
+import com.vivumate.coreapi.repository.mongodb.MessageGroupCommitWriter;
+import com.vivumate.coreapi.repository.mongodb.MessageRepository;
+import com.vivumate.coreapi.search.MessageSearchEngine;
+import com.vivumate.coreapi.search.SearchCursor;
+import com.vivumate.coreapi.search.SearchHit;
+import com.vivumate.coreapi.search.SearchPage;
+import com.vivumate.coreapi.service.impl.MessageServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+@ExtendWith(MockitoExtension.class)
+class MessageServiceImplTest {
+
+    private static final Long SENDER_ID = 10L;
+    private static final String CLIENT_MSG_ID = "4b6f1c2e-retry";
+
+    @Mock
+    private MessageRepository messageRepository;
+    @Mock
+    private MessageGroupCommitWriter messageWriter;
+    @Mock
+    private LastMessageWriter lastMessageWriter;
+    @Mock
+    private ConversationRepository conversationRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private SenderSnapshotCache senderSnapshotCache;
+    @Mock
+    private ConversationMembershipCache membershipCache;
+    @Mock
+    private UnreadCounterService unreadCounterService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private RecentMessagesCache recentMessages;
+    @Mock
+    private HiddenMessagesRepository hiddenMessagesRepository;
+    @Mock
+    private HiddenMessagesCache hiddenMessagesCache;
+    @Mock
+    private MessageSearchEngine messageSearchEngine;
+
+    @Mock
+    private ConversationListCache conversationListCache;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private MessageDedupCache dedupCache;
+    private MessageServiceImpl messageService;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        dedupCache = new MessageDedupCache(meterRegistry, 100, Duration.ofMinutes(5));
+        messageService = new MessageServiceImpl(messageRepository, messageWriter, lastMessageWriter,
+                conversationRepository, userRepository, senderSnapshotCache, membershipCache,
+                unreadCounterService, meterRegistry, executor, eventPublisher, dedupCache, recentMessages,
+                hiddenMessagesRepository, hiddenMessagesCache, messageSearchEngine, conversationListCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    private static MessageDocument savedMessage(ObjectId convId, Long senderId) {
+        MessageDocument message = MessageDocument.builder()
+                .conversationId(convId)
+                .clientMsgId(CLIENT_MSG_ID)
+                .sender(SenderSnapshot.builder().userId(senderId).build())
+                .contentType(ContentType.TEXT)
+                .content(MessageContent.builder().text("hello").build())
+                .build();
+        message.setId(new ObjectId());
+        message.setCreatedAt(Instant.now());
+        return message;
+    }
+
+    private MessageDocument send(ObjectId convId, Long senderId) {
+        return messageService.sendMessage(convId, senderId, ContentType.TEXT,
+                MessageContent.builder().text("hello").build(), null, null, CLIENT_MSG_ID, "session-1");
+    }
+
+    @Test
+    @DisplayName("Should answer a retry inside the dedup window without running the send pipeline")
+    void sendMessage_RetryInWindow_ReturnsOriginal() {
+        ObjectId convId = new ObjectId();
+        MessageDocument original = savedMessage(convId, SENDER_ID);
+        dedupCache.put(original);
+
+        MessageDocument result = send(convId, SENDER_ID);
+
+        assertThat(result).isSameAs(original);
+        then(membershipCache).shouldHaveNoInteractions();
+        then(messageWriter).shouldHaveNoInteractions();
+        then(unreadCounterService).shouldHaveNoInteractions();
+        then(eventPublisher).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("Should resolve a retry that hit the unique index to the original and undo its side effects")
+    void sendMessage_DuplicateKey_ReturnsOriginalAndReverts() {
+        ObjectId convId = new ObjectId();
+        MessageDocument original = savedMessage(convId, SENDER_ID);
+        ConversationDocument conversation = new ConversationDocument();
+        conversation.setType(ConversationType.GROUP);
+        conversation.setParticipants(List.of(
+                Participant.builder().userId(SENDER_ID).role(ParticipantRole.MEMBER).build(),
+                Participant.builder().userId(20L).role(ParticipantRole.MEMBER).build()));
+
+        given(membershipCache.getIfMember(convId, SENDER_ID))
+                .willReturn(Optional.of(ConversationMembership.from(conversation)));
+        given(senderSnapshotCache.get(eq(SENDER_ID), any()))
+                .willReturn(SenderSnapshot.builder().userId(SENDER_ID).build());
+        given(messageWriter.insert(any())).willThrow(new DuplicateKeyException("idx_conversation_client_msg_unique"));
+        given(messageRepository.findByConversationIdAndClientMsgId(convId, CLIENT_MSG_ID))
+                .willReturn(Optional.of(original));
+
+        MessageDocument result = send(convId, SENDER_ID);
+
+        assertThat(result).isSameAs(original);
+        then(unreadCounterService).should().revertMessageSent(convId, List.of(20L), List.of());
+        then(eventPublisher).should(never()).publishEvent(any());
+        then(recentMessages).shouldHaveNoInteractions();
+        assertThat(dedupCache.get(convId, CLIENT_MSG_ID)).isSameAs(original);
+    }
+
+    @Test
+    @DisplayName("Should reject a clientMsgId already used by another sender")
+    void sendMessage_ClientIdOfOtherSender_Conflict() {
+        ObjectId convId = new ObjectId();
+        dedupCache.put(savedMessage(convId, 99L));
+
+        assertThatThrownBy(() -> send(convId, SENDER_ID))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.MESSAGE_CLIENT_ID_CONFLICT);
+    }
+
+    @Test
+    @DisplayName("Should hide a message in the user's bucket without touching the message or the recent ring")
+    void deleteForMe_Member_HidesInBucket() {
+        ObjectId convId = new ObjectId();
+        MessageDocument message = savedMessage(convId, 20L);
+        ConversationDocument conversation = new ConversationDocument();
+        conversation.setType(ConversationType.DIRECT);
+        conversation.setParticipants(List.of(
+                Participant.builder().userId(SENDER_ID).role(ParticipantRole.MEMBER).build(),
+                Participant.builder().userId(20L).role(ParticipantRole.MEMBER).build()));
+        given(messageRepository.findById(message.getId())).willReturn(Optional.of(message));
+        given(membershipCache.getIfMember(convId, SENDER_ID))
+                .willReturn(Optional.of(ConversationMembership.from(conversation)));
+
+        messageService.deleteForMe(message.getId(), SENDER_ID);
+
+        then(hiddenMessagesRepository).should().hide(SENDER_ID, convId, message.getId());
+        then(hiddenMessagesCache).should().invalidate(convId, SENDER_ID);
+        then(recentMessages).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("Should not let a non-member hide a message of the conversation")
+    void deleteForMe_NotMember_NotFound() {
+        ObjectId convId = new ObjectId();
+        MessageDocument message = savedMessage(convId, 20L);
+        given(messageRepository.findById(message.getId())).willReturn(Optional.of(message));
+        given(membershipCache.getIfMember(convId, SENDER_ID)).willReturn(Optional.empty());
+
+        assertThatThrownBy(() -> messageService.deleteForMe(message.getId(), SENDER_ID))
+                .isInstanceOf(AppException.class)
+                .extracting(e -> ((AppException) e).getErrorCode())
+                .isEqualTo(ErrorCode.MESSAGE_NOT_FOUND);
+        then(hiddenMessagesRepository).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("Should merge both range scans around the anchor into one newest-first window")
+    void loadAround_MergesOlderAnchorAndNewer() {
+        ObjectId convId = new ObjectId();
+        ConversationDocument conversation = new ConversationDocument();
+        conversation.setType(ConversationType.DIRECT);
+        conversation.setParticipants(List.of(
+                Participant.builder().userId(SENDER_ID).role(ParticipantRole.MEMBER).build()));
+        given(membershipCache.getIfMember(convId, SENDER_ID))
+                .willReturn(Optional.of(ConversationMembership.from(conversation)));
+        given(hiddenMessagesCache.get(convId, SENDER_ID)).willReturn(HiddenMessages.NONE);
+
+        List<MessageDocument> messages = IntStream.range(0, 10)
+                .mapToObj(i -> {
+                    MessageDocument message = savedMessage(convId, 20L);
+                    message.setId(new ObjectId(Date.from(Instant.parse("2025-06-01T00:00:00Z").plusSeconds(i)), i));
+                    return message;
+                })
+                .toList();
+        ObjectId anchorId = messages.get(5).getId();
+        // Older scan: newest-first, one extra row; newer scan: oldest-first from the anchor, two extra rows
+        given(messageRepository.findMessagesByConversation(convId, HiddenMessages.NONE, anchorId, null, 3))
+                .willReturn(List.of(messages.get(4), messages.get(3), messages.get(2)));
+        given(messageRepository.findMessagesAfter(convId, HiddenMessages.NONE, anchorId, true, null, 4))
+                .willReturn(List.of(messages.get(5), messages.get(6), messages.get(7)));
+
+        MessageWindow window = messageService.loadAround(convId, SENDER_ID, anchorId, 2, 2);
+
+        assertThat(window.messages()).extracting(MessageDocument::getId).containsExactly(
+                messages.get(7).getId(), messages.get(6).getId(), anchorId,
+                messages.get(4).getId(), messages.get(3).getId());
+        assertThat(window.hasOlder()).isTrue();
+        assertThat(window.hasNewer()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should prefetch first pages from the ring or MongoDB, skipping conversations the user cannot access")
+    void prefetchFirstPages_BatchesLookupsAndSkipsForeignConversations() {
+        ObjectId cachedConv = new ObjectId();
+        ObjectId uncachedConv = new ObjectId();
+        ObjectId foreignConv = new ObjectId();
+        ConversationDocument member = new ConversationDocument();
+        member.setType(ConversationType.GROUP);
+        member.setParticipants(List.of(Participant.builder().userId(SENDER_ID).role(ParticipantRole.MEMBER).build()));
+        ConversationDocument foreign = new ConversationDocument();
+        foreign.setType(ConversationType.GROUP);
+        foreign.setParticipants(List.of(Participant.builder().userId(99L).role(ParticipantRole.MEMBER).build()));
+        List<ObjectId> requested = List.of(uncachedConv, foreignConv, cachedConv);
+        given(membershipCache.getAll(List.of(uncachedConv, foreignConv, cachedConv))).willReturn(Map.of(
+                cachedConv, ConversationMembership.from(member),
+                uncachedConv, ConversationMembership.from(member),
+                foreignConv, ConversationMembership.from(foreign)));
+        given(hiddenMessagesCache.getAll(List.of(uncachedConv, cachedConv), SENDER_ID)).willReturn(Map.of());
+
+        MessageDocument cachedMessage = savedMessage(cachedConv, 20L);
+        MessageDocument storedMessage = savedMessage(uncachedConv, 20L);
+        given(recentMessages.firstPage(cachedConv, HiddenMessages.NONE, null, 30))
+                .willReturn(Optional.of(List.of(cachedMessage)));
+        given(recentMessages.firstPage(uncachedConv, HiddenMessages.NONE, null, 30)).willReturn(Optional.empty());
+        given(messageRepository.findMessagesByConversation(uncachedConv, HiddenMessages.NONE, null, null, 30))
+                .willReturn(List.of(storedMessage));
+
+        Map<ObjectId, List<MessageDocument>> pages = messageService.prefetchFirstPages(requested, SENDER_ID, 30);
+
+        assertThat(pages).containsOnlyKeys(uncachedConv, cachedConv);
+        assertThat(pages.keySet()).containsExactly(uncachedConv, cachedConv);
+        assertThat(pages.get(cachedConv)).containsExactly(cachedMessage);
+        assertThat(pages.get(uncachedConv)).containsExactly(storedMessage);
+        then(membershipCache).should(never()).getIfMember(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should page through history with one MongoDB query per page, the watermark coming from the cache")
+    void loadMessages_CursorPage_SingleQuery() {
+        ObjectId convId = new ObjectId();
+        ObjectId cursor = new ObjectId();
+        Instant clearedAt = Instant.parse("2025-06-01T00:00:00Z");
+        ConversationDocument conversation = new ConversationDocument();
+        conversation.setType(ConversationType.GROUP);
+        conversation.setParticipants(List.of(Participant.builder()
+                .userId(SENDER_ID).role(ParticipantRole.MEMBER).clearedAt(clearedAt).build()));
+        given(membershipCache.getIfMember(convId, SENDER_ID))
+                .willReturn(Optional.of(ConversationMembership.from(conversation)));
+        given(hiddenMessagesCache.get(convId, SENDER_ID)).willReturn(HiddenMessages.NONE);
+
+        messageService.loadMessages(convId, SENDER_ID, cursor, 30);
+
+        then(messageRepository).should().findMessagesByConversation(convId, HiddenMessages.NONE, cursor, clearedAt, 30);
+        then(conversationRepository).shouldHaveNoInteractions();
+        then(recentMessages).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("Should return highlighted hits and a keyset cursor after the last hit only when more exist")
+    void searchMessages_PagesWithKeysetCursor() {
+        ObjectId convId = new ObjectId();
+        ConversationDocument conversation = new ConversationDocument();
+        conversation.setType(ConversationType.GROUP);
+        conversation.setParticipants(List.of(Participant.builder()
+                .userId(SENDER_ID).role(ParticipantRole.MEMBER).build()));
+        given(membershipCache.getIfMember(convId, SENDER_ID))
+                .willReturn(Optional.of(ConversationMembership.from(conversation)));
+        given(hiddenMessagesCache.get(convId, SENDER_ID)).willReturn(HiddenMessages.NONE);
+
+        List<ScoredMessage> matches = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            MessageDocument message = savedMessage(convId, SENDER_ID);
+            message.getContent().setText("Hẹn gặp ở Đà Lạt " + i);
+            matches.add(new ScoredMessage(message, 2.0 - i));
+        }
+        SearchCursor cursor = SearchCursor.relevance(2.5, new ObjectId());
+        given(messageSearchEngine.search(convId, HiddenMessages.NONE, null, "da lat", cursor, 3)).willReturn(matches);
+        given(messageSearchEngine.search(convId, HiddenMessages.NONE, null, "da lat", null, 4)).willReturn(matches);
+
+        SearchPage page = messageService.searchMessages(convId, SENDER_ID, "da lat", cursor, 2);
+        SearchPage last = messageService.searchMessages(convId, SENDER_ID, "da lat", null, 3);
+
+        assertThat(page.hits()).extracting(SearchHit::messageId)
+                .containsExactly(matches.get(0).message().getId(), matches.get(1).message().getId());
+        assertThat(page.hits().getFirst().snippet()).isEqualTo("Hẹn gặp ở Đà Lạt 0");
+        assertThat(page.hits().getFirst().offsets())
+                .containsExactly(new SearchHit.MatchOffset(10, 12), new SearchHit.MatchOffset(13, 16));
+        assertThat(page.next()).isEqualTo(SearchCursor.relevance(1.0, matches.get(1).message().getId()));
+        assertThat(SearchCursor.decode(page.next().encode())).isEqualTo(page.next());
+        assertThat(last.hits()).hasSize(3);
+        assertThat(last.next()).isNull();
+    }
+}
@@ -0,0 +1,218 @@
+package com.vivumate.coreapi.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import com.vivumate.coreapi.repository.redis.UnreadCounterRedisRepository;
+import com.vivumate.coreapi.service.impl.UnreadCounterServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.BulkOperationException;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+@ExtendWith(MockitoExtension.class)
+class UnreadCounterServiceImplTest {
+
+    @Mock
+    private UnreadCounterRedisRepository unreadRedisRepository;
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Mock
+    private UserInboxService userInboxService;
+
+    @Captor
+    private ArgumentCaptor<Map<ObjectId, Set<Long>>> pairsCaptor;
+
+    @Captor
+    private ArgumentCaptor<Map<ObjectId, Map<Long, long[]>>> countsCaptor;
+
+    @Captor
+    private ArgumentCaptor<Map<Long, long[]>> seedsCaptor;
+
+    private UnreadCounterServiceImpl unreadCounterService;
+
+    @BeforeEach
+    void setUp() {
+        unreadCounterService = new UnreadCounterServiceImpl(unreadRedisRepository, conversationRepository,
+                userInboxService, new SimpleMeterRegistry(), Duration.ofHours(1), 200);
+    }
+
+    @Test
+    @DisplayName("Should coalesce many sends into one bulk MongoDB update")
+    void flushPendingDeltas_CoalescesSends() {
+        ObjectId convId = new ObjectId();
+        given(unreadRedisRepository.increment(eq(convId), any(), any(), eq(1L), isNull())).willReturn(true);
+        given(unreadRedisRepository.getVersionedCounts(any())).willReturn(
+                Map.of(convId, Map.of(2L, new long[]{50, 0, 7}, 3L, new long[]{50, 5, 7})));
+        for (int i = 0; i < 50; i++) {
+            unreadCounterService.recordMessageSent(convId, List.of(2L, 3L), i % 10 == 0 ? List.of(3L) : List.of());
+        }
+
+        unreadCounterService.flushPendingDeltas();
+        unreadCounterService.flushPendingDeltas(); // nothing left
+
+        then(unreadRedisRepository).should(times(50)).increment(eq(convId), any(), any(), eq(1L), isNull());
+        then(unreadRedisRepository).should(times(1)).getVersionedCounts(pairsCaptor.capture());
+        assertThat(pairsCaptor.getValue()).containsOnlyKeys(convId);
+        assertThat(pairsCaptor.getValue().get(convId)).containsExactlyInAnyOrder(2L, 3L);
+        then(conversationRepository).should(never()).findUnreadCountsById(any(), any());
+        then(conversationRepository).should(times(1)).applyUnreadCounts(countsCaptor.capture());
+        assertThat(countsCaptor.getValue().get(convId).get(3L)).containsExactly(50, 5, 7);
+    }
+
+    @Test
+    @DisplayName("Should flush a reset as the versioned Redis value so no older flush re-adds read counts")
+    void reset_FlushesVersionedZero() {
+        ObjectId convId = new ObjectId();
+        given(unreadRedisRepository.increment(convId, List.of(2L), List.of(), 1L, null)).willReturn(true);
+        given(unreadRedisRepository.reset(convId, List.of(2L), null)).willReturn(true);
+        given(unreadRedisRepository.getVersionedCounts(any()))
+                .willReturn(Map.of(convId, Map.of(2L, new long[]{0, 0, 9})));
+        unreadCounterService.recordMessageSent(convId, List.of(2L), List.of());
+
+        unreadCounterService.reset(convId, 2L);
+        unreadCounterService.flushPendingDeltas();
+
+        then(unreadRedisRepository).should().reset(convId, List.of(2L), null);
+        then(conversationRepository).should().applyUnreadCounts(countsCaptor.capture());
+        assertThat(countsCaptor.getValue().get(convId).get(2L)).containsExactly(0, 0, 9);
+    }
+
+    @Test
+    @DisplayName("Should retry only the conversations whose bulk operation failed")
+    void flushPendingDeltas_RequeuesOnlyFailedOperations() {
+        ObjectId okConv = new ObjectId();
+        ObjectId failedConv = new ObjectId();
+        given(unreadRedisRepository.increment(any(), any(), any(), eq(1L), isNull())).willReturn(true);
+        given(unreadRedisRepository.getVersionedCounts(any())).willAnswer(invocation -> {
+            Map<ObjectId, Set<Long>> pairs = invocation.getArgument(0);
+            Map<ObjectId, Map<Long, long[]>> counts = new LinkedHashMap<>();
+            pairs.keySet().forEach(id -> counts.put(id, Map.of(2L, new long[]{1, 0, 1})));
+            return counts;
+        });
+        given(conversationRepository.applyUnreadCounts(any())).willAnswer(invocation -> {
+            List<ObjectId> order = List.copyOf(invocation.<Map<ObjectId, ?>>getArgument(0).keySet());
+            if (order.size() == 1) {
+                return null;
+            }
+            BulkWriteError error = new BulkWriteError(11000, "boom", new BsonDocument(), order.indexOf(failedConv));
+            throw new BulkOperationException("boom", new MongoBulkWriteException(
+                    BulkWriteResult.acknowledged(0, 1, 0, 1, List.of(), List.of()), List.of(error), null,
+                    new ServerAddress(), Set.of()));
+        });
+        unreadCounterService.recordMessageSent(okConv, List.of(2L), List.of());
+        unreadCounterService.recordMessageSent(failedConv, List.of(2L), List.of());
+
+        unreadCounterService.flushPendingDeltas();
+        unreadCounterService.flushPendingDeltas();
+
+        then(unreadRedisRepository).should(times(2)).getVersionedCounts(pairsCaptor.capture());
+        assertThat(pairsCaptor.getAllValues().get(0)).containsOnlyKeys(okConv, failedConv);
+        assertThat(pairsCaptor.getAllValues().get(1)).containsOnlyKeys(failedConv);
+    }
+
+    @Test
+    @DisplayName("Should start a first-touched Redis counter from the MongoDB count instead of 0")
+    void recordMessageSent_SeedsFirstTouchedCounterFromMongo() {
+        ObjectId convId = new ObjectId();
+        ConversationDocument counts = ConversationDocument.builder()
+                .unreadCounts(Map.of("2", 40)).unreadMentions(Map.of("2", 3)).build();
+        given(unreadRedisRepository.increment(convId, List.of(2L, 3L), List.of(2L), 1L, null)).willReturn(false);
+        given(conversationRepository.findUnreadCountsById(eq(convId), any())).willReturn(Optional.of(counts));
+
+        unreadCounterService.recordMessageSent(convId, List.of(2L, 3L), List.of(2L));
+
+        then(unreadRedisRepository).should(times(2)).increment(eq(convId), eq(List.of(2L, 3L)), eq(List.of(2L)), eq(1L),
+                seedsCaptor.capture());
+        Map<Long, long[]> seeds = seedsCaptor.getAllValues().get(1);
+        assertThat(seeds).containsOnlyKeys(2L, 3L);
+        assertThat(seeds.get(2L)).containsExactly(40, 3);
+        assertThat(seeds.get(3L)).containsExactly(0, 0);
+    }
+
+    @Test
+    @DisplayName("Should copy MongoDB counts into Redis for listed conversations without a Redis counter")
+    void applyLiveCounts_SeedsMissingCountersFromMongo() {
+        ObjectId liveConv = new ObjectId();
+        ObjectId legacyConv = new ObjectId();
+        ConversationDocument live = ConversationDocument.builder().build();
+        live.setId(liveConv);
+        ConversationDocument legacy = ConversationDocument.builder().build();
+        legacy.setId(legacyConv);
+        ConversationDocument legacyCounts = ConversationDocument.builder()
+                .unreadCounts(Map.of("2", 6)).unreadMentions(Map.of("2", 1)).build();
+        legacyCounts.setId(legacyConv);
+        given(unreadRedisRepository.getCounts(2L, List.of(liveConv, legacyConv)))
+                .willReturn(Map.of(liveConv, new long[]{2, 0}));
+        given(conversationRepository.findUnreadCountsByIds(2L, List.of(legacyConv))).willReturn(List.of(legacyCounts));
+
+        unreadCounterService.applyLiveCounts(2L, List.of(live, legacy));
+
+        then(unreadRedisRepository).should().seedCounts(eq(2L), any());
+        assertThat(live.getUnreadCounts()).containsEntry("2", 2);
+        assertThat(legacy.getUnreadCounts()).containsEntry("2", 6);
+        assertThat(legacy.getUnreadMentions()).containsEntry("2", 1);
+    }
+
+    @Test
+    @DisplayName("Should reconcile badge readers once, counting MongoDB values for pairs without a Redis counter")
+    void reconcileTotals_RecomputesBadgeReadersOnce() {
+        ObjectId legacyConv = new ObjectId();
+        ObjectId liveConv = new ObjectId();
+        ConversationDocument legacy = ConversationDocument.builder().unreadCounts(Map.of("2", 4)).build();
+        legacy.setId(legacyConv);
+        ConversationDocument live = ConversationDocument.builder().unreadCounts(Map.of()).build();
+        live.setId(liveConv);
+        given(unreadRedisRepository.getTotal(2L)).willReturn(9L);
+        given(unreadRedisRepository.claimReconcile(2L, Duration.ofHours(1))).willReturn(true);
+        given(conversationRepository.streamUnreadCounts(2L)).willReturn(Stream.of(legacy, live));
+        given(unreadRedisRepository.reconcileTotal(eq(2L), any())).willReturn(-3L);
+
+        assertThat(unreadCounterService.getTotalUnread(2L)).isEqualTo(9L);
+        unreadCounterService.reconcileTotals();
+        unreadCounterService.reconcileTotals(); // no new badge read
+
+        then(unreadRedisRepository).should(times(1)).reconcileTotal(2L, Map.of(legacyConv, 4L, liveConv, 0L));
+    }
+
+    @Test
+    @DisplayName("Should compute a missing total on the first badge read")
+    void getTotalUnread_ComputesMissingTotal() {
+        given(unreadRedisRepository.getTotal(5L)).willReturn(null, 7L);
+        given(conversationRepository.streamUnreadCounts(5L)).willReturn(Stream.empty());
+
+        assertThat(unreadCounterService.getTotalUnread(5L)).isEqualTo(7L);
+
+        then(unreadRedisRepository).should().reconcileTotal(5L, Map.of());
+    }
+}
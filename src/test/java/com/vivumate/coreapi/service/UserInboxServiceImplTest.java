@@ -0,0 +1,117 @@
+package com.vivumate.coreapi.service;
+
+import com.vivumate.coreapi.document.ConversationDocument;
+import com.vivumate.coreapi.document.UserInboxDocument;
+import com.vivumate.coreapi.document.subdoc.LastMessagePreview;
+import com.vivumate.coreapi.document.subdoc.Participant;
+import com.vivumate.coreapi.repository.mongodb.ConversationRepository;
+import com.vivumate.coreapi.repository.mongodb.UserInboxRepository;
+import com.vivumate.coreapi.service.impl.UserInboxServiceImpl;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+
+@ExtendWith(MockitoExtension.class)
+class UserInboxServiceImplTest {
+
+    private static final Long USER_ID = 10L;
+    private static final Instant NOW = Instant.parse("2025-06-01T12:00:00Z");
+
+    @Mock
+    private UserInboxRepository userInboxRepository;
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Captor
+    private ArgumentCaptor<List<UserInboxDocument>> entriesCaptor;
+
+    private static ConversationDocument conversation(ObjectId id, Instant lastActivityAt) {
+        ConversationDocument conversation = new ConversationDocument();
+        conversation.setId(id);
+        conversation.setLastActivityAt(lastActivityAt);
+        return conversation;
+    }
+
+    @Test
+    @DisplayName("Should return the page in inbox order with the inbox activity time, skipping deleted conversations")
+    void findConversationList_KeepsInboxOrder() {
+        UserInboxServiceImpl service = new UserInboxServiceImpl(userInboxRepository, conversationRepository, true);
+        ObjectId newest = new ObjectId();
+        ObjectId deleted = new ObjectId();
+        ObjectId oldest = new ObjectId();
+        given(userInboxRepository.findVisible(USER_ID, null, null, 3)).willReturn(List.of(
+                UserInboxDocument.builder().conversationId(newest).lastActivityAt(NOW).build(),
+                UserInboxDocument.builder().conversationId(deleted).lastActivityAt(NOW.minusSeconds(60)).build(),
+                UserInboxDocument.builder().conversationId(oldest).lastActivityAt(NOW.minusSeconds(120)).build()));
+        // Lookup by _id: any order, and the recalled last message moved the conversation's own time back
+        given(conversationRepository.findListItemsByIds(USER_ID, List.of(newest, deleted, oldest))).willReturn(List.of(
+                conversation(oldest, NOW.minusSeconds(120)),
+                conversation(newest, NOW.minusSeconds(30))));
+
+        List<ConversationDocument> page = service.findConversationList(USER_ID, null, null, 3);
+
+        assertThat(page).extracting(ConversationDocument::getId).containsExactly(newest, oldest);
+        assertThat(page.getFirst().getLastActivityAt()).isEqualTo(NOW);
+    }
+
+    @Test
+    @DisplayName("Should create entries from the conversation state: hidden while cleared with no newer activity")
+    void addMembers_DerivesEntryState() {
+        UserInboxServiceImpl service = new UserInboxServiceImpl(userInboxRepository, conversationRepository, true);
+        ConversationDocument conversation = conversation(new ObjectId(), NOW);
+        conversation.setLastMessage(LastMessagePreview.builder().messageId(new ObjectId()).sentAt(NOW).build());
+        conversation.setUnreadCounts(Map.of("20", 4));
+        conversation.setUnreadMentions(Map.of("20", 1));
+
+        service.addMembers(conversation, List.of(
+                Participant.builder().userId(USER_ID).clearedAt(NOW).build(),
+                Participant.builder().userId(20L).clearedAt(NOW.minusSeconds(1)).muted(true).build()));
+
+        then(userInboxRepository).should().insertMissing(entriesCaptor.capture());
+        List<UserInboxDocument> entries = entriesCaptor.getValue();
+        assertThat(entries).extracting(UserInboxDocument::getUserId).containsExactly(USER_ID, 20L);
+        assertThat(entries).extracting(UserInboxDocument::isVisible).containsExactly(false, true);
+        assertThat(entries).allMatch(entry -> entry.getLastMessageId().equals(conversation.getLastMessage().getMessageId()));
+        assertThat(entries.get(1).getUnreadCount()).isEqualTo(4);
+        assertThat(entries.get(1).getUnreadMentions()).isEqualTo(1);
+        assertThat(entries.get(1).isMuted()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should keep user_inbox up to date while the list is served by the conversation pipeline")
+    void disabled_StillMaintainsEntries() {
+        UserInboxServiceImpl service = new UserInboxServiceImpl(userInboxRepository, conversationRepository, false);
+        ObjectId convId = new ObjectId();
+        Map<ObjectId, LastMessagePreview> previews =
+                Map.of(convId, LastMessagePreview.builder().messageId(new ObjectId()).build());
+        Map<ObjectId, Map<Long, long[]>> counts = Map.of(convId, Map.of(USER_ID, new long[]{1, 0, 1}));
+
+        service.addMembers(conversation(convId, NOW), List.of(Participant.builder().userId(USER_ID).build()));
+        service.clearHistory(convId, USER_ID, NOW);
+        service.applyLastMessages(previews);
+        service.applyUnreadCounts(counts);
+        service.removeConversation(convId);
+
+        assertThat(service.isEnabled()).isFalse();
+        then(userInboxRepository).should().insertMissing(entriesCaptor.capture());
+        assertThat(entriesCaptor.getValue()).extracting(UserInboxDocument::getUserId).containsExactly(USER_ID);
+        then(userInboxRepository).should().updateClearedAt(convId, USER_ID, NOW);
+        then(userInboxRepository).should().applyLastMessages(previews);
+        then(userInboxRepository).should().applyUnreadCounts(counts);
+        then(userInboxRepository).should().deleteAllByConversationId(convId);
+    }
+}
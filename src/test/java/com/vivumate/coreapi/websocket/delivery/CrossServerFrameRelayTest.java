@@ -0,0 +1,58 @@
+package com.vivumate.coreapi.websocket.delivery;
+
+import com.vivumate.coreapi.websocket.session.WebSocketSessionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.then;
+
+@ExtendWith(MockitoExtension.class)
+class CrossServerFrameRelayTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Mock
+    private WebSocketSessionManager sessionManager;
+
+    @Mock
+    private FrameBroadcaster frameBroadcaster;
+
+    @Mock
+    private ExecutorService chatIoExecutor;
+
+    @Test
+    @DisplayName("Should hand the relayed payload bytes to local sessions without re-encoding")
+    void onMessage_BroadcastsPayloadVerbatim() {
+        CrossServerFrameRelay relay = new CrossServerFrameRelay(redisTemplate, listenerContainer, sessionManager,
+                frameBroadcaster, chatIoExecutor, new SimpleMeterRegistry(), "server-b");
+        byte[] json = "{\"id\":\"abc\",\"content\":{\"text\":\"xin chào\"}}".getBytes(StandardCharsets.UTF_8);
+        byte[] envelope = CrossServerFrameRelay.encodeEnvelope(System.currentTimeMillis(), List.of(7L, 8L),
+                PreparedFrame.wrap(json));
+
+        relay.onMessage(new DefaultMessage("ws:deliver:server-b".getBytes(StandardCharsets.UTF_8), envelope), null);
+
+        ArgumentCaptor<PreparedFrame> frameCaptor = ArgumentCaptor.forClass(PreparedFrame.class);
+        then(frameBroadcaster).should().broadcast(frameCaptor.capture(), eq(List.of(7L, 8L)), isNull(), anyLong());
+        assertThat(frameCaptor.getValue().payload()).isEqualTo(json);
+    }
+}
@@ -0,0 +1,75 @@
+package com.vivumate.coreapi.websocket.delivery;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Delivery time of one message vs. recipient count: naive inline loop vs. the tiered fan-out.
+ * Each recipient costs {@code PER_RECIPIENT_MICROS} of simulated outbound I/O.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test -Dtest=GroupFanOutBenchmarkTest -Dbenchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class GroupFanOutBenchmarkTest {
+
+    private static final int[] RECIPIENT_COUNTS = {2, 10, 49, 50, 100, 200, 500, 1_000, 2_000, 5_000};
+    private static final long PER_RECIPIENT_MICROS = 20;
+    private static final int ROUNDS = 20;
+
+    @Test
+    void deliveryTimeByGroupSize() throws Exception {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            GroupFanOutExecutor fanOutExecutor =
+                    new GroupFanOutExecutor(executor, new SimpleMeterRegistry(), 50, 200, 50, 4);
+
+            System.out.printf("%10s  %-14s  %12s  %12s  %12s%n",
+                    "recipients", "tier", "inline (ms)", "tiered (ms)", "send blocked");
+            for (int count : RECIPIENT_COUNTS) {
+                List<Long> recipients = LongStream.rangeClosed(1, count).boxed().toList();
+                AtomicInteger delivered = new AtomicInteger();
+
+                long inlineNanos = 0;
+                long tieredNanos = 0;
+                long blockedNanos = 0;
+                for (int round = 0; round < ROUNDS; round++) {
+                    long t0 = System.nanoTime();
+                    deliver(recipients, delivered);
+                    inlineNanos += System.nanoTime() - t0;
+
+                    long t1 = System.nanoTime();
+                    var done = fanOutExecutor.fanOut(new ObjectId(), recipients, batch -> deliver(batch, delivered));
+                    blockedNanos += System.nanoTime() - t1;
+                    done.get(30, TimeUnit.SECONDS);
+                    tieredNanos += System.nanoTime() - t1;
+                }
+
+                System.out.printf("%,10d  %-14s  %12.2f  %12.2f  %12.2f%n", count,
+                        fanOutExecutor.tierFor(count + 1),
+                        inlineNanos / 1e6 / ROUNDS, tieredNanos / 1e6 / ROUNDS, blockedNanos / 1e6 / ROUNDS);
+                assertThat(delivered.get()).isEqualTo(2 * ROUNDS * count);
+            }
+        }
+    }
+
+    private static void deliver(List<Long> recipients, AtomicInteger delivered) {
+        for (int i = 0; i < recipients.size(); i++) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(PER_RECIPIENT_MICROS));
+            delivered.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.vivumate.coreapi.websocket.delivery;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GroupFanOutExecutorTest {
+
+    private static final int MAX_IN_FLIGHT = 4;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GroupFanOutExecutor fanOutExecutor =
+            new GroupFanOutExecutor(executor, meterRegistry, 50, 200, 50, MAX_IN_FLIGHT);
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    private static List<Long> recipients(int count) {
+        return LongStream.rangeClosed(1, count).boxed().toList();
+    }
+
+    @Test
+    @DisplayName("Should pick the tier by member count (recipients + sender)")
+    void tierFor_Boundaries() {
+        assertThat(fanOutExecutor.tierFor(2)).isEqualTo(FanOutTier.DIRECT);
+        assertThat(fanOutExecutor.tierFor(49)).isEqualTo(FanOutTier.DIRECT);
+        assertThat(fanOutExecutor.tierFor(50)).isEqualTo(FanOutTier.PARTITIONED);
+        assertThat(fanOutExecutor.tierFor(200)).isEqualTo(FanOutTier.PARTITIONED);
+        assertThat(fanOutExecutor.tierFor(201)).isEqualTo(FanOutTier.ASYNC_BATCHED);
+    }
+
+    @Test
+    @DisplayName("Should deliver a small conversation inline on the sending thread")
+    void fanOut_DirectRunsInline() {
+        Thread caller = Thread.currentThread();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        fanOutExecutor.fanOut(new ObjectId(), recipients(10), batch -> threads.add(Thread.currentThread()));
+
+        assertThat(threads).containsExactly(caller);
+        assertThat(meterRegistry.get("vivumate.chat.fanout.latency").tag("tier", "direct").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should deliver every recipient once with bounded in-flight partitions")
+    void fanOut_AsyncBatchedIsCompleteAndBounded() throws Exception {
+        Set<Long> delivered = ConcurrentHashMap.newKeySet();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxObserved = new AtomicInteger();
+
+        fanOutExecutor.fanOut(new ObjectId(), recipients(5_000), batch -> {
+            maxObserved.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            delivered.addAll(batch);
+            inFlight.decrementAndGet();
+        }).get(10, TimeUnit.SECONDS);
+
+        assertThat(delivered).hasSize(5_000);
+        assertThat(maxObserved.get()).isLessThanOrEqualTo(MAX_IN_FLIGHT);
+    }
+
+    @Test
+    @DisplayName("Should not make a group wait for another group's in-flight permits")
+    void fanOut_PermitsArePerConversation() throws Exception {
+        ObjectId busy = new ObjectId();
+        ObjectId other = new ObjectId();
+        while ((other.hashCode() & 0xff) != (busy.hashCode() & 0xff)) {
+            other = new ObjectId(); // Same bucket as "busy" under any 256-way hashing
+        }
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger otherDelivered = new AtomicInteger();
+
+        // Every permit of "busy" held until released
+        var busyDone = fanOutExecutor.fanOut(busy, recipients(1_000), batch -> awaitQuietly(release));
+        try {
+            fanOutExecutor.fanOut(other, recipients(1_000), batch -> otherDelivered.addAndGet(batch.size()))
+                    .get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+        }
+        busyDone.get(10, TimeUnit.SECONDS);
+
+        assertThat(otherDelivered.get()).isEqualTo(1_000);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.vivumate.coreapi.websocket.delivery;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.document.subdoc.SenderSnapshot;
+import com.vivumate.coreapi.event.MessageSentEvent;
+import com.vivumate.coreapi.websocket.session.WebSocketSessionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.times;
+
+@ExtendWith(MockitoExtension.class)
+class MessageDeliveryEngineTest {
+
+    private static final Long SENDER_ID = 1L;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Mock
+    private WebSocketSessionManager sessionManager;
+
+    @Mock
+    private CrossServerFrameRelay crossServerRelay;
+
+    @Captor
+    private ArgumentCaptor<Message<byte[]>> frameCaptor;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MessageDeliveryEngine deliveryEngine;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        GroupFanOutExecutor fanOutExecutor = new GroupFanOutExecutor(Executors.newVirtualThreadPerTaskExecutor(),
+                meterRegistry, 50, 200, 50, 4);
+        FrameBroadcaster frameBroadcaster = new FrameBroadcaster(messagingTemplate, sessionManager, meterRegistry, "/user");
+        deliveryEngine = new MessageDeliveryEngine(frameBroadcaster, crossServerRelay, fanOutExecutor,
+                new ObjectMapper().findAndRegisterModules());
+    }
+
+    private static MessageDocument message() {
+        MessageDocument message = MessageDocument.builder()
+                .conversationId(new ObjectId())
+                .sender(SenderSnapshot.builder().userId(SENDER_ID).username("sender").build())
+                .contentType(ContentType.TEXT)
+                .content(MessageContent.builder().text("hello").build())
+                .build();
+        message.setId(new ObjectId());
+        message.setCreatedAt(Instant.now());
+        return message;
+    }
+
+    @Test
+    @DisplayName("Should send one shared payload to every recipient session and the sender's other devices")
+    void onMessageSent_SharesOnePayloadAndSkipsOriginSession() {
+        given(sessionManager.getLocalSessions(2L)).willReturn(Set.of("s-2a", "s-2b"));
+        given(sessionManager.getLocalSessions(3L)).willReturn(Set.of());
+        given(sessionManager.getLocalSessions(SENDER_ID)).willReturn(Set.of("s-origin", "s-tablet"));
+
+        deliveryEngine.onMessageSent(new MessageSentEvent(message(), List.of(2L, 3L), "s-origin", System.nanoTime()));
+
+        then(messagingTemplate).should(times(3)).send(anyString(), frameCaptor.capture());
+        List<Message<byte[]>> frames = frameCaptor.getAllValues();
+        assertThat(frames).extracting(frame -> SimpMessageHeaderAccessor.getSessionId(frame.getHeaders()))
+                .containsExactlyInAnyOrder("s-2a", "s-2b", "s-tablet");
+        assertThat(frames).extracting(Message::getPayload)
+                .allSatisfy(payload -> assertThat(payload).isSameAs(frames.get(0).getPayload()));
+        assertThat(new String(frames.get(0).getPayload())).contains("\"text\":\"hello\"");
+        assertThat(meterRegistry.get("vivumate.chat.delivery.latency").timer().count()).isEqualTo(3);
+        then(crossServerRelay).should().relay(any(), eq(List.of(2L, 3L, SENDER_ID)), anyLong());
+    }
+
+    @Test
+    @DisplayName("Should never propagate delivery failures to the send")
+    void onMessageSent_SwallowsDeliveryFailure() {
+        given(sessionManager.getLocalSessions(anyLong())).willReturn(Set.of("s-1"));
+        willThrow(new IllegalStateException("channel closed"))
+                .given(messagingTemplate).send(anyString(), any(Message.class));
+
+        deliveryEngine.onMessageSent(new MessageSentEvent(message(), List.of(2L), null, System.nanoTime()));
+
+        then(messagingTemplate).should(times(1)).send(anyString(), any(Message.class));
+    }
+}
@@ -0,0 +1,124 @@
+package com.vivumate.coreapi.websocket.delivery;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vivumate.coreapi.document.MessageDocument;
+import com.vivumate.coreapi.document.enums.ContentType;
+import com.vivumate.coreapi.document.subdoc.MessageContent;
+import com.vivumate.coreapi.document.subdoc.SenderSnapshot;
+import com.vivumate.coreapi.dto.response.MessageResponse;
+import com.vivumate.coreapi.mapper.MessageMapper;
+import com.vivumate.coreapi.websocket.session.WebSocketSessionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bytes allocated per recipient session: Jackson + converter per send (before) vs. one
+ * {@link PreparedFrame} shared by all sends (after). Measured with the per-thread allocation
+ * counter of {@link com.sun.management.ThreadMXBean}; the outbound channel is a no-op so only
+ * the send path itself is counted.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test -Dtest=PreparedFrameAllocationBenchmarkTest -Dbenchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PreparedFrameAllocationBenchmarkTest {
+
+    private static final int[] RECIPIENT_COUNTS = {10, 100, 1_000, 5_000};
+    private static final int WARMUP_ROUNDS = 2_000;
+    private static final Set<String> SESSIONS = Set.of("session");
+
+    private final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void allocatedBytesPerRecipient() throws Exception {
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> true);
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        template.setMessageConverter(converter);
+
+        // Plain stub, not a mock: mock invocation recording would dominate the allocation count
+        WebSocketSessionManager sessionManager = new WebSocketSessionManager(null, "benchmark", 90, 5) {
+            @Override
+            public Set<String> getLocalSessions(Long userId) {
+                return SESSIONS;
+            }
+        };
+        FrameBroadcaster broadcaster = new FrameBroadcaster(template, sessionManager, new SimpleMeterRegistry(), "/user");
+
+        MessageResponse response = MessageMapper.toMessageResponse(message());
+
+        System.out.printf("%10s  %16s  %16s  %8s%n", "recipients", "before (B/rcpt)", "after (B/rcpt)", "ratio");
+        for (int count : RECIPIENT_COUNTS) {
+            List<Long> recipients = LongStream.rangeClosed(1, count).boxed().toList();
+
+            for (int i = 0; i < WARMUP_ROUNDS / count + 1; i++) {
+                perRecipientSerialization(template, recipients, response);
+                broadcaster.broadcast(PreparedFrame.encode(objectMapper, response), recipients, null, System.nanoTime());
+            }
+
+            long before = allocatedBytes(() -> perRecipientSerialization(template, recipients, response));
+            long after = allocatedBytes(() -> broadcaster.broadcast(
+                    PreparedFrame.encode(objectMapper, response), recipients, null, System.nanoTime()));
+
+            System.out.printf("%,10d  %,16d  %,16d  %7.2fx%n",
+                    count, before / count, after / count, (double) before / after);
+            assertThat(after).isLessThan(before);
+        }
+    }
+
+    /** The pre-encode-once path: convertAndSendToUser serializes the DTO for every session. */
+    private static void perRecipientSerialization(SimpMessagingTemplate template, List<Long> recipients,
+                                                  MessageResponse response) {
+        for (Long userId : recipients) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setSessionId("session");
+            accessor.setLeaveMutable(true);
+            template.convertAndSendToUser(userId.toString(), "/queue/messages", response,
+                    accessor.getMessageHeaders());
+        }
+    }
+
+    private long allocatedBytes(ThrowingRunnable runnable) throws Exception {
+        long threadId = Thread.currentThread().threadId();
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+        runnable.run();
+        return threadBean.getThreadAllocatedBytes(threadId) - start;
+    }
+
+    private static MessageDocument message() {
+        MessageDocument message = MessageDocument.builder()
+                .conversationId(new ObjectId())
+                .sender(SenderSnapshot.builder().userId(1L).username("sender").fullName("Sender Name")
+                        .avatarUrl("https://cdn.vivumate.com/avatars/1.png").build())
+                .contentType(ContentType.TEXT)
+                .content(MessageContent.builder().text("Chiều nay mọi người tập trung ở sảnh khách sạn lúc 5h nhé!")
+                        .build())
+                .build();
+        message.setId(new ObjectId());
+        message.setCreatedAt(Instant.now());
+        return message;
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}